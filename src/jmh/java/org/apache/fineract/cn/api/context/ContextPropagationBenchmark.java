@@ -0,0 +1,98 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.api.context;
+
+import org.apache.fineract.cn.api.util.UserContextHolder;
+import org.apache.fineract.cn.lang.TenantContextHolder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures what context propagation adds to a task: taking a snapshot, and running a task in a
+ * snapshot, both when the thread already has the snapshot's context and when it has to be swapped
+ * in and out.  Run with the gc profiler (the default for the jmh task) to see the allocations.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ContextPropagationBenchmark {
+
+  private ContextSnapshot callerContext;
+  private ContextSnapshot otherContext;
+  private Runnable task;
+
+  @Setup
+  public void setup(final Blackhole blackhole) {
+    TenantContextHolder.setIdentifier("other-tenant");
+    UserContextHolder.setAccessToken("other-user", "other-token");
+    otherContext = ContextSnapshot.capture();
+
+    TenantContextHolder.setIdentifier("tenant");
+    UserContextHolder.setAccessToken("user", "token");
+    callerContext = ContextSnapshot.capture();
+
+    task = () -> blackhole.consume(1);
+  }
+
+  @TearDown
+  public void tearDown() {
+    TenantContextHolder.clear();
+    UserContextHolder.clear();
+  }
+
+  @Benchmark
+  public void baseline() {
+    task.run();
+  }
+
+  @Benchmark
+  public ContextSnapshot capture() {
+    return ContextSnapshot.capture();
+  }
+
+  @Benchmark
+  public void runInCurrentContext() {
+    callerContext.run(task);
+  }
+
+  @Benchmark
+  public void runInOtherContext() {
+    otherContext.run(task);
+  }
+
+  @Benchmark
+  public void wrapAndRun() {
+    ContextPropagation.runnable(task).run();
+  }
+}
@@ -0,0 +1,73 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.api.metrics;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures what recording the metrics of a call costs, on one thread and with eight threads
+ * recording into the metrics of the same method.  Run with the gc profiler (the default for the
+ * jmh task) to check that recording doesn't allocate.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MetricsRecordingBenchmark {
+  private static final IllegalStateException FAILURE = new IllegalStateException();
+
+  private final MethodMetrics metrics = new MethodMetrics(Object.class, "http://igle.pop.org", "Object#method()");
+
+  @Benchmark
+  public void recordSuccessfulCall() {
+    record(null);
+  }
+
+  @Benchmark
+  public void recordFailedCall() {
+    record(FAILURE);
+  }
+
+  @Benchmark
+  @Threads(8)
+  public void recordSuccessfulCallContended() {
+    record(null);
+  }
+
+  private void record(final Throwable failure) {
+    final long nanos = ThreadLocalRandom.current().nextLong(100_000, 50_000_000);
+    metrics.recordExchange(failure == null ? 200 : 500, 256);
+    metrics.recordResponseBytes(1024);
+    metrics.recordCall(nanos, failure);
+  }
+}
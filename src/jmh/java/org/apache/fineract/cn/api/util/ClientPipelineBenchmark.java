@@ -0,0 +1,126 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.api.util;
+
+import org.apache.fineract.cn.api.annotation.ThrowsException;
+import org.apache.fineract.cn.lang.TenantContextHolder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the client side of a call, from creating a client to decoding its response, against an
+ * in-process {@link StubServer}.  The server runs in the same JVM, so the numbers include its
+ * cost, but not that of a network.  Run with the gc profiler (the default for the jmh task) to see
+ * the allocation rate per operation.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ClientPipelineBenchmark {
+
+  private StubServer server;
+  private ApiFactory apiFactory;
+  private AccountClient sharedClient;
+
+  @Setup
+  public void setup() throws IOException {
+    server = new StubServer();
+    apiFactory = new ApiFactory(LoggerFactory.getLogger(ClientPipelineBenchmark.class));
+    sharedClient = apiFactory.createShared(AccountClient.class, server.target());
+  }
+
+  @TearDown
+  public void tearDown() {
+    apiFactory.close();
+    server.close();
+  }
+
+  @State(Scope.Thread)
+  public static class CallerContext {
+    @Setup
+    public void setup() {
+      TenantContextHolder.setIdentifier("tenant");
+      UserContextHolder.setAccessToken("user", "token");
+    }
+
+    @TearDown
+    public void tearDown() {
+      TenantContextHolder.clear();
+      UserContextHolder.clear();
+    }
+  }
+
+  @Benchmark
+  public AccountClient create() {
+    return apiFactory.create(AccountClient.class, server.target());
+  }
+
+  @Benchmark
+  public AccountClient createShared() {
+    return apiFactory.createShared(AccountClient.class, server.target());
+  }
+
+  @Benchmark
+  public GsonCodecBenchmark.Account getAccount(final CallerContext callerContext) {
+    return sharedClient.findAccount("0001");
+  }
+
+  @Benchmark
+  public Object getMissingAccount(final CallerContext callerContext) {
+    try {
+      return sharedClient.findAccount("missing");
+    } catch (final AccountNotFoundException e) {
+      return e;
+    }
+  }
+
+  @Benchmark
+  public GsonCodecBenchmark.Account createAndGetAccount(final CallerContext callerContext) {
+    return apiFactory.create(AccountClient.class, server.target()).findAccount("0001");
+  }
+
+  public interface AccountClient {
+    @RequestMapping(value = "/accounts/{identifier}", method = RequestMethod.GET)
+    @ThrowsException(status = HttpStatus.NOT_FOUND, exception = AccountNotFoundException.class)
+    GsonCodecBenchmark.Account findAccount(@PathVariable("identifier") final String identifier);
+  }
+
+  public static final class AccountNotFoundException extends RuntimeException {
+  }
+}
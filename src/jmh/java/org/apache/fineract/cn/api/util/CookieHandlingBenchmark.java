@@ -0,0 +1,99 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.api.util;
+
+import feign.Client;
+import feign.Request;
+import feign.RequestInterceptor;
+import feign.RequestTemplate;
+import feign.Response;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cookie handling of {@link CookieInterceptingClient}: storing the cookies of a
+ * response, and adding the cookies to a request, with responses which do and don't set cookies.
+ * The transport is a stub which returns a prepared response, so only the cookie handling and the
+ * request template are measured.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CookieHandlingBenchmark {
+  private static final String TARGET = "http://igle.pop.org/app/v1";
+
+  private CookieInterceptingClient cookieClient;
+  private CookieInterceptingClient plainClient;
+  private RequestInterceptor cookieInterceptor;
+  private Request request;
+
+  @Setup
+  public void setup() {
+    final Map<String, Collection<String>> cookieHeaders = new HashMap<>();
+    cookieHeaders.put("Set-Cookie", Arrays.asList("session=abcdef; Path=/app/v1", "locale=en; Path=/"));
+    final Response cookieResponse = Response.builder().status(200).headers(cookieHeaders).build();
+    final Response plainResponse = Response.builder().status(200).headers(Collections.emptyMap()).build();
+
+    cookieClient = new CookieInterceptingClient(TARGET, stub(cookieResponse));
+    plainClient = new CookieInterceptingClient(TARGET, stub(plainResponse));
+    cookieInterceptor = cookieClient.getCookieInterceptor();
+    request = Request.create("GET", TARGET + "/accounts/0001", Collections.emptyMap(), null, StandardCharsets.UTF_8);
+  }
+
+  @Benchmark
+  public Response storeCookiesOfResponse() throws IOException {
+    return cookieClient.execute(request, null);
+  }
+
+  @Benchmark
+  public Response responseWithoutCookies() throws IOException {
+    return plainClient.execute(request, null);
+  }
+
+  @Benchmark
+  public RequestTemplate addCookiesToRequest() {
+    final RequestTemplate ret = new RequestTemplate().method("GET").append("/accounts/0001");
+    cookieInterceptor.apply(ret);
+    return ret;
+  }
+
+  private static Client stub(final Response response) {
+    return (request, options) -> response;
+  }
+}
@@ -0,0 +1,106 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.api.util;
+
+import feign.Feign;
+import feign.Response;
+import org.apache.fineract.cn.api.annotation.ThrowsException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link AnnotatedErrorDecoder#decode} for statuses which the method maps to an exception
+ * of its own, and for statuses which fall back to the built-in exceptions or to a FeignException.
+ * See {@link StacklessExceptionBenchmark} for the cost of stack traces.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ErrorDecoderBenchmark {
+
+  @Param({"400", "404", "409", "500"})
+  public int status;
+
+  private AnnotatedErrorDecoder decoder;
+  private String mappedMethodKey;
+  private String unmappedMethodKey;
+  private Response response;
+
+  @Setup
+  public void setup() throws NoSuchMethodException {
+    decoder = new AnnotatedErrorDecoder(LoggerFactory.getLogger(ErrorDecoderBenchmark.class), AccountClient.class);
+    mappedMethodKey = Feign.configKey(AccountClient.class, AccountClient.class.getMethod("createAccount", Object.class));
+    unmappedMethodKey = Feign.configKey(AccountClient.class, AccountClient.class.getMethod("closeAccount", String.class));
+    response = Response.builder()
+        .status(status)
+        .headers(Collections.emptyMap())
+        .body("{\"message\":\"Request failed.\"}", StandardCharsets.UTF_8)
+        .build();
+  }
+
+  @Benchmark
+  public Exception decodeMapped() {
+    return decoder.decode(mappedMethodKey, response);
+  }
+
+  @Benchmark
+  public Exception decodeUnmapped() {
+    return decoder.decode(unmappedMethodKey, response);
+  }
+
+  public interface AccountClient {
+    @ThrowsException(status = HttpStatus.BAD_REQUEST, exception = AccountValidationException.class)
+    @ThrowsException(status = HttpStatus.NOT_FOUND, exception = AccountNotFoundException.class)
+    @ThrowsException(status = HttpStatus.CONFLICT, exception = AccountAlreadyExistsException.class)
+    @ThrowsException(status = HttpStatus.INTERNAL_SERVER_ERROR, exception = AccountServiceException.class)
+    void createAccount(final Object account);
+
+    void closeAccount(final String identifier);
+  }
+
+  public static final class AccountValidationException extends RuntimeException {
+  }
+
+  public static final class AccountNotFoundException extends RuntimeException {
+  }
+
+  public static final class AccountAlreadyExistsException extends RuntimeException {
+  }
+
+  public static final class AccountServiceException extends RuntimeException {
+  }
+}
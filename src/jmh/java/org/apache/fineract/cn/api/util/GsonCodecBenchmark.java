@@ -0,0 +1,132 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.api.util;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import feign.RequestTemplate;
+import feign.Response;
+import feign.codec.Decoder;
+import feign.gson.GsonEncoder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Measures encoding and decoding of account lists of different sizes, with the codecs clients
+ * use.  The list is decoded both into a list, and element by element into a stream.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class GsonCodecBenchmark {
+  private static final Type ACCOUNT_LIST = new TypeToken<List<Account>>() { }.getType();
+  private static final Type ACCOUNT_STREAM = new TypeToken<Stream<Account>>() { }.getType();
+
+  @Param({"1", "100", "1000"})
+  public int size;
+
+  private final GsonEncoder encoder = new GsonEncoder();
+  private final Decoder decoder = new StreamingDecoder();
+  private List<Account> accounts;
+  private byte[] json;
+
+  @Setup
+  public void setup() {
+    final Gson gson = new Gson();
+    accounts = new ArrayList<>(size);
+    for (int i = 0; i < size; i++)
+      accounts.add(gson.fromJson(accountJson(String.format("%04d", i)), Account.class));
+    json = gson.toJson(accounts).getBytes(StandardCharsets.UTF_8);
+  }
+
+  @Benchmark
+  public RequestTemplate encode() {
+    final RequestTemplate ret = new RequestTemplate();
+    encoder.encode(accounts, ACCOUNT_LIST, ret);
+    return ret;
+  }
+
+  @Benchmark
+  public Object decodeList() throws IOException {
+    return decoder.decode(response(), ACCOUNT_LIST);
+  }
+
+  @Benchmark
+  public void decodeStream(final Blackhole blackhole) throws IOException {
+    @SuppressWarnings("unchecked")
+    final Stream<Account> decoded = (Stream<Account>) decoder.decode(response(), ACCOUNT_STREAM);
+    try (final Stream<Account> ignored = decoded) {
+      decoded.forEach(blackhole::consume);
+    }
+  }
+
+  private Response response() {
+    return Response.builder().status(200).headers(Collections.emptyMap()).body(json).build();
+  }
+
+  static String accountJson(final String identifier) {
+    return "{\"type\":\"ASSET\",\"identifier\":\"" + identifier + "\",\"name\":\"Account " + identifier + "\","
+        + "\"holders\":[\"customer-" + identifier + "\"],\"signatureAuthorities\":[\"officer-1\",\"officer-2\"],"
+        + "\"balance\":12345.67,\"referenceAccount\":\"7010\",\"ledger\":\"7000\",\"state\":\"OPEN\","
+        + "\"alternativeAccountNumber\":\"DE89370400440532013000\",\"createdOn\":\"2017-06-21T10:15:30.000Z\","
+        + "\"createdBy\":\"operator\",\"lastModifiedOn\":\"2017-06-22T08:00:00.000Z\",\"lastModifiedBy\":\"operator\"}";
+  }
+
+  @SuppressWarnings("unused")
+  public static final class Account {
+    private String type;
+    private String identifier;
+    private String name;
+    private Set<String> holders = new HashSet<>();
+    private Set<String> signatureAuthorities = new HashSet<>();
+    private Double balance;
+    private String referenceAccount;
+    private String ledger;
+    private String state;
+    private String alternativeAccountNumber;
+    private String createdOn;
+    private String createdBy;
+    private String lastModifiedOn;
+    private String lastModifiedBy;
+  }
+}
@@ -0,0 +1,105 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.api.util;
+
+import feign.RequestInterceptor;
+import feign.RequestTemplate;
+import org.apache.fineract.cn.lang.TenantContextHolder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the chain of separate interceptors a client used to run for every request with the
+ * {@link FusedRequestInterceptor}, for a GET and for a POST without a body, with a cookie set.
+ * Both include the cost of a fresh request template, which Feign creates per request as well.
+ * Run with the gc profiler (the default for the jmh task) to see the allocations.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RequestInterceptorBenchmark {
+  private static final String TARGET = "http://igle.pop.org/app/v1/";
+
+  @Param({"GET", "POST"})
+  public String method;
+
+  private RequestInterceptor[] chain;
+  private RequestInterceptor fused;
+
+  @Setup
+  public void setup() {
+    TenantContextHolder.setIdentifier("tenant");
+    UserContextHolder.setAccessToken("user", "token");
+
+    final CookieInterceptingClient cookieClient = new CookieInterceptingClient(TARGET);
+    cookieClient.putCookie("/", "session", "abcdef");
+    chain = new RequestInterceptor[] {
+        new TenantedTargetInterceptor(),
+        new TokenedTargetInterceptor(),
+        new EmptyBodyInterceptor(),
+        cookieClient.getCookieInterceptor()
+    };
+    fused = new FusedRequestInterceptor(cookieClient.cookieJar);
+  }
+
+  @TearDown
+  public void tearDown() {
+    TenantContextHolder.clear();
+    UserContextHolder.clear();
+  }
+
+  @Benchmark
+  public RequestTemplate templateOnly() {
+    return template();
+  }
+
+  @Benchmark
+  public RequestTemplate interceptorChain() {
+    final RequestTemplate ret = template();
+    for (final RequestInterceptor interceptor : chain)
+      interceptor.apply(ret);
+    return ret;
+  }
+
+  @Benchmark
+  public RequestTemplate fusedInterceptor() {
+    final RequestTemplate ret = template();
+    fused.apply(ret);
+    return ret;
+  }
+
+  private RequestTemplate template() {
+    return new RequestTemplate().method(method).append("/things");
+  }
+}
@@ -0,0 +1,126 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.api.util;
+
+import feign.Feign;
+import feign.Response;
+import org.apache.fineract.cn.api.annotation.StacklessExceptions;
+import org.apache.fineract.cn.api.annotation.ThrowsException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares decoding of 404 responses with and without stack traces.  The decoder is invoked at a
+ * configurable call depth, since filling in a stack trace costs in proportion to the depth of the
+ * stack, and real callers sit well below the top of a servlet container's stack.  Run with the gc
+ * profiler (the default for the jmh task) to see the allocation rate per operation.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class StacklessExceptionBenchmark {
+
+  @Param({"false", "true"})
+  public boolean stackless;
+
+  @Param({"10", "100"})
+  public int callDepth;
+
+  private AnnotatedErrorDecoder decoder;
+  private String mappedMethodKey;
+  private String unmappedMethodKey;
+  private Response notFoundResponse;
+
+  @Setup
+  public void setup() throws NoSuchMethodException {
+    final Class<?> clazz = stackless ? StacklessCustomerClient.class : CustomerClient.class;
+    decoder = new AnnotatedErrorDecoder(LoggerFactory.getLogger(StacklessExceptionBenchmark.class), clazz);
+    mappedMethodKey = Feign.configKey(clazz, clazz.getMethod("findCustomer", String.class));
+    unmappedMethodKey = Feign.configKey(clazz, clazz.getMethod("findProduct", String.class));
+    notFoundResponse = Response.builder()
+        .status(HttpStatus.NOT_FOUND.value())
+        .headers(Collections.emptyMap())
+        .body("{\"message\":\"Customer not found.\"}", StandardCharsets.UTF_8)
+        .build();
+  }
+
+  @Benchmark
+  public Exception decodeMappedNotFound() {
+    return decodeAt(callDepth, mappedMethodKey);
+  }
+
+  @Benchmark
+  public Exception decodeUnmappedNotFound() {
+    return decodeAt(callDepth, unmappedMethodKey);
+  }
+
+  private Exception decodeAt(final int depth, final String methodKey) {
+    if (depth > 0)
+      return decodeAt(depth - 1, methodKey);
+    return decoder.decode(methodKey, notFoundResponse);
+  }
+
+  public interface CustomerClient {
+
+    @ThrowsException(status = HttpStatus.NOT_FOUND, exception = CustomerNotFoundException.class)
+    Object findCustomer(final String identifier);
+
+    Object findProduct(final String identifier);
+  }
+
+  @StacklessExceptions
+  public interface StacklessCustomerClient {
+
+    @ThrowsException(status = HttpStatus.NOT_FOUND, exception = CustomerNotFoundException.class)
+    Object findCustomer(final String identifier);
+
+    Object findProduct(final String identifier);
+  }
+
+  public static final class CustomerNotFoundException extends RuntimeException {
+    public CustomerNotFoundException() {
+    }
+
+    public CustomerNotFoundException(
+        final String message,
+        final Throwable cause,
+        final boolean enableSuppression,
+        final boolean writableStackTrace) {
+      super(message, cause, enableSuppression, writableStackTrace);
+    }
+  }
+}
@@ -0,0 +1,80 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.api.util;
+
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * An in-process HTTP server for the benchmarks.  {@code GET /app/v1/accounts/{identifier}} returns
+ * an account, except for the identifier "missing", which yields a 404.  {@code POST /app/v1/accounts}
+ * returns 202, and sets a session cookie.
+ */
+final class StubServer implements AutoCloseable {
+  static final String ACCOUNT_JSON = GsonCodecBenchmark.accountJson("0001");
+
+  private final HttpServer server;
+  private final ExecutorService executor;
+
+  StubServer() throws IOException {
+    //Without it, the server's header and body writes wait on delayed acknowledgements.
+    System.setProperty("sun.net.httpserver.nodelay", "true");
+    server = HttpServer.create(new InetSocketAddress("localhost", 0), 512);
+    executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+    server.setExecutor(executor);
+    server.createContext("/app/v1/accounts", exchange -> {
+      try (final InputStream in = exchange.getRequestBody(); final OutputStream out = exchange.getResponseBody()) {
+        while (in.read() != -1) {
+          //Drain the request body so the connection can be reused.
+        }
+        if (exchange.getRequestMethod().equals("POST")) {
+          exchange.getResponseHeaders().add("Set-Cookie", "session=abcdef; Path=/app/v1");
+          exchange.sendResponseHeaders(202, -1);
+        } else if (exchange.getRequestURI().getPath().endsWith("/missing")) {
+          final byte[] body = "{\"message\":\"Account not found.\"}".getBytes(StandardCharsets.UTF_8);
+          exchange.sendResponseHeaders(404, body.length);
+          out.write(body);
+        } else {
+          final byte[] body = ACCOUNT_JSON.getBytes(StandardCharsets.UTF_8);
+          exchange.getResponseHeaders().add("Content-Type", "application/json");
+          exchange.sendResponseHeaders(200, body.length);
+          out.write(body);
+        }
+      }
+    });
+    server.start();
+  }
+
+  String target() {
+    return "http://localhost:" + server.getAddress().getPort() + "/app/v1";
+  }
+
+  @Override
+  public void close() {
+    server.stop(0);
+    executor.shutdownNow();
+  }
+}
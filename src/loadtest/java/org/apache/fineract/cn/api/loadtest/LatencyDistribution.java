@@ -0,0 +1,87 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.api.loadtest;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The distribution of the time the stub service takes to answer.  Written as {@code fixed:<ms>},
+ * {@code uniform:<min ms>-<max ms>}, {@code exponential:<mean ms>} or
+ * {@code lognormal:<median ms>:<sigma>}; the last two give the long tail of a real service.
+ */
+abstract class LatencyDistribution {
+
+  abstract long sampleNanos(final ThreadLocalRandom random);
+
+  static LatencyDistribution parse(final String spec) {
+    final String[] parts = spec.split(":");
+    try {
+      switch (parts[0]) {
+        case "fixed": {
+          final long nanos = millisToNanos(Double.parseDouble(parts[1]));
+          return of(spec, random -> nanos);
+        }
+        case "uniform": {
+          final String[] bounds = parts[1].split("-");
+          final long min = millisToNanos(Double.parseDouble(bounds[0]));
+          final long max = millisToNanos(Double.parseDouble(bounds[1]));
+          if (max < min)
+            throw new IllegalArgumentException("Maximum latency below minimum in " + spec);
+          return of(spec, random -> min + (max == min ? 0 : random.nextLong(max - min + 1)));
+        }
+        case "exponential": {
+          final double mean = millisToNanos(Double.parseDouble(parts[1]));
+          return of(spec, random -> (long) (-mean * Math.log(1.0 - random.nextDouble())));
+        }
+        case "lognormal": {
+          final double mu = Math.log(millisToNanos(Double.parseDouble(parts[1])));
+          final double sigma = Double.parseDouble(parts[2]);
+          return of(spec, random -> (long) Math.exp(mu + sigma * random.nextGaussian()));
+        }
+        default:
+          throw new IllegalArgumentException("Unknown latency distribution " + spec);
+      }
+    } catch (final ArrayIndexOutOfBoundsException | NumberFormatException e) {
+      throw new IllegalArgumentException("Malformed latency distribution " + spec, e);
+    }
+  }
+
+  private static long millisToNanos(final double millis) {
+    return (long) (millis * TimeUnit.MILLISECONDS.toNanos(1));
+  }
+
+  private static LatencyDistribution of(final String spec, final Sampler sampler) {
+    return new LatencyDistribution() {
+      @Override
+      long sampleNanos(final ThreadLocalRandom random) {
+        return sampler.sampleNanos(random);
+      }
+
+      @Override
+      public String toString() {
+        return spec;
+      }
+    };
+  }
+
+  private interface Sampler {
+    long sampleNanos(final ThreadLocalRandom random);
+  }
+}
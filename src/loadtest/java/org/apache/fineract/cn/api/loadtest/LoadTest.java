@@ -0,0 +1,182 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.api.loadtest;
+
+import org.HdrHistogram.Histogram;
+import org.apache.fineract.cn.api.util.ApiFactory;
+import org.apache.fineract.cn.api.util.ClientOptions;
+import org.apache.fineract.cn.api.util.TransportFactory;
+import org.apache.fineract.cn.api.util.UserContextHolder;
+import org.apache.fineract.cn.lang.TenantContextHolder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Drives a client created by {@link ApiFactory} from many threads against an embedded
+ * {@link StubService}, and reports throughput, latency percentiles and how the responses were
+ * mapped.  Each call runs in the context of one of several tenants and users, in rotation.
+ *
+ * <p>Run with {@code ./gradlew loadTest}, passing settings as
+ * {@code -PloadTestArgs="--threads=64 --duration=60"}; see {@link LoadTestConfig} for the settings.
+ * The threads call in a closed loop, each sending its next request when the previous one returns,
+ * so the throughput is the ceiling for the given number of threads and the stub's latency.</p>
+ */
+public final class LoadTest {
+  private static final long HIGHEST_TRACKABLE_NANOS = TimeUnit.MINUTES.toNanos(1);
+  private static final String SUCCESS = "200";
+  private static final String CONTEXT_MISMATCH = "200 with another tenant's or user's data";
+
+  private final LoadTestConfig config;
+  private final Map<String, LongAdder> outcomes = new ConcurrentHashMap<>();
+
+  private LoadTest(final LoadTestConfig config) {
+    this.config = config;
+  }
+
+  public static void main(final String[] args) throws Exception {
+    final LoadTestConfig config = LoadTestConfig.parse(args);
+    System.out.println("Load test with " + config);
+    new LoadTest(config).run();
+  }
+
+  private void run() throws Exception {
+    final Logger logger = LoggerFactory.getLogger(LoadTest.class);
+    try (final StubService stubService = new StubService(config)) {
+      final ApiFactory apiFactory = config.transport.equals("pooled")
+          ? new ApiFactory(logger)
+          : new ApiFactory(logger, ApiFactory.DEFAULT_SHARED_CLIENT_CACHE_SIZE, TransportFactory.URL_CONNECTION);
+      try {
+        final ClientOptions options = ClientOptions.builder()
+            .maxConnectionsPerRoute(config.maxConnections)
+            .maxConnectionsTotal(config.maxConnections)
+            .build();
+        final ThingClient client = apiFactory.createShared(ThingClient.class, stubService.target(), options);
+        report(drive(client));
+      } finally {
+        apiFactory.close();
+      }
+    }
+  }
+
+  private Histogram drive(final ThingClient client) throws InterruptedException {
+    final long start = System.nanoTime();
+    final long measureFrom = start + TimeUnit.SECONDS.toNanos(config.warmupSeconds);
+    final long measureUntil = measureFrom + TimeUnit.SECONDS.toNanos(config.durationSeconds);
+
+    final List<Worker> workers = new ArrayList<>(config.threads);
+    for (int i = 0; i < config.threads; i++) {
+      final Worker worker = new Worker(i, client, measureFrom, measureUntil);
+      workers.add(worker);
+      worker.start();
+    }
+
+    final Histogram ret = new Histogram(HIGHEST_TRACKABLE_NANOS, 3);
+    for (final Worker worker : workers) {
+      worker.join();
+      ret.add(worker.histogram);
+    }
+    return ret;
+  }
+
+  private void report(final Histogram latencies) {
+    final long requests = latencies.getTotalCount();
+    System.out.println();
+    System.out.printf("Requests:    %d in %d s%n", requests, config.durationSeconds);
+    System.out.printf("Throughput:  %.1f requests/s%n", requests / (double) config.durationSeconds);
+    System.out.println();
+    System.out.println("Latency (ms):");
+    for (final double percentile : new double[]{50, 90, 99, 99.9, 99.99}) {
+      System.out.printf("  p%-7s %10.3f%n", percentile, latencies.getValueAtPercentile(percentile) / 1e6);
+    }
+    System.out.printf("  %-8s %10.3f%n", "max", latencies.getMaxValue() / 1e6);
+    System.out.println();
+    System.out.println("Outcomes (status, or the exception the error decoder mapped it to):");
+    new TreeMap<>(outcomes).forEach((outcome, count) ->
+        System.out.printf("  %-72s %10d  %6.2f%%%n", outcome, count.sum(), 100.0 * count.sum() / requests));
+    System.out.println();
+    System.out.println("Latency distribution (ms):");
+    latencies.outputPercentileDistribution(System.out, 5, 1e6);
+  }
+
+  private final class Worker extends Thread {
+    private final ThingClient client;
+    private final long measureFrom;
+    private final long measureUntil;
+    private final Histogram histogram = new Histogram(HIGHEST_TRACKABLE_NANOS, 3);
+    private int rotation;
+
+    private Worker(final int index, final ThingClient client, final long measureFrom, final long measureUntil) {
+      super("load-test-" + index);
+      this.client = client;
+      this.measureFrom = measureFrom;
+      this.measureUntil = measureUntil;
+      this.rotation = index;
+    }
+
+    @Override
+    public void run() {
+      final ThreadLocalRandom random = ThreadLocalRandom.current();
+      try {
+        long now = System.nanoTime();
+        while (now - measureUntil < 0) {
+          final String tenant = "tenant-" + rotation % config.tenants;
+          final String user = "user-" + rotation % (config.tenants * config.usersPerTenant);
+          rotation++;
+          TenantContextHolder.setIdentifier(tenant);
+          UserContextHolder.setAccessToken(user, "token-" + user);
+
+          final int items = config.payloadItems[random.nextInt(config.payloadItems.length)];
+          final long callStart = System.nanoTime();
+          final String outcome = call(items, tenant, user);
+          now = System.nanoTime();
+
+          if (callStart - measureFrom >= 0 && now - measureUntil < 0) {
+            histogram.recordValue(Math.min(now - callStart, HIGHEST_TRACKABLE_NANOS));
+            outcomes.computeIfAbsent(outcome, x -> new LongAdder()).increment();
+          }
+        }
+      } finally {
+        TenantContextHolder.clear();
+        UserContextHolder.clear();
+      }
+    }
+
+    private String call(final int items, final String tenant, final String user) {
+      try {
+        final List<ThingClient.Thing> things = client.fetchThings(items);
+        for (final ThingClient.Thing thing : things) {
+          if (!tenant.equals(thing.tenant) || !user.equals(thing.user))
+            return CONTEXT_MISMATCH;
+        }
+        return SUCCESS;
+      } catch (final RuntimeException e) {
+        return e.getClass().getName();
+      }
+    }
+  }
+}
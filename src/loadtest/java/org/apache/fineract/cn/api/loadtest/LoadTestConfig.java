@@ -0,0 +1,100 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.api.loadtest;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The settings of a load test run, given as {@code --name=value} arguments.  Every setting has a
+ * default, so the load test also runs without arguments.
+ */
+final class LoadTestConfig {
+  final int threads;
+  final int warmupSeconds;
+  final int durationSeconds;
+  final int tenants;
+  final int usersPerTenant;
+  final LatencyDistribution latency;
+  final StatusMix statusMix;
+  final int[] payloadItems;
+  final int maxConnections;
+  final String transport;
+  final int serverThreads;
+
+  private LoadTestConfig(final Map<String, String> args) {
+    threads = intArg(args, "threads", 32);
+    warmupSeconds = intArg(args, "warmup", 5);
+    durationSeconds = intArg(args, "duration", 30);
+    tenants = intArg(args, "tenants", 4);
+    usersPerTenant = intArg(args, "users", 8);
+    latency = LatencyDistribution.parse(args.getOrDefault("latency", "lognormal:5:0.5"));
+    statusMix = StatusMix.parse(args.getOrDefault("statuses", "200=90,404=5,409=3,500=2"));
+    payloadItems = intsArg(args, "payloadItems", "1,10,100");
+    maxConnections = intArg(args, "maxConnections", 50);
+    transport = args.getOrDefault("transport", "pooled");
+    serverThreads = intArg(args, "serverThreads", 200);
+    if (!transport.equals("pooled") && !transport.equals("urlconnection"))
+      throw new IllegalArgumentException("Transport must be pooled or urlconnection, not " + transport);
+  }
+
+  static LoadTestConfig parse(final String[] args) {
+    final Map<String, String> ret = new HashMap<>();
+    for (final String arg : args) {
+      if (!arg.startsWith("--") || !arg.contains("="))
+        throw new IllegalArgumentException("Arguments must be given as --name=value, not " + arg);
+      final int equals = arg.indexOf('=');
+      ret.put(arg.substring(2, equals), arg.substring(equals + 1));
+    }
+    return new LoadTestConfig(ret);
+  }
+
+  private static int intArg(final Map<String, String> args, final String name, final int defaultValue) {
+    final String value = args.get(name);
+    if (value == null)
+      return defaultValue;
+    final int ret = Integer.parseInt(value);
+    if (ret < 1)
+      throw new IllegalArgumentException(name + " must be positive.");
+    return ret;
+  }
+
+  private static int[] intsArg(final Map<String, String> args, final String name, final String defaultValue) {
+    final String[] values = args.getOrDefault(name, defaultValue).split(",");
+    final int[] ret = new int[values.length];
+    for (int i = 0; i < values.length; i++)
+      ret[i] = Integer.parseInt(values[i].trim());
+    return ret;
+  }
+
+  @Override
+  public String toString() {
+    return "threads=" + threads +
+        ", warmup=" + warmupSeconds + "s" +
+        ", duration=" + durationSeconds + "s" +
+        ", tenants=" + tenants +
+        ", users=" + usersPerTenant +
+        ", latency=" + latency +
+        ", statuses=" + statusMix +
+        ", payloadItems=" + Arrays.toString(payloadItems) +
+        ", maxConnections=" + maxConnections +
+        ", transport=" + transport;
+  }
+}
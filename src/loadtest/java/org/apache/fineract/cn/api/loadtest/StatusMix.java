@@ -0,0 +1,76 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.api.loadtest;
+
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * The share of each status the stub service answers with, written as comma separated
+ * {@code <status>=<weight>} pairs, e.g. {@code 200=90,404=5,409=3,500=2}.
+ */
+final class StatusMix {
+  private final String spec;
+  private final int[] statuses;
+  private final int[] cumulativeWeights;
+
+  private StatusMix(final String spec, final int[] statuses, final int[] cumulativeWeights) {
+    this.spec = spec;
+    this.statuses = statuses;
+    this.cumulativeWeights = cumulativeWeights;
+  }
+
+  static StatusMix parse(final String spec) {
+    final String[] entries = spec.split(",");
+    final int[] statuses = new int[entries.length];
+    final int[] cumulativeWeights = new int[entries.length];
+    int total = 0;
+    try {
+      for (int i = 0; i < entries.length; i++) {
+        final String[] entry = entries[i].split("=");
+        statuses[i] = Integer.parseInt(entry[0].trim());
+        final int weight = Integer.parseInt(entry[1].trim());
+        if (weight < 0)
+          throw new IllegalArgumentException("Negative weight in status mix " + spec);
+        total += weight;
+        cumulativeWeights[i] = total;
+      }
+    } catch (final ArrayIndexOutOfBoundsException | NumberFormatException e) {
+      throw new IllegalArgumentException("Malformed status mix " + spec, e);
+    }
+    if (total == 0)
+      throw new IllegalArgumentException("Status mix " + spec + " has no weight.");
+    return new StatusMix(spec, statuses, cumulativeWeights);
+  }
+
+  int sample(final ThreadLocalRandom random) {
+    final int point = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+    int index = Arrays.binarySearch(cumulativeWeights, point + 1);
+    if (index < 0)
+      index = -index - 1;
+    while (index > 0 && cumulativeWeights[index - 1] == cumulativeWeights[index])
+      index--;
+    return statuses[index];
+  }
+
+  @Override
+  public String toString() {
+    return spec;
+  }
+}
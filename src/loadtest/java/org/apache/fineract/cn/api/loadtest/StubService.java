@@ -0,0 +1,129 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.api.loadtest;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.fineract.cn.api.util.ApiConstants;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.apache.fineract.cn.lang.config.TenantHeaderFilter.TENANT_HEADER;
+
+/**
+ * An embedded stand-in for a fineract service.  {@code GET /app/v1/things?items=<n>} answers after a
+ * latency drawn from the configured distribution, with a status drawn from the configured mix.  A
+ * 200 carries a list of n things, each naming the tenant and user of the request, so the load test
+ * can check that no request went out with the context of another.
+ */
+final class StubService implements AutoCloseable {
+  private final HttpServer server;
+  private final ExecutorService executor;
+  private final LatencyDistribution latency;
+  private final StatusMix statusMix;
+
+  StubService(final LoadTestConfig config) throws IOException {
+    System.setProperty("sun.net.httpserver.nodelay", "true");
+    this.latency = config.latency;
+    this.statusMix = config.statusMix;
+    this.server = HttpServer.create(new InetSocketAddress("localhost", 0), 1024);
+    final AtomicInteger threadCount = new AtomicInteger();
+    this.executor = Executors.newFixedThreadPool(config.serverThreads, runnable -> {
+      final Thread thread = new Thread(runnable, "stub-service-" + threadCount.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    });
+    server.setExecutor(executor);
+    server.createContext("/app/v1/things", this::handle);
+    server.start();
+  }
+
+  String target() {
+    return "http://localhost:" + server.getAddress().getPort() + "/app/v1";
+  }
+
+  private void handle(final HttpExchange exchange) throws IOException {
+    final ThreadLocalRandom random = ThreadLocalRandom.current();
+    try (final InputStream in = exchange.getRequestBody(); final OutputStream out = exchange.getResponseBody()) {
+      while (in.read() != -1) {
+        //Drain the request body so the connection can be reused.
+      }
+      sleep(latency.sampleNanos(random));
+
+      final int status = statusMix.sample(random);
+      final byte[] body;
+      if (status == 200) {
+        final String tenant = exchange.getRequestHeaders().getFirst(TENANT_HEADER);
+        final String user = exchange.getRequestHeaders().getFirst(ApiConstants.USER_HEADER);
+        body = things(items(exchange.getRequestURI().getQuery()), tenant, user);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+      } else {
+        body = ("{\"message\":\"Stub status " + status + "\"}").getBytes(StandardCharsets.UTF_8);
+      }
+      exchange.sendResponseHeaders(status, body.length);
+      out.write(body);
+    }
+  }
+
+  private static void sleep(final long nanos) {
+    if (nanos <= 0)
+      return;
+    try {
+      TimeUnit.NANOSECONDS.sleep(nanos);
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private static int items(final String query) {
+    if (query != null && query.startsWith("items="))
+      return Integer.parseInt(query.substring("items=".length()));
+    return 1;
+  }
+
+  private static byte[] things(final int items, final String tenant, final String user) {
+    final StringBuilder ret = new StringBuilder(items * 128).append('[');
+    for (int i = 0; i < items; i++) {
+      if (i > 0)
+        ret.append(',');
+      ret.append("{\"tenant\":\"").append(tenant)
+          .append("\",\"user\":\"").append(user)
+          .append("\",\"identifier\":\"thing-").append(i)
+          .append("\",\"name\":\"Thing number ").append(i)
+          .append("\",\"balance\":").append(i * 100.25)
+          .append('}');
+    }
+    return ret.append(']').toString().getBytes(StandardCharsets.UTF_8);
+  }
+
+  @Override
+  public void close() {
+    server.stop(0);
+    executor.shutdownNow();
+  }
+}
@@ -0,0 +1,54 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.api.loadtest;
+
+import org.apache.fineract.cn.api.annotation.ThrowsException;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+
+import java.util.List;
+
+/**
+ * The client the load test drives.  404 and 409 are mapped to exceptions of their own, 500 is
+ * left to the built-in mapping of the error decoder.
+ */
+public interface ThingClient {
+
+  @RequestMapping(value = "/things", method = RequestMethod.GET)
+  @ThrowsException(status = HttpStatus.NOT_FOUND, exception = ThingNotFoundException.class)
+  @ThrowsException(status = HttpStatus.CONFLICT, exception = ThingConflictException.class)
+  List<Thing> fetchThings(@RequestParam("items") final int items);
+
+  class Thing {
+    String tenant;
+    String user;
+    String identifier;
+    String name;
+    Double balance;
+  }
+
+  class ThingNotFoundException extends RuntimeException {
+  }
+
+  class ThingConflictException extends RuntimeException {
+  }
+}
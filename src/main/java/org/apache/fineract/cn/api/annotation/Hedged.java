@@ -0,0 +1,49 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.api.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a GET or HEAD method of a feign client whose requests are hedged: if there is no response
+ * after a delay, the same request goes out again, possibly to another instance, and the first
+ * response wins.  Requests of other methods are never hedged.  Hedges are capped to a percentage of
+ * the requests of the method, so a slow service doesn't get twice the load.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface Hedged {
+
+  /**
+   * The delay before the hedge in milliseconds.  When negative, the delay is the
+   * {@link #percentile()} of the times to the response headers of the method observed in the last
+   * half minute to minute.
+   */
+  long delayMillis() default -1;
+
+  double percentile() default 95.0;
+
+  /**
+   * The most hedges to send, as a percentage of the requests of the method.
+   */
+  int maxExtraPercent() default 10;
+}
@@ -34,4 +34,15 @@ public @interface ThrowsException {
   HttpStatus status();
 
   Class<? extends RuntimeException> exception();
+
+  /**
+   * When set, the exception is thrown without a stack trace.  The exception needs a public
+   * constructor accepting a message, a cause, and whether suppression is enabled and the stack trace
+   * writable, like that of {@link RuntimeException}.  It is called for each response, without a
+   * message or cause, and with both suppression and the stack trace turned off.  The decoder refuses
+   * a stackless mapping to an exception without such a constructor, or with a constructor accepting
+   * the response, when it is created.  Intended for statuses which are part of normal control flow,
+   * such as existence probes returning 404.
+   */
+  boolean stackless() default false;
 }
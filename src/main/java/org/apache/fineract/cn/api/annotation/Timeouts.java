@@ -0,0 +1,49 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.api.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Declares the timeouts of a method of a feign client, in place of those of the client.  Negative
+ * values, the defaults, keep the timeout of the client.  The timeouts are resolved once, when the
+ * client is created, and can be overridden per target by
+ * {@link org.apache.fineract.cn.api.util.TimeoutOverrides}.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface Timeouts {
+
+  long connectMillis() default -1;
+
+  /**
+   * The longest wait for data from the target, between any two reads.
+   */
+  long readMillis() default -1;
+
+  /**
+   * The longest a whole call, including all of its retries, may take.  Sets a
+   * {@link org.apache.fineract.cn.api.util.Deadline} for the call, unless the caller already has an
+   * earlier one.
+   */
+  long totalMillis() default -1;
+}
@@ -18,6 +18,7 @@
  */
 package org.apache.fineract.cn.api.config;
 
+import org.apache.fineract.cn.api.metrics.JmxMetricsRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.context.annotation.Bean;
@@ -37,4 +38,9 @@ public class ApiConfiguration {
   public Logger logger() {
     return LoggerFactory.getLogger(LOGGER_NAME);
   }
+
+  @Bean
+  public JmxMetricsRegistry jmxMetricsRegistry() {
+    return new JmxMetricsRegistry();
+  }
 }
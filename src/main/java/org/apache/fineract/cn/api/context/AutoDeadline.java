@@ -0,0 +1,54 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.api.context;
+
+import org.apache.fineract.cn.api.util.Deadline;
+import org.apache.fineract.cn.api.util.DeadlineHolder;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sets a deadline for the work done in a try block, and restores the previous one afterwards.  A
+ * deadline can only be made earlier: if the thread already has an earlier one, it stays in effect.
+ */
+@SuppressWarnings({"OptionalUsedAsFieldOrParameterType", "WeakerAccess", "unused"})
+public class AutoDeadline implements AutoCloseable {
+  private final Optional<Deadline> previousDeadline;
+
+  public AutoDeadline(final long timeout, final TimeUnit unit) {
+    this(Deadline.after(timeout, unit));
+  }
+
+  /**
+   * @param deadline the deadline, or null to leave the current one, for example when a request
+   *                 came without a {@link org.apache.fineract.cn.api.util.ApiConstants#REMAINING_TIME_HEADER}.
+   */
+  public AutoDeadline(final Deadline deadline) {
+    previousDeadline = DeadlineHolder.getDeadline();
+
+    if (deadline != null && previousDeadline.map(deadline::isBefore).orElse(true))
+      DeadlineHolder.setDeadline(deadline);
+  }
+
+  @Override public void close() {
+    DeadlineHolder.clear();
+    previousDeadline.ifPresent(DeadlineHolder::setDeadline);
+  }
+}
@@ -0,0 +1,48 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.api.context;
+
+import org.apache.fineract.cn.api.util.RequestScope;
+import org.apache.fineract.cn.api.util.RequestScopeHolder;
+
+/**
+ * Opens a {@link RequestScope} for the work done in a try block, typically the handling of one
+ * inbound request, and drops it afterwards.  Within a scope which is already open, the outer scope
+ * is kept, so that nested blocks share its reads.
+ */
+@SuppressWarnings("WeakerAccess")
+public class AutoRequestScope implements AutoCloseable {
+  private final RequestScope opened;
+
+  public AutoRequestScope() {
+    if (RequestScopeHolder.getRequestScope().isPresent()) {
+      opened = null;
+    } else {
+      opened = new RequestScope();
+      RequestScopeHolder.setRequestScope(opened);
+    }
+  }
+
+  @Override public void close() {
+    if (opened == null)
+      return;
+    opened.clear();
+    RequestScopeHolder.clear();
+  }
+}
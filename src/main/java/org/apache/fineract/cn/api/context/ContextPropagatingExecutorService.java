@@ -0,0 +1,119 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.api.context;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
+
+/**
+ * An executor service which runs each task with the context of the thread which submitted it.
+ */
+final class ContextPropagatingExecutorService implements ExecutorService {
+  private final ExecutorService delegate;
+
+  ContextPropagatingExecutorService(final ExecutorService delegate) {
+    this.delegate = delegate;
+  }
+
+  @Override
+  public void execute(final Runnable command) {
+    delegate.execute(ContextPropagation.runnable(command));
+  }
+
+  @Override
+  public <T> Future<T> submit(final Callable<T> task) {
+    return delegate.submit(ContextPropagation.callable(task));
+  }
+
+  @Override
+  public <T> Future<T> submit(final Runnable task, final T result) {
+    return delegate.submit(ContextPropagation.runnable(task), result);
+  }
+
+  @Override
+  public Future<?> submit(final Runnable task) {
+    return delegate.submit(ContextPropagation.runnable(task));
+  }
+
+  @Override
+  public <T> List<Future<T>> invokeAll(final Collection<? extends Callable<T>> tasks) throws InterruptedException {
+    return delegate.invokeAll(wrap(tasks));
+  }
+
+  @Override
+  public <T> List<Future<T>> invokeAll(
+      final Collection<? extends Callable<T>> tasks,
+      final long timeout,
+      final TimeUnit unit) throws InterruptedException {
+    return delegate.invokeAll(wrap(tasks), timeout, unit);
+  }
+
+  @Override
+  public <T> T invokeAny(final Collection<? extends Callable<T>> tasks)
+      throws InterruptedException, ExecutionException {
+    return delegate.invokeAny(wrap(tasks));
+  }
+
+  @Override
+  public <T> T invokeAny(
+      final Collection<? extends Callable<T>> tasks,
+      final long timeout,
+      final TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+    return delegate.invokeAny(wrap(tasks), timeout, unit);
+  }
+
+  @Override
+  public void shutdown() {
+    delegate.shutdown();
+  }
+
+  @Override
+  public List<Runnable> shutdownNow() {
+    return delegate.shutdownNow();
+  }
+
+  @Override
+  public boolean isShutdown() {
+    return delegate.isShutdown();
+  }
+
+  @Override
+  public boolean isTerminated() {
+    return delegate.isTerminated();
+  }
+
+  @Override
+  public boolean awaitTermination(final long timeout, final TimeUnit unit) throws InterruptedException {
+    return delegate.awaitTermination(timeout, unit);
+  }
+
+  private static <T> List<Callable<T>> wrap(final Collection<? extends Callable<T>> tasks) {
+    final ContextSnapshot context = ContextSnapshot.capture();
+    return tasks.stream()
+        .<Callable<T>>map(task -> () -> context.call(task))
+        .collect(Collectors.toList());
+  }
+}
@@ -0,0 +1,107 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.api.context;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Carries the tenant identifier, user context, deadline and request scope of the calling thread over
+ * to the threads of executors and to the stages of completable futures.  The tenant and user context
+ * holders are inheritable thread locals, so pooled threads otherwise see the context of whichever
+ * thread happened to start them, and the deadline and request scope aren't inherited at all.
+ *
+ * <p>The wrappers for tasks and functions take a {@link ContextSnapshot} when they are created.
+ * The executor wrappers take one for each task when it is submitted.</p>
+ */
+@SuppressWarnings({"WeakerAccess", "unused"})
+public final class ContextPropagation {
+
+  private ContextPropagation() {
+  }
+
+  public static Executor executor(final Executor executor) {
+    return task -> executor.execute(runnable(task));
+  }
+
+  public static ExecutorService executorService(final ExecutorService executorService) {
+    return new ContextPropagatingExecutorService(executorService);
+  }
+
+  public static Runnable runnable(final Runnable task) {
+    final ContextSnapshot context = ContextSnapshot.capture();
+    return () -> context.run(task);
+  }
+
+  public static <V> Callable<V> callable(final Callable<V> task) {
+    final ContextSnapshot context = ContextSnapshot.capture();
+    return () -> context.call(task);
+  }
+
+  public static <T> Supplier<T> supplier(final Supplier<T> supplier) {
+    final ContextSnapshot context = ContextSnapshot.capture();
+    return () -> call(context, supplier::get);
+  }
+
+  public static <T, R> Function<T, R> function(final Function<T, R> function) {
+    final ContextSnapshot context = ContextSnapshot.capture();
+    return t -> call(context, () -> function.apply(t));
+  }
+
+  public static <T> Consumer<T> consumer(final Consumer<T> consumer) {
+    final ContextSnapshot context = ContextSnapshot.capture();
+    return t -> context.run(() -> consumer.accept(t));
+  }
+
+  public static <T, U, R> BiFunction<T, U, R> biFunction(final BiFunction<T, U, R> function) {
+    final ContextSnapshot context = ContextSnapshot.capture();
+    return (t, u) -> call(context, () -> function.apply(t, u));
+  }
+
+  public static <T, U> BiConsumer<T, U> biConsumer(final BiConsumer<T, U> consumer) {
+    final ContextSnapshot context = ContextSnapshot.capture();
+    return (t, u) -> context.run(() -> consumer.accept(t, u));
+  }
+
+  public static <T> CompletableFuture<T> supplyAsync(final Supplier<T> supplier, final Executor executor) {
+    return CompletableFuture.supplyAsync(supplier(supplier), executor);
+  }
+
+  public static CompletableFuture<Void> runAsync(final Runnable task, final Executor executor) {
+    return CompletableFuture.runAsync(runnable(task), executor);
+  }
+
+  private static <V> V call(final ContextSnapshot context, final Callable<V> task) {
+    try {
+      return context.call(task);
+    } catch (final RuntimeException e) {
+      throw e;
+    } catch (final Exception e) {
+      //Only reachable for checked exceptions, which the wrapped functional interfaces can't throw.
+      throw new IllegalStateException(e);
+    }
+  }
+}
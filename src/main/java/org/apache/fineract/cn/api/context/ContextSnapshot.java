@@ -0,0 +1,121 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.api.context;
+
+import org.apache.fineract.cn.api.util.Deadline;
+import org.apache.fineract.cn.api.util.DeadlineHolder;
+import org.apache.fineract.cn.api.util.RequestScope;
+import org.apache.fineract.cn.api.util.RequestScopeHolder;
+import org.apache.fineract.cn.api.util.UserContext;
+import org.apache.fineract.cn.api.util.UserContextHolder;
+import org.apache.fineract.cn.lang.TenantContextHolder;
+
+import java.util.concurrent.Callable;
+
+/**
+ * The tenant identifier, user context, deadline and request scope of a thread at one point in time,
+ * so that they can be carried over to another thread which runs work on behalf of the first.
+ * Running work in a snapshot sets the context of the current thread for the duration of the work
+ * only, and leaves the thread as it found it afterwards.  When the thread already has the snapshot's
+ * context, nothing is set at all.
+ *
+ * @see ContextPropagation
+ */
+@SuppressWarnings({"WeakerAccess", "unused"})
+public final class ContextSnapshot {
+  private final String tenantIdentifier;
+  private final UserContext userContext;
+  private final Deadline deadline;
+  private final RequestScope requestScope;
+
+  private ContextSnapshot(
+      final String tenantIdentifier,
+      final UserContext userContext,
+      final Deadline deadline,
+      final RequestScope requestScope) {
+    this.tenantIdentifier = tenantIdentifier;
+    this.userContext = userContext;
+    this.deadline = deadline;
+    this.requestScope = requestScope;
+  }
+
+  public static ContextSnapshot capture() {
+    return new ContextSnapshot(
+        TenantContextHolder.identifier().orElse(null),
+        UserContextHolder.getUserContext().orElse(null),
+        DeadlineHolder.getDeadline().orElse(null),
+        RequestScopeHolder.getRequestScope().orElse(null));
+  }
+
+  public void run(final Runnable task) {
+    final ContextSnapshot previous = capture();
+    if (isSameAs(previous)) {
+      task.run();
+      return;
+    }
+
+    apply();
+    try {
+      task.run();
+    } finally {
+      previous.apply();
+    }
+  }
+
+  public <V> V call(final Callable<V> task) throws Exception {
+    final ContextSnapshot previous = capture();
+    if (isSameAs(previous))
+      return task.call();
+
+    apply();
+    try {
+      return task.call();
+    } finally {
+      previous.apply();
+    }
+  }
+
+  private boolean isSameAs(final ContextSnapshot other) {
+    //noinspection StringEquality
+    return tenantIdentifier == other.tenantIdentifier && userContext == other.userContext
+        && deadline == other.deadline && requestScope == other.requestScope;
+  }
+
+  private void apply() {
+    if (tenantIdentifier == null)
+      TenantContextHolder.clear();
+    else
+      TenantContextHolder.setIdentifier(tenantIdentifier);
+
+    if (userContext == null)
+      UserContextHolder.clear();
+    else
+      UserContextHolder.setUserContext(userContext);
+
+    if (deadline == null)
+      DeadlineHolder.clear();
+    else
+      DeadlineHolder.setDeadline(deadline);
+
+    if (requestScope == null)
+      RequestScopeHolder.clear();
+    else
+      RequestScopeHolder.setRequestScope(requestScope);
+  }
+}
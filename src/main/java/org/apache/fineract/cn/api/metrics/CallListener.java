@@ -0,0 +1,47 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.api.metrics;
+
+/**
+ * Receives the phases of client calls as they happen, to find out where the time of slow calls
+ * goes.  The callbacks run on the thread running the call, so they should be quick, and must not
+ * throw.  A call retried by feign goes through its phases several times, but starts and ends once.
+ *
+ * <p>With the default, {@link #NONE}, clients are built without any of the timing, so it costs
+ * nothing.</p>
+ *
+ * @see SlowCallLogger
+ */
+@SuppressWarnings("WeakerAccess")
+public interface CallListener {
+  CallListener NONE = new CallListener() {
+  };
+
+  default void callStarted(final CallTrace trace) {
+  }
+
+  default void phaseEnded(final CallTrace trace, final CallPhase phase, final long nanos) {
+  }
+
+  /**
+   * Called when the call has ended, with the exception it threw, if any.
+   */
+  default void callEnded(final CallTrace trace, final Throwable failure) {
+  }
+}
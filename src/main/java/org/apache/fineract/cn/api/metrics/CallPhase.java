@@ -0,0 +1,48 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.api.metrics;
+
+/**
+ * The phases of a client call, in the order they usually happen.  A call can go through some phases
+ * several times, if it is retried, or not at all: a call whose response is cached never connects,
+ * and only calls which fail with an error status go through error decoding.
+ */
+@SuppressWarnings("WeakerAccess")
+public enum CallPhase {
+  /** Running the request interceptors, which set the tenant, user and cookie headers. */
+  INTERCEPTORS,
+  /** Encoding the request body. */
+  ENCODING,
+  /** Resolving the address of the target, for a new connection. */
+  DNS,
+  /** Opening a new connection, including the TLS handshake. */
+  CONNECT,
+  /**
+   * From handing the request to the transport until the status and headers of the response are
+   * in, less the time spent in DNS and connect.  This includes sending the request, the waiting
+   * for a pooled connection, and the time the server takes.
+   */
+  TIME_TO_FIRST_BYTE,
+  /** Waiting for the bytes of the response body, while it is read. */
+  BODY_TRANSFER,
+  /** Decoding the response body, less the time spent waiting for its bytes. */
+  DECODING,
+  /** Decoding an error response into an exception, less the time spent waiting for its bytes. */
+  ERROR_DECODING
+}
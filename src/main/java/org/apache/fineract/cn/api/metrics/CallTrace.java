@@ -0,0 +1,120 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.api.metrics;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The timing of one call of a client method, broken down into its {@link CallPhase phases}.  A
+ * trace is created when the call starts, filled in by the client on the thread running the call,
+ * and handed to the {@link CallListener} as each phase ends.  Once the call has ended, it is no
+ * longer written to.
+ */
+@SuppressWarnings("WeakerAccess")
+public final class CallTrace {
+  private static final CallPhase[] PHASES = CallPhase.values();
+
+  private final Class<?> clientType;
+  private final String target;
+  private final String methodKey;
+  private final long startNanos;
+  private final long[] phaseNanos = new long[PHASES.length];
+  private volatile long endNanos = -1;
+
+  public CallTrace(final Class<?> clientType, final String target, final String methodKey, final long startNanos) {
+    this.clientType = clientType;
+    this.target = target;
+    this.methodKey = methodKey;
+    this.startNanos = startNanos;
+  }
+
+  public Class<?> getClientType() {
+    return clientType;
+  }
+
+  public String getTarget() {
+    return target;
+  }
+
+  public String getMethodKey() {
+    return methodKey;
+  }
+
+  public long getStartNanos() {
+    return startNanos;
+  }
+
+  /**
+   * Adds time to a phase.  Called by the client, while the call runs.
+   */
+  public void addPhaseNanos(final CallPhase phase, final long nanos) {
+    phaseNanos[phase.ordinal()] += nanos;
+  }
+
+  /**
+   * Marks the end of the call.  Called by the client.
+   */
+  public void end(final long endNanos) {
+    this.endNanos = endNanos;
+  }
+
+  public boolean isEnded() {
+    return endNanos >= 0;
+  }
+
+  /**
+   * The time the call took, or has taken so far if it is still running.
+   */
+  public long getDurationNanos() {
+    return (isEnded() ? endNanos : System.nanoTime()) - startNanos;
+  }
+
+  /**
+   * The total time spent in the given phase, over all the times the call went through it.
+   */
+  public long getPhaseNanos(final CallPhase phase) {
+    return phaseNanos[phase.ordinal()];
+  }
+
+  /**
+   * The time of the call which is not in any of its phases: the work of feign itself, retries
+   * backing off, and the time other clients wrapping the transport take.
+   */
+  public long getOtherNanos() {
+    long ret = getDurationNanos();
+    for (final long nanos : phaseNanos)
+      ret -= nanos;
+    return Math.max(0, ret);
+  }
+
+  @Override
+  public String toString() {
+    final StringBuilder ret = new StringBuilder(methodKey).append(" on ").append(target)
+        .append(" took ").append(millis(getDurationNanos())).append(" ms (");
+    for (final CallPhase phase : PHASES) {
+      if (phaseNanos[phase.ordinal()] != 0)
+        ret.append(phase.name().toLowerCase()).append(' ').append(millis(phaseNanos[phase.ordinal()])).append(", ");
+    }
+    return ret.append("other ").append(millis(getOtherNanos())).append(')').toString();
+  }
+
+  private static String millis(final long nanos) {
+    return String.format("%.3f", nanos / (double) TimeUnit.MILLISECONDS.toNanos(1));
+  }
+}
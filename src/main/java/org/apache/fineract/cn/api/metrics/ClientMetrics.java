@@ -0,0 +1,132 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.api.metrics;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * The metrics of all client methods of a factory, keyed by target and method key.  Clients for
+ * the same interface and target share their metrics.
+ */
+@SuppressWarnings("WeakerAccess")
+public final class ClientMetrics {
+  private final ConcurrentHashMap<Key, MethodMetrics> methods = new ConcurrentHashMap<>();
+  private final ConcurrentHashMap<String, ConcurrencyLimitMetrics> concurrencyLimits = new ConcurrentHashMap<>();
+  private final List<MetricsRegistry> registries = new CopyOnWriteArrayList<>();
+
+  /**
+   * Adds a registry, and registers the metrics of all methods and concurrency limits known so far
+   * with it.
+   */
+  public void addRegistry(final MetricsRegistry registry) {
+    synchronized (registries) {
+      registries.add(registry);
+      methods.values().forEach(registry::register);
+      concurrencyLimits.values().forEach(registry::register);
+    }
+  }
+
+  public MethodMetrics methodMetrics(final Class<?> clientType, final String target, final String methodKey) {
+    final Key key = new Key(target, methodKey);
+    final MethodMetrics existing = methods.get(key);
+    if (existing != null)
+      return existing;
+
+    synchronized (registries) {
+      final MethodMetrics raced = methods.get(key);
+      if (raced != null)
+        return raced;
+      final MethodMetrics ret = new MethodMetrics(clientType, target, methodKey);
+      methods.put(key, ret);
+      registries.forEach(registry -> registry.register(ret));
+      return ret;
+    }
+  }
+
+  public MethodMetrics get(final String target, final String methodKey) {
+    return methods.get(new Key(target, methodKey));
+  }
+
+  public Collection<MethodMetrics> getAll() {
+    return Collections.unmodifiableList(new ArrayList<>(methods.values()));
+  }
+
+  /**
+   * Adds the metrics of the concurrency limit of a target, replacing earlier ones for the target.
+   */
+  public void addConcurrencyLimit(final ConcurrencyLimitMetrics metrics) {
+    synchronized (registries) {
+      final ConcurrencyLimitMetrics replaced = concurrencyLimits.put(metrics.getTarget(), metrics);
+      if (replaced != null)
+        registries.forEach(registry -> registry.unregister(replaced));
+      registries.forEach(registry -> registry.register(metrics));
+    }
+  }
+
+  public ConcurrencyLimitMetrics getConcurrencyLimit(final String target) {
+    return concurrencyLimits.get(target);
+  }
+
+  public Collection<ConcurrencyLimitMetrics> getConcurrencyLimits() {
+    return Collections.unmodifiableList(new ArrayList<>(concurrencyLimits.values()));
+  }
+
+  /**
+   * Unregisters all metrics from the registries, and forgets them.
+   */
+  public void close() {
+    synchronized (registries) {
+      methods.values().forEach(metrics -> registries.forEach(registry -> registry.unregister(metrics)));
+      methods.clear();
+      concurrencyLimits.values().forEach(metrics -> registries.forEach(registry -> registry.unregister(metrics)));
+      concurrencyLimits.clear();
+    }
+  }
+
+  private static final class Key {
+    private final String target;
+    private final String methodKey;
+    private final int hashCode;
+
+    private Key(final String target, final String methodKey) {
+      this.target = target;
+      this.methodKey = methodKey;
+      this.hashCode = Objects.hash(target, methodKey);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) return true;
+      if (o == null || getClass() != o.getClass()) return false;
+      Key that = (Key) o;
+      return target.equals(that.target) && methodKey.equals(that.methodKey);
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+  }
+}
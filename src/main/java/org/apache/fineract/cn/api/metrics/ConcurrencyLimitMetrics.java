@@ -0,0 +1,69 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.api.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+
+/**
+ * The state of the adaptive concurrency limit of one target: the current limit, the requests in
+ * flight, and the number of requests let through and rejected.
+ */
+@SuppressWarnings("WeakerAccess")
+public final class ConcurrencyLimitMetrics {
+  private final String target;
+  private final IntSupplier limit;
+  private final IntSupplier inFlight;
+  private final LongAdder accepted = new LongAdder();
+  private final LongAdder rejected = new LongAdder();
+
+  public ConcurrencyLimitMetrics(final String target, final IntSupplier limit, final IntSupplier inFlight) {
+    this.target = target;
+    this.limit = limit;
+    this.inFlight = inFlight;
+  }
+
+  public String getTarget() {
+    return target;
+  }
+
+  public int getLimit() {
+    return limit.getAsInt();
+  }
+
+  public int getInFlight() {
+    return inFlight.getAsInt();
+  }
+
+  public void recordAccepted() {
+    accepted.increment();
+  }
+
+  public void recordRejected() {
+    rejected.increment();
+  }
+
+  public long getAcceptedCount() {
+    return accepted.sum();
+  }
+
+  public long getRejectedCount() {
+    return rejected.sum();
+  }
+}
@@ -0,0 +1,79 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.api.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.LongSupplier;
+
+/**
+ * A histogram of the latencies of a recent time span.  Values are recorded into the histogram of
+ * the current interval, which is swapped for an empty one once the interval is over.  A
+ * {@link LatencyHistogram.Snapshot} covers the last complete interval and the current one, so
+ * between one and two intervals.  Values recorded while the histograms are swapped may land in the
+ * older one.  Recording is lock-free, and allocates only when the interval is over.
+ */
+@SuppressWarnings("WeakerAccess")
+public final class IntervalLatencyHistogram {
+  private final long intervalNanos;
+  private final LongSupplier nanoClock;
+  private final AtomicReference<Interval> interval;
+
+  public IntervalLatencyHistogram(final long interval, final TimeUnit unit) {
+    this(interval, unit, System::nanoTime);
+  }
+
+  public IntervalLatencyHistogram(final long interval, final TimeUnit unit, final LongSupplier nanoClock) {
+    this.intervalNanos = unit.toNanos(interval);
+    this.nanoClock = nanoClock;
+    this.interval = new AtomicReference<>(new Interval(null, nanoClock.getAsLong()));
+  }
+
+  public void record(final long nanos) {
+    current().histogram.record(nanos);
+  }
+
+  public LatencyHistogram.Snapshot snapshot() {
+    final Interval current = current();
+    final LatencyHistogram.Snapshot ret = current.histogram.snapshot();
+    return current.previous == null ? ret : ret.plus(current.previous.snapshot());
+  }
+
+  private Interval current() {
+    final Interval current = interval.get();
+    final long now = nanoClock.getAsLong();
+    final long elapsed = now - current.startNanos;
+    if (elapsed < intervalNanos)
+      return current;
+    //After a whole interval without a swap, the current histogram is too old to be kept either.
+    final Interval next = new Interval(elapsed < 2 * intervalNanos ? current.histogram : null, now);
+    return interval.compareAndSet(current, next) ? next : interval.get();
+  }
+
+  private static final class Interval {
+    private final LatencyHistogram histogram = new LatencyHistogram();
+    private final LatencyHistogram previous;
+    private final long startNanos;
+
+    private Interval(final LatencyHistogram previous, final long startNanos) {
+      this.previous = previous;
+      this.startNanos = startNanos;
+    }
+  }
+}
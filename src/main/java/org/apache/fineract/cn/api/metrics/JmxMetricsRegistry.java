@@ -0,0 +1,238 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.api.metrics;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.InstanceNotFoundException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Exports the metrics of each client method as an MXBean named
+ * {@code org.apache.fineract.cn.api:type=ClientMethod,target=<target>,method=<method key>}, and
+ * those of each concurrency limit as one named
+ * {@code org.apache.fineract.cn.api:type=ConcurrencyLimit,target=<target>}.  If several factories in
+ * one JVM export the same method and target, the last one registered wins.
+ */
+@SuppressWarnings("WeakerAccess")
+public class JmxMetricsRegistry implements MetricsRegistry {
+  public static final String DOMAIN = "org.apache.fineract.cn.api";
+
+  private final MBeanServer mBeanServer;
+
+  public JmxMetricsRegistry() {
+    this(ManagementFactory.getPlatformMBeanServer());
+  }
+
+  public JmxMetricsRegistry(final MBeanServer mBeanServer) {
+    this.mBeanServer = mBeanServer;
+  }
+
+  public static ObjectName objectName(final MethodMetrics metrics) {
+    try {
+      return new ObjectName(DOMAIN + ":type=ClientMethod"
+          + ",target=" + ObjectName.quote(metrics.getTarget())
+          + ",method=" + ObjectName.quote(metrics.getMethodKey()));
+    } catch (final MalformedObjectNameException e) {
+      throw new IllegalArgumentException("No object name for " + metrics, e);
+    }
+  }
+
+  public static ObjectName objectName(final ConcurrencyLimitMetrics metrics) {
+    try {
+      return new ObjectName(DOMAIN + ":type=ConcurrencyLimit,target=" + ObjectName.quote(metrics.getTarget()));
+    } catch (final MalformedObjectNameException e) {
+      throw new IllegalArgumentException("No object name for " + metrics, e);
+    }
+  }
+
+  @Override
+  public void register(final MethodMetrics metrics) {
+    register(new View(metrics), objectName(metrics));
+  }
+
+  @Override
+  public void unregister(final MethodMetrics metrics) {
+    unregister(objectName(metrics));
+  }
+
+  @Override
+  public void register(final ConcurrencyLimitMetrics metrics) {
+    register(new ConcurrencyLimitView(metrics), objectName(metrics));
+  }
+
+  @Override
+  public void unregister(final ConcurrencyLimitMetrics metrics) {
+    unregister(objectName(metrics));
+  }
+
+  private void register(final Object view, final ObjectName name) {
+    try {
+      try {
+        mBeanServer.registerMBean(view, name);
+      } catch (final InstanceAlreadyExistsException e) {
+        mBeanServer.unregisterMBean(name);
+        mBeanServer.registerMBean(view, name);
+      }
+    } catch (final JMException e) {
+      throw new IllegalStateException("Registering " + name + " failed.", e);
+    }
+  }
+
+  private void unregister(final ObjectName name) {
+    try {
+      mBeanServer.unregisterMBean(name);
+    } catch (final InstanceNotFoundException ignored) {
+      //Already replaced by another factory's metrics and unregistered by it.
+    } catch (final JMException e) {
+      throw new IllegalStateException("Unregistering " + name + " failed.", e);
+    }
+  }
+
+  private static final class View implements MethodMetricsMXBean {
+    private static final long MILLIS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final MethodMetrics metrics;
+
+    private View(final MethodMetrics metrics) {
+      this.metrics = metrics;
+    }
+
+    @Override
+    public String getClientType() {
+      return metrics.getClientType().getName();
+    }
+
+    @Override
+    public String getTarget() {
+      return metrics.getTarget();
+    }
+
+    @Override
+    public String getMethodKey() {
+      return metrics.getMethodKey();
+    }
+
+    @Override
+    public long getCallCount() {
+      return metrics.getCallCount();
+    }
+
+    @Override
+    public long getFailedCallCount() {
+      return metrics.getFailedCallCount();
+    }
+
+    @Override
+    public long getRecentCallCount() {
+      return metrics.getRecentLatency().getCount();
+    }
+
+    @Override
+    public double getMeanMillis() {
+      return metrics.getRecentLatency().getMeanNanos() / MILLIS;
+    }
+
+    @Override
+    public double getP50Millis() {
+      return metrics.getRecentLatency().getValueAtPercentile(50, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public double getP90Millis() {
+      return metrics.getRecentLatency().getValueAtPercentile(90, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public double getP99Millis() {
+      return metrics.getRecentLatency().getValueAtPercentile(99, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public double getP999Millis() {
+      return metrics.getRecentLatency().getValueAtPercentile(99.9, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public double getMaxMillis() {
+      return metrics.getRecentLatency().getMaxNanos() / (double) MILLIS;
+    }
+
+    @Override
+    public long getRequestBytes() {
+      return metrics.getRequestBytes();
+    }
+
+    @Override
+    public long getResponseBytes() {
+      return metrics.getResponseBytes();
+    }
+
+    @Override
+    public Map<String, Long> getStatusCounts() {
+      final Map<String, Long> ret = new TreeMap<>();
+      metrics.getStatusCounts().forEach((status, count) -> ret.put(String.valueOf(status), count));
+      return ret;
+    }
+
+    @Override
+    public Map<String, Long> getExceptionCounts() {
+      return metrics.getExceptionCounts();
+    }
+  }
+
+  private static final class ConcurrencyLimitView implements ConcurrencyLimitMetricsMXBean {
+    private final ConcurrencyLimitMetrics metrics;
+
+    private ConcurrencyLimitView(final ConcurrencyLimitMetrics metrics) {
+      this.metrics = metrics;
+    }
+
+    @Override
+    public String getTarget() {
+      return metrics.getTarget();
+    }
+
+    @Override
+    public int getLimit() {
+      return metrics.getLimit();
+    }
+
+    @Override
+    public int getInFlight() {
+      return metrics.getInFlight();
+    }
+
+    @Override
+    public long getAcceptedCount() {
+      return metrics.getAcceptedCount();
+    }
+
+    @Override
+    public long getRejectedCount() {
+      return metrics.getRejectedCount();
+    }
+  }
+}
@@ -0,0 +1,146 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.api.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A histogram of latencies in nanoseconds, with log-linear buckets in the manner of HdrHistogram:
+ * each power of two is divided into 32 buckets, so recorded values keep a precision of about 3%
+ * over the whole range of a long.  Recording is lock-free and doesn't allocate; reading takes a
+ * {@link Snapshot}, which is consistent per bucket, but not across buckets recorded concurrently.
+ */
+@SuppressWarnings("WeakerAccess")
+public final class LatencyHistogram {
+  private static final int SUB_BUCKET_BITS = 5;
+  private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+  private static final int BUCKETS = (Long.SIZE - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+  private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+  private final AtomicLong max = new AtomicLong();
+
+  public void record(final long nanos) {
+    final long value = Math.max(0, nanos);
+    counts.incrementAndGet(index(value));
+    long currentMax = max.get();
+    while (value > currentMax && !max.compareAndSet(currentMax, value))
+      currentMax = max.get();
+  }
+
+  public Snapshot snapshot() {
+    final long[] ret = new long[BUCKETS];
+    for (int i = 0; i < BUCKETS; i++)
+      ret[i] = counts.get(i);
+    return new Snapshot(ret, max.get());
+  }
+
+  static int index(final long value) {
+    if (value < SUB_BUCKETS)
+      return (int) value;
+    final int exponent = 63 - Long.numberOfLeadingZeros(value);
+    final int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) - SUB_BUCKETS;
+    return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+  }
+
+  static long highestValueOf(final int index) {
+    if (index < SUB_BUCKETS)
+      return index;
+    final int exponent = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+    final long lowest = (long) (SUB_BUCKETS + index % SUB_BUCKETS) << (exponent - SUB_BUCKET_BITS);
+    final long width = 1L << (exponent - SUB_BUCKET_BITS);
+    return lowest + (width - 1);
+  }
+
+  /**
+   * The counts of a histogram at one point in time.
+   */
+  public static final class Snapshot {
+    private final long[] counts;
+    private final long count;
+    private final long max;
+    private final double mean;
+
+    private Snapshot(final long[] counts, final long max) {
+      this.counts = counts;
+      long count = 0;
+      double sum = 0;
+      for (int i = 0; i < counts.length; i++) {
+        if (counts[i] != 0) {
+          count += counts[i];
+          sum += (double) counts[i] * midpointOf(i);
+        }
+      }
+      this.count = count;
+      this.max = count == 0 ? 0 : max;
+      this.mean = count == 0 ? 0 : sum / count;
+    }
+
+    public long getCount() {
+      return count;
+    }
+
+    public long getMaxNanos() {
+      return max;
+    }
+
+    public double getMeanNanos() {
+      return mean;
+    }
+
+    /**
+     * @param percentile between 0 and 100.
+     * @return the highest value which percentile percent of the recorded values are at or below,
+     * within the precision of the histogram.
+     */
+    public long getValueAtPercentile(final double percentile) {
+      if (count == 0)
+        return 0;
+      final long rank = Math.max(1, (long) Math.ceil(Math.min(100.0, percentile) / 100.0 * count));
+      long seen = 0;
+      for (int i = 0; i < counts.length; i++) {
+        seen += counts[i];
+        if (seen >= rank)
+          return Math.min(highestValueOf(i), max);
+      }
+      return max;
+    }
+
+    public double getValueAtPercentile(final double percentile, final TimeUnit unit) {
+      return getValueAtPercentile(percentile) / (double) unit.toNanos(1);
+    }
+
+    /**
+     * The counts of both snapshots together.
+     */
+    Snapshot plus(final Snapshot other) {
+      final long[] ret = new long[counts.length];
+      for (int i = 0; i < ret.length; i++)
+        ret[i] = counts[i] + other.counts[i];
+      return new Snapshot(ret, Math.max(max, other.max));
+    }
+
+    private static double midpointOf(final int index) {
+      final long highest = highestValueOf(index);
+      final long lowest = index == 0 ? 0 : highestValueOf(index - 1) + 1;
+      return lowest + (highest - lowest) / 2.0;
+    }
+  }
+}
@@ -0,0 +1,159 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.api.metrics;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The metrics of one method of one client: the latency and outcome of each call, and the status
+ * and size of each exchange with the server.  A call can take no exchange, if its response is
+ * cached, or several.  The method is identified by its {@link feign.Feign#configKey}, the key the
+ * error decoder uses as well.
+ *
+ * <p>The latencies are kept both since the metrics were created and for the last one to two
+ * reporting intervals, which show how the method does now.</p>
+ *
+ * <p>Recording is lock-free, and allocates only the first time an exception type is seen, and
+ * once per reporting interval.</p>
+ */
+@SuppressWarnings("WeakerAccess")
+public final class MethodMetrics {
+  public static final long REPORTING_INTERVAL_SECONDS = 60;
+
+  private static final int MAX_STATUS = 600;
+
+  private final Class<?> clientType;
+  private final String target;
+  private final String methodKey;
+  private final LatencyHistogram latency = new LatencyHistogram();
+  private final IntervalLatencyHistogram recentLatency =
+      new IntervalLatencyHistogram(REPORTING_INTERVAL_SECONDS, TimeUnit.SECONDS);
+  private final LongAdder calls = new LongAdder();
+  private final LongAdder failedCalls = new LongAdder();
+  private final LongAdder requestBytes = new LongAdder();
+  private final LongAdder responseBytes = new LongAdder();
+  private final AtomicLongArray statusCounts = new AtomicLongArray(MAX_STATUS);
+  private final ConcurrentHashMap<Class<?>, LongAdder> exceptionCounts = new ConcurrentHashMap<>();
+
+  public MethodMetrics(final Class<?> clientType, final String target, final String methodKey) {
+    this.clientType = clientType;
+    this.target = target;
+    this.methodKey = methodKey;
+  }
+
+  public Class<?> getClientType() {
+    return clientType;
+  }
+
+  public String getTarget() {
+    return target;
+  }
+
+  public String getMethodKey() {
+    return methodKey;
+  }
+
+  /**
+   * Records a call of the method, which took the given time and, if failure is not null, threw it.
+   */
+  public void recordCall(final long nanos, final Throwable failure) {
+    latency.record(nanos);
+    recentLatency.record(nanos);
+    calls.increment();
+    if (failure != null) {
+      failedCalls.increment();
+      LongAdder counter = exceptionCounts.get(failure.getClass());
+      if (counter == null)
+        counter = exceptionCounts.computeIfAbsent(failure.getClass(), x -> new LongAdder());
+      counter.increment();
+    }
+  }
+
+  /**
+   * Records an exchange with the server.  Byte counts are those of the bodies, where known.
+   */
+  public void recordExchange(final int status, final long requestBodyBytes) {
+    statusCounts.incrementAndGet(status > 0 && status < MAX_STATUS ? status : 0);
+    requestBytes.add(requestBodyBytes);
+  }
+
+  public void recordResponseBytes(final long bytes) {
+    responseBytes.add(bytes);
+  }
+
+  public LatencyHistogram.Snapshot getLatency() {
+    return latency.snapshot();
+  }
+
+  /**
+   * @return the latencies of the last complete reporting interval and the current one.
+   */
+  public LatencyHistogram.Snapshot getRecentLatency() {
+    return recentLatency.snapshot();
+  }
+
+  public long getCallCount() {
+    return calls.sum();
+  }
+
+  public long getFailedCallCount() {
+    return failedCalls.sum();
+  }
+
+  public long getRequestBytes() {
+    return requestBytes.sum();
+  }
+
+  public long getResponseBytes() {
+    return responseBytes.sum();
+  }
+
+  /**
+   * @return the number of exchanges per status code; statuses out of range are counted as 0.
+   */
+  public Map<Integer, Long> getStatusCounts() {
+    final Map<Integer, Long> ret = new TreeMap<>();
+    for (int i = 0; i < MAX_STATUS; i++) {
+      final long count = statusCounts.get(i);
+      if (count != 0)
+        ret.put(i, count);
+    }
+    return Collections.unmodifiableMap(ret);
+  }
+
+  /**
+   * @return the number of failed calls per class name of the exception they threw.
+   */
+  public Map<String, Long> getExceptionCounts() {
+    final Map<String, Long> ret = new TreeMap<>();
+    exceptionCounts.forEach((type, count) -> ret.put(type.getName(), count.sum()));
+    return Collections.unmodifiableMap(ret);
+  }
+
+  @Override
+  public String toString() {
+    return "MethodMetrics{" + target + " " + methodKey + "}";
+  }
+}
@@ -0,0 +1,62 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.api.metrics;
+
+import java.util.Map;
+
+/**
+ * The JMX view of the {@link MethodMetrics} of a client method.  Latencies are in milliseconds,
+ * and those of the calls of the last one to two
+ * {@link MethodMetrics#REPORTING_INTERVAL_SECONDS reporting intervals}, counted by
+ * {@link #getRecentCallCount()}.  The other counts are since the client was created.
+ */
+@SuppressWarnings("unused")
+public interface MethodMetricsMXBean {
+  String getClientType();
+
+  String getTarget();
+
+  String getMethodKey();
+
+  long getCallCount();
+
+  long getFailedCallCount();
+
+  long getRecentCallCount();
+
+  double getMeanMillis();
+
+  double getP50Millis();
+
+  double getP90Millis();
+
+  double getP99Millis();
+
+  double getP999Millis();
+
+  double getMaxMillis();
+
+  long getRequestBytes();
+
+  long getResponseBytes();
+
+  Map<String, Long> getStatusCounts();
+
+  Map<String, Long> getExceptionCounts();
+}
@@ -0,0 +1,40 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.api.metrics;
+
+/**
+ * Receives the metrics of client methods, to export them to a monitoring system.  Metrics are
+ * registered once per method and target, when the first client for them is created, and
+ * unregistered when the factory which created the clients is closed.  The same goes for the
+ * metrics of the concurrency limit of each target.  Implementations read the
+ * metrics when they are polled; nothing is pushed to them per call.
+ */
+public interface MetricsRegistry {
+
+  void register(final MethodMetrics metrics);
+
+  default void unregister(final MethodMetrics metrics) {
+  }
+
+  default void register(final ConcurrencyLimitMetrics metrics) {
+  }
+
+  default void unregister(final ConcurrencyLimitMetrics metrics) {
+  }
+}
@@ -0,0 +1,70 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.api.metrics;
+
+import org.slf4j.Logger;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Logs the phase breakdown of calls which take longer than a threshold.  To keep a slow service
+ * from flooding the log, only one in every {@code sampleEvery} slow calls is logged, starting with
+ * the first.
+ */
+@SuppressWarnings("WeakerAccess")
+public final class SlowCallLogger implements CallListener {
+  public static final int DEFAULT_SAMPLE_EVERY = 1;
+
+  private final Logger logger;
+  private final long thresholdNanos;
+  private final int sampleEvery;
+  private final AtomicLong slowCalls = new AtomicLong();
+
+  public SlowCallLogger(final Logger logger, final long thresholdMillis) {
+    this(logger, thresholdMillis, DEFAULT_SAMPLE_EVERY);
+  }
+
+  public SlowCallLogger(final Logger logger, final long thresholdMillis, final int sampleEvery) {
+    if (sampleEvery < 1)
+      throw new IllegalArgumentException("sampleEvery must be at least 1, but is " + sampleEvery);
+    this.logger = logger;
+    this.thresholdNanos = TimeUnit.MILLISECONDS.toNanos(thresholdMillis);
+    this.sampleEvery = sampleEvery;
+  }
+
+  public long getSlowCalls() {
+    return slowCalls.get();
+  }
+
+  @Override
+  public void callEnded(final CallTrace trace, final Throwable failure) {
+    if (trace.getDurationNanos() < thresholdNanos)
+      return;
+
+    final long count = slowCalls.getAndIncrement();
+    if (count % sampleEvery != 0 || !logger.isWarnEnabled())
+      return;
+
+    if (failure == null)
+      logger.warn("Slow call #{} (logging 1 in {}): {}", count + 1, sampleEvery, trace);
+    else
+      logger.warn("Slow call #{} (logging 1 in {}): {}, failed with {}", count + 1, sampleEvery, trace, failure.toString());
+  }
+}
@@ -21,134 +21,257 @@ package org.apache.fineract.cn.api.util;
 import feign.Feign;
 import feign.FeignException;
 import feign.Response;
-import feign.Util;
+import feign.RetryableException;
 import feign.codec.ErrorDecoder;
+import org.apache.fineract.cn.api.annotation.StacklessExceptions;
 import org.apache.fineract.cn.api.annotation.ThrowsException;
-import org.apache.fineract.cn.api.annotation.ThrowsExceptions;
 import org.slf4j.Logger;
 import org.springframework.http.HttpStatus;
 
-import java.io.IOException;
-import java.lang.reflect.Constructor;
-import java.lang.reflect.InvocationTargetException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
 import java.util.Arrays;
-import java.util.Optional;
+import java.util.HashMap;
+import java.util.Map;
 
 /**
+ * Maps error responses to the exceptions declared via {@link ThrowsException} on the methods of a
+ * feign client interface.  The mapping table is compiled once, when the decoder is created, so an
+ * exception which can't be constructed is reported at client creation rather than on each failure.
+ * Mappings marked {@link ThrowsException#stackless()}, or all mappings of an interface annotated with
+ * {@link StacklessExceptions}, produce exceptions without stack traces, a fresh one for each
+ * response.  At most
+ * {@code maxErrorBodyBytes} of an error body are read, and the not found, forbidden and internal
+ * server error exceptions only turn the body into their message when that is first requested.
+ * Unmapped responses which may be retried are handed to the retryer as described in {@link Retries}.
+ *
  * @author Myrle Krantz
  */
 @SuppressWarnings("WeakerAccess")
 public class AnnotatedErrorDecoder implements ErrorDecoder {
+  public static final int DEFAULT_MAX_ERROR_BODY_BYTES = 64 * 1024;
+
+  private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
 
-  private final Class feignClientClass;
   private final Logger logger;
+  private final boolean stackless;
+  private final int maxErrorBodyBytes;
+  private final Map<String, ExceptionMapping[]> exceptionMappings;
+
+  public AnnotatedErrorDecoder(final Logger logger, final Class<?> feignClientClass) {
+    this(logger, feignClientClass, DEFAULT_MAX_ERROR_BODY_BYTES);
+  }
 
-  public AnnotatedErrorDecoder(final Logger logger, final Class feignClientClass) {
+  public AnnotatedErrorDecoder(final Logger logger, final Class<?> feignClientClass, final int maxErrorBodyBytes) {
+    if (maxErrorBodyBytes < 0)
+      throw new IllegalArgumentException("Maximum error body size may not be negative.");
     this.logger = logger;
-    this.feignClientClass = feignClientClass;
+    this.stackless = feignClientClass.isAnnotationPresent(StacklessExceptions.class);
+    this.maxErrorBodyBytes = maxErrorBodyBytes;
+    this.exceptionMappings = compileExceptionMappings(logger, feignClientClass, stackless, maxErrorBodyBytes);
   }
 
   @Override
   public Exception decode(
       final String methodKey,
       final Response response) {
-    final Optional<Exception> ret =
-        Arrays.stream(feignClientClass.getMethods())
-            .filter(method -> Feign.configKey(feignClientClass, method).equals(methodKey))
-            .map(method -> {
-              final Optional<ThrowsException> annotation = getMatchingAnnotation(response, method);
-              return annotation.flatMap(a -> constructException(response, a));
-            })
-            .findAny().flatMap(x -> x);
-
-    return ret.orElse(getAlternative(methodKey, response));
+    final ExceptionMapping mapping = getMatchingMapping(methodKey, response.status());
+    if (mapping != null) {
+      final Exception ret = constructException(response, mapping);
+      if (ret != null)
+        return ret;
+    }
+
+    return Retries.retryable(getAlternative(methodKey, response), response);
   }
 
-  private RuntimeException getAlternative(final String methodKey, final Response response) {
-    final String bodyText = stringifyBody(response);
+  /**
+   * Whether an exception thrown by a call of the given method means the target failed, rather
+   * than that the call was refused for business reasons.  Connection errors and timeouts, which feign
+   * throws as {@link RetryableException}s, and exceptions for 5xx responses count as failures;
+   * exceptions mapped to statuses below 500, and the exceptions for unmapped 4xx responses, don't.
+   */
+  public boolean isFailure(final String methodKey, final Throwable exception) {
+    if (exception instanceof RetryableStatusException)
+      return isFailure(methodKey, ((RetryableStatusException) exception).getOriginal());
+    if (exception instanceof RetryableException)
+      return true;
+
+    final ExceptionMapping[] mappings = exceptionMappings.get(methodKey);
+    if (mappings != null) {
+      boolean mapped = false;
+      for (final ExceptionMapping mapping : mappings) {
+        if (mapping.exception == exception.getClass()) {
+          if (mapping.status < 500)
+            return false;
+          mapped = true;
+        }
+      }
+      if (mapped)
+        return true;
+    }
+
+    if (exception instanceof InternalServerError)
+      return true;
+    return exception instanceof FeignException && ((FeignException) exception).status() >= 500;
+  }
 
+  private RuntimeException getAlternative(final String methodKey, final Response response) {
     if (response.status() == HttpStatus.BAD_REQUEST.value()) {
-      return new IllegalArgumentException(bodyText);
+      return new IllegalArgumentException(ErrorBody.of(response, maxErrorBodyBytes).get());
     } else if (response.status() == HttpStatus.FORBIDDEN.value()) {
-      return new InvalidTokenException(bodyText);
+      return new InvalidTokenException(ErrorBody.of(response, maxErrorBodyBytes), !stackless);
     } else if (response.status() == HttpStatus.NOT_FOUND.value()) {
-      return new NotFoundException(bodyText);
+      return new NotFoundException(ErrorBody.of(response, maxErrorBodyBytes), !stackless);
     } else if (response.status() == HttpStatus.INTERNAL_SERVER_ERROR.value()) {
-      return new InternalServerError(bodyText);
+      return new InternalServerError(ErrorBody.of(response, maxErrorBodyBytes), !stackless);
     } else {
-      return FeignException.errorStatus(methodKey, response);
+      return FeignException.errorStatus(methodKey, TruncatingBody.truncate(response, maxErrorBodyBytes));
     }
   }
 
-  private String stringifyBody(final Response response) {
-    try {
-      if (response.body() != null)
-        return Util.toString(response.body().asReader());
-    } catch (IOException ignored) {
+  private ExceptionMapping getMatchingMapping(final String methodKey, final int status) {
+    final ExceptionMapping[] mappings = exceptionMappings.get(methodKey);
+    if (mappings == null)
+      return null;
+
+    for (final ExceptionMapping mapping : mappings) {
+      if (mapping.status == status)
+        return mapping;
     }
+
     return null;
   }
 
-  private Optional<ThrowsException> getMatchingAnnotation(
+  private Exception constructException(
       final Response response,
-      final Method method) {
-
-    final ThrowsExceptions throwsExceptionsAnnotation =
-        method.getAnnotation(ThrowsExceptions.class);
-    if (throwsExceptionsAnnotation == null) {
-      final ThrowsException throwsExceptionAnnotation =
-          method.getAnnotation(ThrowsException.class);
-      if ((throwsExceptionAnnotation != null) &&
-          statusMatches(response, throwsExceptionAnnotation)) {
-        return Optional.of(throwsExceptionAnnotation);
-      }
-    } else {
-      return Arrays.stream(throwsExceptionsAnnotation.value())
-          .filter(throwsExceptionAnnotation -> statusMatches(response,
-              throwsExceptionAnnotation))
-          .findAny();
+      final ExceptionMapping mapping) {
+    try {
+      return mapping.factory.create(response);
+    } catch (final Throwable e) {
+      if (e instanceof Error)
+        throw (Error) e;
+
+      logger.error("Instantiating exception {}, in for status {} failed with an exception",
+          mapping.exception, mapping.status, e);
+
+      return null;
     }
+  }
 
-    return Optional.empty();
+  private static Map<String, ExceptionMapping[]> compileExceptionMappings(
+      final Logger logger,
+      final Class<?> feignClientClass,
+      final boolean stackless,
+      final int maxErrorBodyBytes) {
+    final Map<String, ExceptionMapping[]> ret = new HashMap<>();
+    for (final Method method : feignClientClass.getMethods()) {
+      final ThrowsException[] annotations = method.getAnnotationsByType(ThrowsException.class);
+      if (annotations.length == 0)
+        continue;
+
+      final String methodKey = Feign.configKey(feignClientClass, method);
+      ret.put(methodKey, Arrays.stream(annotations)
+          .map(annotation -> new ExceptionMapping(annotation, exceptionFactory(logger, methodKey, annotation,
+              stackless || annotation.stackless(), maxErrorBodyBytes)))
+          .toArray(ExceptionMapping[]::new));
+    }
+    return ret;
   }
 
-  private boolean statusMatches(final Response response,
-                                final ThrowsException throwsExceptionAnnotation) {
-    return throwsExceptionAnnotation.status().value() == response.status();
+  private static ExceptionFactory exceptionFactory(
+      final Logger logger,
+      final String methodKey,
+      final ThrowsException throwsExceptionAnnotation,
+      final boolean stackless,
+      final int maxErrorBodyBytes) {
+    final Class<? extends RuntimeException> exception = throwsExceptionAnnotation.exception();
+    if (Modifier.isAbstract(exception.getModifiers()))
+      throw new IllegalArgumentException("Exception " + exception.getName() + " mapped on " + methodKey
+          + " is abstract and can't be instantiated.");
+
+    final MethodHandle oneResponseArgumentConstructor = findConstructor(methodKey, exception, Response.class);
+    if (oneResponseArgumentConstructor != null) {
+      if (stackless)
+        skipStackless(logger, methodKey, throwsExceptionAnnotation, "is constructed from the response");
+      return response -> (RuntimeException) oneResponseArgumentConstructor.invokeExact(
+          TruncatingBody.truncate(response, maxErrorBodyBytes));
+    }
+
+    if (stackless) {
+      final MethodHandle stacklessConstructor = findConstructor(methodKey, exception,
+          String.class, Throwable.class, boolean.class, boolean.class);
+      if (stacklessConstructor != null)
+        return response -> (RuntimeException) stacklessConstructor.invokeExact((String) null, (Throwable) null,
+            false, false);
+      skipStackless(logger, methodKey, throwsExceptionAnnotation,
+          "has no public constructor accepting a message, a cause, and whether suppression is enabled and"
+              + " the stack trace writable");
+    }
+
+    final MethodHandle noArgumentConstructor = findConstructor(methodKey, exception);
+    if (noArgumentConstructor != null)
+      return response -> (RuntimeException) noArgumentConstructor.invokeExact();
+
+    final MethodHandle oneStringArgumentConstructor = findConstructor(methodKey, exception, String.class);
+    if (oneStringArgumentConstructor != null)
+      return response -> (RuntimeException) oneStringArgumentConstructor.invokeExact(
+          ErrorBody.of(response, maxErrorBodyBytes).get());
+
+    throw new IllegalArgumentException("Exception " + exception.getName() + " mapped for status "
+        + throwsExceptionAnnotation.status() + " on " + methodKey
+        + " has no public constructor accepting a Response, a String, or no arguments.");
   }
 
-  private Optional<Exception> constructException(
-      final Response response,
-      final ThrowsException throwsExceptionAnnotations) {
-    try {
-      try {
-        final Constructor<? extends RuntimeException> oneResponseArgumentConstructor =
-            throwsExceptionAnnotations.exception().getConstructor(Response.class);
+  /**
+   * Refuses a mapping marked stackless to an exception which can't be constructed without a stack
+   * trace, and logs such a mapping if it is only stackless because its interface is.
+   */
+  private static void skipStackless(
+      final Logger logger,
+      final String methodKey,
+      final ThrowsException throwsExceptionAnnotation,
+      final String reason) {
+    final String message = "Exception " + throwsExceptionAnnotation.exception().getName()
+        + " mapped for status " + throwsExceptionAnnotation.status() + " on " + methodKey + " " + reason
+        + ", so its stack trace can't be left out.";
+    if (throwsExceptionAnnotation.stackless())
+      throw new IllegalArgumentException(message);
+    logger.warn("{}  It keeps its stack trace, although its interface is marked stackless.", message);
+  }
 
-        return Optional.of(oneResponseArgumentConstructor.newInstance(response));
-      } catch (final NoSuchMethodException e) {
-        try {
-          final Constructor<? extends RuntimeException> noArgumentConstructor =
-                  throwsExceptionAnnotations.exception().getConstructor();
+  private static MethodHandle findConstructor(
+      final String methodKey,
+      final Class<? extends RuntimeException> exception,
+      final Class<?>... parameterTypes) {
+    try {
+      return LOOKUP.unreflectConstructor(exception.getConstructor(parameterTypes))
+          .asType(MethodType.methodType(RuntimeException.class, parameterTypes));
+    } catch (final NoSuchMethodException e) {
+      return null;
+    } catch (final IllegalAccessException e) {
+      throw new IllegalArgumentException("Exception " + exception.getName() + " mapped on " + methodKey
+          + " can't be instantiated.", e);
+    }
+  }
 
-          return Optional.of(noArgumentConstructor.newInstance());
-        }
-        catch (final NoSuchMethodException e2) {
-          final Constructor<? extends RuntimeException> noStringArgumentConstructor =
-                  throwsExceptionAnnotations.exception().getConstructor(String.class);
+  @FunctionalInterface
+  private interface ExceptionFactory {
+    RuntimeException create(final Response response) throws Throwable;
+  }
 
-          return Optional.of(noStringArgumentConstructor.newInstance(stringifyBody(response)));
-        }
-      }
-    } catch (final InvocationTargetException
-        | IllegalAccessException
-        | InstantiationException
-        | NoSuchMethodException e) {
-      logger.error("Instantiating exception {}, in for status {} failed with an exception",
-          throwsExceptionAnnotations.exception(), throwsExceptionAnnotations.status(), e);
+  private static class ExceptionMapping {
+    private final int status;
+    private final Class<? extends RuntimeException> exception;
+    private final ExceptionFactory factory;
 
-      return Optional.empty();
+    private ExceptionMapping(final ThrowsException throwsExceptionAnnotation, final ExceptionFactory factory) {
+      this.status = throwsExceptionAnnotation.status().value();
+      this.exception = throwsExceptionAnnotation.exception();
+      this.factory = factory;
     }
   }
 }
@@ -26,5 +26,7 @@ public interface ApiConstants {
 
   String AUTHORIZATION_HEADER = "Authorization";
   String USER_HEADER = "User";
+  /** The milliseconds left until the caller's {@link Deadline}. */
+  String REMAINING_TIME_HEADER = "X-Remaining-Time-Millis";
   String SYSTEM_SU = "wepemnefret";
 }
@@ -18,59 +18,359 @@
  */
 package org.apache.fineract.cn.api.util;
 
+import feign.Client;
 import feign.Feign;
-import feign.gson.GsonDecoder;
+import feign.InvocationHandlerFactory;
+import feign.codec.Decoder;
 import feign.gson.GsonEncoder;
 import org.apache.fineract.cn.api.config.ApiConfiguration;
+import org.apache.fineract.cn.api.metrics.CallListener;
+import org.apache.fineract.cn.api.metrics.ClientMetrics;
+import org.apache.fineract.cn.api.metrics.MetricsRegistry;
 import org.slf4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
 import org.springframework.cloud.netflix.feign.support.SpringMvcContract;
 import org.springframework.stereotype.Component;
 
+import javax.annotation.PreDestroy;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
 /**
+ * Creates feign clients for fineract services.
+ *
+ * <p>{@link #create} and {@link #createWithCookieJar} build a new client on each call.  Each of these
+ * clients has its own cookie jar, which keeps the cookies set by responses and sends them with later
+ * requests of the same client.</p>
+ *
+ * <p>{@link #createShared} returns clients from a bounded cache, keyed by interface, target and
+ * options, which is the way to go for callers which would otherwise create a client per request.
+ * Shared clients are used by many callers at once, and therefore don't keep cookies: a session
+ * cookie set in the response to one caller would otherwise be sent with the requests of another
+ * user or tenant.  Callers which need cookies should keep a client from {@link #createWithCookieJar}
+ * to themselves.</p>
+ *
+ * <p>Requests are carried by the transport of the {@link TransportFactory} the factory was created
+ * with.  By default, that is a {@link PooledTransportFactory}, which keeps a pool of keep-alive
+ * connections per target, configured through the connection settings of the {@link ClientOptions}.</p>
+ *
+ * <p>{@link #createAsync} creates clients for interfaces whose methods return a
+ * {@link java.util.concurrent.CompletableFuture} of the response type.  The calls run on a bounded
+ * executor, with the tenant and user of the caller.  When the executor is saturated, the returned
+ * future fails with a {@link java.util.concurrent.RejectedExecutionException} instead of blocking
+ * the caller.</p>
+ *
+ * <p>Clients created with {@link ClientOptions#isCoalesceRequests()} share concurrent identical GET
+ * requests with all other such clients of the factory, see {@link RequestCoalescer}.  Clients
+ * created with {@link ClientOptions#isCacheResponses()} share a response cache, partitioned by
+ * tenant, which honors the Cache-Control and ETag headers of the responses, see
+ * {@link ResponseCache}.</p>
+ *
+ * <p>Methods returning a {@link java.util.stream.Stream}, an {@link java.util.Iterator} or a
+ * {@code Consumer<Consumer<T>>} decode JSON arrays as they are read, see {@link StreamingDecoder}.</p>
+ *
+ * <p>The latency and outcome of every call, and the status and body sizes of every exchange with
+ * the server, are recorded per client method in the factory's {@link #getMetrics() metrics}, and
+ * exported through the {@link MetricsRegistry registries} added to them.</p>
+ *
+ * <p>Targets of the form {@code lb://service-id/context-path} are load balanced over the instances
+ * the {@link DiscoveryClient} of the factory knows for the service, Eureka in a fineract service.
+ * Each request goes to a lightly loaded instance which has been answering fast, see
+ * {@link LoadBalancer}.  {@link InMemoryDiscoveryClient} stands in for Eureka in tests.</p>
+ *
+ * <p>Clients created with {@link ClientOptions#isLimitConcurrency()} share an adaptive limit on the
+ * requests in flight to their target, and fail fast with a {@link ConcurrencyLimitExceededException}
+ * over it, see {@link ConcurrencyLimiter}.  The state of the limits is part of the metrics.</p>
+ *
+ * <p>Clients created with {@link ClientOptions#isBreakCircuits()} have a circuit breaker per method
+ * and target, which fails calls fast with a {@link CircuitBreakerOpenException} while the method
+ * keeps failing or being slow.  Exceptions mapped by
+ * {@link org.apache.fineract.cn.api.annotation.ThrowsException} to business statuses don't count as
+ * failures, see {@link CircuitBreaker}.</p>
+ *
+ * <p>GET methods marked {@link org.apache.fineract.cn.api.annotation.Hedged} send a second request
+ * if the first takes longer than the usual time of the method, and take the first response, see
+ * {@link RequestHedger}.</p>
+ *
+ * <p>A {@link CallListener} set on the factory sees the phases of each call of the clients created
+ * afterwards: interceptors, encoding, DNS and connect, time to first byte, body transfer, decoding
+ * and error decoding.  See {@link org.apache.fineract.cn.api.metrics.SlowCallLogger}.</p>
+ *
+ * <p>Within a {@link org.apache.fineract.cn.api.context.AutoRequestScope}, repeated identical GET
+ * calls return the result of the first one, see {@link RequestScope}.</p>
+ *
+ * <p>GET methods marked {@link org.apache.fineract.cn.api.annotation.CacheNotFound} remember their
+ * 404 responses for a short while, see {@link NotFoundCache}.</p>
+ *
  * @author Myrle Krantz
  */
-@SuppressWarnings("unused")
+@SuppressWarnings({"unused", "WeakerAccess"})
 @Component
 public class ApiFactory {
+  public static final int DEFAULT_SHARED_CLIENT_CACHE_SIZE = 256;
+  public static final int DEFAULT_ASYNC_THREADS = 64;
+  public static final int DEFAULT_ASYNC_QUEUE_SIZE = 1024;
+  public static final int DEFAULT_RESPONSE_CACHE_SIZE = 1024;
+
+  private static final Decoder DECODER = new StreamingDecoder();
+  private static final GsonEncoder ENCODER = new GsonEncoder();
 
   private final Logger logger;
+  private final ClientCache sharedClients;
+  private final TransportFactory transportFactory;
+  private final ThreadPoolExecutor asyncExecutor;
+  private final RequestCoalescer requestCoalescer = new RequestCoalescer();
+  private final ResponseCache responseCache = new ResponseCache(DEFAULT_RESPONSE_CACHE_SIZE);
+  private final NotFoundCache notFoundCache = new NotFoundCache();
+  private final ClientMetrics metrics = new ClientMetrics();
+  private final RequestHedger requestHedger = new RequestHedger();
+  private final Retries retries = new Retries();
+  private final CircuitBreakers circuitBreakers = new CircuitBreakers();
+  private final ConcurrentHashMap<String, LoadBalancer> loadBalancers = new ConcurrentHashMap<>();
+  private final ConcurrentHashMap<String, ConcurrencyLimiter> concurrencyLimiters = new ConcurrentHashMap<>();
+  private volatile CallListener callListener = CallListener.NONE;
+  private volatile DiscoveryClient discoveryClient;
+  private volatile TimeoutOverrides timeoutOverrides = TimeoutOverrides.NONE;
 
   @Autowired
   public ApiFactory(@Qualifier(ApiConfiguration.LOGGER_NAME) final Logger logger) {
+    this(logger, DEFAULT_SHARED_CLIENT_CACHE_SIZE);
+  }
+
+  public ApiFactory(final Logger logger, final int sharedClientCacheSize) {
+    this(logger, sharedClientCacheSize, new PooledTransportFactory());
+  }
+
+  public ApiFactory(
+      final Logger logger,
+      final int sharedClientCacheSize,
+      final TransportFactory transportFactory) {
     this.logger = logger;
+    this.sharedClients = new ClientCache(sharedClientCacheSize);
+    this.transportFactory = transportFactory;
+    this.asyncExecutor = asyncExecutor();
   }
 
   public <T> T create(final Class<T> clazz, final String target) {
-    final CookieInterceptingClient client = new CookieInterceptingClient(target);
-    return Feign.builder()
-        .contract(new SpringMvcContract())
+    return create(clazz, target, ClientOptions.DEFAULT);
+  }
+
+  public <T> T create(final Class<T> clazz, final String target, final ClientOptions options) {
+    final CallListener listener = callListener;
+    final CookieInterceptingClient client =
+        new CookieInterceptingClient(target, transport(target, options, listener));
+    return builder(clazz, options, client.cookieJar, listener)
         .client(client)
-        .errorDecoder(new AnnotatedErrorDecoder(logger, clazz))
-        .requestInterceptor(new TenantedTargetInterceptor())
-        .requestInterceptor(new TokenedTargetInterceptor())
-        .requestInterceptor(new EmptyBodyInterceptor())
-        .requestInterceptor(client.getCookieInterceptor())
-        .decoder(new GsonDecoder())
-        .encoder(new GsonEncoder())
         .target(clazz, target);
   }
 
   public <T> FeignTargetWithCookieJar<T> createWithCookieJar(final Class<T> clazz, final String target) {
-    final CookieInterceptingClient client = new CookieInterceptingClient(target);
-    final T feignTarget = Feign.builder()
-            .contract(new SpringMvcContract())
+    return createWithCookieJar(clazz, target, ClientOptions.DEFAULT);
+  }
+
+  public <T> FeignTargetWithCookieJar<T> createWithCookieJar(
+      final Class<T> clazz,
+      final String target,
+      final ClientOptions options) {
+    final CallListener listener = callListener;
+    final CookieInterceptingClient client =
+        new CookieInterceptingClient(target, transport(target, options, listener));
+    final T feignTarget = builder(clazz, options, client.cookieJar, listener)
             .client(client)
-            .errorDecoder(new AnnotatedErrorDecoder(logger, clazz))
-            .requestInterceptor(new TenantedTargetInterceptor())
-            .requestInterceptor(new TokenedTargetInterceptor())
-            .requestInterceptor(new EmptyBodyInterceptor())
-            .requestInterceptor(client.getCookieInterceptor())
-            .decoder(new GsonDecoder())
-            .encoder(new GsonEncoder())
             .target(clazz, target);
 
     return new FeignTargetWithCookieJar<>(feignTarget, client);
   }
+
+  public <T> T createShared(final Class<T> clazz, final String target) {
+    return createShared(clazz, target, ClientOptions.DEFAULT);
+  }
+
+  public <T> T createShared(final Class<T> clazz, final String target, final ClientOptions options) {
+    return sharedClients.get(clazz, target, options, () -> {
+      final CallListener listener = callListener;
+      return builder(clazz, options, null, listener)
+          .client(transport(target, options, listener))
+          .target(clazz, target);
+    });
+  }
+
+  public <T> T createAsync(final Class<T> clazz, final String target) {
+    return createAsync(clazz, target, ClientOptions.DEFAULT);
+  }
+
+  public <T> T createAsync(final Class<T> clazz, final String target, final ClientOptions options) {
+    return createAsync(clazz, target, options, asyncExecutor);
+  }
+
+  public <T> T createAsync(
+      final Class<T> clazz,
+      final String target,
+      final ClientOptions options,
+      final Executor executor) {
+    final CallListener listener = callListener;
+    final CookieInterceptingClient client =
+        new CookieInterceptingClient(target, transport(target, options, listener));
+    return builder(clazz, options, client.cookieJar, listener, new AsyncInvocationHandlerFactory(executor))
+        .client(client)
+        .decoder(CallEvents.timed(listener, new CompletableFutureDecoder(DECODER)))
+        .target(clazz, target);
+  }
+
+  public ClientMetrics getMetrics() {
+    return metrics;
+  }
+
+  @Autowired(required = false)
+  public void setMetricsRegistries(final List<MetricsRegistry> registries) {
+    registries.forEach(metrics::addRegistry);
+  }
+
+  public CallListener getCallListener() {
+    return callListener;
+  }
+
+  /**
+   * Sets the listener for the calls of clients created from now on.  Shared clients created before
+   * keep the listener they were created with, until they are {@link #invalidateAllShared invalidated}.
+   */
+  @Autowired(required = false)
+  public void setCallListener(final CallListener callListener) {
+    this.callListener = callListener == null ? CallListener.NONE : callListener;
+  }
+
+  /**
+   * Sets the timeouts which take precedence over the declared ones for the clients created from now
+   * on.  Shared clients created before keep the timeouts they were created with, until they are
+   * {@link #invalidateAllShared invalidated}.
+   */
+  @Autowired(required = false)
+  public void setTimeoutOverrides(final TimeoutOverrides timeoutOverrides) {
+    this.timeoutOverrides = timeoutOverrides == null ? TimeoutOverrides.NONE : timeoutOverrides;
+  }
+
+  /**
+   * Sets the registry in which the instances of load balanced targets are looked up.
+   */
+  @Autowired(required = false)
+  public void setDiscoveryClient(final DiscoveryClient discoveryClient) {
+    this.discoveryClient = discoveryClient;
+    this.loadBalancers.clear();
+  }
+
+  /**
+   * Drops the shared clients for the given interface and target, whatever their options, so the
+   * next call to {@link #createShared} builds a new one.
+   */
+  public void invalidateShared(final Class<?> clazz, final String target) {
+    sharedClients.invalidate(clazz, target);
+  }
+
+  public void invalidateAllShared() {
+    sharedClients.invalidateAll();
+  }
+
+  public void invalidateCachedResponses() {
+    responseCache.invalidateAll();
+    notFoundCache.invalidateAll();
+  }
+
+  /**
+   * Drops all shared clients and cached responses, unregisters the metrics, stops the threads of
+   * the factory, and closes the connections of the transport.
+   */
+  @PreDestroy
+  public void close() {
+    sharedClients.invalidateAll();
+    responseCache.invalidateAll();
+    notFoundCache.invalidateAll();
+    metrics.close();
+    concurrencyLimiters.clear();
+    circuitBreakers.clear();
+    asyncExecutor.shutdown();
+    requestHedger.close();
+    transportFactory.close();
+  }
+
+  private Client transport(final String target, final ClientOptions options, final CallListener listener) {
+    final Client pooled = CallMetrics.metered(CallEvents.timed(listener, transportFactory.create(target, options)));
+    final String serviceId = LoadBalancer.serviceIdOf(target);
+    final Client balanced = serviceId == null ? pooled : loadBalancer(serviceId).around(pooled);
+    final Client limited = options.isLimitConcurrency() ? concurrencyLimiter(target).around(balanced) : balanced;
+    final Client hedged = requestHedger.around(limited);
+    final Client tracked = retries.around(MethodTimeouts.around(DeadlineTimeouts.around(hedged)));
+    final Client coalesced = options.isCoalesceRequests() ? requestCoalescer.around(tracked) : tracked;
+    final Client cached = options.isCacheResponses() ? responseCache.around(coalesced) : coalesced;
+    return DetachableBody.around(notFoundCache.around(cached));
+  }
+
+  private ConcurrencyLimiter concurrencyLimiter(final String target) {
+    return concurrencyLimiters.computeIfAbsent(target, x -> {
+      final ConcurrencyLimiter ret = new ConcurrencyLimiter(target);
+      metrics.addConcurrencyLimit(ret.getMetrics());
+      return ret;
+    });
+  }
+
+  private LoadBalancer loadBalancer(final String serviceId) {
+    final DiscoveryClient discoveryClient = this.discoveryClient;
+    if (discoveryClient == null)
+      throw new IllegalStateException("No discovery client to look up the instances of " + serviceId + " in.");
+    return loadBalancers.computeIfAbsent(serviceId, x -> new LoadBalancer(logger, serviceId, discoveryClient));
+  }
+
+  private static ThreadPoolExecutor asyncExecutor() {
+    final AtomicInteger threadCount = new AtomicInteger();
+    final ThreadPoolExecutor ret = new ThreadPoolExecutor(
+        DEFAULT_ASYNC_THREADS, DEFAULT_ASYNC_THREADS,
+        60, TimeUnit.SECONDS,
+        new ArrayBlockingQueue<>(DEFAULT_ASYNC_QUEUE_SIZE),
+        runnable -> {
+          final Thread thread = new Thread(runnable, "fineract-api-async-" + threadCount.incrementAndGet());
+          thread.setDaemon(true);
+          return thread;
+        });
+    ret.allowCoreThreadTimeOut(true);
+    return ret;
+  }
+
+  private Feign.Builder builder(
+      final Class<?> clazz,
+      final ClientOptions options,
+      final CookieJar cookieJar,
+      final CallListener listener) {
+    return builder(clazz, options, cookieJar, listener, new InvocationHandlerFactory.Default());
+  }
+
+  private Feign.Builder builder(
+      final Class<?> clazz,
+      final ClientOptions options,
+      final CookieJar cookieJar,
+      final CallListener listener,
+      final InvocationHandlerFactory invocationHandlerFactory) {
+    final AnnotatedErrorDecoder errorDecoder = new AnnotatedErrorDecoder(logger, clazz, options.getMaxErrorBodyBytes());
+    return Feign.builder()
+        .contract(new SpringMvcContract())
+        .options(options.toRequestOptions())
+        .retryer(retries.retryer(options.getMaxAttempts()))
+        .invocationHandlerFactory(CallMetrics.instrument(metrics,
+            CallEvents.instrument(listener,
+                circuitBreakers.instrument(options, errorDecoder,
+                    requestHedger.instrument(
+                        MethodTimeouts.instrument(options.toRequestOptions(), timeoutOverrides,
+                            ReadMemoizer.instrument(
+                                notFoundCache.instrument(
+                                    Retries.instrument(invocationHandlerFactory)))))))))
+        .errorDecoder(CallEvents.timed(listener, errorDecoder))
+        .requestInterceptor(CallEvents.timed(listener, new FusedRequestInterceptor(cookieJar)))
+        .decoder(CallEvents.timed(listener, DECODER))
+        .encoder(CallEvents.timed(listener, ENCODER));
+  }
 }
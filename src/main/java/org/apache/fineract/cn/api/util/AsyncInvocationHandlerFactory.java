@@ -0,0 +1,121 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.api.util;
+
+import feign.InvocationHandlerFactory;
+import feign.Target;
+import org.apache.fineract.cn.api.context.ContextSnapshot;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Runs the methods of a feign client which return a {@link CompletableFuture} or a
+ * {@link java.util.concurrent.CompletionStage} on an executor.  The request interceptors see the
+ * tenant and user of the calling thread.  Exceptions, including those produced by the error
+ * decoder, and rejection by the executor complete the future exceptionally.  Methods with other
+ * return types run on the calling thread.
+ */
+final class AsyncInvocationHandlerFactory implements InvocationHandlerFactory {
+  private final Executor executor;
+
+  AsyncInvocationHandlerFactory(final Executor executor) {
+    this.executor = executor;
+  }
+
+  @Override
+  public InvocationHandler create(final Target target, final Map<Method, MethodHandler> dispatch) {
+    return new AsyncInvocationHandler(target, dispatch, executor);
+  }
+
+  private static final class AsyncInvocationHandler implements InvocationHandler {
+    private final Target target;
+    private final Map<Method, MethodHandler> dispatch;
+    private final Executor executor;
+
+    private AsyncInvocationHandler(
+        final Target target,
+        final Map<Method, MethodHandler> dispatch,
+        final Executor executor) {
+      this.target = target;
+      this.dispatch = dispatch;
+      this.executor = executor;
+    }
+
+    @Override
+    public Object invoke(final Object proxy, final Method method, final Object[] args) throws Throwable {
+      switch (method.getName()) {
+        case "equals":
+          if (method.getParameterCount() == 1)
+            return equalsHandler(args[0]);
+          break;
+        case "hashCode":
+          if (method.getParameterCount() == 0)
+            return hashCode();
+          break;
+        case "toString":
+          if (method.getParameterCount() == 0)
+            return toString();
+          break;
+      }
+
+      final MethodHandler methodHandler = dispatch.get(method);
+      if (!CompletableFutureDecoder.isFuture(method.getReturnType()))
+        return methodHandler.invoke(args);
+
+      final ContextSnapshot callerContext = ContextSnapshot.capture();
+      final CompletableFuture<Object> ret = new CompletableFuture<>();
+      try {
+        executor.execute(() -> callerContext.run(() -> {
+          try {
+            ret.complete(methodHandler.invoke(args));
+          } catch (final Throwable e) {
+            ret.completeExceptionally(e);
+          }
+        }));
+      } catch (final RejectedExecutionException e) {
+        ret.completeExceptionally(e);
+      }
+      return ret;
+    }
+
+    private boolean equalsHandler(final Object other) {
+      if (other == null || !Proxy.isProxyClass(other.getClass()))
+        return false;
+      final InvocationHandler otherHandler = Proxy.getInvocationHandler(other);
+      return otherHandler instanceof AsyncInvocationHandler
+          && target.equals(((AsyncInvocationHandler) otherHandler).target);
+    }
+
+    @Override
+    public int hashCode() {
+      return target.hashCode();
+    }
+
+    @Override
+    public String toString() {
+      return target.toString();
+    }
+  }
+}
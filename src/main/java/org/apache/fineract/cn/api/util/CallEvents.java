@@ -0,0 +1,327 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.api.util;
+
+import feign.Client;
+import feign.Feign;
+import feign.InvocationHandlerFactory;
+import feign.RequestInterceptor;
+import feign.Response;
+import feign.Target;
+import feign.Util;
+import feign.codec.Decoder;
+import feign.codec.Encoder;
+import feign.codec.ErrorDecoder;
+import org.apache.fineract.cn.api.metrics.CallListener;
+import org.apache.fineract.cn.api.metrics.CallPhase;
+import org.apache.fineract.cn.api.metrics.CallTrace;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.lang.reflect.Method;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Times the phases of client calls for a {@link CallListener}.  Each part of the pipeline built by
+ * the {@link ApiFactory} is wrapped to time its phase; while a call runs, its trace is the current
+ * trace of the thread.  With {@link CallListener#NONE}, nothing is wrapped.
+ */
+final class CallEvents {
+  private static final ThreadLocal<Call> CURRENT = new ThreadLocal<>();
+
+  private CallEvents() {
+  }
+
+  static InvocationHandlerFactory instrument(final CallListener listener, final InvocationHandlerFactory delegate) {
+    if (listener == CallListener.NONE)
+      return delegate;
+    return (target, dispatch) -> delegate.create(target, instrument(listener, target, dispatch));
+  }
+
+  static RequestInterceptor timed(final CallListener listener, final RequestInterceptor delegate) {
+    if (listener == CallListener.NONE)
+      return delegate;
+    return template -> {
+      final Call call = CURRENT.get();
+      final long start = System.nanoTime();
+      delegate.apply(template);
+      if (call != null)
+        call.phaseEnded(CallPhase.INTERCEPTORS, System.nanoTime() - start);
+    };
+  }
+
+  static Encoder timed(final CallListener listener, final Encoder delegate) {
+    if (listener == CallListener.NONE)
+      return delegate;
+    return (object, bodyType, template) -> {
+      final Call call = CURRENT.get();
+      final long start = System.nanoTime();
+      delegate.encode(object, bodyType, template);
+      if (call != null)
+        call.phaseEnded(CallPhase.ENCODING, System.nanoTime() - start);
+    };
+  }
+
+  static Decoder timed(final CallListener listener, final Decoder delegate) {
+    if (listener == CallListener.NONE)
+      return delegate;
+    return (response, type) -> {
+      final Call call = CURRENT.get();
+      if (call == null)
+        return delegate.decode(response, type);
+      final long bodyNanos = call.bodyNanos;
+      final long start = System.nanoTime();
+      try {
+        return delegate.decode(response, type);
+      } finally {
+        call.phaseEnded(CallPhase.DECODING, System.nanoTime() - start - (call.bodyNanos - bodyNanos));
+      }
+    };
+  }
+
+  static ErrorDecoder timed(final CallListener listener, final ErrorDecoder delegate) {
+    if (listener == CallListener.NONE)
+      return delegate;
+    return (methodKey, response) -> {
+      final Call call = CURRENT.get();
+      if (call == null)
+        return delegate.decode(methodKey, response);
+      final long bodyNanos = call.bodyNanos;
+      final long start = System.nanoTime();
+      try {
+        return delegate.decode(methodKey, response);
+      } finally {
+        call.phaseEnded(CallPhase.ERROR_DECODING, System.nanoTime() - start - (call.bodyNanos - bodyNanos));
+      }
+    };
+  }
+
+  /**
+   * Times the exchanges the given transport carries, up to the response headers, and the reading
+   * of the response bodies.
+   */
+  static Client timed(final CallListener listener, final Client transport) {
+    if (listener == CallListener.NONE)
+      return transport;
+    return (request, options) -> {
+      final Call call = CURRENT.get();
+      if (call == null)
+        return transport.execute(request, options);
+      final long connectNanos = call.connectNanos;
+      final long start = System.nanoTime();
+      final Response ret;
+      try {
+        ret = transport.execute(request, options);
+      } finally {
+        call.phaseEnded(CallPhase.TIME_TO_FIRST_BYTE,
+            System.nanoTime() - start - (call.connectNanos - connectNanos));
+      }
+      if (ret.body() == null)
+        return ret;
+      return ret.toBuilder().body(new TimedBody(ret.body(), call)).build();
+    };
+  }
+
+  /**
+   * Adds time to the {@link CallPhase#DNS} or {@link CallPhase#CONNECT} phase of the current call,
+   * if any.  Called by transports which open their own connections.
+   */
+  static void connectionPhaseEnded(final CallPhase phase, final long nanos) {
+    final Call call = CURRENT.get();
+    if (call == null)
+      return;
+    call.connected(phase, nanos);
+  }
+
+  /**
+   * Runs the given task in the current call, so that the phases it goes through on another thread
+   * are timed.  Several threads may work on a call at once, like the attempts of a hedged request;
+   * the times of their phases add up.
+   */
+  static Runnable propagating(final Runnable task) {
+    final Call call = CURRENT.get();
+    if (call == null)
+      return task;
+    return () -> {
+      final Call previous = CURRENT.get();
+      CURRENT.set(call);
+      try {
+        task.run();
+      } finally {
+        CURRENT.set(previous);
+      }
+    };
+  }
+
+  private static Map<Method, InvocationHandlerFactory.MethodHandler> instrument(
+      final CallListener listener,
+      final Target<?> target,
+      final Map<Method, InvocationHandlerFactory.MethodHandler> dispatch) {
+    final Map<Method, InvocationHandlerFactory.MethodHandler> ret = new LinkedHashMap<>();
+    dispatch.forEach((method, handler) -> {
+      final String methodKey = Feign.configKey(target.type(), method);
+      ret.put(method, args -> invoke(handler, listener, target, methodKey, args));
+    });
+    return ret;
+  }
+
+  private static Object invoke(
+      final InvocationHandlerFactory.MethodHandler handler,
+      final CallListener listener,
+      final Target<?> target,
+      final String methodKey,
+      final Object[] args) throws Throwable {
+    final Call call = new Call(new CallTrace(target.type(), target.url(), methodKey, System.nanoTime()), listener);
+    listener.callStarted(call.trace);
+    final Call previous = CURRENT.get();
+    CURRENT.set(call);
+    Throwable failure = null;
+    try {
+      return handler.invoke(args);
+    } catch (final Throwable e) {
+      failure = e;
+      throw e;
+    } finally {
+      CURRENT.set(previous);
+      call.ended(failure);
+    }
+  }
+
+  /**
+   * The state of a call.  Updates are synchronized, since a hedged request makes its attempts on
+   * threads of its own, which may still run when the call has ended.
+   */
+  private static final class Call {
+    private final CallTrace trace;
+    private final CallListener listener;
+    private volatile long connectNanos;
+    private volatile long bodyNanos;
+
+    private Call(final CallTrace trace, final CallListener listener) {
+      this.trace = trace;
+      this.listener = listener;
+    }
+
+    private synchronized void phaseEnded(final CallPhase phase, final long nanos) {
+      if (trace.isEnded())
+        return;
+      trace.addPhaseNanos(phase, nanos);
+      listener.phaseEnded(trace, phase, nanos);
+    }
+
+    private synchronized void connected(final CallPhase phase, final long nanos) {
+      connectNanos += nanos;
+      phaseEnded(phase, nanos);
+    }
+
+    private synchronized void bodyRead(final long nanos) {
+      if (trace.isEnded())
+        return;
+      bodyNanos += nanos;
+      trace.addPhaseNanos(CallPhase.BODY_TRANSFER, nanos);
+    }
+
+    private synchronized void bodyClosed(final long nanos) {
+      if (!trace.isEnded())
+        listener.phaseEnded(trace, CallPhase.BODY_TRANSFER, nanos);
+    }
+
+    private synchronized void ended(final Throwable failure) {
+      trace.end(System.nanoTime());
+      listener.callEnded(trace, failure);
+    }
+  }
+
+  /**
+   * Times the reads of a response body.  The time is added to the trace as it is spent, and reported
+   * to the listener once, when the body is closed.
+   */
+  private static final class TimedBody implements Response.Body {
+    private final Response.Body body;
+    private final Call call;
+    private long nanos;
+
+    private TimedBody(final Response.Body body, final Call call) {
+      this.body = body;
+      this.call = call;
+    }
+
+    @Override
+    public Integer length() {
+      return body.length();
+    }
+
+    @Override
+    public boolean isRepeatable() {
+      return body.isRepeatable();
+    }
+
+    @Override
+    public InputStream asInputStream() throws IOException {
+      return new FilterInputStream(body.asInputStream()) {
+        @Override
+        public int read() throws IOException {
+          final long start = System.nanoTime();
+          try {
+            return super.read();
+          } finally {
+            spent(System.nanoTime() - start);
+          }
+        }
+
+        @Override
+        public int read(final byte[] b, final int off, final int len) throws IOException {
+          final long start = System.nanoTime();
+          try {
+            return super.read(b, off, len);
+          } finally {
+            spent(System.nanoTime() - start);
+          }
+        }
+      };
+    }
+
+    @Override
+    public Reader asReader() throws IOException {
+      return new InputStreamReader(asInputStream(), Util.UTF_8);
+    }
+
+    @Override
+    public void close() throws IOException {
+      try {
+        body.close();
+      } finally {
+        if (nanos != 0)
+          call.bodyClosed(nanos);
+        nanos = 0;
+      }
+    }
+
+    private void spent(final long readNanos) {
+      if (call.trace.isEnded())
+        return;
+      nanos += readNanos;
+      call.bodyRead(readNanos);
+    }
+  }
+}
@@ -0,0 +1,180 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.api.util;
+
+import feign.Client;
+import feign.Feign;
+import feign.InvocationHandlerFactory;
+import feign.Response;
+import feign.Target;
+import feign.Util;
+import org.apache.fineract.cn.api.metrics.ClientMetrics;
+import org.apache.fineract.cn.api.metrics.MethodMetrics;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.lang.reflect.Method;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Records the metrics of client calls.  The method handlers of a client are wrapped to time each
+ * call and count its outcome; while a call runs, its metrics are the current metrics of the thread,
+ * so that the transport can count the status and body sizes of each exchange with the server.
+ */
+final class CallMetrics {
+  private static final ThreadLocal<MethodMetrics> CURRENT = new ThreadLocal<>();
+
+  private CallMetrics() {
+  }
+
+  /**
+   * Wraps the method handlers of the clients the given factory creates.
+   */
+  static InvocationHandlerFactory instrument(final ClientMetrics metrics, final InvocationHandlerFactory delegate) {
+    return (target, dispatch) -> delegate.create(target, instrument(metrics, target, dispatch));
+  }
+
+  /**
+   * Counts the exchanges of the current call, if any, that the given transport carries.
+   */
+  static Client metered(final Client transport) {
+    return (request, options) -> {
+      final MethodMetrics metrics = CURRENT.get();
+      final Response ret = transport.execute(request, options);
+      if (metrics == null)
+        return ret;
+
+      metrics.recordExchange(ret.status(), request.body() == null ? 0 : request.body().length);
+      final Response.Body body = ret.body();
+      if (body == null)
+        return ret;
+      if (body.length() != null) {
+        metrics.recordResponseBytes(body.length());
+        return ret;
+      }
+      return ret.toBuilder().body(new CountingBody(body, metrics)).build();
+    };
+  }
+
+  /**
+   * Runs the given task with the metrics of the current call, so that the exchanges it makes on
+   * another thread are counted.
+   */
+  static Runnable propagating(final Runnable task) {
+    final MethodMetrics metrics = CURRENT.get();
+    if (metrics == null)
+      return task;
+    return () -> {
+      final MethodMetrics previous = CURRENT.get();
+      CURRENT.set(metrics);
+      try {
+        task.run();
+      } finally {
+        CURRENT.set(previous);
+      }
+    };
+  }
+
+  private static Map<Method, InvocationHandlerFactory.MethodHandler> instrument(
+      final ClientMetrics metrics,
+      final Target<?> target,
+      final Map<Method, InvocationHandlerFactory.MethodHandler> dispatch) {
+    final Map<Method, InvocationHandlerFactory.MethodHandler> ret = new LinkedHashMap<>();
+    dispatch.forEach((method, handler) -> {
+      final MethodMetrics methodMetrics =
+          metrics.methodMetrics(target.type(), target.url(), Feign.configKey(target.type(), method));
+      ret.put(method, args -> invoke(handler, methodMetrics, args));
+    });
+    return ret;
+  }
+
+  private static Object invoke(
+      final InvocationHandlerFactory.MethodHandler handler,
+      final MethodMetrics metrics,
+      final Object[] args) throws Throwable {
+    final MethodMetrics previous = CURRENT.get();
+    CURRENT.set(metrics);
+    final long start = System.nanoTime();
+    Throwable failure = null;
+    try {
+      return handler.invoke(args);
+    } catch (final Throwable e) {
+      failure = e;
+      throw e;
+    } finally {
+      metrics.recordCall(System.nanoTime() - start, failure);
+      CURRENT.set(previous);
+    }
+  }
+
+  private static final class CountingBody implements Response.Body {
+    private final Response.Body body;
+    private final MethodMetrics metrics;
+
+    private CountingBody(final Response.Body body, final MethodMetrics metrics) {
+      this.body = body;
+      this.metrics = metrics;
+    }
+
+    @Override
+    public Integer length() {
+      return body.length();
+    }
+
+    @Override
+    public boolean isRepeatable() {
+      return body.isRepeatable();
+    }
+
+    @Override
+    public InputStream asInputStream() throws IOException {
+      return new FilterInputStream(body.asInputStream()) {
+        @Override
+        public int read() throws IOException {
+          final int ret = super.read();
+          if (ret != -1)
+            metrics.recordResponseBytes(1);
+          return ret;
+        }
+
+        @Override
+        public int read(final byte[] b, final int off, final int len) throws IOException {
+          final int ret = super.read(b, off, len);
+          if (ret > 0)
+            metrics.recordResponseBytes(ret);
+          return ret;
+        }
+      };
+    }
+
+    @Override
+    public Reader asReader() throws IOException {
+      return new InputStreamReader(asInputStream(), Util.UTF_8);
+    }
+
+    @Override
+    public void close() throws IOException {
+      body.close();
+    }
+  }
+}
@@ -0,0 +1,217 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.api.util;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * The circuit breaker of one method of one target.  While closed, it counts the calls of the last
+ * ten seconds, and those which failed or were slow.  Once there are enough calls, and too many of
+ * them failed or were slow, it opens, and fails calls fast for a while.  Then it lets a few probe
+ * calls through: if all of them succeed in time it closes, otherwise it opens again.
+ *
+ * <p>Which exceptions are failures is up to the {@link AnnotatedErrorDecoder} of the client: the
+ * exceptions mapped to business statuses by {@link org.apache.fineract.cn.api.annotation.ThrowsException}
+ * don't count, while internal server errors, connection errors and timeouts do.</p>
+ *
+ * <p>The state is an immutable object swapped by compare and set, and the counts are kept in
+ * per-second buckets of adders, so neither calls nor transitions take a lock.</p>
+ */
+final class CircuitBreaker {
+  static final int WINDOW_SECONDS = 10;
+  static final int MIN_CALLS = 20;
+  static final int FAILURE_RATE_PERCENT = 50;
+  static final int SLOW_CALL_RATE_PERCENT = 80;
+  static final long OPEN_MILLIS = 10 * 1000;
+  static final int PROBES = 5;
+
+  enum Phase {
+    CLOSED, OPEN, HALF_OPEN
+  }
+
+  private final String target;
+  private final String methodKey;
+  private final long slowCallNanos;
+  private final LongSupplier nanoClock;
+  private final AtomicReference<State> state;
+
+  CircuitBreaker(final String target, final String methodKey, final long slowCallThresholdMillis) {
+    this(target, methodKey, slowCallThresholdMillis, System::nanoTime);
+  }
+
+  CircuitBreaker(
+      final String target,
+      final String methodKey,
+      final long slowCallThresholdMillis,
+      final LongSupplier nanoClock) {
+    this.target = target;
+    this.methodKey = methodKey;
+    this.slowCallNanos = TimeUnit.MILLISECONDS.toNanos(slowCallThresholdMillis);
+    this.nanoClock = nanoClock;
+    this.state = new AtomicReference<>(State.closed());
+  }
+
+  Phase getPhase() {
+    return state.get().phase;
+  }
+
+  /**
+   * Returns the state in which a call may go ahead, to be handed back to {@link #record} with its
+   * outcome, or throws if the call may not.
+   */
+  State acquire() {
+    while (true) {
+      final State current = state.get();
+      switch (current.phase) {
+        case CLOSED:
+          return current;
+        case OPEN:
+          if (nanoClock.getAsLong() - current.openUntilNanos < 0)
+            throw new CircuitBreakerOpenException(target, methodKey);
+          state.compareAndSet(current, State.halfOpen());
+          break;
+        case HALF_OPEN:
+          if (current.takePermit())
+            return current;
+          throw new CircuitBreakerOpenException(target, methodKey);
+      }
+    }
+  }
+
+  /**
+   * Hands back the permit of a call which was rejected locally before it reached the target, such
+   * as by the concurrency limit or the deadline, without recording an outcome.
+   */
+  void release(final State admitted) {
+    if (admitted.phase == Phase.HALF_OPEN)
+      admitted.permits.incrementAndGet();
+  }
+
+  void record(final State admitted, final long nanos, final boolean failed) {
+    final boolean slow = nanos >= slowCallNanos;
+    final long now = nanoClock.getAsLong();
+    if (admitted.phase == Phase.CLOSED) {
+      admitted.window.record(now, failed, slow);
+      if ((failed || slow) && admitted.window.isTripped(now))
+        state.compareAndSet(admitted, State.open(now));
+    } else if (failed || slow) {
+      state.compareAndSet(admitted, State.open(now));
+    } else if (admitted.successes.incrementAndGet() >= PROBES) {
+      state.compareAndSet(admitted, State.closed());
+    }
+  }
+
+  static final class State {
+    private final Phase phase;
+    private final long openUntilNanos;
+    private final Window window;
+    private final AtomicInteger permits;
+    private final AtomicInteger successes;
+
+    private State(final Phase phase, final long openUntilNanos, final Window window, final int permits) {
+      this.phase = phase;
+      this.openUntilNanos = openUntilNanos;
+      this.window = window;
+      this.permits = new AtomicInteger(permits);
+      this.successes = new AtomicInteger();
+    }
+
+    private boolean takePermit() {
+      while (true) {
+        final int current = permits.get();
+        if (current <= 0)
+          return false;
+        if (permits.compareAndSet(current, current - 1))
+          return true;
+      }
+    }
+
+    private static State closed() {
+      return new State(Phase.CLOSED, 0, new Window(), 0);
+    }
+
+    private static State open(final long now) {
+      return new State(Phase.OPEN, now + TimeUnit.MILLISECONDS.toNanos(OPEN_MILLIS), null, 0);
+    }
+
+    private static State halfOpen() {
+      return new State(Phase.HALF_OPEN, 0, null, PROBES);
+    }
+  }
+
+  private static final class Window {
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final AtomicReferenceArray<Bucket> buckets = new AtomicReferenceArray<>(WINDOW_SECONDS);
+
+    private void record(final long now, final boolean failed, final boolean slow) {
+      final Bucket bucket = bucket(now / SECOND);
+      bucket.calls.increment();
+      if (failed)
+        bucket.failures.increment();
+      if (slow)
+        bucket.slowCalls.increment();
+    }
+
+    private boolean isTripped(final long now) {
+      final long second = now / SECOND;
+      long calls = 0;
+      long failures = 0;
+      long slowCalls = 0;
+      for (int i = 0; i < WINDOW_SECONDS; i++) {
+        final Bucket bucket = buckets.get(i);
+        if (bucket == null || second - bucket.second >= WINDOW_SECONDS)
+          continue;
+        calls += bucket.calls.sum();
+        failures += bucket.failures.sum();
+        slowCalls += bucket.slowCalls.sum();
+      }
+      return calls >= MIN_CALLS
+          && (failures * 100 >= calls * FAILURE_RATE_PERCENT || slowCalls * 100 >= calls * SLOW_CALL_RATE_PERCENT);
+    }
+
+    private Bucket bucket(final long second) {
+      final int index = (int) Math.floorMod(second, (long) WINDOW_SECONDS);
+      while (true) {
+        final Bucket current = buckets.get(index);
+        if (current != null && current.second >= second)
+          return current;
+        final Bucket fresh = new Bucket(second);
+        if (buckets.compareAndSet(index, current, fresh))
+          return fresh;
+      }
+    }
+  }
+
+  private static final class Bucket {
+    private final long second;
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder slowCalls = new LongAdder();
+
+    private Bucket(final long second) {
+      this.second = second;
+    }
+  }
+}
@@ -0,0 +1,49 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.api.util;
+
+/**
+ * Thrown instead of calling a client method while its circuit breaker is open, because the method
+ * has been failing or slow.  The call has not been made.  The exception has no stack trace, so
+ * throwing it is cheap.
+ */
+@SuppressWarnings("WeakerAccess")
+public class CircuitBreakerOpenException extends RuntimeException {
+  private final String target;
+  private final String methodKey;
+
+  public CircuitBreakerOpenException(final String target, final String methodKey) {
+    super(null, null, true, false);
+    this.target = target;
+    this.methodKey = methodKey;
+  }
+
+  public String getTarget() {
+    return target;
+  }
+
+  public String getMethodKey() {
+    return methodKey;
+  }
+
+  @Override
+  public String getMessage() {
+    return "Circuit breaker for " + methodKey + " on " + target + " is open.";
+  }
+}
@@ -0,0 +1,101 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.api.util;
+
+import feign.Feign;
+import feign.InvocationHandlerFactory;
+import feign.Target;
+
+import java.lang.reflect.Method;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The circuit breakers of the clients of a factory, one per target and method, shared by all
+ * clients for the method and target.  The settings of the first client decide the slow call
+ * threshold of a breaker.
+ */
+final class CircuitBreakers {
+  private final ConcurrentHashMap<String, CircuitBreaker> breakers = new ConcurrentHashMap<>();
+
+  /**
+   * Wraps the method handlers of a client in their circuit breakers.  Calls are timed from start to
+   * end, including feign's retries, and their exceptions classified by the given error decoder.
+   * Calls which were rejected locally, by the concurrency limit or the deadline, don't count either
+   * way.
+   */
+  InvocationHandlerFactory instrument(
+      final ClientOptions options,
+      final AnnotatedErrorDecoder errorDecoder,
+      final InvocationHandlerFactory delegate) {
+    if (!options.isBreakCircuits())
+      return delegate;
+    return (target, dispatch) -> delegate.create(target, instrument(options, errorDecoder, target, dispatch));
+  }
+
+  CircuitBreaker get(final String target, final String methodKey) {
+    return breakers.get(key(target, methodKey));
+  }
+
+  void clear() {
+    breakers.clear();
+  }
+
+  private Map<Method, InvocationHandlerFactory.MethodHandler> instrument(
+      final ClientOptions options,
+      final AnnotatedErrorDecoder errorDecoder,
+      final Target<?> target,
+      final Map<Method, InvocationHandlerFactory.MethodHandler> dispatch) {
+    final Map<Method, InvocationHandlerFactory.MethodHandler> ret = new LinkedHashMap<>();
+    dispatch.forEach((method, handler) -> {
+      final String methodKey = Feign.configKey(target.type(), method);
+      final CircuitBreaker breaker = breakers.computeIfAbsent(key(target.url(), methodKey),
+          x -> new CircuitBreaker(target.url(), methodKey, options.getSlowCallThresholdMillis()));
+      ret.put(method, args -> {
+        final CircuitBreaker.State admitted = breaker.acquire();
+        final long start = System.nanoTime();
+        boolean failed = false;
+        boolean rejected = false;
+        try {
+          return handler.invoke(args);
+        } catch (final Throwable e) {
+          rejected = isLocalRejection(e);
+          failed = !rejected && errorDecoder.isFailure(methodKey, e);
+          throw e;
+        } finally {
+          if (rejected)
+            breaker.release(admitted);
+          else
+            breaker.record(admitted, System.nanoTime() - start, failed);
+        }
+      });
+    });
+    return ret;
+  }
+
+  private static boolean isLocalRejection(final Throwable exception) {
+    return exception instanceof ConcurrencyLimitExceededException
+        || exception instanceof DeadlineExceededException;
+  }
+
+  private static String key(final String target, final String methodKey) {
+    return target + " " + methodKey;
+  }
+}
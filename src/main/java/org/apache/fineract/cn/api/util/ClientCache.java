@@ -0,0 +1,114 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.api.util;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * A bounded cache of feign clients, keyed by interface, target and options.  Lookups don't lock.
+ * When the cache grows past its maximum size, the least recently used clients are evicted.
+ */
+final class ClientCache {
+  private final int maximumSize;
+  private final ConcurrentHashMap<Key, Entry> entries = new ConcurrentHashMap<>();
+
+  ClientCache(final int maximumSize) {
+    if (maximumSize < 1)
+      throw new IllegalArgumentException("Maximum cache size must be positive.");
+    this.maximumSize = maximumSize;
+  }
+
+  <T> T get(final Class<T> clazz, final String target, final ClientOptions options, final Supplier<T> factory) {
+    final Key key = new Key(clazz, target, options);
+    Entry entry = entries.get(key);
+    if (entry == null) {
+      entry = entries.computeIfAbsent(key, x -> new Entry(factory.get()));
+      evictIfNecessary();
+    }
+    entry.lastAccess = System.nanoTime();
+    return clazz.cast(entry.client);
+  }
+
+  void invalidate(final Class<?> clazz, final String target) {
+    entries.keySet().removeIf(key -> key.clazz.equals(clazz) && key.target.equals(target));
+  }
+
+  void invalidateAll() {
+    entries.clear();
+  }
+
+  int size() {
+    return entries.size();
+  }
+
+  private void evictIfNecessary() {
+    while (entries.size() > maximumSize) {
+      Map.Entry<Key, Entry> eldest = null;
+      for (final Map.Entry<Key, Entry> candidate : entries.entrySet()) {
+        if (eldest == null || candidate.getValue().lastAccess - eldest.getValue().lastAccess < 0)
+          eldest = candidate;
+      }
+      if (eldest == null)
+        return;
+      entries.remove(eldest.getKey(), eldest.getValue());
+    }
+  }
+
+  private static final class Entry {
+    private final Object client;
+    private long lastAccess;
+
+    private Entry(final Object client) {
+      this.client = client;
+      this.lastAccess = System.nanoTime();
+    }
+  }
+
+  private static final class Key {
+    private final Class<?> clazz;
+    private final String target;
+    private final ClientOptions options;
+    private final int hashCode;
+
+    private Key(final Class<?> clazz, final String target, final ClientOptions options) {
+      this.clazz = clazz;
+      this.target = target;
+      this.options = options;
+      this.hashCode = Objects.hash(clazz, target, options);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) return true;
+      if (o == null || getClass() != o.getClass()) return false;
+      Key that = (Key) o;
+      return clazz.equals(that.clazz) &&
+          target.equals(that.target) &&
+          options.equals(that.options);
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+  }
+}
@@ -0,0 +1,287 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.api.util;
+
+import feign.Request;
+
+import java.util.Objects;
+
+/**
+ * Settings for a client created by {@link ApiFactory}.  Instances are immutable, and take part in
+ * the key under which shared clients are cached, so two equal options yield the same shared client.
+ */
+@SuppressWarnings({"WeakerAccess", "unused"})
+public final class ClientOptions {
+  public static final ClientOptions DEFAULT = builder().build();
+
+  private final int connectTimeoutMillis;
+  private final int readTimeoutMillis;
+  private final int maxErrorBodyBytes;
+  private final int maxConnectionsPerRoute;
+  private final int maxConnectionsTotal;
+  private final long connectionTimeToLiveMillis;
+  private final long idleConnectionTimeoutMillis;
+  private final boolean coalesceRequests;
+  private final boolean cacheResponses;
+  private final boolean limitConcurrency;
+  private final boolean breakCircuits;
+  private final long slowCallThresholdMillis;
+  private final int maxAttempts;
+
+  private ClientOptions(final Builder builder) {
+    this.connectTimeoutMillis = builder.connectTimeoutMillis;
+    this.readTimeoutMillis = builder.readTimeoutMillis;
+    this.maxErrorBodyBytes = builder.maxErrorBodyBytes;
+    this.maxConnectionsPerRoute = builder.maxConnectionsPerRoute;
+    this.maxConnectionsTotal = builder.maxConnectionsTotal;
+    this.connectionTimeToLiveMillis = builder.connectionTimeToLiveMillis;
+    this.idleConnectionTimeoutMillis = builder.idleConnectionTimeoutMillis;
+    this.coalesceRequests = builder.coalesceRequests;
+    this.cacheResponses = builder.cacheResponses;
+    this.limitConcurrency = builder.limitConcurrency;
+    this.breakCircuits = builder.breakCircuits;
+    this.slowCallThresholdMillis = builder.slowCallThresholdMillis;
+    this.maxAttempts = builder.maxAttempts;
+  }
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  public Builder toBuilder() {
+    return new Builder()
+        .connectTimeoutMillis(connectTimeoutMillis)
+        .readTimeoutMillis(readTimeoutMillis)
+        .maxErrorBodyBytes(maxErrorBodyBytes)
+        .maxConnectionsPerRoute(maxConnectionsPerRoute)
+        .maxConnectionsTotal(maxConnectionsTotal)
+        .connectionTimeToLiveMillis(connectionTimeToLiveMillis)
+        .idleConnectionTimeoutMillis(idleConnectionTimeoutMillis)
+        .coalesceRequests(coalesceRequests)
+        .cacheResponses(cacheResponses)
+        .limitConcurrency(limitConcurrency)
+        .breakCircuits(breakCircuits)
+        .slowCallThresholdMillis(slowCallThresholdMillis)
+        .maxAttempts(maxAttempts);
+  }
+
+  public int getConnectTimeoutMillis() {
+    return connectTimeoutMillis;
+  }
+
+  public int getReadTimeoutMillis() {
+    return readTimeoutMillis;
+  }
+
+  public int getMaxErrorBodyBytes() {
+    return maxErrorBodyBytes;
+  }
+
+  public int getMaxConnectionsPerRoute() {
+    return maxConnectionsPerRoute;
+  }
+
+  public int getMaxConnectionsTotal() {
+    return maxConnectionsTotal;
+  }
+
+  /**
+   * The time after which a pooled connection is no longer reused, however recently it was used.
+   */
+  public long getConnectionTimeToLiveMillis() {
+    return connectionTimeToLiveMillis;
+  }
+
+  /**
+   * The time after which an unused pooled connection is closed by the idle connection reaper.
+   */
+  public long getIdleConnectionTimeoutMillis() {
+    return idleConnectionTimeoutMillis;
+  }
+
+  /**
+   * Whether concurrent identical GET and HEAD requests share one call.  The body of a shared
+   * response is read into memory, once for all its callers.  See {@link RequestCoalescer}.
+   */
+  public boolean isCoalesceRequests() {
+    return coalesceRequests;
+  }
+
+  /**
+   * Whether GET responses are kept in the response cache of the factory, as far as their
+   * Cache-Control and ETag headers allow.  See {@link ResponseCache}.
+   */
+  public boolean isCacheResponses() {
+    return cacheResponses;
+  }
+
+  /**
+   * Whether the requests in flight to the target are limited by an adaptive limit, shared with all
+   * other such clients of the factory.  Requests over the limit fail at once with a
+   * {@link ConcurrencyLimitExceededException}.  See {@link ConcurrencyLimiter}.
+   */
+  public boolean isLimitConcurrency() {
+    return limitConcurrency;
+  }
+
+  /**
+   * Whether each method of the client has a circuit breaker, shared with all other such clients of
+   * the factory for the same target, which fails calls fast with a
+   * {@link CircuitBreakerOpenException} while the method keeps failing or being slow.  See
+   * {@link CircuitBreaker}.
+   */
+  public boolean isBreakCircuits() {
+    return breakCircuits;
+  }
+
+  /**
+   * The time above which the circuit breaker counts a call as slow.
+   */
+  public long getSlowCallThresholdMillis() {
+    return slowCallThresholdMillis;
+  }
+
+  /**
+   * How often a call is attempted at most, counting the first attempt, when it fails in a way
+   * which may be retried.  1 turns retrying off.  See {@link Retries}.
+   */
+  public int getMaxAttempts() {
+    return maxAttempts;
+  }
+
+  Request.Options toRequestOptions() {
+    return new Request.Options(connectTimeoutMillis, readTimeoutMillis);
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) return true;
+    if (o == null || getClass() != o.getClass()) return false;
+    ClientOptions that = (ClientOptions) o;
+    return connectTimeoutMillis == that.connectTimeoutMillis &&
+        readTimeoutMillis == that.readTimeoutMillis &&
+        maxErrorBodyBytes == that.maxErrorBodyBytes &&
+        maxConnectionsPerRoute == that.maxConnectionsPerRoute &&
+        maxConnectionsTotal == that.maxConnectionsTotal &&
+        connectionTimeToLiveMillis == that.connectionTimeToLiveMillis &&
+        idleConnectionTimeoutMillis == that.idleConnectionTimeoutMillis &&
+        coalesceRequests == that.coalesceRequests &&
+        cacheResponses == that.cacheResponses &&
+        limitConcurrency == that.limitConcurrency &&
+        breakCircuits == that.breakCircuits &&
+        slowCallThresholdMillis == that.slowCallThresholdMillis &&
+        maxAttempts == that.maxAttempts;
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(connectTimeoutMillis, readTimeoutMillis, maxErrorBodyBytes,
+        maxConnectionsPerRoute, maxConnectionsTotal, connectionTimeToLiveMillis, idleConnectionTimeoutMillis,
+        coalesceRequests, cacheResponses, limitConcurrency, breakCircuits, slowCallThresholdMillis,
+        maxAttempts);
+  }
+
+  public static final class Builder {
+    private int connectTimeoutMillis = 10 * 1000;
+    private int readTimeoutMillis = 60 * 1000;
+    private int maxErrorBodyBytes = AnnotatedErrorDecoder.DEFAULT_MAX_ERROR_BODY_BYTES;
+    private int maxConnectionsPerRoute = 50;
+    private int maxConnectionsTotal = 200;
+    private long connectionTimeToLiveMillis = 5 * 60 * 1000;
+    private long idleConnectionTimeoutMillis = 30 * 1000;
+    private boolean coalesceRequests = false;
+    private boolean cacheResponses = false;
+    private boolean limitConcurrency = false;
+    private boolean breakCircuits = false;
+    private long slowCallThresholdMillis = 5 * 1000;
+    private int maxAttempts = Retries.DEFAULT_MAX_ATTEMPTS;
+
+    private Builder() {
+    }
+
+    public Builder connectTimeoutMillis(final int newVal) {
+      connectTimeoutMillis = newVal;
+      return this;
+    }
+
+    public Builder readTimeoutMillis(final int newVal) {
+      readTimeoutMillis = newVal;
+      return this;
+    }
+
+    public Builder maxErrorBodyBytes(final int newVal) {
+      maxErrorBodyBytes = newVal;
+      return this;
+    }
+
+    public Builder maxConnectionsPerRoute(final int newVal) {
+      maxConnectionsPerRoute = newVal;
+      return this;
+    }
+
+    public Builder maxConnectionsTotal(final int newVal) {
+      maxConnectionsTotal = newVal;
+      return this;
+    }
+
+    public Builder connectionTimeToLiveMillis(final long newVal) {
+      connectionTimeToLiveMillis = newVal;
+      return this;
+    }
+
+    public Builder idleConnectionTimeoutMillis(final long newVal) {
+      idleConnectionTimeoutMillis = newVal;
+      return this;
+    }
+
+    public Builder coalesceRequests(final boolean newVal) {
+      coalesceRequests = newVal;
+      return this;
+    }
+
+    public Builder cacheResponses(final boolean newVal) {
+      cacheResponses = newVal;
+      return this;
+    }
+
+    public Builder limitConcurrency(final boolean newVal) {
+      limitConcurrency = newVal;
+      return this;
+    }
+
+    public Builder breakCircuits(final boolean newVal) {
+      breakCircuits = newVal;
+      return this;
+    }
+
+    public Builder slowCallThresholdMillis(final long newVal) {
+      slowCallThresholdMillis = newVal;
+      return this;
+    }
+
+    public Builder maxAttempts(final int newVal) {
+      maxAttempts = newVal;
+      return this;
+    }
+
+    public ClientOptions build() {
+      return new ClientOptions(this);
+    }
+  }
+}
@@ -0,0 +1,67 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.api.util;
+
+import feign.Response;
+import feign.codec.Decoder;
+
+import java.io.IOException;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * Decodes the response of a method returning a future into the type the future completes with.
+ */
+final class CompletableFutureDecoder implements Decoder {
+  private final Decoder delegate;
+
+  CompletableFutureDecoder(final Decoder delegate) {
+    this.delegate = delegate;
+  }
+
+  @Override
+  public Object decode(final Response response, final Type type) throws IOException {
+    if (!isFuture(type))
+      return delegate.decode(response, type);
+
+    final Type resultType = resultType(type);
+    if (resultType == Void.class)
+      return null;
+
+    return delegate.decode(response, resultType);
+  }
+
+  static boolean isFuture(final Class<?> type) {
+    return type == CompletableFuture.class || type == CompletionStage.class;
+  }
+
+  private static boolean isFuture(final Type type) {
+    if (type instanceof ParameterizedType)
+      return isFuture(((ParameterizedType) type).getRawType());
+    return type instanceof Class && isFuture((Class<?>) type);
+  }
+
+  private static Type resultType(final Type type) {
+    if (type instanceof ParameterizedType)
+      return ((ParameterizedType) type).getActualTypeArguments()[0];
+    return Object.class;
+  }
+}
@@ -0,0 +1,50 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.api.util;
+
+/**
+ * Thrown instead of sending a request when the requests in flight to its target are at the
+ * concurrency limit of the target.  The request has not been sent, so it is safe to retry later;
+ * callers should rather shed the load, since the target is slow.  The exception has no stack trace,
+ * so throwing it is cheap.
+ */
+@SuppressWarnings("WeakerAccess")
+public class ConcurrencyLimitExceededException extends RuntimeException {
+  private final String target;
+  private final int limit;
+
+  public ConcurrencyLimitExceededException(final String target, final int limit) {
+    super(null, null, true, false);
+    this.target = target;
+    this.limit = limit;
+  }
+
+  @Override
+  public String getMessage() {
+    return "Concurrency limit of " + limit + " requests in flight to " + target + " reached.";
+  }
+
+  public String getTarget() {
+    return target;
+  }
+
+  public int getLimit() {
+    return limit;
+  }
+}
@@ -0,0 +1,155 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.api.util;
+
+import feign.Client;
+import feign.Request;
+import feign.Response;
+import org.apache.fineract.cn.api.metrics.ConcurrencyLimitMetrics;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.LongSupplier;
+
+/**
+ * Limits the requests in flight to one target, with a limit which follows the latency of the
+ * target.  Each response compares a short-term average of the time to the response headers with a
+ * long-term one.  While they agree, the limit grows by a queue allowance of the square root of the
+ * limit; when the short-term average rises above the long-term one, because requests queue up in
+ * the target, the limit shrinks in proportion, down to half per response.  I/O errors, 429 and 503
+ * responses halve the limit at once.  The limit doesn't grow while less than half of it is used.
+ *
+ * <p>Requests over the limit aren't queued, but fail at once with a
+ * {@link ConcurrencyLimitExceededException}, so that a slow target doesn't tie up the threads of its
+ * callers.  The estimate is an immutable object swapped by compare and set, so responses don't
+ * take a lock.</p>
+ */
+final class ConcurrencyLimiter {
+  static final int INITIAL_LIMIT = 20;
+  static final int MIN_LIMIT = 2;
+  static final int MAX_LIMIT = 1000;
+
+  private static final double SHORT_WEIGHT = 0.1;
+  private static final double LONG_WEIGHT = 2.0 / (600 + 1);
+  private static final double SMOOTHING = 0.2;
+  private static final double TOLERANCE = 1.5;
+
+  private final String target;
+  private final LongSupplier nanoClock;
+  private final AtomicInteger inFlight = new AtomicInteger();
+  private final ConcurrencyLimitMetrics metrics;
+  private final AtomicReference<Estimate> estimate = new AtomicReference<>(Estimate.INITIAL);
+
+  ConcurrencyLimiter(final String target) {
+    this(target, System::nanoTime);
+  }
+
+  ConcurrencyLimiter(final String target, final LongSupplier nanoClock) {
+    this.target = target;
+    this.nanoClock = nanoClock;
+    this.metrics = new ConcurrencyLimitMetrics(target, this::getLimit, inFlight::get);
+  }
+
+  ConcurrencyLimitMetrics getMetrics() {
+    return metrics;
+  }
+
+  int getLimit() {
+    return estimate.get().limit;
+  }
+
+  Client around(final Client transport) {
+    return (request, options) -> execute(transport, request, options);
+  }
+
+  Response execute(final Client transport, final Request request, final Request.Options options) throws IOException {
+    final int usedLimit = acquire();
+    final long start = nanoClock.getAsLong();
+    boolean dropped = true;
+    try {
+      final Response ret = transport.execute(request, options);
+      dropped = ret.status() == 429 || ret.status() == 503;
+      return ret;
+    } finally {
+      inFlight.decrementAndGet();
+      sample(nanoClock.getAsLong() - start, usedLimit, dropped);
+    }
+  }
+
+  private int acquire() {
+    int current;
+    do {
+      current = inFlight.get();
+      final int limit = getLimit();
+      if (current >= limit) {
+        metrics.recordRejected();
+        throw new ConcurrencyLimitExceededException(target, limit);
+      }
+    } while (!inFlight.compareAndSet(current, current + 1));
+    metrics.recordAccepted();
+    return current + 1;
+  }
+
+  private void sample(final long nanos, final int inFlightAtStart, final boolean dropped) {
+    while (true) {
+      final Estimate current = estimate.get();
+      if (estimate.compareAndSet(current, current.sampled(nanos, inFlightAtStart, dropped)))
+        return;
+    }
+  }
+
+  private static final class Estimate {
+    private static final Estimate INITIAL = new Estimate(INITIAL_LIMIT, 0, 0);
+
+    private final double estimatedLimit;
+    private final double shortNanos;
+    private final double longNanos;
+    private final int limit;
+
+    private Estimate(final double estimatedLimit, final double shortNanos, final double longNanos) {
+      this.estimatedLimit = estimatedLimit;
+      this.shortNanos = shortNanos;
+      this.longNanos = longNanos;
+      this.limit = (int) estimatedLimit;
+    }
+
+    private Estimate sampled(final long nanos, final int inFlightAtStart, final boolean dropped) {
+      if (dropped)
+        return new Estimate(Math.max(MIN_LIMIT, estimatedLimit / 2), shortNanos, longNanos);
+
+      final double shortNanos = this.shortNanos == 0
+          ? nanos
+          : this.shortNanos * (1 - SHORT_WEIGHT) + nanos * SHORT_WEIGHT;
+      double longNanos = this.longNanos == 0
+          ? nanos
+          : this.longNanos * (1 - LONG_WEIGHT) + nanos * LONG_WEIGHT;
+      //Lets the long-term average catch up after a lasting drop in latency.
+      if (longNanos > 2 * shortNanos)
+        longNanos *= 0.95;
+
+      final double gradient = Math.max(0.5, Math.min(1.0, TOLERANCE * longNanos / shortNanos));
+      double newLimit = estimatedLimit * gradient + Math.sqrt(estimatedLimit);
+      if (inFlightAtStart * 2 < estimatedLimit)
+        newLimit = Math.min(newLimit, estimatedLimit);
+      return new Estimate(Math.max(MIN_LIMIT, Math.min(MAX_LIMIT,
+          estimatedLimit * (1 - SMOOTHING) + newLimit * SMOOTHING)), shortNanos, longNanos);
+    }
+  }
+}
@@ -21,30 +21,29 @@ package org.apache.fineract.cn.api.util;
 import feign.*;
 
 import java.io.IOException;
-import java.net.CookieManager;
-import java.net.URI;
-import java.util.*;
-import java.util.stream.Collectors;
 
 /**
  * Keeps the cookies for this client and appends them to requests.
- * See also CookieInterceptor.
+ * See also CookieInterceptor.  Requests are carried by the transport client this one wraps.
  *
  * @author Myrle Krantz
  */
-class CookieInterceptingClient extends Client.Default {
-  final CookieManager cookieManager;
-  private final String target;
+class CookieInterceptingClient implements Client {
+  final CookieJar cookieJar;
+  private final Client transport;
 
   CookieInterceptingClient(final String target) {
-    this(target, new CookieManager());
+    this(target, new Client.Default(null, null));
   }
 
-  CookieInterceptingClient(final String target, final CookieManager cookieManager)
+  CookieInterceptingClient(final String target, final Client transport) {
+    this(new CookieJar(target), transport);
+  }
+
+  CookieInterceptingClient(final CookieJar cookieJar, final Client transport)
   {
-    super(null, null);
-    this.cookieManager = cookieManager;
-    this.target = target;
+    this.cookieJar = cookieJar;
+    this.transport = transport;
   }
 
   RequestInterceptor getCookieInterceptor() {
@@ -52,25 +51,15 @@ class CookieInterceptingClient extends Client.Default {
   }
 
   void putCookie(final String relativeUrl, final String cookieName, final String cookieValue) {
-    try {
-      final Map<String, List<String>> map = new HashMap<>();
-      map.put("Set-Cookie", Collections.singletonList(cookieName + "=" + cookieValue));
-      cookieManager.put(mapUriType(target + relativeUrl), map);
-    } catch (final IOException e) {
-      throw new IllegalStateException("Mapping cookies failed unexpectedly.");
-    }
+    cookieJar.put(relativeUrl, cookieName, cookieValue);
   }
 
   private class CookieInterceptor implements RequestInterceptor {
     @Override
     public void apply(final RequestTemplate template) {
-      try {
-        final Map<String, List<String>> cookieHeaders =
-                cookieManager.get(mapUriType(target + template.url()), mapHeadersType(template.headers()));
-        cookieHeaders.entrySet().forEach(entry -> template.header(entry.getKey(), entry.getValue()));
-      } catch (final IOException e) {
-        throw new IllegalStateException("Mapping cookies failed unexpectedly.");
-      }
+      final String cookieHeader = cookieJar.cookieHeader(template.url());
+      if (cookieHeader != null)
+        template.header(CookieJar.COOKIE_HEADER, cookieHeader);
     }
   }
 
@@ -78,28 +67,13 @@ class CookieInterceptingClient extends Client.Default {
    * Seam for testing
    */
   Response superExecute(final Request request, final Request.Options options) throws IOException {
-    return super.execute(request, options);
+    return transport.execute(request, options);
   }
 
   @Override
   public Response execute(final Request request, final Request.Options options) throws IOException {
     final Response ret = superExecute(request, options);
-    cookieManager.put(mapUriType(request.url()), mapHeadersType(ret.headers()));
-    return ret;
-  }
-
-  private static URI mapUriType(final String url) {
-    return URI.create(url);
-  }
-
-  private static Map<String, List<String>> mapHeadersType(final Map<String, Collection<String>> headers) {
-    final HashMap<String, List<String>> ret = new HashMap<>();
-    headers.entrySet().forEach(entry ->
-            ret.put(entry.getKey(), changeCollectionToList(entry.getValue())));
+    cookieJar.storeFromResponse(request.url(), ret.headers().get(CookieJar.SET_COOKIE_HEADER));
     return ret;
   }
-
-  private static List<String> changeCollectionToList(final Collection<String> value) {
-    return value.stream().collect(Collectors.toList());
-  }
-}
\ No newline at end of file
+}
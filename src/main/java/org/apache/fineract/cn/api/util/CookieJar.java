@@ -0,0 +1,288 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.api.util;
+
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.LongSupplier;
+
+/**
+ * The cookies of one client, which talks to one target.  Reads don't lock and, in the common case,
+ * don't allocate: the contents of the Cookie header are computed when a cookie changes, not on
+ * every request.  Cookies are dropped when they expire, and when more than the maximum number of
+ * cookies are set, the oldest are dropped first.
+ *
+ * <p>Cookies are host-only cookies of the target, so their domain attribute is ignored.  Secure
+ * cookies are only sent if the target is https.  Cookies whose path covers the whole target are
+ * part of the precomputed header; only cookies with narrower paths are matched per request.</p>
+ */
+final class CookieJar {
+  static final int DEFAULT_MAX_COOKIES = 50;
+  static final String COOKIE_HEADER = "Cookie";
+  static final String SET_COOKIE_HEADER = "Set-Cookie";
+
+  private final String targetPath;
+  private final boolean secureTarget;
+  private final int maxCookies;
+  private final LongSupplier clock;
+  private final AtomicReference<State> state = new AtomicReference<>(State.EMPTY);
+
+  CookieJar(final String target) {
+    this(target, DEFAULT_MAX_COOKIES, System::currentTimeMillis);
+  }
+
+  CookieJar(final String target, final int maxCookies, final LongSupplier clock) {
+    if (maxCookies < 1)
+      throw new IllegalArgumentException("Maximum number of cookies must be positive.");
+    this.targetPath = pathOf(target);
+    this.secureTarget = target.regionMatches(true, 0, "https:", 0, "https:".length());
+    this.maxCookies = maxCookies;
+    this.clock = clock;
+  }
+
+  /**
+   * @param relativeUrl the url of the request, relative to the target.
+   * @return the value of the Cookie header for the request, or null if there are no cookies for it.
+   */
+  String cookieHeader(final String relativeUrl) {
+    State current = state.get();
+    if (current.earliestExpiry <= clock.getAsLong())
+      current = update(null);
+
+    if (current.scoped.length == 0)
+      return current.header;
+
+    final String path = join(targetPath, pathOf(relativeUrl));
+    final StringBuilder ret = current.header == null ? new StringBuilder() : new StringBuilder(current.header);
+    for (final StoredCookie cookie : current.scoped) {
+      if (pathMatches(path, cookie.path)) {
+        if (ret.length() > 0)
+          ret.append("; ");
+        ret.append(cookie.name).append('=').append(cookie.value);
+      }
+    }
+    return ret.length() == 0 ? null : ret.toString();
+  }
+
+  /**
+   * Stores the cookies of a response.
+   *
+   * @param url the absolute url of the request the response answers.
+   * @param setCookieHeaders the values of the Set-Cookie header of the response, may be null.
+   */
+  void storeFromResponse(final String url, final Collection<String> setCookieHeaders) {
+    if (setCookieHeaders == null || setCookieHeaders.isEmpty())
+      return;
+    final String defaultPath = defaultPath(pathOf(url));
+    final long now = clock.getAsLong();
+    final List<StoredCookie> parsed = new ArrayList<>(setCookieHeaders.size());
+    for (final String setCookie : setCookieHeaders) {
+      final StoredCookie cookie = StoredCookie.parse(setCookie, defaultPath, now);
+      if (cookie != null)
+        parsed.add(cookie);
+    }
+    if (!parsed.isEmpty())
+      update(parsed);
+  }
+
+  void put(final String relativeUrl, final String name, final String value) {
+    final String path = defaultPath(join(targetPath, pathOf(relativeUrl)));
+    final List<StoredCookie> cookies = new ArrayList<>(1);
+    cookies.add(new StoredCookie(name, value, path, Long.MAX_VALUE, false));
+    update(cookies);
+  }
+
+  void clear() {
+    state.set(State.EMPTY);
+  }
+
+  int size() {
+    return state.get().cookies.length;
+  }
+
+  private State update(final List<StoredCookie> changes) {
+    while (true) {
+      final State current = state.get();
+      final long now = clock.getAsLong();
+      final List<StoredCookie> cookies = new ArrayList<>(current.cookies.length + (changes == null ? 0 : changes.size()));
+      for (final StoredCookie cookie : current.cookies) {
+        if (cookie.expiry > now && (changes == null || !replacedBy(cookie, changes)))
+          cookies.add(cookie);
+      }
+      if (changes != null) {
+        for (final StoredCookie change : changes) {
+          if (change.expiry > now)
+            cookies.add(change);
+        }
+      }
+      while (cookies.size() > maxCookies)
+        cookies.remove(0);
+
+      final State next = State.of(cookies, targetPath, secureTarget);
+      if (state.compareAndSet(current, next))
+        return next;
+    }
+  }
+
+  private static boolean replacedBy(final StoredCookie cookie, final List<StoredCookie> changes) {
+    for (final StoredCookie change : changes) {
+      if (change.name.equals(cookie.name) && change.path.equals(cookie.path))
+        return true;
+    }
+    return false;
+  }
+
+  static String pathOf(final String url) {
+    int start = 0;
+    final int scheme = url.indexOf("://");
+    if (scheme >= 0) {
+      start = url.indexOf('/', scheme + 3);
+      if (start < 0)
+        return "";
+    }
+    int end = url.length();
+    final int query = url.indexOf('?', start);
+    if (query >= 0)
+      end = query;
+    final int fragment = url.indexOf('#', start);
+    if (fragment >= 0 && fragment < end)
+      end = fragment;
+    return url.substring(start, end);
+  }
+
+  private static String join(final String targetPath, final String relativePath) {
+    if (targetPath.endsWith("/") && relativePath.startsWith("/"))
+      return targetPath + relativePath.substring(1);
+    return targetPath + relativePath;
+  }
+
+  private static String defaultPath(final String path) {
+    final int lastSlash = path.lastIndexOf('/');
+    if (lastSlash <= 0)
+      return "/";
+    return path.substring(0, lastSlash);
+  }
+
+  private static boolean pathMatches(final String requestPath, final String cookiePath) {
+    if (!requestPath.startsWith(cookiePath))
+      return false;
+    return requestPath.length() == cookiePath.length()
+        || cookiePath.endsWith("/")
+        || requestPath.charAt(cookiePath.length()) == '/';
+  }
+
+  private static final class State {
+    private static final State EMPTY = new State(new StoredCookie[0], null, new StoredCookie[0], Long.MAX_VALUE);
+
+    private final StoredCookie[] cookies;
+    private final String header;
+    private final StoredCookie[] scoped;
+    private final long earliestExpiry;
+
+    private State(final StoredCookie[] cookies, final String header, final StoredCookie[] scoped, final long earliestExpiry) {
+      this.cookies = cookies;
+      this.header = header;
+      this.scoped = scoped;
+      this.earliestExpiry = earliestExpiry;
+    }
+
+    static State of(final List<StoredCookie> cookies, final String targetPath, final boolean secureTarget) {
+      final StringBuilder header = new StringBuilder();
+      final List<StoredCookie> scoped = new ArrayList<>();
+      long earliestExpiry = Long.MAX_VALUE;
+      for (final StoredCookie cookie : cookies) {
+        earliestExpiry = Math.min(earliestExpiry, cookie.expiry);
+        if (cookie.secure && !secureTarget)
+          continue;
+        if (pathMatches(targetPath.isEmpty() ? "/" : targetPath, cookie.path)) {
+          if (header.length() > 0)
+            header.append("; ");
+          header.append(cookie.name).append('=').append(cookie.value);
+        } else {
+          scoped.add(cookie);
+        }
+      }
+      return new State(
+          cookies.toArray(new StoredCookie[cookies.size()]),
+          header.length() == 0 ? null : header.toString(),
+          scoped.toArray(new StoredCookie[scoped.size()]),
+          earliestExpiry);
+    }
+  }
+
+  private static final class StoredCookie {
+    private final String name;
+    private final String value;
+    private final String path;
+    private final long expiry;
+    private final boolean secure;
+
+    private StoredCookie(final String name, final String value, final String path, final long expiry, final boolean secure) {
+      this.name = name;
+      this.value = value;
+      this.path = path;
+      this.expiry = expiry;
+      this.secure = secure;
+    }
+
+    static StoredCookie parse(final String setCookie, final String defaultPath, final long now) {
+      final String[] parts = setCookie.split(";");
+      final int equals = parts[0].indexOf('=');
+      if (equals <= 0)
+        return null;
+      final String name = parts[0].substring(0, equals).trim();
+      final String value = parts[0].substring(equals + 1).trim();
+      String path = defaultPath;
+      long expiry = Long.MAX_VALUE;
+      boolean maxAgeSeen = false;
+      boolean secure = false;
+      for (int i = 1; i < parts.length; i++) {
+        final String attribute = parts[i].trim();
+        final int attributeEquals = attribute.indexOf('=');
+        final String attributeName = attributeEquals < 0 ? attribute : attribute.substring(0, attributeEquals).trim();
+        final String attributeValue = attributeEquals < 0 ? "" : attribute.substring(attributeEquals + 1).trim();
+        if (attributeName.equalsIgnoreCase("Path") && attributeValue.startsWith("/")) {
+          path = attributeValue;
+        } else if (attributeName.equalsIgnoreCase("Max-Age")) {
+          try {
+            final long seconds = Long.parseLong(attributeValue);
+            expiry = seconds <= 0 ? Long.MIN_VALUE : now + Math.min(seconds, Long.MAX_VALUE / 2000) * 1000;
+            maxAgeSeen = true;
+          } catch (final NumberFormatException ignored) {
+            //Invalid attributes are ignored.
+          }
+        } else if (attributeName.equalsIgnoreCase("Expires") && !maxAgeSeen) {
+          try {
+            expiry = ZonedDateTime.parse(attributeValue, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli();
+          } catch (final DateTimeParseException ignored) {
+            //Invalid attributes are ignored.
+          }
+        } else if (attributeName.equalsIgnoreCase("Secure")) {
+          secure = true;
+        }
+      }
+      return new StoredCookie(name, value, path, expiry, secure);
+    }
+  }
+}
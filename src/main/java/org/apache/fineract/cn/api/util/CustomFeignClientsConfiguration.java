@@ -18,48 +18,117 @@
  */
 package org.apache.fineract.cn.api.util;
 
+import feign.Client;
 import feign.Feign;
+import feign.InvocationHandlerFactory;
+import feign.Request;
+import feign.Retryer;
 import feign.Target;
 import feign.codec.Decoder;
 import feign.codec.Encoder;
-import feign.gson.GsonDecoder;
 import feign.gson.GsonEncoder;
 import org.apache.fineract.cn.api.config.ApiConfiguration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.cloud.netflix.feign.FeignClientsConfiguration;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Scope;
 
+import java.util.Optional;
+
 /**
  * @author Myrle Krantz
  */
 //@EnableApiFactory (for logger)
 @SuppressWarnings({"unused"})
 public class CustomFeignClientsConfiguration extends FeignClientsConfiguration {
+  //Spring Cloud creates this configuration in a child context per client, so the retry budget is
+  //static for all clients to share it.
+  private static final Retries RETRIES = new Retries();
+
   private static class AnnotatedErrorDecoderFeignBuilder extends Feign.Builder {
     private final Logger logger;
+    private final Retries retries;
+    private final TimeoutOverrides timeoutOverrides;
+    private Request.Options options = new Request.Options();
+    private InvocationHandlerFactory invocationHandlerFactory = new InvocationHandlerFactory.Default();
+    private boolean clientSet = false;
 
-    AnnotatedErrorDecoderFeignBuilder(final Logger logger) {
+    AnnotatedErrorDecoderFeignBuilder(
+        final Logger logger,
+        final Retries retries,
+        final TimeoutOverrides timeoutOverrides) {
       this.logger = logger;
+      this.retries = retries;
+      this.timeoutOverrides = timeoutOverrides;
+    }
+
+    @Override
+    public Feign.Builder options(final Request.Options options) {
+      this.options = options;
+      return super.options(options);
+    }
+
+    //Resolved in target, once the options are known.
+    @Override
+    public Feign.Builder invocationHandlerFactory(final InvocationHandlerFactory invocationHandlerFactory) {
+      this.invocationHandlerFactory = invocationHandlerFactory;
+      return this;
+    }
+
+    //Lets the streaming decoder keep the response open after decoding, the retryer see which
+    //request failed, methods have their own timeouts, and the deadline of the caller bound them.
+    @Override
+    public Feign.Builder client(final Client client) {
+      clientSet = true;
+      return super.client(DetachableBody.around(
+          retries.around(MethodTimeouts.around(DeadlineTimeouts.around(client)))));
     }
 
     public <T> T target(Target<T> target) {
+      if (!clientSet)
+        this.client(new Client.Default(null, null));
       this.errorDecoder(new AnnotatedErrorDecoder(logger, target.type()));
+      super.invocationHandlerFactory(MethodTimeouts.instrument(options, timeoutOverrides,
+          Retries.instrument(invocationHandlerFactory)));
       return build().newInstance(target);
     }
   }
 
+  //Backs off if the application defines one of the separate interceptors, so that it doesn't get
+  //its headers twice.
   @Bean
+  @ConditionalOnMissingBean({FusedRequestInterceptor.class,
+      TenantedTargetInterceptor.class, TokenedTargetInterceptor.class})
+  public FusedRequestInterceptor fusedRequestInterceptor()
+  {
+    return new FusedRequestInterceptor();
+  }
+
+  /**
+   * @deprecated only defined if the application defines a {@link TokenedTargetInterceptor} and
+   * thereby replaces the {@link FusedRequestInterceptor}.
+   */
+  @Deprecated
+  @Bean
+  @ConditionalOnBean(TokenedTargetInterceptor.class)
   @ConditionalOnMissingBean
   public TenantedTargetInterceptor tenantedTargetInterceptor()
   {
     return new TenantedTargetInterceptor();
   }
 
+  /**
+   * @deprecated only defined if the application defines a {@link TenantedTargetInterceptor} and
+   * thereby replaces the {@link FusedRequestInterceptor}.
+   */
+  @Deprecated
   @Bean
+  @ConditionalOnBean(TenantedTargetInterceptor.class)
   @ConditionalOnMissingBean
   public TokenedTargetInterceptor tokenedTargetInterceptor()
   {
@@ -69,7 +138,7 @@ public class CustomFeignClientsConfiguration extends FeignClientsConfiguration {
   @Bean
   @ConditionalOnMissingBean
   public Decoder feignDecoder() {
-    return new GsonDecoder();
+    return new StreamingDecoder();
   }
 
   @Bean
@@ -78,6 +147,12 @@ public class CustomFeignClientsConfiguration extends FeignClientsConfiguration {
     return new GsonEncoder();
   }
 
+  @Bean
+  @ConditionalOnMissingBean
+  public Retryer feignRetryer() {
+    return RETRIES.retryer(Retries.DEFAULT_MAX_ATTEMPTS);
+  }
+
   @Bean(name = ApiConfiguration.LOGGER_NAME)
   public Logger logger() {
     return LoggerFactory.getLogger(ApiConfiguration.LOGGER_NAME);
@@ -86,7 +161,10 @@ public class CustomFeignClientsConfiguration extends FeignClientsConfiguration {
   @Bean
   @Scope("prototype")
   @ConditionalOnMissingBean
-  public Feign.Builder feignBuilder(@Qualifier(ApiConfiguration.LOGGER_NAME) final Logger logger) {
-    return new AnnotatedErrorDecoderFeignBuilder(logger);
+  public Feign.Builder feignBuilder(
+      @Qualifier(ApiConfiguration.LOGGER_NAME) final Logger logger,
+      final ObjectProvider<TimeoutOverrides> timeoutOverrides) {
+    return new AnnotatedErrorDecoderFeignBuilder(logger, RETRIES,
+        Optional.ofNullable(timeoutOverrides.getIfAvailable()).orElse(TimeoutOverrides.NONE));
   }
 }
\ No newline at end of file
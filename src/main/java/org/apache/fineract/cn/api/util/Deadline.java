@@ -0,0 +1,75 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.api.util;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The point in time by which the caller of a request needs its answer.  A deadline is set at the
+ * edge of a request, via {@link org.apache.fineract.cn.api.context.AutoDeadline}, and each client call
+ * made while it is set passes on the time remaining, in the {@link ApiConstants#REMAINING_TIME_HEADER},
+ * is bounded by it, and is refused if it has passed.  Deadlines are measured on the monotonic clock,
+ * so they are immune to changes of the wall clock, and only compared within one JVM.
+ */
+@SuppressWarnings({"WeakerAccess", "unused"})
+public final class Deadline {
+  private final long expiresAtNanos;
+
+  private Deadline(final long expiresAtNanos) {
+    this.expiresAtNanos = expiresAtNanos;
+  }
+
+  public static Deadline after(final long duration, final TimeUnit unit) {
+    return new Deadline(System.nanoTime() + unit.toNanos(duration));
+  }
+
+  /**
+   * The deadline described by the value of a {@link ApiConstants#REMAINING_TIME_HEADER}, or null if
+   * the value is missing or malformed.
+   */
+  public static Deadline fromHeader(final String remainingMillis) {
+    if (remainingMillis == null)
+      return null;
+    try {
+      return after(Long.parseLong(remainingMillis.trim()), TimeUnit.MILLISECONDS);
+    } catch (final NumberFormatException e) {
+      return null;
+    }
+  }
+
+  public long remainingMillis() {
+    return TimeUnit.NANOSECONDS.toMillis(expiresAtNanos - System.nanoTime());
+  }
+
+  /**
+   * Whether less than a millisecond remains, which is too little to make a call in.
+   */
+  public boolean isExpired() {
+    return remainingMillis() <= 0;
+  }
+
+  public boolean isBefore(final Deadline other) {
+    return expiresAtNanos - other.expiresAtNanos < 0;
+  }
+
+  @Override
+  public String toString() {
+    return "Deadline{remainingMillis=" + remainingMillis() + "}";
+  }
+}
@@ -0,0 +1,49 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.api.util;
+
+/**
+ * Thrown instead of sending a request when the {@link Deadline} of the current thread has passed,
+ * since nobody would be waiting for the answer anymore.  The exception has no stack trace, so
+ * throwing it is cheap.
+ */
+@SuppressWarnings("WeakerAccess")
+public class DeadlineExceededException extends RuntimeException {
+  private final String method;
+  private final String url;
+
+  public DeadlineExceededException(final String method, final String url) {
+    super(null, null, true, false);
+    this.method = method;
+    this.url = url;
+  }
+
+  public String getMethod() {
+    return method;
+  }
+
+  public String getUrl() {
+    return url;
+  }
+
+  @Override
+  public String getMessage() {
+    return "Deadline passed before " + method + " " + url + " could be sent.";
+  }
+}
@@ -0,0 +1,57 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.api.util;
+
+import javax.annotation.Nonnull;
+import java.util.Optional;
+
+/**
+ * Holds the {@link Deadline} of the request the current thread works on, next to the
+ * {@link UserContextHolder user context}.  Unlike the user context, the deadline isn't inherited by
+ * threads started under it, since pooled threads would otherwise refuse all later calls once it has
+ * passed; {@link org.apache.fineract.cn.api.context.ContextPropagation} carries it over explicitly.
+ */
+@SuppressWarnings({"WeakerAccess", "unused"})
+public class DeadlineHolder {
+
+  private static final ThreadLocal<Deadline> THREAD_LOCAL = new ThreadLocal<>();
+
+  private DeadlineHolder() {
+  }
+
+  @Nonnull
+  public static Optional<Deadline> getDeadline() {
+    return Optional.ofNullable(DeadlineHolder.THREAD_LOCAL.get());
+  }
+
+  /**
+   * The deadline of the current thread, or null, without wrapping it in an optional.
+   */
+  static Deadline peekDeadline() {
+    return DeadlineHolder.THREAD_LOCAL.get();
+  }
+
+  public static void setDeadline(@Nonnull final Deadline deadline) {
+    DeadlineHolder.THREAD_LOCAL.set(deadline);
+  }
+
+  public static void clear() {
+    DeadlineHolder.THREAD_LOCAL.remove();
+  }
+}
@@ -0,0 +1,51 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.api.util;
+
+import feign.Client;
+import feign.Request;
+
+/**
+ * Bounds the timeouts of each request by the time remaining until the {@link Deadline} of the
+ * calling thread, and refuses requests whose deadline has passed, for instance while being retried.
+ * The read timeout bounds each wait for data rather than the whole response, so a slowly trickling
+ * response can still overrun the deadline somewhat.  Goes outside of any transport which moves the
+ * request to another thread.
+ */
+final class DeadlineTimeouts {
+  private DeadlineTimeouts() {
+  }
+
+  static Client around(final Client transport) {
+    return (request, options) -> {
+      final Deadline deadline = DeadlineHolder.peekDeadline();
+      if (deadline == null)
+        return transport.execute(request, options);
+
+      final long remainingMillis = deadline.remainingMillis();
+      if (remainingMillis <= 0)
+        throw new DeadlineExceededException(request.method(), request.url());
+      if (remainingMillis >= options.connectTimeoutMillis() && remainingMillis >= options.readTimeoutMillis())
+        return transport.execute(request, options);
+      final int bound = (int) remainingMillis;
+      return transport.execute(request, new Request.Options(
+          Math.min(options.connectTimeoutMillis(), bound), Math.min(options.readTimeoutMillis(), bound)));
+    };
+  }
+}
@@ -0,0 +1,103 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.api.util;
+
+import feign.Client;
+import feign.Response;
+import feign.Util;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+
+/**
+ * A response body which a decoder can take over, so that it stays open after the decoder returns.
+ * Feign closes the response body once it is decoded.  After {@link #detach()}, closing the body
+ * no longer closes the underlying stream; closing the detached stream does.
+ */
+final class DetachableBody implements Response.Body {
+  private final Response.Body body;
+  private volatile boolean detached = false;
+
+  private DetachableBody(final Response.Body body) {
+    this.body = body;
+  }
+
+  static Client around(final Client transport) {
+    return (request, options) -> {
+      final Response response = transport.execute(request, options);
+      if (response.body() == null || response.body() instanceof DetachableBody)
+        return response;
+      return response.toBuilder().body(new DetachableBody(response.body())).build();
+    };
+  }
+
+  /**
+   * Returns a stream of the body, which the caller is responsible for closing.  If the body can't be
+   * detached, it is read completely, and the returned stream reads from memory.
+   */
+  static InputStream detach(final Response.Body body) throws IOException {
+    if (body instanceof DetachableBody)
+      return ((DetachableBody) body).detach();
+    return new ByteArrayInputStream(Util.toByteArray(body.asInputStream()));
+  }
+
+  InputStream detach() throws IOException {
+    final InputStream in = body.asInputStream();
+    detached = true;
+    return new FilterInputStream(in) {
+      @Override
+      public void close() throws IOException {
+        try {
+          super.close();
+        } finally {
+          body.close();
+        }
+      }
+    };
+  }
+
+  @Override
+  public Integer length() {
+    return body.length();
+  }
+
+  @Override
+  public boolean isRepeatable() {
+    return body.isRepeatable();
+  }
+
+  @Override
+  public InputStream asInputStream() throws IOException {
+    return body.asInputStream();
+  }
+
+  @Override
+  public Reader asReader() throws IOException {
+    return body.asReader();
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (!detached)
+      body.close();
+  }
+}
@@ -0,0 +1,117 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.api.util;
+
+import feign.Response;
+import feign.Util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.function.Supplier;
+
+/**
+ * The body of an error response as an exception message.  At most a fixed number of bytes is read,
+ * and the text is only decoded when the message is first requested.  Repeatable bodies aren't read
+ * at all until then.  Bodies streamed from the connection have to be captured when the error is
+ * decoded, since feign closes the response right afterwards.
+ */
+final class ErrorBody implements Supplier<String>, Serializable {
+  static final String TRUNCATION_MARKER = "... [truncated]";
+
+  private static final int INITIAL_CAPTURE_SIZE = 1024;
+
+  private final int maxBytes;
+  private transient Response.Body repeatableBody;
+  private transient byte[] captured;
+  private transient int capturedLength;
+  private transient boolean truncated;
+  private boolean resolved;
+  private String text;
+
+  private ErrorBody(final int maxBytes) {
+    this.maxBytes = maxBytes;
+  }
+
+  static ErrorBody of(final Response response, final int maxBytes) {
+    final ErrorBody ret = new ErrorBody(maxBytes);
+    final Response.Body body = response.body();
+    if (body == null) {
+      ret.resolved = true;
+    } else if (body.isRepeatable()) {
+      ret.repeatableBody = body;
+    } else if (!ret.capture(body)) {
+      ret.resolved = true;
+    }
+    return ret;
+  }
+
+  @Override
+  public synchronized String get() {
+    if (!resolved) {
+      if (repeatableBody != null && !capture(repeatableBody))
+        text = null;
+      else
+        text = decode();
+      repeatableBody = null;
+      captured = null;
+      resolved = true;
+    }
+    return text;
+  }
+
+  @Override
+  public String toString() {
+    return get();
+  }
+
+  private boolean capture(final Response.Body body) {
+    try (final InputStream inputStream = body.asInputStream()) {
+      final Integer length = body.length();
+      byte[] buffer = new byte[Math.min(maxBytes, length != null ? length : INITIAL_CAPTURE_SIZE)];
+      int count = 0;
+      while (count < maxBytes) {
+        if (count == buffer.length)
+          buffer = Arrays.copyOf(buffer, Math.min(maxBytes, Math.max(1, buffer.length * 2)));
+        final int read = inputStream.read(buffer, count, buffer.length - count);
+        if (read < 0)
+          break;
+        count += read;
+      }
+      captured = buffer;
+      capturedLength = count;
+      truncated = count == maxBytes && inputStream.read() >= 0;
+      return true;
+    } catch (final IOException ignored) {
+      return false;
+    }
+  }
+
+  private String decode() {
+    final String ret = new String(captured, 0, capturedLength, Util.UTF_8);
+    return truncated ? ret + TRUNCATION_MARKER : ret;
+  }
+
+  private synchronized void writeObject(final ObjectOutputStream out) throws IOException {
+    get();
+    out.defaultWriteObject();
+  }
+}
@@ -0,0 +1,92 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.api.util;
+
+import feign.RequestInterceptor;
+import feign.RequestTemplate;
+import org.apache.fineract.cn.lang.TenantContextHolder;
+
+import java.nio.charset.Charset;
+
+import static org.apache.fineract.cn.lang.config.TenantHeaderFilter.TENANT_HEADER;
+
+/**
+ * Does the work of the {@link TenantedTargetInterceptor}, the {@link TokenedTargetInterceptor}, the
+ * {@link EmptyBodyInterceptor} and, for clients with a cookie jar, the cookie interceptor, in one
+ * pass.  It also passes on the time left until the {@link Deadline} of the current thread, and
+ * refuses to let a request go out once the deadline has passed.  Each context is looked up once per
+ * request.  {@link TenantContextHolder} only hands out the tenant wrapped in an {@link
+ * java.util.Optional}, so that lookup allocates when a tenant is set.
+ */
+@SuppressWarnings("WeakerAccess")
+public class FusedRequestInterceptor implements RequestInterceptor {
+  private static final byte[] EMPTY_BODY = new byte[0];
+  private static final Charset EMPTY_BODY_CHARSET = Charset.defaultCharset();
+
+  private final CookieJar cookieJar;
+
+  public FusedRequestInterceptor() {
+    this(null);
+  }
+
+  FusedRequestInterceptor(final CookieJar cookieJar) {
+    this.cookieJar = cookieJar;
+  }
+
+  @Override
+  public void apply(final RequestTemplate template) {
+    final String tenantIdentifier = TenantContextHolder.identifier().orElse(null);
+    if (tenantIdentifier != null)
+      template.header(TENANT_HEADER, tenantIdentifier);
+
+    final UserContext userContext = UserContextHolder.peekUserContext();
+    if (userContext != null) {
+      template.header(ApiConstants.AUTHORIZATION_HEADER, userContext.getAccessToken());
+      template.header(ApiConstants.USER_HEADER, userContext.getUser());
+    }
+
+    final Deadline deadline = DeadlineHolder.peekDeadline();
+    if (deadline != null) {
+      final long remainingMillis = deadline.remainingMillis();
+      if (remainingMillis <= 0)
+        throw new DeadlineExceededException(template.method(), template.url());
+      template.header(ApiConstants.REMAINING_TIME_HEADER, Long.toString(remainingMillis));
+    }
+
+    if (cookieJar != null) {
+      final String cookieHeader = cookieJar.cookieHeader(template.url());
+      if (cookieHeader != null)
+        template.header(CookieJar.COOKIE_HEADER, cookieHeader);
+    }
+
+    if (template.body() == null && isPostOrPut(template.method()))
+      template.body(EMPTY_BODY, EMPTY_BODY_CHARSET);
+  }
+
+  private static boolean isPostOrPut(final String method) {
+    switch (method.length()) {
+      case 4:
+        return method.equalsIgnoreCase("POST");
+      case 3:
+        return method.equalsIgnoreCase("PUT");
+      default:
+        return false;
+    }
+  }
+}
@@ -0,0 +1,76 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.api.util;
+
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * A registry of service instances kept in memory, which stands in for Eureka in tests, or wherever
+ * the instances of a service are known up front.  Instances are registered and deregistered by
+ * hand, and there is no local instance.
+ */
+@SuppressWarnings("WeakerAccess")
+public class InMemoryDiscoveryClient implements DiscoveryClient {
+  private final ConcurrentHashMap<String, List<ServiceInstance>> services = new ConcurrentHashMap<>();
+
+  public ServiceInstance register(final String serviceId, final String host, final int port) {
+    final ServiceInstance ret = new DefaultServiceInstance(serviceId, host, port, false);
+    register(ret);
+    return ret;
+  }
+
+  public void register(final ServiceInstance instance) {
+    services.computeIfAbsent(instance.getServiceId(), x -> new CopyOnWriteArrayList<>()).add(instance);
+  }
+
+  public void deregister(final ServiceInstance instance) {
+    final List<ServiceInstance> instances = services.get(instance.getServiceId());
+    if (instances != null)
+      instances.remove(instance);
+  }
+
+  @Override
+  public String description() {
+    return "In-memory discovery client";
+  }
+
+  @Override
+  public ServiceInstance getLocalServiceInstance() {
+    return null;
+  }
+
+  @Override
+  public List<ServiceInstance> getInstances(final String serviceId) {
+    final List<ServiceInstance> instances = services.get(serviceId);
+    return instances == null ? Collections.emptyList() : new ArrayList<>(instances);
+  }
+
+  @Override
+  public List<String> getServices() {
+    return new ArrayList<>(services.keySet());
+  }
+}
@@ -18,13 +18,27 @@
  */
 package org.apache.fineract.cn.api.util;
 
+import java.util.function.Supplier;
+
 /**
  * @author Myrle Krantz
  */
 @SuppressWarnings("WeakerAccess")
 public class InternalServerError extends RuntimeException {
+  private final Supplier<String> lazyReason;
 
   InternalServerError(final String reason) {
     super(reason);
+    this.lazyReason = null;
+  }
+
+  InternalServerError(final Supplier<String> reason, final boolean writableStackTrace) {
+    super(null, null, true, writableStackTrace);
+    this.lazyReason = reason;
+  }
+
+  @Override
+  public String getMessage() {
+    return lazyReason != null ? lazyReason.get() : super.getMessage();
   }
 }
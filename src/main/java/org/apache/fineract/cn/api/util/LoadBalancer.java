@@ -0,0 +1,371 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.api.util;
+
+import feign.Client;
+import feign.Request;
+import feign.Response;
+import org.slf4j.Logger;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+/**
+ * Spreads the requests for a service over its registered instances, preferring the instances which
+ * answer fastest.  Requests go to the better of two randomly chosen instances, judged by the
+ * product of their peak-sensitive moving average of the time to the response headers and their
+ * outstanding requests.  The average of an instance decays while it gets no requests, so an
+ * instance which was slow once is tried again after a while.  A fast instance thus takes more
+ * requests, up to the point where queueing on it makes it as slow as the others, and a single slow
+ * instance takes little traffic.
+ *
+ * <p>Instances which fail several requests in a row, by I/O errors or 5xx responses, or answer
+ * several requests in a row much slower than the median instance, are taken out of rotation for a
+ * while, longer each time it happens.  A single slow answer, such as that of an expensive report,
+ * doesn't count against an instance.  The median is recomputed at most once a second, unless an
+ * answer looks slow against the last one.  At most half of the instances are out at once, so a
+ * service-wide slowdown doesn't take all instances out.  An instance coming back starts over with
+ * fresh statistics, and once it has stayed in rotation for a while, its earlier ejections are
+ * forgotten.</p>
+ *
+ * <p>The instances are looked up in the {@link DiscoveryClient} at most once per refresh interval;
+ * the statistics of instances which are still registered are kept.  If the lookup fails, the known
+ * instances are used until the next refresh interval is over.</p>
+ */
+final class LoadBalancer {
+  static final String SCHEME = "lb://";
+
+  static final long DEFAULT_REFRESH_INTERVAL_MILLIS = 5 * 1000;
+  static final int DEFAULT_MAX_CONSECUTIVE_FAILURES = 3;
+  static final int MAX_CONSECUTIVE_SLOW_CALLS = 3;
+  static final long DEFAULT_BASE_EJECTION_MILLIS = 10 * 1000;
+  static final long MAX_EJECTION_MILLIS = 5 * 60 * 1000;
+  static final long EJECTION_MEMORY_MILLIS = 2 * MAX_EJECTION_MILLIS;
+  static final int SLOW_FACTOR = 5;
+  static final long MIN_SLOW_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+
+  private static final long DECAY_NANOS = TimeUnit.SECONDS.toNanos(10);
+  private static final long UNMEASURED_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+  private static final long MEDIAN_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+  private final Logger logger;
+
+  private final String serviceId;
+  private final String prefix;
+  private final DiscoveryClient discoveryClient;
+  private final LongSupplier nanoClock;
+  private final long refreshIntervalNanos;
+  private final long baseEjectionNanos;
+  private final AtomicBoolean refreshing = new AtomicBoolean();
+  private volatile Instance[] instances;
+  private volatile long refreshedNanos;
+  private volatile long medianLatencyNanos;
+  private volatile long medianComputedNanos;
+
+  LoadBalancer(final Logger logger, final String serviceId, final DiscoveryClient discoveryClient) {
+    this(logger, serviceId, discoveryClient, System::nanoTime,
+        DEFAULT_REFRESH_INTERVAL_MILLIS, DEFAULT_BASE_EJECTION_MILLIS);
+  }
+
+  LoadBalancer(
+      final Logger logger,
+      final String serviceId,
+      final DiscoveryClient discoveryClient,
+      final LongSupplier nanoClock,
+      final long refreshIntervalMillis,
+      final long baseEjectionMillis) {
+    this.logger = logger;
+    this.serviceId = serviceId;
+    this.prefix = SCHEME + serviceId;
+    this.discoveryClient = discoveryClient;
+    this.nanoClock = nanoClock;
+    this.refreshIntervalNanos = TimeUnit.MILLISECONDS.toNanos(refreshIntervalMillis);
+    this.baseEjectionNanos = TimeUnit.MILLISECONDS.toNanos(baseEjectionMillis);
+  }
+
+  /**
+   * Returns the service id of a load balanced target, such as {@code lb://office/office/v1}, or null
+   * if the target is a plain URL.
+   */
+  static String serviceIdOf(final String target) {
+    if (!target.regionMatches(true, 0, SCHEME, 0, SCHEME.length()))
+      return null;
+    final int end = target.indexOf('/', SCHEME.length());
+    return target.substring(SCHEME.length(), end < 0 ? target.length() : end);
+  }
+
+  /**
+   * Sends the requests to load balanced URLs of this service through the given transport, to the
+   * instance chosen for each.
+   */
+  Client around(final Client transport) {
+    return (request, options) -> execute(transport, request, options);
+  }
+
+  Response execute(final Client transport, final Request request, final Request.Options options) throws IOException {
+    if (!request.url().regionMatches(true, 0, prefix, 0, prefix.length()))
+      return transport.execute(request, options);
+
+    final Instance instance = choose();
+    final Request balanced = Request.create(request.method(),
+        instance.baseUrl + request.url().substring(prefix.length()),
+        request.headers(), request.body(), request.charset());
+
+    instance.outstanding.incrementAndGet();
+    final long start = nanoClock.getAsLong();
+    boolean failed = true;
+    try {
+      final Response ret = transport.execute(balanced, options);
+      failed = ret.status() >= 500;
+      return ret.toBuilder().request(request).build();
+    } finally {
+      instance.outstanding.decrementAndGet();
+      completed(instance, nanoClock.getAsLong() - start, failed);
+    }
+  }
+
+  Instance choose() throws IOException {
+    final Instance[] all = instances();
+    final long now = nanoClock.getAsLong();
+    final List<Instance> available = new ArrayList<>(all.length);
+    for (final Instance instance : all) {
+      if (instance.ejectedUntilNanos - now <= 0)
+        available.add(instance.reinstated());
+    }
+    if (available.isEmpty())
+      available.addAll(Arrays.asList(all));
+    if (available.isEmpty())
+      throw new IOException("No instances of service " + serviceId + " are registered.");
+    if (available.size() == 1)
+      return available.get(0);
+
+    final ThreadLocalRandom random = ThreadLocalRandom.current();
+    final int first = random.nextInt(available.size());
+    final int second = (first + 1 + random.nextInt(available.size() - 1)) % available.size();
+    final Instance a = available.get(first);
+    final Instance b = available.get(second);
+    return a.load(now) <= b.load(now) ? a : b;
+  }
+
+  List<Instance> getInstances() {
+    return Collections.unmodifiableList(Arrays.asList(instances()));
+  }
+
+  private Instance[] instances() {
+    final Instance[] current = instances;
+    if (current != null && nanoClock.getAsLong() - refreshedNanos < refreshIntervalNanos)
+      return current;
+    if (current == null) {
+      synchronized (this) {
+        return refreshed();
+      }
+    }
+    if (!refreshing.compareAndSet(false, true))
+      return current;
+    try {
+      synchronized (this) {
+        return refreshed();
+      }
+    } finally {
+      refreshing.set(false);
+    }
+  }
+
+  /**
+   * Looks the instances up again unless another thread just did, keeping the known instances if
+   * the lookup fails.  Only called while holding the lock.
+   */
+  private Instance[] refreshed() {
+    if (instances != null && nanoClock.getAsLong() - refreshedNanos < refreshIntervalNanos)
+      return instances;
+    final List<ServiceInstance> registered;
+    try {
+      registered = discoveryClient.getInstances(serviceId);
+    } catch (final RuntimeException e) {
+      if (instances == null)
+        throw e;
+      logger.warn("Looking up the instances of service {} failed, keeping the {} known ones.",
+          serviceId, instances.length, e);
+      refreshedNanos = nanoClock.getAsLong();
+      return instances;
+    }
+    final Map<String, Instance> known = new HashMap<>();
+    if (instances != null)
+      Arrays.stream(instances).forEach(instance -> known.put(instance.baseUrl, instance));
+    instances = registered.stream()
+        .map(LoadBalancer::baseUrlOf)
+        .distinct()
+        .map(baseUrl -> known.getOrDefault(baseUrl, new Instance(baseUrl)))
+        .toArray(Instance[]::new);
+    refreshedNanos = nanoClock.getAsLong();
+    return instances;
+  }
+
+  private void completed(final Instance instance, final long nanos, final boolean failed) {
+    final long now = nanoClock.getAsLong();
+    if (failed) {
+      if (instance.failed() >= DEFAULT_MAX_CONSECUTIVE_FAILURES)
+        eject(instance, now);
+      return;
+    }
+
+    instance.succeeded(nanos, now);
+    if (!isSlow(nanos, now)) {
+      instance.consecutiveSlowCalls.set(0);
+      return;
+    }
+    if (instance.consecutiveSlowCalls.incrementAndGet() >= MAX_CONSECUTIVE_SLOW_CALLS)
+      eject(instance, now);
+  }
+
+  private boolean isSlow(final long nanos, final long now) {
+    if (nanos <= MIN_SLOW_NANOS)
+      return false;
+    long median = medianLatencyNanos;
+    if (nanos > SLOW_FACTOR * median || now - medianComputedNanos >= MEDIAN_INTERVAL_NANOS) {
+      median = medianLatencyNanos(now);
+      medianLatencyNanos = median;
+      medianComputedNanos = now;
+    }
+    return nanos > SLOW_FACTOR * median;
+  }
+
+  /**
+   * The median of the response times of the instances in rotation.  Sorts all of them, so
+   * {@link #isSlow} only calls it when the last median is old or says the answer is slow.
+   */
+  private long medianLatencyNanos(final long now) {
+    final long[] latencies = Arrays.stream(instances)
+        .filter(instance -> instance.ejectedUntilNanos - now <= 0 && instance.latencyNanos > 0)
+        .mapToLong(instance -> instance.latencyNanos)
+        .sorted()
+        .toArray();
+    return latencies.length == 0 ? 0 : latencies[(latencies.length - 1) / 2];
+  }
+
+  private void eject(final Instance instance, final long now) {
+    final Instance[] all = instances;
+    synchronized (this) {
+      if (instance.ejectedUntilNanos - now > 0)
+        return;
+      final long ejected = Arrays.stream(all).filter(x -> x.ejectedUntilNanos - now > 0).count();
+      if ((ejected + 1) * 2 > all.length)
+        return;
+      if (now - instance.ejectedUntilNanos >= TimeUnit.MILLISECONDS.toNanos(EJECTION_MEMORY_MILLIS))
+        instance.ejections = 0;
+      final int ejections = instance.ejections++;
+      instance.ejectedUntilNanos = now + Math.min(baseEjectionNanos << Math.min(ejections, 20),
+          TimeUnit.MILLISECONDS.toNanos(MAX_EJECTION_MILLIS));
+      instance.ejected = true;
+    }
+  }
+
+  private static String baseUrlOf(final ServiceInstance instance) {
+    return (instance.isSecure() ? "https" : "http") + "://" + instance.getHost() + ":" + instance.getPort();
+  }
+
+  /**
+   * An instance of the service, with its statistics.
+   */
+  static final class Instance {
+    private final String baseUrl;
+    private final AtomicInteger outstanding = new AtomicInteger();
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private final AtomicInteger consecutiveSlowCalls = new AtomicInteger();
+    private volatile long latencyNanos;
+    private volatile long sampledNanos;
+    private volatile long ejectedUntilNanos;
+    private volatile boolean ejected;
+    private int ejections;
+
+    private Instance(final String baseUrl) {
+      this.baseUrl = baseUrl;
+    }
+
+    String getBaseUrl() {
+      return baseUrl;
+    }
+
+    long getLatencyNanos() {
+      return latencyNanos;
+    }
+
+    int getOutstanding() {
+      return outstanding.get();
+    }
+
+    boolean isEjected() {
+      return ejected;
+    }
+
+    /**
+     * The expected time to an answer, with the moving average decaying while there are no samples.
+     */
+    private double load(final long now) {
+      final double decayed = latencyNanos * Math.exp(-(double) (now - sampledNanos) / DECAY_NANOS);
+      return Math.max(decayed, UNMEASURED_NANOS) * (outstanding.get() + 1);
+    }
+
+    private int failed() {
+      return consecutiveFailures.incrementAndGet();
+    }
+
+    /**
+     * Folds a response time into the moving average, which follows increases at once and decays
+     * towards decreases with the time since the last sample.
+     */
+    private synchronized void succeeded(final long nanos, final long now) {
+      consecutiveFailures.set(0);
+      if (nanos >= latencyNanos) {
+        latencyNanos = nanos;
+      } else {
+        final double weight = Math.exp(-(double) (now - sampledNanos) / DECAY_NANOS);
+        latencyNanos = (long) (latencyNanos * weight + nanos * (1 - weight));
+      }
+      sampledNanos = now;
+    }
+
+    private Instance reinstated() {
+      if (ejected) {
+        synchronized (this) {
+          if (ejected) {
+            ejected = false;
+            latencyNanos = 0;
+            sampledNanos = 0;
+            consecutiveFailures.set(0);
+            consecutiveSlowCalls.set(0);
+          }
+        }
+      }
+      return this;
+    }
+  }
+}
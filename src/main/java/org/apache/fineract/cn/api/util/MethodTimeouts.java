@@ -0,0 +1,136 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.api.util;
+
+import feign.Client;
+import feign.Feign;
+import feign.InvocationHandlerFactory;
+import feign.Request;
+import feign.Target;
+import org.apache.fineract.cn.api.annotation.Timeouts;
+import org.apache.fineract.cn.api.context.AutoDeadline;
+
+import java.lang.reflect.Method;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Gives each method of a client the timeouts resolved for it when the client is created: those of
+ * the {@link TimeoutOverrides} for the method on the target, then those for the target, then those
+ * declared with {@link Timeouts}, and last those of the client.  Methods whose timeouts are the
+ * client's are left as they are, so they cost nothing per call.
+ */
+final class MethodTimeouts {
+  private static final ThreadLocal<Request.Options> CURRENT = new ThreadLocal<>();
+
+  private MethodTimeouts() {
+  }
+
+  static InvocationHandlerFactory instrument(
+      final Request.Options clientOptions,
+      final TimeoutOverrides overrides,
+      final InvocationHandlerFactory delegate) {
+    return (target, dispatch) -> delegate.create(target, instrument(clientOptions, overrides, target, dispatch));
+  }
+
+  /**
+   * Sends each request with the timeouts of the method being called on the current thread.  Goes
+   * outside of any transport which moves the request to another thread.
+   */
+  static Client around(final Client transport) {
+    return (request, options) -> transport.execute(request, current(options));
+  }
+
+  /**
+   * Returns the timeouts of the method being called on the current thread, or the given ones if the
+   * method has none of its own.
+   */
+  static Request.Options current(final Request.Options options) {
+    final Request.Options methodOptions = CURRENT.get();
+    return methodOptions == null ? options : methodOptions;
+  }
+
+  private static Map<Method, InvocationHandlerFactory.MethodHandler> instrument(
+      final Request.Options clientOptions,
+      final TimeoutOverrides overrides,
+      final Target<?> target,
+      final Map<Method, InvocationHandlerFactory.MethodHandler> dispatch) {
+    final TimeoutOverrides.Timeout targetOverride = overrides.forTarget(target.url());
+    final Map<Method, InvocationHandlerFactory.MethodHandler> ret = new LinkedHashMap<>();
+    dispatch.forEach((method, handler) -> {
+      final TimeoutOverrides.Timeout methodOverride =
+          overrides.forMethod(target.url(), Feign.configKey(target.type(), method));
+      final Timeouts declared = method.getAnnotation(Timeouts.class);
+      if (methodOverride == null && targetOverride == null && declared == null) {
+        ret.put(method, handler);
+        return;
+      }
+
+      final long connectMillis = resolve(clientOptions.connectTimeoutMillis(),
+          declared == null ? -1 : declared.connectMillis(),
+          targetOverride == null ? -1 : targetOverride.connectMillis,
+          methodOverride == null ? -1 : methodOverride.connectMillis);
+      final long readMillis = resolve(clientOptions.readTimeoutMillis(),
+          declared == null ? -1 : declared.readMillis(),
+          targetOverride == null ? -1 : targetOverride.readMillis,
+          methodOverride == null ? -1 : methodOverride.readMillis);
+      final long totalMillis = resolve(-1,
+          declared == null ? -1 : declared.totalMillis(),
+          targetOverride == null ? -1 : targetOverride.totalMillis,
+          methodOverride == null ? -1 : methodOverride.totalMillis);
+      final Request.Options options = connectMillis == clientOptions.connectTimeoutMillis()
+          && readMillis == clientOptions.readTimeoutMillis()
+          ? null
+          : new Request.Options(toInt(connectMillis), toInt(readMillis));
+      if (options == null && totalMillis < 0) {
+        ret.put(method, handler);
+        return;
+      }
+
+      ret.put(method, args -> {
+        final Request.Options previous = CURRENT.get();
+        CURRENT.set(options);
+        try {
+          if (totalMillis < 0)
+            return handler.invoke(args);
+          try (final AutoDeadline ignored = new AutoDeadline(totalMillis, TimeUnit.MILLISECONDS)) {
+            return handler.invoke(args);
+          }
+        } finally {
+          CURRENT.set(previous);
+        }
+      });
+    });
+    return ret;
+  }
+
+  private static long resolve(final long clientValue, final long... overridingValues) {
+    long ret = clientValue;
+    for (final long value : overridingValues) {
+      if (value >= 0)
+        ret = value;
+    }
+    return ret;
+  }
+
+  private static int toInt(final long millis) {
+    return (int) Math.min(Integer.MAX_VALUE, millis);
+  }
+}
@@ -0,0 +1,261 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.api.util;
+
+import feign.Client;
+import feign.InvocationHandlerFactory;
+import feign.Request;
+import feign.Response;
+import feign.Util;
+import org.apache.fineract.cn.api.annotation.CacheNotFound;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Method;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+import static org.apache.fineract.cn.lang.config.TenantHeaderFilter.TENANT_HEADER;
+
+/**
+ * Remembers the 404 responses to GET requests of methods marked {@link CacheNotFound} for the time
+ * to live given there, and answers identical requests with them in the meantime, without a call to
+ * the server.  Entries are partitioned by tenant and user, like the private entries of the
+ * {@link ResponseCache}.  A PUT, POST, PATCH or DELETE drops the entries for its URL and for all URLs
+ * below it, of all tenants and users.  404 bodies larger than {@link #MAX_BODY_BYTES} aren't
+ * remembered, and no new entries are added while the cache is full of live ones.
+ */
+final class NotFoundCache {
+  static final int DEFAULT_MAXIMUM_SIZE = 10 * 1000;
+  static final int MAX_BODY_BYTES = 4 * 1024;
+
+  private static final ThreadLocal<Long> CURRENT = new ThreadLocal<>();
+
+  private final int maximumSize;
+  private final LongSupplier nanoClock;
+  private final ConcurrentHashMap<CacheKey, Entry> entries = new ConcurrentHashMap<>();
+
+  NotFoundCache() {
+    this(DEFAULT_MAXIMUM_SIZE, System::nanoTime);
+  }
+
+  NotFoundCache(final int maximumSize, final LongSupplier nanoClock) {
+    this.maximumSize = maximumSize;
+    this.nanoClock = nanoClock;
+  }
+
+  /**
+   * Wraps the method handlers of methods marked {@link CacheNotFound}, so that the clients from
+   * {@link #around} remember their 404s.  Other methods are left as they are.
+   */
+  InvocationHandlerFactory instrument(final InvocationHandlerFactory delegate) {
+    return (target, dispatch) -> delegate.create(target, instrument(dispatch));
+  }
+
+  /**
+   * Goes outside of any transport which moves the request to another thread.
+   */
+  Client around(final Client transport) {
+    return (request, options) -> execute(transport, request, options);
+  }
+
+  Response execute(final Client transport, final Request request, final Request.Options options) throws IOException {
+    if (!"GET".equalsIgnoreCase(request.method())) {
+      try {
+        return transport.execute(request, options);
+      } finally {
+        if (isUnsafe(request.method()) && !entries.isEmpty())
+          invalidate(resourceOf(request.url()));
+      }
+    }
+
+    final Long ttlNanos = CURRENT.get();
+    if (ttlNanos == null)
+      return transport.execute(request, options);
+
+    final CacheKey key = new CacheKey(request);
+    final Entry entry = entries.get(key);
+    if (entry != null) {
+      if (entry.expiresAt - nanoClock.getAsLong() > 0)
+        return entry.toResponse(request);
+      entries.remove(key, entry);
+    }
+
+    final Response response = transport.execute(request, options);
+    if (response.status() != 404)
+      return response;
+    return store(key, response, request, nanoClock.getAsLong() + ttlNanos);
+  }
+
+  void invalidateAll() {
+    entries.clear();
+  }
+
+  int size() {
+    return entries.size();
+  }
+
+  private Map<Method, InvocationHandlerFactory.MethodHandler> instrument(
+      final Map<Method, InvocationHandlerFactory.MethodHandler> dispatch) {
+    final Map<Method, InvocationHandlerFactory.MethodHandler> ret = new LinkedHashMap<>();
+    dispatch.forEach((method, handler) -> {
+      final CacheNotFound cacheNotFound = method.getAnnotation(CacheNotFound.class);
+      if (cacheNotFound == null || cacheNotFound.ttlMillis() <= 0) {
+        ret.put(method, handler);
+        return;
+      }
+      final Long ttlNanos = TimeUnit.MILLISECONDS.toNanos(cacheNotFound.ttlMillis());
+      ret.put(method, args -> {
+        final Long previous = CURRENT.get();
+        CURRENT.set(ttlNanos);
+        try {
+          return handler.invoke(args);
+        } finally {
+          CURRENT.set(previous);
+        }
+      });
+    });
+    return ret;
+  }
+
+  private Response store(
+      final CacheKey key,
+      final Response response,
+      final Request request,
+      final long expiresAt) throws IOException {
+    if (response.body() == null) {
+      put(key, new Entry(response, new byte[0], expiresAt));
+      return response;
+    }
+    final Integer length = response.body().length();
+    if (length != null && length > MAX_BODY_BYTES)
+      return response;
+
+    final InputStream in = response.body().asInputStream();
+    final byte[] body;
+    try {
+      body = PrefixedBody.read(in, MAX_BODY_BYTES);
+    } catch (final IOException | RuntimeException e) {
+      Util.ensureClosed(response.body());
+      throw e;
+    }
+    if (body.length > MAX_BODY_BYTES)
+      return PrefixedBody.prepend(response, body, in);
+    Util.ensureClosed(response.body());
+
+    final Entry entry = new Entry(response, body, expiresAt);
+    put(key, entry);
+    return entry.toResponse(request);
+  }
+
+  private void put(final CacheKey key, final Entry entry) {
+    if (entries.size() >= maximumSize) {
+      final long now = nanoClock.getAsLong();
+      entries.values().removeIf(candidate -> candidate.expiresAt - now <= 0);
+      if (entries.size() >= maximumSize)
+        return;
+    }
+    entries.put(key, entry);
+  }
+
+  private void invalidate(final String resource) {
+    entries.keySet().removeIf(key -> key.resource.startsWith(resource)
+        && (key.resource.length() == resource.length() || key.resource.charAt(resource.length()) == '/'
+        || resource.endsWith("/")));
+  }
+
+  private static String resourceOf(final String url) {
+    int end = url.indexOf('?');
+    if (end < 0)
+      end = url.indexOf('#');
+    return end < 0 ? url : url.substring(0, end);
+  }
+
+  private static boolean isUnsafe(final String method) {
+    return "POST".equalsIgnoreCase(method) || "PUT".equalsIgnoreCase(method)
+        || "PATCH".equalsIgnoreCase(method) || "DELETE".equalsIgnoreCase(method);
+  }
+
+  private static String firstHeader(final Map<String, Collection<String>> headers, final String name) {
+    final Collection<String> values = headers.get(name);
+    return values == null || values.isEmpty() ? null : values.iterator().next();
+  }
+
+  private static final class Entry {
+    private final int status;
+    private final String reason;
+    private final Map<String, Collection<String>> headers;
+    private final byte[] body;
+    private final long expiresAt;
+
+    private Entry(final Response response, final byte[] body, final long expiresAt) {
+      this.status = response.status();
+      this.reason = response.reason();
+      this.headers = response.headers();
+      this.body = body;
+      this.expiresAt = expiresAt;
+    }
+
+    Response toResponse(final Request request) {
+      return Response.builder()
+          .status(status)
+          .reason(reason)
+          .headers(headers)
+          .request(request)
+          .body(body)
+          .build();
+    }
+  }
+
+  private static final class CacheKey {
+    private final String tenant;
+    private final String user;
+    private final String url;
+    private final String resource;
+    private final int hashCode;
+
+    private CacheKey(final Request request) {
+      this.tenant = firstHeader(request.headers(), TENANT_HEADER);
+      this.user = firstHeader(request.headers(), ApiConstants.USER_HEADER);
+      this.url = request.url();
+      this.resource = resourceOf(url);
+      this.hashCode = Objects.hash(tenant, user, url);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) return true;
+      if (o == null || getClass() != o.getClass()) return false;
+      CacheKey that = (CacheKey) o;
+      return url.equals(that.url) &&
+          Objects.equals(tenant, that.tenant) &&
+          Objects.equals(user, that.user);
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+  }
+}
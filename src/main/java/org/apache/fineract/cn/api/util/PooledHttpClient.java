@@ -0,0 +1,211 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.api.util;
+
+import feign.Client;
+import feign.Request;
+import feign.Response;
+import feign.Util;
+import org.apache.fineract.cn.api.metrics.CallPhase;
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.client.methods.RequestBuilder;
+import org.apache.http.config.Registry;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.LayeredConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.impl.conn.SystemDefaultDnsResolver;
+import org.apache.http.protocol.HttpContext;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Executes feign requests over a pool of keep-alive connections.  The apache client's own cookie
+ * handling and retries are switched off: cookies are the business of the cookie intercepting
+ * client on top of this one, and retries the business of feign.  The time spent resolving and
+ * connecting is reported to the {@link CallEvents} of the call which opens the connection.
+ */
+final class PooledHttpClient implements Client, Closeable {
+  private final PoolingHttpClientConnectionManager connectionManager;
+  private final CloseableHttpClient httpClient;
+  private final long idleConnectionTimeoutMillis;
+
+  PooledHttpClient(final ClientOptions options) {
+    this.connectionManager = new PoolingHttpClientConnectionManager(
+        timedSocketFactories(), null, null, PooledHttpClient::resolve,
+        options.getConnectionTimeToLiveMillis(), TimeUnit.MILLISECONDS);
+    this.connectionManager.setDefaultMaxPerRoute(options.getMaxConnectionsPerRoute());
+    this.connectionManager.setMaxTotal(options.getMaxConnectionsTotal());
+    this.idleConnectionTimeoutMillis = options.getIdleConnectionTimeoutMillis();
+    this.httpClient = HttpClients.custom()
+        .setConnectionManager(connectionManager)
+        .disableCookieManagement()
+        .disableAutomaticRetries()
+        .disableContentCompression()
+        .useSystemProperties()
+        .build();
+  }
+
+  @Override
+  public Response execute(final Request request, final Request.Options options) throws IOException {
+    final HttpResponse httpResponse = httpClient.execute(toHttpRequest(request, options));
+    return toResponse(request, httpResponse);
+  }
+
+  void evictExpiredAndIdleConnections() {
+    connectionManager.closeExpiredConnections();
+    connectionManager.closeIdleConnections(idleConnectionTimeoutMillis, TimeUnit.MILLISECONDS);
+  }
+
+  @Override
+  public void close() throws IOException {
+    httpClient.close();
+  }
+
+  private static Registry<ConnectionSocketFactory> timedSocketFactories() {
+    return RegistryBuilder.<ConnectionSocketFactory>create()
+        .register("http", new TimedSocketFactory(PlainConnectionSocketFactory.getSocketFactory()))
+        .register("https", new TimedLayeredSocketFactory(SSLConnectionSocketFactory.getSocketFactory()))
+        .build();
+  }
+
+  private static InetAddress[] resolve(final String host) throws UnknownHostException {
+    final long start = System.nanoTime();
+    try {
+      return SystemDefaultDnsResolver.INSTANCE.resolve(host);
+    } finally {
+      CallEvents.connectionPhaseEnded(CallPhase.DNS, System.nanoTime() - start);
+    }
+  }
+
+  private static HttpUriRequest toHttpRequest(final Request request, final Request.Options options) {
+    final RequestBuilder ret = RequestBuilder.create(request.method())
+        .setUri(request.url())
+        .setConfig(RequestConfig.custom()
+            .setConnectTimeout(options.connectTimeoutMillis())
+            .setConnectionRequestTimeout(options.connectTimeoutMillis())
+            .setSocketTimeout(options.readTimeoutMillis())
+            .build());
+
+    for (final Map.Entry<String, Collection<String>> header : request.headers().entrySet()) {
+      if (header.getKey().equalsIgnoreCase(Util.CONTENT_LENGTH))
+        continue;
+      for (final String value : header.getValue())
+        ret.addHeader(header.getKey(), value);
+    }
+
+    if (request.body() != null)
+      ret.setEntity(new ByteArrayEntity(request.body()));
+
+    return ret.build();
+  }
+
+  private static Response toResponse(final Request request, final HttpResponse httpResponse) throws IOException {
+    final Map<String, Collection<String>> headers = new LinkedHashMap<>();
+    for (final Header header : httpResponse.getAllHeaders())
+      headers.computeIfAbsent(header.getName(), x -> new ArrayList<>()).add(header.getValue());
+
+    final Response.Builder ret = Response.builder()
+        .status(httpResponse.getStatusLine().getStatusCode())
+        .reason(httpResponse.getStatusLine().getReasonPhrase())
+        .headers(headers)
+        .request(request);
+
+    final HttpEntity entity = httpResponse.getEntity();
+    if (entity != null) {
+      final long length = entity.getContentLength();
+      ret.body(entity.getContent(), length >= 0 && length <= Integer.MAX_VALUE ? (int) length : null);
+    }
+
+    return ret.build();
+  }
+
+  private static class TimedSocketFactory implements ConnectionSocketFactory {
+    private final ConnectionSocketFactory delegate;
+
+    private TimedSocketFactory(final ConnectionSocketFactory delegate) {
+      this.delegate = delegate;
+    }
+
+    @Override
+    public Socket createSocket(final HttpContext context) throws IOException {
+      return delegate.createSocket(context);
+    }
+
+    @Override
+    public Socket connectSocket(
+        final int connectTimeout,
+        final Socket sock,
+        final HttpHost host,
+        final InetSocketAddress remoteAddress,
+        final InetSocketAddress localAddress,
+        final HttpContext context) throws IOException {
+      final long start = System.nanoTime();
+      try {
+        return delegate.connectSocket(connectTimeout, sock, host, remoteAddress, localAddress, context);
+      } finally {
+        CallEvents.connectionPhaseEnded(CallPhase.CONNECT, System.nanoTime() - start);
+      }
+    }
+  }
+
+  private static final class TimedLayeredSocketFactory extends TimedSocketFactory
+      implements LayeredConnectionSocketFactory {
+    private final LayeredConnectionSocketFactory delegate;
+
+    private TimedLayeredSocketFactory(final LayeredConnectionSocketFactory delegate) {
+      super(delegate);
+      this.delegate = delegate;
+    }
+
+    @Override
+    public Socket createLayeredSocket(
+        final Socket socket,
+        final String target,
+        final int port,
+        final HttpContext context) throws IOException {
+      final long start = System.nanoTime();
+      try {
+        return delegate.createLayeredSocket(socket, target, port, context);
+      } finally {
+        CallEvents.connectionPhaseEnded(CallPhase.CONNECT, System.nanoTime() - start);
+      }
+    }
+  }
+}
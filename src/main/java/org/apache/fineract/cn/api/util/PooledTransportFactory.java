@@ -0,0 +1,108 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.api.util;
+
+import feign.Client;
+
+import java.io.IOException;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hands out one pool of keep-alive connections per target and pool configuration, so all clients
+ * of a target share their connections.  A single reaper thread closes connections which have
+ * outlived their time to live, or have been idle for longer than the configured timeout.
+ */
+@SuppressWarnings("WeakerAccess")
+public class PooledTransportFactory implements TransportFactory {
+  private static final long REAPER_INTERVAL_MILLIS = 5 * 1000;
+
+  private static final ScheduledExecutorService REAPER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+    final Thread ret = new Thread(runnable, "fineract-api-connection-reaper");
+    ret.setDaemon(true);
+    return ret;
+  });
+
+  private final ConcurrentHashMap<PoolKey, PooledHttpClient> pools = new ConcurrentHashMap<>();
+  private final ScheduledFuture<?> reaper;
+
+  public PooledTransportFactory() {
+    this.reaper = REAPER.scheduleWithFixedDelay(this::evictExpiredAndIdleConnections,
+        REAPER_INTERVAL_MILLIS, REAPER_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+  }
+
+  @Override
+  public Client create(final String target, final ClientOptions options) {
+    return pools.computeIfAbsent(new PoolKey(target, options), x -> new PooledHttpClient(options));
+  }
+
+  @Override
+  public void close() {
+    reaper.cancel(false);
+    pools.values().forEach(pool -> {
+      try {
+        pool.close();
+      } catch (final IOException ignored) {
+      }
+    });
+    pools.clear();
+  }
+
+  private void evictExpiredAndIdleConnections() {
+    pools.values().forEach(PooledHttpClient::evictExpiredAndIdleConnections);
+  }
+
+  private static final class PoolKey {
+    private final String target;
+    private final int maxConnectionsPerRoute;
+    private final int maxConnectionsTotal;
+    private final long connectionTimeToLiveMillis;
+    private final long idleConnectionTimeoutMillis;
+
+    private PoolKey(final String target, final ClientOptions options) {
+      this.target = target;
+      this.maxConnectionsPerRoute = options.getMaxConnectionsPerRoute();
+      this.maxConnectionsTotal = options.getMaxConnectionsTotal();
+      this.connectionTimeToLiveMillis = options.getConnectionTimeToLiveMillis();
+      this.idleConnectionTimeoutMillis = options.getIdleConnectionTimeoutMillis();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) return true;
+      if (o == null || getClass() != o.getClass()) return false;
+      PoolKey that = (PoolKey) o;
+      return maxConnectionsPerRoute == that.maxConnectionsPerRoute &&
+          maxConnectionsTotal == that.maxConnectionsTotal &&
+          connectionTimeToLiveMillis == that.connectionTimeToLiveMillis &&
+          idleConnectionTimeoutMillis == that.idleConnectionTimeoutMillis &&
+          Objects.equals(target, that.target);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(target, maxConnectionsPerRoute, maxConnectionsTotal,
+          connectionTimeToLiveMillis, idleConnectionTimeoutMillis);
+    }
+  }
+}
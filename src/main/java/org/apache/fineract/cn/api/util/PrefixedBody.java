@@ -0,0 +1,103 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.api.util;
+
+import feign.Response;
+import feign.Util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.SequenceInputStream;
+
+/**
+ * A response body which streams a buffered prefix of the body it wraps, followed by the rest of it.
+ * Used by the caches, which read a body of unknown length only up to their size limit, and hand a
+ * larger body on without having buffered all of it.
+ */
+final class PrefixedBody implements Response.Body {
+  private final Response.Body body;
+  private final InputStream in;
+
+  private PrefixedBody(final Response.Body body, final InputStream in) {
+    this.body = body;
+    this.in = in;
+  }
+
+  /**
+   * Reads the stream up to one byte past the given size, so that a result longer than
+   * {@code maxBytes} tells that the body is too large.
+   */
+  static byte[] read(final InputStream in, final int maxBytes) throws IOException {
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    final byte[] buffer = new byte[8 * 1024];
+    long remaining = (long) maxBytes + 1;
+    while (remaining > 0) {
+      final int read = in.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+      if (read < 0)
+        break;
+      out.write(buffer, 0, read);
+      remaining -= read;
+    }
+    return out.toByteArray();
+  }
+
+  /**
+   * Returns the response with a body of the prefix read from the given stream of its body, followed
+   * by the rest of the stream.
+   */
+  static Response prepend(final Response response, final byte[] prefix, final InputStream rest) {
+    final Response.Body body = response.body();
+    return response.toBuilder()
+        .body(new PrefixedBody(body, new SequenceInputStream(new ByteArrayInputStream(prefix), rest)))
+        .build();
+  }
+
+  @Override
+  public Integer length() {
+    return body.length();
+  }
+
+  @Override
+  public boolean isRepeatable() {
+    return false;
+  }
+
+  @Override
+  public InputStream asInputStream() {
+    return in;
+  }
+
+  @Override
+  public Reader asReader() {
+    return new InputStreamReader(in, Util.UTF_8);
+  }
+
+  @Override
+  public void close() throws IOException {
+    try {
+      in.close();
+    } finally {
+      body.close();
+    }
+  }
+}
@@ -0,0 +1,107 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.api.util;
+
+import feign.Feign;
+import feign.InvocationHandlerFactory;
+import feign.Response;
+import feign.Target;
+import org.apache.fineract.cn.lang.TenantContextHolder;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+
+import java.lang.reflect.Method;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+/**
+ * Serves repeated GET calls within a {@link RequestScope} from the results of the first one, and
+ * makes calls of other methods forget the reads of their target.  Which methods are which is decided
+ * once, when the client is created, from their request mappings.  GET methods whose results can only
+ * be consumed once, such as streams, responses, iterators and futures, are not memoized.  Outside of
+ * a request scope, calls go through unchanged.
+ */
+final class ReadMemoizer {
+  private ReadMemoizer() {
+  }
+
+  static InvocationHandlerFactory instrument(final InvocationHandlerFactory delegate) {
+    return (target, dispatch) -> delegate.create(target, instrument(target, dispatch));
+  }
+
+  private static Map<Method, InvocationHandlerFactory.MethodHandler> instrument(
+      final Target<?> target,
+      final Map<Method, InvocationHandlerFactory.MethodHandler> dispatch) {
+    final String url = target.url();
+    final Map<Method, InvocationHandlerFactory.MethodHandler> ret = new LinkedHashMap<>();
+    dispatch.forEach((method, handler) -> {
+      if (!isGet(method)) {
+        ret.put(method, args -> {
+          final RequestScope scope = RequestScopeHolder.peekRequestScope();
+          if (scope != null)
+            scope.forget(url);
+          return handler.invoke(args);
+        });
+        return;
+      }
+      if (!isReusable(method.getReturnType())) {
+        ret.put(method, handler);
+        return;
+      }
+
+      final String methodKey = Feign.configKey(target.type(), method);
+      ret.put(method, args -> {
+        final RequestScope scope = RequestScopeHolder.peekRequestScope();
+        if (scope == null)
+          return handler.invoke(args);
+
+        final RequestScope.Read read = new RequestScope.Read(url, methodKey,
+            TenantContextHolder.identifier().orElse(null), UserContextHolder.peekUserContext(), args);
+        final Object memoized = scope.get(read);
+        if (memoized != null)
+          return RequestScope.unwrap(memoized);
+        return scope.put(read, handler.invoke(args));
+      });
+    });
+    return ret;
+  }
+
+  private static boolean isGet(final Method method) {
+    final RequestMapping mapping = AnnotatedElementUtils.findMergedAnnotation(method, RequestMapping.class);
+    if (mapping == null)
+      return false;
+    final RequestMethod[] methods = mapping.method();
+    return methods.length == 0 || methods[0] == RequestMethod.GET;
+  }
+
+  private static boolean isReusable(final Class<?> returnType) {
+    return returnType != void.class
+        && !Response.class.isAssignableFrom(returnType)
+        && !AutoCloseable.class.isAssignableFrom(returnType)
+        && !Iterator.class.isAssignableFrom(returnType)
+        && !Consumer.class.isAssignableFrom(returnType)
+        && !Future.class.isAssignableFrom(returnType)
+        && !CompletionStage.class.isAssignableFrom(returnType);
+  }
+}
@@ -0,0 +1,258 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.api.util;
+
+import feign.Client;
+import feign.Request;
+import feign.Response;
+import feign.Util;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.apache.fineract.cn.lang.config.TenantHeaderFilter.TENANT_HEADER;
+
+/**
+ * Lets concurrent identical GET and HEAD requests share a single call.  Requests are identical if
+ * they have the same method and URL, and the same tenant, user, authorization, cookie and
+ * If-None-Match headers.
+ * The first request goes out; the others wait for its response.
+ *
+ * <p>If other requests joined the call, the shared response body is read completely, and every
+ * caller receives its own response with its own copy of the body stream.  Each caller therefore
+ * decodes its own objects and gets its own exception from the error decoder, so no caller can see
+ * changes another caller makes to a decoded object or exception.  A call which nobody joined hands
+ * its response on unbuffered.  If the shared call fails with an I/O error, the waiting callers get
+ * an {@link IOException} of their own, with the original failure as its cause; other failures,
+ * such as an exceeded deadline, are rethrown to them as they are.</p>
+ *
+ * <p>A waiting request waits no longer than its own call could take: its connect and read timeouts,
+ * those of its method if it has any, bounded by the time left until its {@link Deadline}.  Then it
+ * fails with a {@link SocketTimeoutException} or a {@link DeadlineExceededException}, like its
+ * own call would have.  The deadline and timeouts of the first request only bound the shared call
+ * itself, since they are applied inside the coalescer: if the shared call fails because the
+ * deadline of the first request passed, the waiting requests make calls of their own.</p>
+ */
+final class RequestCoalescer {
+  private static final String COOKIE_HEADER = "Cookie";
+  private static final String IF_NONE_MATCH_HEADER = "If-None-Match";
+
+  private final ConcurrentHashMap<RequestKey, SharedCall> inFlight = new ConcurrentHashMap<>();
+
+  Client around(final Client transport) {
+    return (request, options) -> execute(transport, request, options);
+  }
+
+  Response execute(final Client transport, final Request request, final Request.Options options) throws IOException {
+    if (!isIdempotent(request.method()))
+      return transport.execute(request, options);
+
+    final RequestKey key = new RequestKey(request);
+    final SharedCall call = new SharedCall();
+    SharedCall sharedCall;
+    while ((sharedCall = inFlight.putIfAbsent(key, call)) != null) {
+      if (sharedCall.join()) {
+        final Response ret = await(sharedCall.response, request, options);
+        if (ret != null)
+          return ret;
+      }
+    }
+
+    try {
+      final Response response = transport.execute(request, options);
+      inFlight.remove(key, call);
+      if (call.close() == 0)
+        return response;
+      final SharedResponse ret = SharedResponse.read(response);
+      call.response.complete(ret);
+      return ret.toResponse(request);
+    } catch (final IOException | RuntimeException | Error e) {
+      inFlight.remove(key, call);
+      call.close();
+      call.response.completeExceptionally(e);
+      throw e;
+    }
+  }
+
+  int inFlightCount() {
+    return inFlight.size();
+  }
+
+  private static boolean isIdempotent(final String method) {
+    return "GET".equalsIgnoreCase(method) || "HEAD".equalsIgnoreCase(method);
+  }
+
+  /**
+   * Returns the response of the shared call, or null if it failed on the deadline of the request
+   * which made it.
+   */
+  private static Response await(
+      final CompletableFuture<SharedResponse> sharedCall,
+      final Request request,
+      final Request.Options options) throws IOException {
+    final Request.Options methodOptions = MethodTimeouts.current(options);
+    long timeoutMillis = (long) methodOptions.connectTimeoutMillis() + methodOptions.readTimeoutMillis();
+    boolean deadlineBound = false;
+    final Deadline deadline = DeadlineHolder.peekDeadline();
+    if (deadline != null) {
+      final long remainingMillis = deadline.remainingMillis();
+      if (remainingMillis <= 0)
+        throw new DeadlineExceededException(request.method(), request.url());
+      if (remainingMillis < timeoutMillis) {
+        timeoutMillis = remainingMillis;
+        deadlineBound = true;
+      }
+    }
+
+    try {
+      return sharedCall.get(timeoutMillis, TimeUnit.MILLISECONDS).toResponse(request);
+    } catch (final TimeoutException e) {
+      if (deadlineBound)
+        throw new DeadlineExceededException(request.method(), request.url());
+      throw new SocketTimeoutException(
+          "Timed out after " + timeoutMillis + " ms waiting for a shared call to " + request.url());
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting for a shared call to " + request.url());
+    } catch (final ExecutionException e) {
+      if (e.getCause() instanceof DeadlineExceededException)
+        return null;
+      if (e.getCause() instanceof RuntimeException)
+        throw (RuntimeException) e.getCause();
+      if (e.getCause() instanceof Error)
+        throw (Error) e.getCause();
+      throw new IOException("Shared call to " + request.url() + " failed.", e.getCause());
+    }
+  }
+
+  /**
+   * A call in flight, which other requests can join until its response arrives.
+   */
+  private static final class SharedCall {
+    private final CompletableFuture<SharedResponse> response = new CompletableFuture<>();
+    private final AtomicInteger followers = new AtomicInteger();
+
+    /**
+     * Returns false if the response already arrived, so the caller has to make its own call.
+     */
+    boolean join() {
+      while (true) {
+        final int current = followers.get();
+        if (current < 0)
+          return false;
+        if (followers.compareAndSet(current, current + 1))
+          return true;
+      }
+    }
+
+    /**
+     * Closes the call to further followers, and returns the number of those which joined.
+     */
+    int close() {
+      return followers.getAndSet(-1);
+    }
+  }
+
+  private static final class SharedResponse {
+    private final int status;
+    private final String reason;
+    private final Map<String, Collection<String>> headers;
+    private final byte[] body;
+
+    private SharedResponse(final Response response, final byte[] body) {
+      this.status = response.status();
+      this.reason = response.reason();
+      this.headers = response.headers();
+      this.body = body;
+    }
+
+    static SharedResponse read(final Response response) throws IOException {
+      try {
+        final byte[] body = response.body() == null ? null : Util.toByteArray(response.body().asInputStream());
+        return new SharedResponse(response, body);
+      } finally {
+        Util.ensureClosed(response.body());
+      }
+    }
+
+    Response toResponse(final Request request) {
+      final Response.Builder ret = Response.builder()
+          .status(status)
+          .reason(reason)
+          .headers(headers)
+          .request(request);
+      if (body != null)
+        ret.body(body);
+      return ret.build();
+    }
+  }
+
+  private static final class RequestKey {
+    private final String method;
+    private final String url;
+    private final Collection<String> tenant;
+    private final Collection<String> user;
+    private final Collection<String> authorization;
+    private final Collection<String> cookie;
+    private final Collection<String> ifNoneMatch;
+    private final int hashCode;
+
+    private RequestKey(final Request request) {
+      final Map<String, Collection<String>> headers = request.headers();
+      this.method = request.method();
+      this.url = request.url();
+      this.tenant = headers.get(TENANT_HEADER);
+      this.user = headers.get(ApiConstants.USER_HEADER);
+      this.authorization = headers.get(ApiConstants.AUTHORIZATION_HEADER);
+      this.cookie = headers.get(COOKIE_HEADER);
+      this.ifNoneMatch = headers.get(IF_NONE_MATCH_HEADER);
+      this.hashCode = Objects.hash(method, url, tenant, user);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) return true;
+      if (o == null || getClass() != o.getClass()) return false;
+      RequestKey that = (RequestKey) o;
+      return hashCode == that.hashCode &&
+          method.equals(that.method) &&
+          url.equals(that.url) &&
+          Objects.equals(tenant, that.tenant) &&
+          Objects.equals(user, that.user) &&
+          Objects.equals(authorization, that.authorization) &&
+          Objects.equals(cookie, that.cookie) &&
+          Objects.equals(ifNoneMatch, that.ifNoneMatch);
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+  }
+}
@@ -0,0 +1,288 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.api.util;
+
+import feign.Client;
+import feign.Feign;
+import feign.InvocationHandlerFactory;
+import feign.Request;
+import feign.Response;
+import feign.Target;
+import feign.Util;
+import org.apache.fineract.cn.api.annotation.Hedged;
+import org.apache.fineract.cn.api.metrics.IntervalLatencyHistogram;
+import org.apache.fineract.cn.api.metrics.LatencyHistogram;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.lang.reflect.Method;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+/**
+ * Hedges the GET and HEAD requests of methods marked {@link Hedged}.  The request goes out on a
+ * thread of the hedger; if its response headers aren't in after the delay of the method, the same
+ * request goes out again, and the first response wins.  The response which loses is closed when it
+ * comes in, which releases its connection, and a hedge which hasn't started yet is cancelled.  A
+ * request which is already on the wire can't be called back.
+ *
+ * <p>Each method has a budget of hedges, which starts out with a small burst, grows by the method's
+ * percentage with each request, up to the burst, and shrinks by one with each hedge.  A delay from
+ * the observed times follows the times of the last half minute to minute, and nothing is hedged
+ * while there are too few of them.  If the hedger
+ * is out of threads, the request goes out on the calling thread, without a hedge.</p>
+ *
+ * <p>Both attempts run in the metrics and the {@link CallEvents} trace of the call, so the phases
+ * of a hedge add up with those of the first attempt.</p>
+ */
+final class RequestHedger {
+  static final int MAX_THREADS = 256;
+  static final int MIN_OBSERVATIONS = 20;
+  static final int MAX_BURST = 10;
+
+  private static final long DELAY_REFRESH_NANOS = TimeUnit.SECONDS.toNanos(1);
+  private static final long OBSERVATION_INTERVAL_SECONDS = 30;
+  private static final ThreadLocal<Policy> CURRENT = new ThreadLocal<>();
+
+  private final ConcurrentHashMap<String, Policy> policies = new ConcurrentHashMap<>();
+  private final ThreadPoolExecutor executor;
+  private final LongSupplier nanoClock;
+
+  RequestHedger() {
+    this(System::nanoTime);
+  }
+
+  RequestHedger(final LongSupplier nanoClock) {
+    final AtomicInteger threadCount = new AtomicInteger();
+    this.executor = new ThreadPoolExecutor(0, MAX_THREADS, 60, TimeUnit.SECONDS, new SynchronousQueue<>(),
+        runnable -> {
+          final Thread thread = new Thread(runnable, "fineract-api-hedge-" + threadCount.incrementAndGet());
+          thread.setDaemon(true);
+          return thread;
+        });
+    this.nanoClock = nanoClock;
+  }
+
+  /**
+   * Wraps the method handlers of methods marked {@link Hedged}, so that their requests are hedged
+   * by the clients from {@link #around}.  Other methods are left as they are.
+   */
+  InvocationHandlerFactory instrument(final InvocationHandlerFactory delegate) {
+    return (target, dispatch) -> delegate.create(target, instrument(target, dispatch));
+  }
+
+  Client around(final Client transport) {
+    return (request, options) -> execute(transport, request, options);
+  }
+
+  Response execute(final Client transport, final Request request, final Request.Options options) throws IOException {
+    final Policy policy = CURRENT.get();
+    if (policy == null || !isIdempotent(request.method()))
+      return transport.execute(request, options);
+
+    policy.requested();
+    final long delayNanos = policy.delayNanos(nanoClock.getAsLong());
+    if (delayNanos < 0)
+      return policy.timed(transport, request, options);
+
+    final Race race = new Race(policy, transport, request, options);
+    final Future<?> first;
+    try {
+      first = race.start(executor, CallMetrics.propagating(CallEvents.propagating(race::attempt)));
+    } catch (final RejectedExecutionException e) {
+      return policy.timed(transport, request, options);
+    }
+
+    Future<?> second = null;
+    try {
+      try {
+        return race.winner.get(delayNanos, TimeUnit.NANOSECONDS);
+      } catch (final TimeoutException e) {
+        if (policy.tryHedge())
+          second = race.start(executor, CallMetrics.propagating(CallEvents.propagating(race::attempt)));
+        return race.winner.get();
+      }
+    } catch (final RejectedExecutionException e) {
+      return await(race);
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting for " + request.url());
+    } catch (final ExecutionException e) {
+      throw unwrap(e);
+    } finally {
+      first.cancel(true);
+      if (second != null)
+        second.cancel(true);
+    }
+  }
+
+  void close() {
+    executor.shutdownNow();
+  }
+
+  private Map<Method, InvocationHandlerFactory.MethodHandler> instrument(
+      final Target<?> target,
+      final Map<Method, InvocationHandlerFactory.MethodHandler> dispatch) {
+    final Map<Method, InvocationHandlerFactory.MethodHandler> ret = new LinkedHashMap<>();
+    dispatch.forEach((method, handler) -> {
+      final Hedged hedged = method.getAnnotation(Hedged.class);
+      if (hedged == null) {
+        ret.put(method, handler);
+        return;
+      }
+      final Policy policy = policies.computeIfAbsent(
+          target.url() + " " + Feign.configKey(target.type(), method), x -> new Policy(hedged));
+      ret.put(method, args -> {
+        final Policy previous = CURRENT.get();
+        CURRENT.set(policy);
+        try {
+          return handler.invoke(args);
+        } finally {
+          CURRENT.set(previous);
+        }
+      });
+    });
+    return ret;
+  }
+
+  private static Response await(final Race race) throws IOException {
+    try {
+      return race.winner.get();
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting for " + race.request.url());
+    } catch (final ExecutionException e) {
+      throw unwrap(e);
+    }
+  }
+
+  private static IOException unwrap(final ExecutionException e) {
+    final Throwable cause = e.getCause();
+    if (cause instanceof IOException)
+      return (IOException) cause;
+    if (cause instanceof RuntimeException)
+      throw (RuntimeException) cause;
+    if (cause instanceof Error)
+      throw (Error) cause;
+    return new IOException(cause);
+  }
+
+  private static boolean isIdempotent(final String method) {
+    return "GET".equalsIgnoreCase(method) || "HEAD".equalsIgnoreCase(method);
+  }
+
+  /**
+   * The attempts at one request.  The first response wins; if all attempts fail, the last failure
+   * does.
+   */
+  private static final class Race {
+    private final Policy policy;
+    private final Client transport;
+    private final Request request;
+    private final Request.Options options;
+    private final CompletableFuture<Response> winner = new CompletableFuture<>();
+    private final AtomicInteger pending = new AtomicInteger();
+
+    private Race(final Policy policy, final Client transport, final Request request, final Request.Options options) {
+      this.policy = policy;
+      this.transport = transport;
+      this.request = request;
+      this.options = options;
+    }
+
+    private Future<?> start(final ThreadPoolExecutor executor, final Runnable attempt) {
+      pending.incrementAndGet();
+      try {
+        return executor.submit(attempt);
+      } catch (final RejectedExecutionException e) {
+        pending.decrementAndGet();
+        throw e;
+      }
+    }
+
+    private void attempt() {
+      if (winner.isDone()) {
+        pending.decrementAndGet();
+        return;
+      }
+      try {
+        final Response response = policy.timed(transport, request, options);
+        if (!winner.complete(response))
+          Util.ensureClosed(response.body());
+      } catch (final Throwable e) {
+        if (pending.decrementAndGet() == 0)
+          winner.completeExceptionally(e);
+      }
+    }
+  }
+
+  private final class Policy {
+    private final Hedged hedged;
+    private final IntervalLatencyHistogram latency =
+        new IntervalLatencyHistogram(OBSERVATION_INTERVAL_SECONDS, TimeUnit.SECONDS, nanoClock);
+    private final TokenBucket budget;
+    private volatile long delayNanos = -1;
+    private volatile long delayRefreshedNanos = nanoClock.getAsLong() - DELAY_REFRESH_NANOS;
+
+    private Policy(final Hedged hedged) {
+      this.hedged = hedged;
+      this.budget = new TokenBucket(hedged.maxExtraPercent(), MAX_BURST);
+      if (hedged.delayMillis() >= 0)
+        this.delayNanos = TimeUnit.MILLISECONDS.toNanos(hedged.delayMillis());
+    }
+
+    private Response timed(final Client transport, final Request request, final Request.Options options)
+        throws IOException {
+      final long start = nanoClock.getAsLong();
+      final Response ret = transport.execute(request, options);
+      latency.record(nanoClock.getAsLong() - start);
+      return ret;
+    }
+
+    private long delayNanos(final long now) {
+      if (hedged.delayMillis() >= 0 || now - delayRefreshedNanos < DELAY_REFRESH_NANOS)
+        return delayNanos;
+      final LatencyHistogram.Snapshot snapshot = latency.snapshot();
+      delayNanos = snapshot.getCount() < MIN_OBSERVATIONS
+          ? -1
+          : snapshot.getValueAtPercentile(hedged.percentile());
+      delayRefreshedNanos = now;
+      return delayNanos;
+    }
+
+    private void requested() {
+      budget.deposit();
+    }
+
+    private boolean tryHedge() {
+      return budget.tryTake();
+    }
+  }
+}
@@ -0,0 +1,113 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.api.util;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The reads made while handling one inbound request, so that identical GET calls of
+ * {@link ApiFactory} clients within it are only made once.  A scope is opened and dropped with
+ * {@link org.apache.fineract.cn.api.context.AutoRequestScope}; nothing in it outlives the request, so
+ * there is no staleness across requests.  A call of any other method on a target forgets what was
+ * read from that target, so a request reading its own writes sees them.
+ *
+ * <p>Callers within the scope share the decoded results, so they must not modify them.
+ */
+@SuppressWarnings({"WeakerAccess", "unused"})
+public final class RequestScope {
+  private static final Object NULL = new Object();
+
+  private final ConcurrentHashMap<Read, Object> reads = new ConcurrentHashMap<>();
+
+  public int size() {
+    return reads.size();
+  }
+
+  public void clear() {
+    reads.clear();
+  }
+
+  /**
+   * The result of an earlier identical read, or null if there was none.  A read which returned null
+   * is remembered as {@link #NULL}.
+   */
+  Object get(final Read read) {
+    return reads.get(read);
+  }
+
+  Object put(final Read read, final Object result) {
+    final Object previous = reads.putIfAbsent(read, result == null ? NULL : result);
+    return previous == null ? result : unwrap(previous);
+  }
+
+  void forget(final String target) {
+    reads.keySet().removeIf(read -> read.target.equals(target));
+  }
+
+  static Object unwrap(final Object stored) {
+    return stored == NULL ? null : stored;
+  }
+
+  /**
+   * One call of a method with the given arguments, made for the given tenant and user.
+   */
+  static final class Read {
+    private final String target;
+    private final String methodKey;
+    private final String tenantIdentifier;
+    private final UserContext userContext;
+    private final Object[] args;
+    private final int hashCode;
+
+    Read(
+        final String target,
+        final String methodKey,
+        final String tenantIdentifier,
+        final UserContext userContext,
+        final Object[] args) {
+      this.target = target;
+      this.methodKey = methodKey;
+      this.tenantIdentifier = tenantIdentifier;
+      this.userContext = userContext;
+      this.args = args == null ? new Object[0] : args.clone();
+      this.hashCode = Objects.hash(target, methodKey, tenantIdentifier, userContext) * 31
+          + Arrays.deepHashCode(this.args);
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+      if (this == o) return true;
+      if (o == null || getClass() != o.getClass()) return false;
+      final Read that = (Read) o;
+      return hashCode == that.hashCode &&
+          target.equals(that.target) &&
+          methodKey.equals(that.methodKey) &&
+          Objects.equals(tenantIdentifier, that.tenantIdentifier) &&
+          Objects.equals(userContext, that.userContext) &&
+          Arrays.deepEquals(args, that.args);
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+  }
+}
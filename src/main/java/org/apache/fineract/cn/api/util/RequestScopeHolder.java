@@ -0,0 +1,57 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.api.util;
+
+import javax.annotation.Nonnull;
+import java.util.Optional;
+
+/**
+ * Holds the {@link RequestScope} of the request the current thread works on, next to the
+ * {@link UserContextHolder user context}.  Unlike the user context, the scope isn't inherited by
+ * threads started within it, since pooled threads would otherwise keep using it for later requests;
+ * {@link org.apache.fineract.cn.api.context.ContextPropagation} carries it over explicitly.
+ */
+@SuppressWarnings({"WeakerAccess", "unused"})
+public class RequestScopeHolder {
+
+  private static final ThreadLocal<RequestScope> THREAD_LOCAL = new ThreadLocal<>();
+
+  private RequestScopeHolder() {
+  }
+
+  @Nonnull
+  public static Optional<RequestScope> getRequestScope() {
+    return Optional.ofNullable(RequestScopeHolder.THREAD_LOCAL.get());
+  }
+
+  /**
+   * The request scope of the current thread, or null, without wrapping it in an optional.
+   */
+  static RequestScope peekRequestScope() {
+    return RequestScopeHolder.THREAD_LOCAL.get();
+  }
+
+  public static void setRequestScope(@Nonnull final RequestScope requestScope) {
+    RequestScopeHolder.THREAD_LOCAL.set(requestScope);
+  }
+
+  public static void clear() {
+    RequestScopeHolder.THREAD_LOCAL.remove();
+  }
+}
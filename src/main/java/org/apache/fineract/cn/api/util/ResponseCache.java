@@ -0,0 +1,374 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.api.util;
+
+import feign.Client;
+import feign.Request;
+import feign.Response;
+import feign.Util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+import static org.apache.fineract.cn.lang.config.TenantHeaderFilter.TENANT_HEADER;
+
+/**
+ * An in-process cache of GET responses, which honors the {@code Cache-Control} and {@code ETag}
+ * headers of the server.
+ *
+ * <p>Entries are partitioned by tenant, so a response is only ever returned for requests of the
+ * tenant it was fetched for.  Responses which are not marked {@code public} are also partitioned by
+ * user, since the server authorized them for that user only.  Fresh entries, as given by
+ * {@code max-age}, are returned without a call to the server.  Stale entries with an ETag are
+ * revalidated with {@code If-None-Match}; a {@code 304} answer refreshes the entry, and the cached
+ * body is returned without being transferred again.</p>
+ *
+ * <p>Responses marked {@code no-store}, responses which set cookies, responses which carry
+ * {@code Vary}, and responses larger than the maximum entry size are not stored.  Entries are not
+ * keyed by the request headers a {@code Vary} names, so such a response could otherwise be returned
+ * for a request it does not fit.  A successful PUT, POST, PATCH or DELETE to a URL drops the
+ * entries of the calling tenant for that URL.  When the cache grows past its maximum number of
+ * entries, the least recently used entries are evicted.</p>
+ */
+final class ResponseCache {
+  static final int DEFAULT_MAX_ENTRY_BYTES = 1024 * 1024;
+
+  private static final String CACHE_CONTROL_HEADER = "Cache-Control";
+  private static final String ETAG_HEADER = "ETag";
+  private static final String AGE_HEADER = "Age";
+  private static final String IF_NONE_MATCH_HEADER = "If-None-Match";
+  private static final String SET_COOKIE_HEADER = "Set-Cookie";
+  private static final String VARY_HEADER = "Vary";
+
+  private final int maximumSize;
+  private final int maxEntryBytes;
+  private final LongSupplier nanoClock;
+  private final ConcurrentHashMap<CacheKey, Entry> entries = new ConcurrentHashMap<>();
+
+  ResponseCache(final int maximumSize) {
+    this(maximumSize, DEFAULT_MAX_ENTRY_BYTES, System::nanoTime);
+  }
+
+  ResponseCache(final int maximumSize, final int maxEntryBytes, final LongSupplier nanoClock) {
+    if (maximumSize < 1)
+      throw new IllegalArgumentException("Maximum cache size must be positive.");
+    this.maximumSize = maximumSize;
+    this.maxEntryBytes = maxEntryBytes;
+    this.nanoClock = nanoClock;
+  }
+
+  Client around(final Client transport) {
+    return (request, options) -> execute(transport, request, options);
+  }
+
+  Response execute(final Client transport, final Request request, final Request.Options options) throws IOException {
+    if (!"GET".equalsIgnoreCase(request.method())) {
+      final Response ret = transport.execute(request, options);
+      if (isUnsafe(request.method()) && isSuccessful(ret.status()))
+        invalidate(request);
+      return ret;
+    }
+
+    final CacheControl requested = CacheControl.parse(request.headers().get(CACHE_CONTROL_HEADER));
+    if (requested.noStore)
+      return transport.execute(request, options);
+
+    final CacheKey publicKey = CacheKey.publicKey(request);
+    final CacheKey privateKey = CacheKey.privateKey(request);
+    CacheKey key = publicKey;
+    Entry entry = entries.get(publicKey);
+    if (entry == null) {
+      key = privateKey;
+      entry = entries.get(privateKey);
+    }
+
+    final long now = nanoClock.getAsLong();
+    if (entry != null) {
+      entry.lastAccess = now;
+      if (!requested.noCache && entry.isFresh(now))
+        return entry.toResponse(request);
+      if (entry.etag != null)
+        return revalidate(transport, request, options, key, entry);
+    }
+
+    return store(transport.execute(request, options), request, now);
+  }
+
+  void invalidateAll() {
+    entries.clear();
+  }
+
+  int size() {
+    return entries.size();
+  }
+
+  private Response revalidate(
+      final Client transport,
+      final Request request,
+      final Request.Options options,
+      final CacheKey key,
+      final Entry entry) throws IOException {
+    final Map<String, Collection<String>> headers = new LinkedHashMap<>(request.headers());
+    headers.put(IF_NONE_MATCH_HEADER, Collections.singletonList(entry.etag));
+    final Request conditionalRequest =
+        Request.create(request.method(), request.url(), headers, request.body(), request.charset());
+
+    final long now = nanoClock.getAsLong();
+    final Response response = transport.execute(conditionalRequest, options);
+    if (response.status() != 304) {
+      entries.remove(key, entry);
+      return store(response, request, now);
+    }
+
+    Util.ensureClosed(response.body());
+    final CacheControl cacheControl = CacheControl.parse(response.headers().get(CACHE_CONTROL_HEADER));
+    if (cacheControl.noStore || response.headers().containsKey(VARY_HEADER)) {
+      entries.remove(key, entry);
+    } else {
+      entry.expiresAt = expiresAt(cacheControl, response.headers(), now);
+    }
+    return entry.toResponse(request);
+  }
+
+  private Response store(final Response response, final Request request, final long now) throws IOException {
+    final Map<String, Collection<String>> headers = response.headers();
+    if (response.status() != 200 || response.body() == null
+        || headers.containsKey(SET_COOKIE_HEADER) || headers.containsKey(VARY_HEADER))
+      return response;
+
+    final CacheControl cacheControl = CacheControl.parse(headers.get(CACHE_CONTROL_HEADER));
+    final String etag = firstHeader(headers, ETAG_HEADER);
+    final long expiresAt = expiresAt(cacheControl, headers, now);
+    if (cacheControl.noStore || (etag == null && expiresAt - now <= 0))
+      return response;
+
+    final Integer length = response.body().length();
+    if (length != null && length > maxEntryBytes)
+      return response;
+
+    final InputStream in = response.body().asInputStream();
+    final byte[] body;
+    try {
+      body = PrefixedBody.read(in, maxEntryBytes);
+    } catch (final IOException | RuntimeException e) {
+      Util.ensureClosed(response.body());
+      throw e;
+    }
+    if (body.length > maxEntryBytes)
+      return PrefixedBody.prepend(response, body, in);
+    Util.ensureClosed(response.body());
+
+    final Entry entry = new Entry(response.status(), response.reason(), headers, body, etag, expiresAt, now);
+    entries.put(cacheControl.isPublic ? CacheKey.publicKey(request) : CacheKey.privateKey(request), entry);
+    evictIfNecessary();
+    return entry.toResponse(request);
+  }
+
+  private void invalidate(final Request request) {
+    entries.remove(CacheKey.publicKey(request));
+    entries.remove(CacheKey.privateKey(request));
+  }
+
+  private void evictIfNecessary() {
+    while (entries.size() > maximumSize) {
+      Map.Entry<CacheKey, Entry> eldest = null;
+      for (final Map.Entry<CacheKey, Entry> candidate : entries.entrySet()) {
+        if (eldest == null || candidate.getValue().lastAccess - eldest.getValue().lastAccess < 0)
+          eldest = candidate;
+      }
+      if (eldest == null)
+        return;
+      entries.remove(eldest.getKey(), eldest.getValue());
+    }
+  }
+
+  private static long expiresAt(
+      final CacheControl cacheControl,
+      final Map<String, Collection<String>> headers,
+      final long now) {
+    if (cacheControl.noCache || cacheControl.maxAgeSeconds <= 0)
+      return now;
+    long age = 0;
+    final String ageHeader = firstHeader(headers, AGE_HEADER);
+    if (ageHeader != null) {
+      try {
+        age = Long.parseLong(ageHeader.trim());
+      } catch (final NumberFormatException ignored) {
+        //A malformed age is treated as no age.
+      }
+    }
+    return now + TimeUnit.SECONDS.toNanos(Math.max(0, cacheControl.maxAgeSeconds - age));
+  }
+
+  private static boolean isUnsafe(final String method) {
+    return "POST".equalsIgnoreCase(method) || "PUT".equalsIgnoreCase(method)
+        || "PATCH".equalsIgnoreCase(method) || "DELETE".equalsIgnoreCase(method);
+  }
+
+  private static boolean isSuccessful(final int status) {
+    return status >= 200 && status < 400;
+  }
+
+  private static String firstHeader(final Map<String, Collection<String>> headers, final String name) {
+    final Collection<String> values = headers.get(name);
+    return values == null || values.isEmpty() ? null : values.iterator().next();
+  }
+
+  private static final class CacheControl {
+    private static final CacheControl NONE = new CacheControl(false, false, false, 0);
+
+    private final boolean noStore;
+    private final boolean noCache;
+    private final boolean isPublic;
+    private final long maxAgeSeconds;
+
+    private CacheControl(final boolean noStore, final boolean noCache, final boolean isPublic, final long maxAgeSeconds) {
+      this.noStore = noStore;
+      this.noCache = noCache;
+      this.isPublic = isPublic;
+      this.maxAgeSeconds = maxAgeSeconds;
+    }
+
+    static CacheControl parse(final Collection<String> values) {
+      if (values == null || values.isEmpty())
+        return NONE;
+
+      boolean noStore = false;
+      boolean noCache = false;
+      boolean isPublic = false;
+      boolean isPrivate = false;
+      long maxAgeSeconds = 0;
+      for (final String value : values) {
+        for (final String directive : value.split(",")) {
+          final String trimmed = directive.trim().toLowerCase();
+          if (trimmed.equals("no-store")) {
+            noStore = true;
+          } else if (trimmed.equals("no-cache")) {
+            noCache = true;
+          } else if (trimmed.equals("public")) {
+            isPublic = true;
+          } else if (trimmed.startsWith("private")) {
+            isPrivate = true;
+          } else if (trimmed.startsWith("max-age=")) {
+            try {
+              maxAgeSeconds = Long.parseLong(trimmed.substring("max-age=".length()).replace("\"", ""));
+            } catch (final NumberFormatException e) {
+              //A malformed max-age means the response is stale right away.
+              maxAgeSeconds = 0;
+            }
+          }
+        }
+      }
+      return new CacheControl(noStore, noCache, isPublic && !isPrivate, maxAgeSeconds);
+    }
+  }
+
+  private static final class Entry {
+    private final int status;
+    private final String reason;
+    private final Map<String, Collection<String>> headers;
+    private final byte[] body;
+    private final String etag;
+    private volatile long expiresAt;
+    private volatile long lastAccess;
+
+    private Entry(
+        final int status,
+        final String reason,
+        final Map<String, Collection<String>> headers,
+        final byte[] body,
+        final String etag,
+        final long expiresAt,
+        final long lastAccess) {
+      this.status = status;
+      this.reason = reason;
+      this.headers = headers;
+      this.body = body;
+      this.etag = etag;
+      this.expiresAt = expiresAt;
+      this.lastAccess = lastAccess;
+    }
+
+    boolean isFresh(final long now) {
+      return expiresAt - now > 0;
+    }
+
+    Response toResponse(final Request request) {
+      return Response.builder()
+          .status(status)
+          .reason(reason)
+          .headers(headers)
+          .request(request)
+          .body(body)
+          .build();
+    }
+  }
+
+  private static final class CacheKey {
+    private final String tenant;
+    private final boolean shared;
+    private final String user;
+    private final String url;
+    private final int hashCode;
+
+    private CacheKey(final String tenant, final boolean shared, final String user, final String url) {
+      this.tenant = tenant;
+      this.shared = shared;
+      this.user = user;
+      this.url = url;
+      this.hashCode = Objects.hash(tenant, shared, user, url);
+    }
+
+    static CacheKey publicKey(final Request request) {
+      return new CacheKey(firstHeader(request.headers(), TENANT_HEADER), true, null, request.url());
+    }
+
+    static CacheKey privateKey(final Request request) {
+      return new CacheKey(
+          firstHeader(request.headers(), TENANT_HEADER),
+          false,
+          firstHeader(request.headers(), ApiConstants.USER_HEADER),
+          request.url());
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) return true;
+      if (o == null || getClass() != o.getClass()) return false;
+      CacheKey that = (CacheKey) o;
+      return shared == that.shared &&
+          url.equals(that.url) &&
+          Objects.equals(tenant, that.tenant) &&
+          Objects.equals(user, that.user);
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+  }
+}
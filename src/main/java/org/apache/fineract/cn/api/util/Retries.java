@@ -0,0 +1,249 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.api.util;
+
+import feign.Client;
+import feign.InvocationHandlerFactory;
+import feign.Response;
+import feign.RetryableException;
+import feign.Retryer;
+import org.apache.http.conn.ConnectTimeoutException;
+
+import java.lang.reflect.Method;
+import java.net.ConnectException;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Collection;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Retries the calls of the clients of a factory.  Only calls which are safe to repeat are retried:
+ * calls whose request never reached the target, because the connection couldn't be made, and calls of
+ * idempotent methods (GET, HEAD, PUT, DELETE, OPTIONS) which failed with an I/O error or were answered
+ * with 429, 502, 503 or 504.  Responses mapped to an exception via
+ * {@link org.apache.fineract.cn.api.annotation.ThrowsException} are never retried.
+ *
+ * <p>Attempts are spaced by decorrelated jitter: each pause is drawn at random between the base
+ * backoff and three times the previous pause, capped, so that clients which failed together don't
+ * retry together.  A {@code Retry-After} header takes the place of the pause, unless it asks for a
+ * longer wait than is worth blocking the caller for, in which case the call fails right away.
+ *
+ * <p>No attempt is made whose pause would outlast the {@link Deadline} of the calling thread.
+ *
+ * <p>All clients of the factory share a budget of retries: each response which isn't a server
+ * error earns a tenth of a retry, so that retries add at most about ten percent to the load of a
+ * target which is failing outright, rather than multiplying it.
+ */
+final class Retries {
+  static final int DEFAULT_MAX_ATTEMPTS = 3;
+  static final long BASE_BACKOFF_MILLIS = 50;
+  static final long MAX_BACKOFF_MILLIS = 2000;
+  static final long MAX_RETRY_AFTER_MILLIS = 10 * 1000;
+  static final int BUDGET_PERCENT = 10;
+  static final int MAX_BURST = 10;
+
+  private static final String RETRY_AFTER_HEADER = "Retry-After";
+  private static final ThreadLocal<Call> CURRENT = new ThreadLocal<>();
+
+  @FunctionalInterface
+  interface Sleeper {
+    void sleep(final long millis) throws InterruptedException;
+  }
+
+  private final TokenBucket budget;
+  private final Sleeper sleeper;
+  private final LongSupplier clockMillis;
+
+  Retries() {
+    this(new TokenBucket(BUDGET_PERCENT, MAX_BURST), Thread::sleep, System::currentTimeMillis);
+  }
+
+  Retries(final TokenBucket budget, final Sleeper sleeper, final LongSupplier clockMillis) {
+    this.budget = budget;
+    this.sleeper = sleeper;
+    this.clockMillis = clockMillis;
+  }
+
+  /**
+   * Wraps the method handlers of a client, so that each call remembers the method of the request it
+   * made last, for the error decoder and the retryer to judge whether the call may be repeated.  The
+   * request is made in the transport, but decoded and retried after the transport has returned, so the
+   * method is kept for the whole call, and forgotten when the call ends.  Outside of such a call,
+   * nothing is retried on account of its status or of an I/O error after the request was sent.
+   */
+  static InvocationHandlerFactory instrument(final InvocationHandlerFactory delegate) {
+    return (target, dispatch) -> {
+      final Map<Method, InvocationHandlerFactory.MethodHandler> instrumented = new LinkedHashMap<>();
+      dispatch.forEach((method, handler) -> instrumented.put(method, args -> {
+        final Call previous = CURRENT.get();
+        CURRENT.set(new Call());
+        try {
+          return handler.invoke(args);
+        } finally {
+          if (previous == null)
+            CURRENT.remove();
+          else
+            CURRENT.set(previous);
+        }
+      }));
+      return delegate.create(target, instrumented);
+    };
+  }
+
+  /**
+   * Records the method of each request in the call from {@link #instrument} on the calling thread,
+   * and pays into the budget for each response which isn't a server error.  Goes outside of any
+   * transport which moves the request to another thread.
+   */
+  Client around(final Client transport) {
+    return (request, options) -> {
+      final Call call = CURRENT.get();
+      if (call != null)
+        call.method = request.method();
+      final Response ret = transport.execute(request, options);
+      if (ret.status() < 500 && ret.status() != 429)
+        budget.deposit();
+      return ret;
+    };
+  }
+
+  /**
+   * A retryer for a client; feign clones it for each call.
+   */
+  Retryer retryer(final int maxAttempts) {
+    return new Attempts(maxAttempts);
+  }
+
+  /**
+   * Turns the exception decoded for a response into one the retryer retries, if the status is one
+   * of those which may be retried and the request just made on this thread was idempotent.
+   */
+  static RuntimeException retryable(final RuntimeException decoded, final Response response) {
+    final int status = response.status();
+    if (status != 429 && status != 502 && status != 503 && status != 504)
+      return decoded;
+    if (!isIdempotent(lastMethod()))
+      return decoded;
+    return new RetryableStatusException(decoded, retryAfter(response.headers().get(RETRY_AFTER_HEADER)));
+  }
+
+  double getBudget() {
+    return budget.getTokens();
+  }
+
+  private static String lastMethod() {
+    final Call call = CURRENT.get();
+    return call == null ? null : call.method;
+  }
+
+  private static boolean isIdempotent(final String method) {
+    if (method == null)
+      return false;
+    return "GET".equalsIgnoreCase(method) || "HEAD".equalsIgnoreCase(method)
+        || "PUT".equalsIgnoreCase(method) || "DELETE".equalsIgnoreCase(method)
+        || "OPTIONS".equalsIgnoreCase(method);
+  }
+
+  private static Date retryAfter(final Collection<String> header) {
+    if (header == null || header.isEmpty())
+      return null;
+    final String value = header.iterator().next().trim();
+    try {
+      return new Date(System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(Math.max(0, Long.parseLong(value))));
+    } catch (final NumberFormatException ignored) {
+      //Not a number of seconds, so it should be a date.
+    }
+    try {
+      return Date.from(ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant());
+    } catch (final DateTimeParseException ignored) {
+      //A malformed header is treated as no header.
+      return null;
+    }
+  }
+
+  private static final class Call {
+    private String method;
+  }
+
+  private final class Attempts implements Retryer {
+    private final int maxAttempts;
+    private int attempt = 1;
+    private long backoffMillis = BASE_BACKOFF_MILLIS;
+
+    private Attempts(final int maxAttempts) {
+      this.maxAttempts = maxAttempts;
+    }
+
+    @Override
+    public void continueOrPropagate(final RetryableException e) {
+      if (attempt >= maxAttempts || !isRetryable(e))
+        throw giveUp(e);
+      final long pauseMillis = pauseMillis(e);
+      if (pauseMillis < 0 || outlastsDeadline(pauseMillis) || !budget.tryTake())
+        throw giveUp(e);
+      attempt++;
+      try {
+        sleeper.sleep(pauseMillis);
+      } catch (final InterruptedException interrupted) {
+        Thread.currentThread().interrupt();
+        throw giveUp(e);
+      }
+    }
+
+    @SuppressWarnings("CloneDoesntCallSuperClone")
+    @Override
+    public Retryer clone() {
+      return new Attempts(maxAttempts);
+    }
+
+    private boolean isRetryable(final RetryableException e) {
+      if (e instanceof RetryableStatusException)
+        return true;
+      final Throwable cause = e.getCause();
+      if (cause instanceof ConnectException || cause instanceof ConnectTimeoutException)
+        return true;
+      return isIdempotent(lastMethod());
+    }
+
+    private long pauseMillis(final RetryableException e) {
+      if (e.retryAfter() != null) {
+        final long ret = e.retryAfter().getTime() - clockMillis.getAsLong();
+        return ret > MAX_RETRY_AFTER_MILLIS ? -1 : Math.max(0, ret);
+      }
+      backoffMillis = Math.min(MAX_BACKOFF_MILLIS,
+          ThreadLocalRandom.current().nextLong(BASE_BACKOFF_MILLIS, backoffMillis * 3 + 1));
+      return backoffMillis;
+    }
+
+    private boolean outlastsDeadline(final long pauseMillis) {
+      final Deadline deadline = DeadlineHolder.peekDeadline();
+      return deadline != null && deadline.remainingMillis() <= pauseMillis;
+    }
+
+    private RuntimeException giveUp(final RetryableException e) {
+      return e instanceof RetryableStatusException ? ((RetryableStatusException) e).getOriginal() : e;
+    }
+  }
+}
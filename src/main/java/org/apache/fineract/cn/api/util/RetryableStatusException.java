@@ -0,0 +1,40 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.api.util;
+
+import feign.RetryableException;
+
+import java.util.Date;
+
+/**
+ * Carries the exception decoded for a response which may be retried, such as a 503, to the
+ * {@link Retries retryer}, which throws the original exception when it gives up.
+ */
+final class RetryableStatusException extends RetryableException {
+  private final RuntimeException original;
+
+  RetryableStatusException(final RuntimeException original, final Date retryAfter) {
+    super(original.getMessage(), original, retryAfter);
+    this.original = original;
+  }
+
+  RuntimeException getOriginal() {
+    return original;
+  }
+}
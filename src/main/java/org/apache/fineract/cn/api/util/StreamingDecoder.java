@@ -0,0 +1,225 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.api.util;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonIOException;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import feign.Response;
+import feign.Util;
+import feign.codec.DecodeException;
+import feign.codec.Decoder;
+import feign.gson.DoubleToIntMapTypeAdapter;
+import feign.gson.GsonDecoder;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.WildcardType;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Decodes JSON array responses of methods returning {@link Stream}, {@link Iterator} or
+ * {@code Consumer<Consumer<T>>} element by element, as they are read, instead of building the whole
+ * list first.  Responses of methods returning other types are decoded by a {@link GsonDecoder}
+ * using the same Gson.
+ *
+ * <p>The response stays open until the elements are consumed.  A returned stream must be closed
+ * by the caller, e.g. with try-with-resources.  A returned iterator closes the response when it is
+ * exhausted, and is {@link Closeable} for callers which stop early.  A returned consumer reads all
+ * elements into the callback it is given and then closes the response; it may be called once.</p>
+ *
+ * <p>The response is only kept open if its body is a {@link DetachableBody}; otherwise the body is
+ * read into memory first, and only the objects are created one at a time.</p>
+ */
+final class StreamingDecoder implements Decoder {
+  private final Decoder delegate;
+  private final Gson gson;
+
+  StreamingDecoder() {
+    this(defaultGson());
+  }
+
+  StreamingDecoder(final Gson gson) {
+    this.delegate = new GsonDecoder(gson);
+    this.gson = gson;
+  }
+
+  /**
+   * @return a Gson configured like the one a {@link GsonDecoder} creates by default, so that
+   * streamed elements are decoded the same way as whole responses.
+   */
+  static Gson defaultGson() {
+    return new GsonBuilder()
+        .setPrettyPrinting()
+        .registerTypeAdapter(new TypeToken<Map<String, Object>>() { }.getType(), new DoubleToIntMapTypeAdapter())
+        .create();
+  }
+
+  @Override
+  public Object decode(final Response response, final Type type) throws IOException {
+    final Class<?> rawType = rawType(type);
+    if (!isStreaming(rawType))
+      return delegate.decode(response, type);
+
+    final Type elementType = elementType(rawType, type);
+    final JsonIterator<?> elements = response.status() == 204 || response.body() == null
+        ? null
+        : JsonIterator.open(gson, elementType, DetachableBody.detach(response.body()));
+
+    if (rawType == Stream.class)
+      return elements == null ? Stream.empty() : elements.stream();
+    if (rawType == Iterator.class)
+      return elements == null ? Collections.emptyIterator() : elements;
+    return elements == null ? (Consumer<Consumer<Object>>) callback -> { } : elements.consumer();
+  }
+
+  private static boolean isStreaming(final Class<?> rawType) {
+    return rawType == Stream.class || rawType == Iterator.class || rawType == Consumer.class;
+  }
+
+  private static Class<?> rawType(final Type type) {
+    if (type instanceof ParameterizedType)
+      return (Class<?>) ((ParameterizedType) type).getRawType();
+    return type instanceof Class ? (Class<?>) type : Object.class;
+  }
+
+  private static Type elementType(final Class<?> rawType, final Type type) {
+    Type ret = typeArgument(type);
+    if (rawType == Consumer.class)
+      ret = typeArgument(ret);
+    return ret;
+  }
+
+  private static Type typeArgument(final Type type) {
+    if (!(type instanceof ParameterizedType))
+      return Object.class;
+    final Type ret = ((ParameterizedType) type).getActualTypeArguments()[0];
+    if (ret instanceof WildcardType)
+      return ((WildcardType) ret).getUpperBounds()[0];
+    return ret;
+  }
+
+  private static final class JsonIterator<T> implements Iterator<T>, Closeable {
+    private final Gson gson;
+    private final Type elementType;
+    private final JsonReader reader;
+    private boolean closed = false;
+
+    private JsonIterator(final Gson gson, final Type elementType, final JsonReader reader) {
+      this.gson = gson;
+      this.elementType = elementType;
+      this.reader = reader;
+    }
+
+    static <T> JsonIterator<T> open(final Gson gson, final Type elementType, final InputStream in) throws IOException {
+      final JsonReader reader = new JsonReader(new InputStreamReader(in, Util.UTF_8));
+      try {
+        if (reader.peek() == JsonToken.NULL) {
+          reader.nextNull();
+          final JsonIterator<T> ret = new JsonIterator<>(gson, elementType, reader);
+          ret.close();
+          return ret;
+        }
+        reader.beginArray();
+        return new JsonIterator<>(gson, elementType, reader);
+      } catch (final IOException | RuntimeException e) {
+        Util.ensureClosed(reader);
+        if (e instanceof IllegalStateException)
+          throw new DecodeException("Expected a JSON array.", e);
+        throw e;
+      }
+    }
+
+    @Override
+    public boolean hasNext() {
+      if (closed)
+        return false;
+      try {
+        if (reader.hasNext())
+          return true;
+        reader.endArray();
+        close();
+        return false;
+      } catch (final IOException e) {
+        closeQuietly();
+        throw new UncheckedIOException(e);
+      }
+    }
+
+    @Override
+    public T next() {
+      if (!hasNext())
+        throw new NoSuchElementException();
+      try {
+        return gson.fromJson(reader, elementType);
+      } catch (final JsonIOException | JsonSyntaxException e) {
+        closeQuietly();
+        throw e;
+      }
+    }
+
+    @Override
+    public void close() throws IOException {
+      if (!closed) {
+        closed = true;
+        reader.close();
+      }
+    }
+
+    Stream<T> stream() {
+      return StreamSupport.stream(Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED), false)
+          .onClose(this::closeQuietly);
+    }
+
+    Consumer<Consumer<T>> consumer() {
+      return callback -> {
+        try {
+          forEachRemaining(callback);
+        } finally {
+          closeQuietly();
+        }
+      };
+    }
+
+    private void closeQuietly() {
+      try {
+        close();
+      } catch (final IOException ignored) {
+        //The elements are read already, or reading them failed with a more useful exception.
+      }
+    }
+  }
+}
@@ -0,0 +1,99 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.api.util;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Timeouts configured for a target, or for one method on a target, which take precedence over
+ * those declared with {@link org.apache.fineract.cn.api.annotation.Timeouts} and those of the client
+ * options.  Targets are matched by their url as given when the client is created, and methods by
+ * their feign config key, such as {@code ThingClient#getThing(String)}.  Negative values leave the
+ * timeout as it would be without the override.
+ */
+@SuppressWarnings({"WeakerAccess", "unused"})
+public final class TimeoutOverrides {
+  public static final TimeoutOverrides NONE = builder().build();
+
+  private final Map<String, Timeout> overrides;
+
+  private TimeoutOverrides(final Builder builder) {
+    this.overrides = Collections.unmodifiableMap(new HashMap<>(builder.overrides));
+  }
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  public boolean isEmpty() {
+    return overrides.isEmpty();
+  }
+
+  Timeout forTarget(final String target) {
+    return overrides.get(target);
+  }
+
+  Timeout forMethod(final String target, final String methodKey) {
+    return overrides.get(target + " " + methodKey);
+  }
+
+  static final class Timeout {
+    final long connectMillis;
+    final long readMillis;
+    final long totalMillis;
+
+    private Timeout(final long connectMillis, final long readMillis, final long totalMillis) {
+      this.connectMillis = connectMillis;
+      this.readMillis = readMillis;
+      this.totalMillis = totalMillis;
+    }
+  }
+
+  public static final class Builder {
+    private final Map<String, Timeout> overrides = new HashMap<>();
+
+    private Builder() {
+    }
+
+    public Builder target(
+        final String target,
+        final long connectMillis,
+        final long readMillis,
+        final long totalMillis) {
+      overrides.put(target, new Timeout(connectMillis, readMillis, totalMillis));
+      return this;
+    }
+
+    public Builder method(
+        final String target,
+        final String methodKey,
+        final long connectMillis,
+        final long readMillis,
+        final long totalMillis) {
+      overrides.put(target + " " + methodKey, new Timeout(connectMillis, readMillis, totalMillis));
+      return this;
+    }
+
+    public TimeoutOverrides build() {
+      return new TimeoutOverrides(this);
+    }
+  }
+}
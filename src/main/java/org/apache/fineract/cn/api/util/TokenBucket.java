@@ -0,0 +1,61 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.api.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A budget of extra requests, such as hedges or retries, earned by ordinary requests.  Each request
+ * earns a percentage of a token, up to a burst which the budget starts out with, and each extra
+ * request spends a whole token.  Lock-free; tokens are counted in thousandths.
+ */
+final class TokenBucket {
+  private final long earnedPerRequest;
+  private final long max;
+  private final AtomicLong milliTokens;
+
+  TokenBucket(final int percentPerRequest, final int maxTokens) {
+    this.earnedPerRequest = percentPerRequest * 10L;
+    this.max = maxTokens * 1000L;
+    this.milliTokens = new AtomicLong(max);
+  }
+
+  void deposit() {
+    long current;
+    do {
+      current = milliTokens.get();
+      if (current >= max)
+        return;
+    } while (!milliTokens.compareAndSet(current, Math.min(max, current + earnedPerRequest)));
+  }
+
+  boolean tryTake() {
+    long current;
+    do {
+      current = milliTokens.get();
+      if (current < 1000)
+        return false;
+    } while (!milliTokens.compareAndSet(current, current - 1000));
+    return true;
+  }
+
+  double getTokens() {
+    return milliTokens.get() / 1000.0;
+  }
+}
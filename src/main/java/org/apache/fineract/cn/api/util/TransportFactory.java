@@ -0,0 +1,40 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.api.util;
+
+import feign.Client;
+
+/**
+ * Supplies the feign client which carries the requests of a client created by {@link ApiFactory}
+ * to its target.  Cookie handling is layered on top of the transport by the factory.
+ */
+@FunctionalInterface
+public interface TransportFactory {
+
+  /**
+   * A transport which opens each connection through {@link java.net.HttpURLConnection}, leaving
+   * keep-alive to the JDK.
+   */
+  TransportFactory URL_CONNECTION = (target, options) -> new Client.Default(null, null);
+
+  Client create(final String target, final ClientOptions options);
+
+  default void close() {
+  }
+}
@@ -0,0 +1,122 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.api.util;
+
+import feign.Response;
+import feign.Util;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+
+/**
+ * A response body which streams at most a fixed number of bytes of the body it wraps, without
+ * buffering them.  Used to hand error responses to exceptions which read the raw response.
+ */
+final class TruncatingBody implements Response.Body {
+  private final Response.Body body;
+  private final int maxBytes;
+
+  private TruncatingBody(final Response.Body body, final int maxBytes) {
+    this.body = body;
+    this.maxBytes = maxBytes;
+  }
+
+  static Response truncate(final Response response, final int maxBytes) {
+    final Response.Body body = response.body();
+    if (body == null || (body.length() != null && body.length() <= maxBytes))
+      return response;
+
+    return response.toBuilder().body(new TruncatingBody(body, maxBytes)).build();
+  }
+
+  @Override
+  public Integer length() {
+    final Integer length = body.length();
+    return length == null ? null : Math.min(length, maxBytes);
+  }
+
+  @Override
+  public boolean isRepeatable() {
+    return body.isRepeatable();
+  }
+
+  @Override
+  public InputStream asInputStream() throws IOException {
+    return new LimitedInputStream(body.asInputStream(), maxBytes);
+  }
+
+  @Override
+  public Reader asReader() throws IOException {
+    return new InputStreamReader(asInputStream(), Util.UTF_8);
+  }
+
+  @Override
+  public void close() throws IOException {
+    body.close();
+  }
+
+  private static class LimitedInputStream extends FilterInputStream {
+    private int remaining;
+
+    LimitedInputStream(final InputStream in, final int limit) {
+      super(in);
+      this.remaining = limit;
+    }
+
+    @Override
+    public int read() throws IOException {
+      if (remaining <= 0)
+        return -1;
+      final int ret = super.read();
+      if (ret >= 0)
+        remaining--;
+      return ret;
+    }
+
+    @Override
+    public int read(final byte[] b, final int off, final int len) throws IOException {
+      if (remaining <= 0)
+        return -1;
+      final int ret = super.read(b, off, Math.min(len, remaining));
+      if (ret > 0)
+        remaining -= ret;
+      return ret;
+    }
+
+    @Override
+    public long skip(final long n) throws IOException {
+      final long ret = super.skip(Math.min(n, remaining));
+      remaining -= ret;
+      return ret;
+    }
+
+    @Override
+    public int available() throws IOException {
+      return Math.min(super.available(), remaining);
+    }
+
+    @Override
+    public boolean markSupported() {
+      return false;
+    }
+  }
+}
@@ -61,6 +61,13 @@ public class UserContextHolder {
     return Optional.ofNullable(UserContextHolder.THREAD_LOCAL.get());
   }
 
+  /**
+   * The user context of the current thread, or null, without wrapping it in an optional.
+   */
+  static UserContext peekUserContext() {
+    return UserContextHolder.THREAD_LOCAL.get();
+  }
+
   public static void setAccessToken(@Nonnull final String user, @Nonnull final String accessToken) {
     Assert.notNull(user, "User may not be null.");
     Assert.notNull(accessToken, "Access token may not be null.");
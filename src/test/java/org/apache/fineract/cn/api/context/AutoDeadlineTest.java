@@ -0,0 +1,72 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.api.context;
+
+import org.apache.fineract.cn.api.util.Deadline;
+import org.apache.fineract.cn.api.util.DeadlineHolder;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+public class AutoDeadlineTest {
+  @After
+  public void clearDeadline() {
+    DeadlineHolder.clear();
+  }
+
+  @Test
+  public void previousDeadlineIsRestored() {
+    try (final AutoDeadline ignored = new AutoDeadline(1, TimeUnit.SECONDS)) {
+      Assert.assertTrue(DeadlineHolder.getDeadline().isPresent());
+    }
+
+    Assert.assertFalse(DeadlineHolder.getDeadline().isPresent());
+  }
+
+  @Test
+  public void deadlineCanOnlyBeMadeEarlier() {
+    try (final AutoDeadline ignored = new AutoDeadline(1, TimeUnit.SECONDS)) {
+      final Deadline outer = DeadlineHolder.getDeadline().orElseThrow(IllegalStateException::new);
+
+      try (final AutoDeadline ignored2 = new AutoDeadline(1, TimeUnit.HOURS)) {
+        Assert.assertSame(outer, DeadlineHolder.getDeadline().orElse(null));
+      }
+
+      try (final AutoDeadline ignored2 = new AutoDeadline(10, TimeUnit.MILLISECONDS)) {
+        Assert.assertTrue(DeadlineHolder.getDeadline().orElseThrow(IllegalStateException::new).isBefore(outer));
+      }
+
+      Assert.assertSame(outer, DeadlineHolder.getDeadline().orElse(null));
+    }
+  }
+
+  @Test
+  public void deadlineIsReadFromHeader() {
+    try (final AutoDeadline ignored = new AutoDeadline(Deadline.fromHeader("5000"))) {
+      final long remainingMillis = DeadlineHolder.getDeadline().orElseThrow(IllegalStateException::new).remainingMillis();
+      Assert.assertTrue(remainingMillis > 4000 && remainingMillis <= 5000);
+    }
+
+    try (final AutoDeadline ignored = new AutoDeadline(Deadline.fromHeader("soon"))) {
+      Assert.assertFalse(DeadlineHolder.getDeadline().isPresent());
+    }
+  }
+}
@@ -0,0 +1,99 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.api.context;
+
+import org.apache.fineract.cn.api.util.UserContextHolder;
+import org.apache.fineract.cn.lang.TenantContextHolder;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public class ContextPropagationTest {
+  private ExecutorService pool;
+
+  @Before
+  public void startPool() throws Exception {
+    TenantContextHolder.setIdentifier("pool-tenant");
+    UserContextHolder.setAccessToken("pool-user", "pool-token");
+    pool = Executors.newSingleThreadExecutor();
+    //Start the thread now, so that it inherits the pool context, not the one of the tests.
+    pool.submit(() -> { }).get();
+    TenantContextHolder.clear();
+    UserContextHolder.clear();
+  }
+
+  @After
+  public void stopPool() {
+    pool.shutdownNow();
+    TenantContextHolder.clear();
+    UserContextHolder.clear();
+  }
+
+  @Test
+  public void executorServiceRunsTasksInSubmitterContext() throws Exception {
+    final ExecutorService testSubject = ContextPropagation.executorService(pool);
+
+    TenantContextHolder.setIdentifier("tenant1");
+    try (final AutoUserContext ignored = new AutoUserContext("user1", "token1")) {
+      Assert.assertEquals("tenant1:user1", testSubject.submit(ContextPropagationTest::currentContext).get());
+    }
+
+    TenantContextHolder.setIdentifier("tenant2");
+    try (final AutoUserContext ignored = new AutoUserContext("user2", "token2")) {
+      Assert.assertEquals("tenant2:user2", testSubject.submit(ContextPropagationTest::currentContext).get());
+    }
+  }
+
+  @Test
+  public void workerContextIsRestoredAfterTask() throws Exception {
+    TenantContextHolder.setIdentifier("tenant1");
+    try (final AutoUserContext ignored = new AutoUserContext("user1", "token1")) {
+      ContextPropagation.executor(pool).execute(() -> { });
+    }
+
+    Assert.assertEquals("pool-tenant:pool-user", pool.submit(ContextPropagationTest::currentContext).get());
+  }
+
+  @Test
+  public void completableFutureStagesRunInCapturingContext() throws Exception {
+    TenantContextHolder.setIdentifier("tenant1");
+    try (final AutoUserContext ignored = new AutoUserContext("user1", "token1")) {
+      final CompletableFuture<String> result =
+          ContextPropagation.supplyAsync(ContextPropagationTest::currentContext, pool)
+              .thenApplyAsync(ContextPropagation.function(x -> x + "|" + currentContext()), pool);
+
+      Assert.assertEquals("tenant1:user1|tenant1:user1", result.get());
+    }
+  }
+
+  @Test
+  public void missingContextIsPropagatedAsMissing() throws Exception {
+    Assert.assertEquals("null:null", pool.submit(ContextPropagation.callable(ContextPropagationTest::currentContext)).get());
+  }
+
+  private static String currentContext() {
+    return TenantContextHolder.identifier().orElse(null) + ":"
+        + UserContextHolder.getUserContext().map(x -> x.getUser()).orElse(null);
+  }
+}
@@ -0,0 +1,60 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.api.metrics;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+public class IntervalLatencyHistogramTest {
+  private long now = 0;
+
+  @Test
+  public void snapshotCoversLastAndCurrentInterval() {
+    final IntervalLatencyHistogram testSubject = new IntervalLatencyHistogram(10, TimeUnit.SECONDS, () -> now);
+    record(testSubject, 100, 10);
+    now += TimeUnit.SECONDS.toNanos(10);
+    record(testSubject, 100, 100);
+
+    LatencyHistogram.Snapshot snapshot = testSubject.snapshot();
+    Assert.assertEquals(200, snapshot.getCount());
+    Assert.assertEquals(TimeUnit.MILLISECONDS.toNanos(100), snapshot.getMaxNanos());
+
+    now += TimeUnit.SECONDS.toNanos(10);
+    snapshot = testSubject.snapshot();
+    Assert.assertEquals(100, snapshot.getCount());
+    Assert.assertTrue(snapshot.getValueAtPercentile(1) > TimeUnit.MILLISECONDS.toNanos(90));
+  }
+
+  @Test
+  public void oldValuesAreForgottenAfterQuietIntervals() {
+    final IntervalLatencyHistogram testSubject = new IntervalLatencyHistogram(10, TimeUnit.SECONDS, () -> now);
+    record(testSubject, 100, 10);
+
+    now += TimeUnit.SECONDS.toNanos(25);
+
+    Assert.assertEquals(0, testSubject.snapshot().getCount());
+  }
+
+  private static void record(final IntervalLatencyHistogram histogram, final int count, final long millis) {
+    for (int i = 0; i < count; i++)
+      histogram.record(TimeUnit.MILLISECONDS.toNanos(millis));
+  }
+}
@@ -0,0 +1,89 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.api.metrics;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+public class LatencyHistogramTest {
+
+  @Test
+  public void bucketsCoverTheRangeOfALong() {
+    long previousHighest = -1;
+    for (int index = 0; index <= LatencyHistogram.index(Long.MAX_VALUE); index++) {
+      final long highest = LatencyHistogram.highestValueOf(index);
+      Assert.assertEquals(index, LatencyHistogram.index(previousHighest + 1));
+      Assert.assertEquals(index, LatencyHistogram.index(highest));
+      previousHighest = highest;
+    }
+    Assert.assertEquals(Long.MAX_VALUE, previousHighest);
+  }
+
+  @Test
+  public void percentilesAreWithinPrecision() {
+    final LatencyHistogram testSubject = new LatencyHistogram();
+    for (long i = 1; i <= 1000; i++)
+      testSubject.record(TimeUnit.MICROSECONDS.toNanos(i));
+
+    final LatencyHistogram.Snapshot snapshot = testSubject.snapshot();
+
+    Assert.assertEquals(1000, snapshot.getCount());
+    assertWithinPrecision(500_000, snapshot.getValueAtPercentile(50));
+    assertWithinPrecision(990_000, snapshot.getValueAtPercentile(99));
+    Assert.assertEquals(1_000_000, snapshot.getValueAtPercentile(100));
+    Assert.assertEquals(1_000_000, snapshot.getMaxNanos());
+    assertWithinPrecision(500_500, (long) snapshot.getMeanNanos());
+  }
+
+  @Test
+  public void emptyHistogramHasNoValues() {
+    final LatencyHistogram.Snapshot snapshot = new LatencyHistogram().snapshot();
+
+    Assert.assertEquals(0, snapshot.getCount());
+    Assert.assertEquals(0, snapshot.getValueAtPercentile(99));
+    Assert.assertEquals(0, snapshot.getMaxNanos());
+  }
+
+  @Test
+  public void concurrentRecordingLosesNothing() throws InterruptedException {
+    final LatencyHistogram testSubject = new LatencyHistogram();
+    final List<Thread> threads = new ArrayList<>();
+    for (int i = 0; i < 8; i++) {
+      final Thread thread = new Thread(() -> {
+        for (int j = 0; j < 10000; j++)
+          testSubject.record(j);
+      });
+      threads.add(thread);
+      thread.start();
+    }
+    for (final Thread thread : threads)
+      thread.join();
+
+    Assert.assertEquals(80000, testSubject.snapshot().getCount());
+    Assert.assertEquals(9999, testSubject.snapshot().getMaxNanos());
+  }
+
+  private static void assertWithinPrecision(final long expected, final long actual) {
+    Assert.assertEquals(expected, actual, expected / 32.0);
+  }
+}
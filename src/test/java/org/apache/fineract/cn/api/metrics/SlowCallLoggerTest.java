@@ -0,0 +1,66 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.api.metrics;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Matchers;
+import org.mockito.Mockito;
+import org.slf4j.Logger;
+
+import java.util.concurrent.TimeUnit;
+
+public class SlowCallLoggerTest {
+
+  @Test
+  public void onlySampledSlowCallsAreLogged() {
+    final Logger logger = Mockito.mock(Logger.class);
+    Mockito.when(logger.isWarnEnabled()).thenReturn(true);
+    final SlowCallLogger testSubject = new SlowCallLogger(logger, 100, 2);
+
+    testSubject.callEnded(trace(50), null);
+    testSubject.callEnded(trace(150), null);
+    testSubject.callEnded(trace(150), null);
+    testSubject.callEnded(trace(150), null);
+
+    Assert.assertEquals(3, testSubject.getSlowCalls());
+    Mockito.verify(logger, Mockito.times(2)).warn(Matchers.anyString(), Matchers.<Object[]>anyVararg());
+  }
+
+  @Test
+  public void breakdownNamesPhasesWhichTookTime() {
+    final CallTrace trace = trace(150);
+    trace.addPhaseNanos(CallPhase.TIME_TO_FIRST_BYTE, TimeUnit.MILLISECONDS.toNanos(100));
+    trace.addPhaseNanos(CallPhase.DECODING, TimeUnit.MILLISECONDS.toNanos(20));
+
+    final String breakdown = trace.toString();
+
+    Assert.assertTrue(breakdown, breakdown.contains("took 150.000 ms"));
+    Assert.assertTrue(breakdown, breakdown.contains("time_to_first_byte 100.000"));
+    Assert.assertTrue(breakdown, breakdown.contains("decoding 20.000"));
+    Assert.assertTrue(breakdown, breakdown.contains("other 30.000"));
+    Assert.assertFalse(breakdown, breakdown.contains("connect"));
+  }
+
+  private static CallTrace trace(final long millis) {
+    final CallTrace ret = new CallTrace(Object.class, "http://localhost", "Client#method()", 0);
+    ret.end(TimeUnit.MILLISECONDS.toNanos(millis));
+    return ret;
+  }
+}
@@ -0,0 +1,219 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.api.util;
+
+import feign.Feign;
+import feign.Response;
+import org.apache.fineract.cn.api.annotation.StacklessExceptions;
+import org.apache.fineract.cn.api.annotation.ThrowsException;
+import org.junit.Assert;
+import org.junit.Test;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+
+import java.nio.charset.Charset;
+import java.util.Collections;
+
+public class AnnotatedErrorDecoderStacklessTest {
+
+  private static final Response NOT_FOUND_RESPONSE = Response.builder()
+      .status(HttpStatus.NOT_FOUND.value())
+      .body("blah", Charset.defaultCharset())
+      .headers(Collections.emptyMap())
+      .build();
+
+  private static final Response CONFLICT_RESPONSE = Response.builder()
+      .status(HttpStatus.CONFLICT.value())
+      .body("blah", Charset.defaultCharset())
+      .headers(Collections.emptyMap())
+      .build();
+
+  @Test
+  public void stacklessMappingProducesFreshExceptionsWithoutStackTrace() throws NoSuchMethodException {
+    final AnnotatedErrorDecoder testSubject = decoderFor(MappedInterface.class);
+    final String methodKey = Feign.configKey(MappedInterface.class, MappedInterface.class.getMethod("method"));
+
+    final Exception first = testSubject.decode(methodKey, NOT_FOUND_RESPONSE);
+    first.addSuppressed(new IllegalStateException("close failed"));
+    final Exception second = testSubject.decode(methodKey, NOT_FOUND_RESPONSE);
+
+    Assert.assertTrue(first instanceof ParameterlessException);
+    Assert.assertNotSame(first, second);
+    Assert.assertEquals(0, first.getStackTrace().length);
+    Assert.assertEquals(0, first.getSuppressed().length);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void stacklessMappingWithoutStacklessConstructorFailsAtCreation() {
+    decoderFor(StacklessOnlyParameterlessMappedInterface.class);
+  }
+
+  @Test
+  public void stacklessInterfaceKeepsStackTraceOfExceptionWithoutStacklessConstructor() throws NoSuchMethodException {
+    final AnnotatedErrorDecoder testSubject = decoderFor(StacklessOnlyParameterlessInterface.class);
+    final String methodKey = Feign.configKey(StacklessOnlyParameterlessInterface.class,
+        StacklessOnlyParameterlessInterface.class.getMethod("method"));
+
+    final Exception result = testSubject.decode(methodKey, NOT_FOUND_RESPONSE);
+
+    Assert.assertTrue(result instanceof OnlyParameterlessException);
+    Assert.assertNotEquals(0, result.getStackTrace().length);
+  }
+
+  @Test
+  public void mappingWithoutStacklessKeepsStackTrace() throws NoSuchMethodException {
+    final AnnotatedErrorDecoder testSubject = decoderFor(MappedInterface.class);
+    final String methodKey = Feign.configKey(MappedInterface.class, MappedInterface.class.getMethod("method"));
+
+    final Exception first = testSubject.decode(methodKey, CONFLICT_RESPONSE);
+    final Exception second = testSubject.decode(methodKey, CONFLICT_RESPONSE);
+
+    Assert.assertTrue(first instanceof ParameterlessException);
+    Assert.assertNotSame(first, second);
+    Assert.assertNotEquals(0, first.getStackTrace().length);
+  }
+
+  @Test
+  public void stacklessInterfaceProducesStacklessFallback() throws NoSuchMethodException {
+    final AnnotatedErrorDecoder testSubject = decoderFor(StacklessInterface.class);
+    final String methodKey = Feign.configKey(StacklessInterface.class, StacklessInterface.class.getMethod("method"));
+
+    final Exception result = testSubject.decode(methodKey, NOT_FOUND_RESPONSE);
+
+    Assert.assertTrue(result instanceof NotFoundException);
+    Assert.assertEquals("blah", result.getMessage());
+    Assert.assertEquals(0, result.getStackTrace().length);
+  }
+
+  @Test
+  public void fallbackKeepsStackTraceByDefault() throws NoSuchMethodException {
+    final AnnotatedErrorDecoder testSubject = decoderFor(MappedInterface.class);
+    final String methodKey = Feign.configKey(MappedInterface.class, MappedInterface.class.getMethod("method"));
+
+    final Exception result = testSubject.decode(methodKey, Response.builder()
+        .status(HttpStatus.INTERNAL_SERVER_ERROR.value())
+        .headers(Collections.emptyMap())
+        .build());
+
+    Assert.assertTrue(result instanceof InternalServerError);
+    Assert.assertNotEquals(0, result.getStackTrace().length);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void stacklessMappingToResponseConstructorFailsAtCreation() {
+    decoderFor(StacklessResponseMappedInterface.class);
+  }
+
+  @Test
+  public void stacklessInterfaceKeepsStackTraceOfResponseConstructedException() throws NoSuchMethodException {
+    final AnnotatedErrorDecoder testSubject = decoderFor(StacklessResponseInterface.class);
+    final String methodKey = Feign.configKey(StacklessResponseInterface.class,
+        StacklessResponseInterface.class.getMethod("method"));
+
+    final Exception first = testSubject.decode(methodKey, NOT_FOUND_RESPONSE);
+    final Exception second = testSubject.decode(methodKey, NOT_FOUND_RESPONSE);
+
+    Assert.assertTrue(first instanceof ResponseException);
+    Assert.assertNotSame(first, second);
+    Assert.assertNotEquals(0, first.getStackTrace().length);
+  }
+
+  private static AnnotatedErrorDecoder decoderFor(final Class<?> clazz) {
+    return new AnnotatedErrorDecoder(
+        LoggerFactory.getLogger(AnnotatedErrorDecoderStacklessTest.class.getName()), clazz);
+  }
+
+  private interface MappedInterface {
+
+    @SuppressWarnings("unused")
+    @ThrowsException(status = HttpStatus.NOT_FOUND, exception = ParameterlessException.class, stackless = true)
+    @ThrowsException(status = HttpStatus.CONFLICT, exception = ParameterlessException.class)
+    void method();
+  }
+
+  @StacklessExceptions
+  private interface StacklessInterface {
+
+    @SuppressWarnings("unused")
+    void method();
+  }
+
+  private interface StacklessResponseMappedInterface {
+
+    @SuppressWarnings("unused")
+    @ThrowsException(status = HttpStatus.NOT_FOUND, exception = ResponseException.class, stackless = true)
+    void method();
+  }
+
+  @StacklessExceptions
+  private interface StacklessResponseInterface {
+
+    @SuppressWarnings("unused")
+    @ThrowsException(status = HttpStatus.NOT_FOUND, exception = ResponseException.class)
+    void method();
+  }
+
+  private interface StacklessOnlyParameterlessMappedInterface {
+
+    @SuppressWarnings("unused")
+    @ThrowsException(status = HttpStatus.NOT_FOUND, exception = OnlyParameterlessException.class, stackless = true)
+    void method();
+  }
+
+  @StacklessExceptions
+  private interface StacklessOnlyParameterlessInterface {
+
+    @SuppressWarnings("unused")
+    @ThrowsException(status = HttpStatus.NOT_FOUND, exception = OnlyParameterlessException.class)
+    void method();
+  }
+
+  private static class ResponseException extends RuntimeException {
+
+    @SuppressWarnings("WeakerAccess")
+    public ResponseException(final Response response) {
+      super("I am an exception for status " + response.status() + ".");
+    }
+  }
+
+  private static class ParameterlessException extends RuntimeException {
+
+    @SuppressWarnings("WeakerAccess")
+    public ParameterlessException() {
+      super("I am a parameterless exception.");
+    }
+
+    @SuppressWarnings("WeakerAccess")
+    public ParameterlessException(
+        final String message,
+        final Throwable cause,
+        final boolean enableSuppression,
+        final boolean writableStackTrace) {
+      super(message, cause, enableSuppression, writableStackTrace);
+    }
+  }
+
+  private static class OnlyParameterlessException extends RuntimeException {
+
+    @SuppressWarnings("WeakerAccess")
+    public OnlyParameterlessException() {
+      super("I am a parameterless exception without a stackless constructor.");
+    }
+  }
+}
@@ -135,7 +135,7 @@ public class AnnotatedErrorDecoderTest {
         .response(emptyConflictResponse)
         .expectedResult(new ParameteredException(emptyConflictResponse)));
 
-    ret.add(new TestCase("Interface with one method mapped to an exception which can't be constructed by reflection")
+    ret.add(new TestCase("Interface with one method, not mapped to the teapot code returned")
         .clazz(OneMethodInterface.class)
         .methodKey(oneAnnotatedMethodKey)
         .response(emptyIAmATeapotResponse)
@@ -224,7 +224,6 @@ public class AnnotatedErrorDecoderTest {
     @SuppressWarnings("unused")
     @ThrowsException(status = HttpStatus.BAD_REQUEST, exception = ParameterlessException.class)
     @ThrowsException(status = HttpStatus.CONFLICT, exception = ParameteredException.class)
-    @ThrowsException(status = HttpStatus.I_AM_A_TEAPOT, exception = WrongParameteredException.class)
     void method();
   }
 
@@ -324,11 +323,4 @@ public class AnnotatedErrorDecoderTest {
       super(response);
     }
   }
-
-  private static class WrongParameteredException extends RuntimeException {
-
-    public WrongParameteredException(final Integer message) {
-      super(message.toString());
-    }
-  }
 }
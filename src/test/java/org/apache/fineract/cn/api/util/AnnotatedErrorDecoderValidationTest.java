@@ -0,0 +1,69 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.api.util;
+
+import org.apache.fineract.cn.api.annotation.ThrowsException;
+import org.junit.Test;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+
+public class AnnotatedErrorDecoderValidationTest {
+
+  @Test(expected = IllegalArgumentException.class)
+  public void exceptionWhichCantBeConstructedFailsAtCreation() {
+    new AnnotatedErrorDecoder(
+        LoggerFactory.getLogger(AnnotatedErrorDecoderValidationTest.class.getName()),
+        WronglyMappedInterface.class);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void abstractExceptionFailsAtCreation() {
+    new AnnotatedErrorDecoder(
+        LoggerFactory.getLogger(AnnotatedErrorDecoderValidationTest.class.getName()),
+        AbstractlyMappedInterface.class);
+  }
+
+  private interface WronglyMappedInterface {
+
+    @SuppressWarnings("unused")
+    @ThrowsException(status = HttpStatus.I_AM_A_TEAPOT, exception = WrongParameteredException.class)
+    void method();
+  }
+
+  private interface AbstractlyMappedInterface {
+
+    @SuppressWarnings("unused")
+    @ThrowsException(status = HttpStatus.CONFLICT, exception = AbstractException.class)
+    void method();
+  }
+
+  private static class WrongParameteredException extends RuntimeException {
+
+    public WrongParameteredException(final Integer message) {
+      super(message.toString());
+    }
+  }
+
+  private static abstract class AbstractException extends RuntimeException {
+
+    public AbstractException() {
+      super();
+    }
+  }
+}
@@ -0,0 +1,86 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.api.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+
+public class ApiFactoryTest {
+  private static final String TEST_URL = "http://igle.pop.org/app/v1/";
+  private static final String OTHER_TEST_URL = "http://igle.pop.org/app/v2/";
+
+  @Test
+  public void sharedClientsAreReused() {
+    final ApiFactory testSubject = new ApiFactory(LoggerFactory.getLogger(ApiFactoryTest.class.getName()));
+
+    final TestClient first = testSubject.createShared(TestClient.class, TEST_URL);
+    final TestClient second = testSubject.createShared(TestClient.class, TEST_URL);
+    final TestClient otherTarget = testSubject.createShared(TestClient.class, OTHER_TEST_URL);
+    final TestClient otherOptions = testSubject.createShared(TestClient.class, TEST_URL,
+        ClientOptions.builder().readTimeoutMillis(1000).build());
+
+    Assert.assertSame(first, second);
+    Assert.assertNotSame(first, otherTarget);
+    Assert.assertNotSame(first, otherOptions);
+  }
+
+  @Test
+  public void createdClientsAreNotShared() {
+    final ApiFactory testSubject = new ApiFactory(LoggerFactory.getLogger(ApiFactoryTest.class.getName()));
+
+    Assert.assertNotSame(
+        testSubject.create(TestClient.class, TEST_URL),
+        testSubject.create(TestClient.class, TEST_URL));
+    Assert.assertNotSame(
+        testSubject.createWithCookieJar(TestClient.class, TEST_URL).getFeignTarget(),
+        testSubject.createWithCookieJar(TestClient.class, TEST_URL).getFeignTarget());
+  }
+
+  @Test
+  public void invalidatedClientIsRebuilt() {
+    final ApiFactory testSubject = new ApiFactory(LoggerFactory.getLogger(ApiFactoryTest.class.getName()));
+
+    final TestClient first = testSubject.createShared(TestClient.class, TEST_URL);
+    testSubject.invalidateShared(TestClient.class, TEST_URL);
+
+    Assert.assertNotSame(first, testSubject.createShared(TestClient.class, TEST_URL));
+  }
+
+  @Test
+  public void leastRecentlyUsedClientIsEvicted() {
+    final ApiFactory testSubject = new ApiFactory(LoggerFactory.getLogger(ApiFactoryTest.class.getName()), 2);
+
+    final TestClient first = testSubject.createShared(TestClient.class, TEST_URL);
+    final TestClient second = testSubject.createShared(TestClient.class, OTHER_TEST_URL);
+    Assert.assertSame(first, testSubject.createShared(TestClient.class, TEST_URL));
+
+    testSubject.createShared(TestClient.class, "http://igle.pop.org/app/v3/");
+
+    Assert.assertSame(first, testSubject.createShared(TestClient.class, TEST_URL));
+    Assert.assertNotSame(second, testSubject.createShared(TestClient.class, OTHER_TEST_URL));
+  }
+
+  private interface TestClient {
+    @RequestMapping(value = "/things", method = RequestMethod.GET)
+    String getThings();
+  }
+}
@@ -0,0 +1,148 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.api.util;
+
+import com.sun.net.httpserver.HttpServer;
+import org.apache.fineract.cn.api.annotation.ThrowsException;
+import org.apache.fineract.cn.api.context.AutoUserContext;
+import org.apache.fineract.cn.lang.TenantContextHolder;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+public class AsyncClientTest {
+  private HttpServer server;
+  private String target;
+  private ExecutorService executor;
+  private ApiFactory apiFactory;
+  private final List<String> receivedTenants = new CopyOnWriteArrayList<>();
+  private final List<String> receivedUsers = new CopyOnWriteArrayList<>();
+
+  @Before
+  public void setUp() throws Exception {
+    server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    server.createContext("/app/v1/things/", exchange -> {
+      receivedTenants.add(exchange.getRequestHeaders().getFirst("X-Tenant-Identifier"));
+      receivedUsers.add(exchange.getRequestHeaders().getFirst(ApiConstants.USER_HEADER));
+      final boolean found = exchange.getRequestURI().getPath().endsWith("/thing1");
+      final byte[] body = (found ? "{\"identifier\":\"thing1\"}" : "").getBytes(StandardCharsets.UTF_8);
+      exchange.sendResponseHeaders(found ? 200 : 404, body.length == 0 ? -1 : body.length);
+      try (final OutputStream outputStream = exchange.getResponseBody()) {
+        outputStream.write(body);
+      }
+    });
+    server.start();
+    target = "http://localhost:" + server.getAddress().getPort() + "/app/v1";
+
+    //Started before any context is set, so that the worker thread inherits none.
+    executor = Executors.newSingleThreadExecutor();
+    executor.submit(() -> { }).get();
+
+    apiFactory = new ApiFactory(LoggerFactory.getLogger(AsyncClientTest.class.getName()));
+  }
+
+  @After
+  public void tearDown() {
+    apiFactory.close();
+    executor.shutdownNow();
+    server.stop(0);
+    TenantContextHolder.clear();
+  }
+
+  @Test
+  public void callCompletesWithDecodedResultAndCallerContext() throws Exception {
+    final AsyncThingClient testSubject =
+        apiFactory.createAsync(AsyncThingClient.class, target, ClientOptions.DEFAULT, executor);
+
+    TenantContextHolder.setIdentifier("tenant1");
+    try (final AutoUserContext ignored = new AutoUserContext("user1", "token1")) {
+      Assert.assertEquals("thing1", testSubject.getThing("thing1").get().identifier);
+    }
+
+    TenantContextHolder.setIdentifier("tenant2");
+    try (final AutoUserContext ignored = new AutoUserContext("user2", "token2")) {
+      Assert.assertEquals("thing1", testSubject.getThing("thing1").get().identifier);
+    }
+
+    Assert.assertEquals("tenant1", receivedTenants.get(0));
+    Assert.assertEquals("user1", receivedUsers.get(0));
+    Assert.assertEquals("tenant2", receivedTenants.get(1));
+    Assert.assertEquals("user2", receivedUsers.get(1));
+  }
+
+  @Test
+  public void mappedErrorCompletesExceptionally() throws InterruptedException {
+    final AsyncThingClient testSubject =
+        apiFactory.createAsync(AsyncThingClient.class, target, ClientOptions.DEFAULT, executor);
+
+    try {
+      testSubject.getThing("thing2").get();
+      Assert.fail("Expected the future to complete exceptionally.");
+    } catch (final ExecutionException e) {
+      Assert.assertTrue(e.getCause() instanceof ThingNotFoundException);
+    }
+  }
+
+  @Test
+  public void rejectedCallCompletesExceptionally() throws InterruptedException {
+    final AsyncThingClient testSubject = apiFactory.createAsync(AsyncThingClient.class, target,
+        ClientOptions.DEFAULT, runnable -> { throw new RejectedExecutionException(); });
+
+    final CompletableFuture<Thing> result = testSubject.getThing("thing1");
+
+    try {
+      result.get();
+      Assert.fail("Expected the future to complete exceptionally.");
+    } catch (final ExecutionException e) {
+      Assert.assertTrue(e.getCause() instanceof RejectedExecutionException);
+    }
+  }
+
+  @SuppressWarnings("WeakerAccess")
+  public static class Thing {
+    String identifier;
+  }
+
+  @SuppressWarnings("WeakerAccess")
+  public static class ThingNotFoundException extends RuntimeException {
+  }
+
+  private interface AsyncThingClient {
+    @RequestMapping(value = "/things/{identifier}", method = RequestMethod.GET)
+    @ThrowsException(status = HttpStatus.NOT_FOUND, exception = ThingNotFoundException.class)
+    CompletableFuture<Thing> getThing(@PathVariable("identifier") final String identifier);
+  }
+}
@@ -0,0 +1,167 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.api.util;
+
+import com.sun.net.httpserver.HttpServer;
+import org.apache.fineract.cn.api.annotation.ThrowsException;
+import org.apache.fineract.cn.api.metrics.CallListener;
+import org.apache.fineract.cn.api.metrics.CallPhase;
+import org.apache.fineract.cn.api.metrics.CallTrace;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+public class CallEventsTest {
+  private static final long DELAY_MILLIS = 100;
+
+  private HttpServer server;
+  private String target;
+  private ApiFactory apiFactory;
+  private RecordingListener listener;
+
+  @Before
+  public void setUp() throws Exception {
+    server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    server.createContext("/app/v1/things", exchange -> {
+      final boolean found = exchange.getRequestURI().getPath().endsWith("/thing1")
+          || exchange.getRequestMethod().equals("POST");
+      try {
+        Thread.sleep(DELAY_MILLIS);
+        exchange.sendResponseHeaders(found ? 200 : 404, 0);
+        try (final OutputStream outputStream = exchange.getResponseBody()) {
+          outputStream.write("{\"identifier\":".getBytes(StandardCharsets.UTF_8));
+          outputStream.flush();
+          Thread.sleep(DELAY_MILLIS);
+          outputStream.write("\"thing1\"}".getBytes(StandardCharsets.UTF_8));
+        }
+      } catch (final InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    });
+    server.start();
+    target = "http://localhost:" + server.getAddress().getPort() + "/app/v1";
+
+    listener = new RecordingListener();
+    apiFactory = new ApiFactory(LoggerFactory.getLogger(CallEventsTest.class.getName()));
+    apiFactory.setCallListener(listener);
+  }
+
+  @After
+  public void tearDown() {
+    apiFactory.close();
+    server.stop(0);
+  }
+
+  @Test
+  public void phasesOfCallAreTimed() {
+    final ThingClient client = apiFactory.create(ThingClient.class, target);
+
+    client.getThing("thing1");
+
+    Assert.assertEquals(1, listener.ended.size());
+    final CallTrace trace = listener.ended.get(0);
+    Assert.assertNull(listener.failures.get(0));
+    Assert.assertTrue(trace.getMethodKey().startsWith("ThingClient#getThing"));
+    Assert.assertEquals(EnumSet.of(CallPhase.INTERCEPTORS, CallPhase.DNS, CallPhase.CONNECT,
+        CallPhase.TIME_TO_FIRST_BYTE, CallPhase.BODY_TRANSFER, CallPhase.DECODING), listener.phases);
+    Assert.assertTrue(trace.getPhaseNanos(CallPhase.TIME_TO_FIRST_BYTE) >= TimeUnit.MILLISECONDS.toNanos(DELAY_MILLIS));
+    Assert.assertTrue(trace.getPhaseNanos(CallPhase.BODY_TRANSFER) >= TimeUnit.MILLISECONDS.toNanos(DELAY_MILLIS / 2));
+    Assert.assertTrue(trace.getPhaseNanos(CallPhase.DECODING) < TimeUnit.MILLISECONDS.toNanos(DELAY_MILLIS / 2));
+    Assert.assertTrue(trace.getDurationNanos() >= TimeUnit.MILLISECONDS.toNanos(2 * DELAY_MILLIS));
+  }
+
+  @Test
+  public void errorDecodingAndEncodingAreTimed() {
+    final ThingClient client = apiFactory.createShared(ThingClient.class, target);
+
+    client.createThing(new Thing());
+    try {
+      client.getThing("thing2");
+      Assert.fail("Expected a ThingNotFoundException.");
+    } catch (final ThingNotFoundException ignored) {
+    }
+
+    Assert.assertEquals(2, listener.ended.size());
+    Assert.assertTrue(listener.ended.get(0).getPhaseNanos(CallPhase.ENCODING) > 0);
+    Assert.assertTrue(listener.ended.get(1).getPhaseNanos(CallPhase.ERROR_DECODING) > 0);
+    Assert.assertEquals(0, listener.ended.get(1).getPhaseNanos(CallPhase.DECODING));
+    Assert.assertTrue(listener.failures.get(1) instanceof ThingNotFoundException);
+  }
+
+  @Test
+  public void clientsCreatedWithoutListenerAreNotWrapped() {
+    apiFactory.setCallListener(null);
+    Assert.assertSame(CallListener.NONE, apiFactory.getCallListener());
+
+    apiFactory.create(ThingClient.class, target).getThing("thing1");
+
+    Assert.assertTrue(listener.ended.isEmpty());
+    Assert.assertTrue(listener.phases.isEmpty());
+  }
+
+  private static class RecordingListener implements CallListener {
+    private final List<CallTrace> ended = Collections.synchronizedList(new ArrayList<>());
+    private final List<Throwable> failures = Collections.synchronizedList(new ArrayList<>());
+    private final Set<CallPhase> phases = Collections.synchronizedSet(EnumSet.noneOf(CallPhase.class));
+
+    @Override
+    public void phaseEnded(final CallTrace trace, final CallPhase phase, final long nanos) {
+      phases.add(phase);
+    }
+
+    @Override
+    public void callEnded(final CallTrace trace, final Throwable failure) {
+      ended.add(trace);
+      failures.add(failure);
+    }
+  }
+
+  public static class Thing {
+    String identifier;
+  }
+
+  public static class ThingNotFoundException extends RuntimeException {
+  }
+
+  public interface ThingClient {
+    @RequestMapping(value = "/things/{identifier}", method = RequestMethod.GET)
+    @ThrowsException(status = HttpStatus.NOT_FOUND, exception = ThingNotFoundException.class)
+    Thing getThing(@PathVariable("identifier") final String identifier);
+
+    @RequestMapping(value = "/things", method = RequestMethod.POST)
+    Thing createThing(@RequestBody final Thing thing);
+  }
+}
@@ -0,0 +1,145 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.api.util;
+
+import com.sun.net.httpserver.HttpServer;
+import feign.Feign;
+import org.apache.fineract.cn.api.annotation.ThrowsException;
+import org.apache.fineract.cn.api.metrics.JmxMetricsRegistry;
+import org.apache.fineract.cn.api.metrics.MethodMetrics;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+
+import javax.management.MBeanServer;
+import javax.management.MBeanServerFactory;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+
+public class CallMetricsTest {
+  private static final String THING = "{\"identifier\":\"thing1\"}";
+
+  private HttpServer server;
+  private String target;
+  private ApiFactory apiFactory;
+  private MBeanServer mBeanServer;
+
+  @Before
+  public void setUp() throws Exception {
+    server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    server.createContext("/app/v1/things/", exchange -> {
+      final boolean found = exchange.getRequestURI().getPath().endsWith("/thing1");
+      final byte[] body = (found ? THING : "").getBytes(StandardCharsets.UTF_8);
+      exchange.sendResponseHeaders(found ? 200 : 404, body.length == 0 ? -1 : body.length);
+      try (final OutputStream outputStream = exchange.getResponseBody()) {
+        outputStream.write(body);
+      }
+    });
+    server.start();
+    target = "http://localhost:" + server.getAddress().getPort() + "/app/v1";
+
+    mBeanServer = MBeanServerFactory.newMBeanServer();
+    apiFactory = new ApiFactory(LoggerFactory.getLogger(CallMetricsTest.class.getName()));
+    apiFactory.setMetricsRegistries(Collections.singletonList(new JmxMetricsRegistry(mBeanServer)));
+  }
+
+  @After
+  public void tearDown() {
+    apiFactory.close();
+    server.stop(0);
+  }
+
+  @Test
+  public void callsAreRecordedPerMethod() throws Exception {
+    final ThingClient client = apiFactory.createShared(ThingClient.class, target);
+
+    client.getThing("thing1");
+    client.getThing("thing1");
+    try {
+      client.getThing("thing2");
+      Assert.fail("Expected a ThingNotFoundException.");
+    } catch (final ThingNotFoundException ignored) {
+    }
+
+    final MethodMetrics metrics = apiFactory.getMetrics().get(target,
+        Feign.configKey(ThingClient.class, ThingClient.class.getMethod("getThing", String.class)));
+    Assert.assertEquals(3, metrics.getCallCount());
+    Assert.assertEquals(1, metrics.getFailedCallCount());
+    Assert.assertEquals(3, metrics.getLatency().getCount());
+    Assert.assertEquals(3, metrics.getRecentLatency().getCount());
+    Assert.assertEquals(Long.valueOf(2), metrics.getStatusCounts().get(200));
+    Assert.assertEquals(Long.valueOf(1), metrics.getStatusCounts().get(404));
+    Assert.assertEquals(2 * THING.length(), metrics.getResponseBytes());
+    Assert.assertEquals(Collections.singletonMap(ThingNotFoundException.class.getName(), 1L),
+        metrics.getExceptionCounts());
+
+    Assert.assertEquals(3L, mBeanServer.getAttribute(JmxMetricsRegistry.objectName(metrics), "CallCount"));
+    Assert.assertEquals(3L, mBeanServer.getAttribute(JmxMetricsRegistry.objectName(metrics), "RecentCallCount"));
+  }
+
+  @Test
+  public void asyncCallsAreRecorded() throws Exception {
+    final AsyncThingClient client = apiFactory.createAsync(AsyncThingClient.class, target);
+
+    client.getThing("thing1").get();
+
+    final MethodMetrics metrics = apiFactory.getMetrics().get(target,
+        Feign.configKey(AsyncThingClient.class, AsyncThingClient.class.getMethod("getThing", String.class)));
+    Assert.assertEquals(1, metrics.getCallCount());
+    Assert.assertEquals(Long.valueOf(1), metrics.getStatusCounts().get(200));
+  }
+
+  @Test
+  public void closingFactoryUnregistersMetrics() throws Exception {
+    apiFactory.createShared(ThingClient.class, target).getThing("thing1");
+    final MethodMetrics metrics = apiFactory.getMetrics().getAll().iterator().next();
+    Assert.assertTrue(mBeanServer.isRegistered(JmxMetricsRegistry.objectName(metrics)));
+
+    apiFactory.close();
+
+    Assert.assertFalse(mBeanServer.isRegistered(JmxMetricsRegistry.objectName(metrics)));
+  }
+
+  public static class Thing {
+    String identifier;
+  }
+
+  public static class ThingNotFoundException extends RuntimeException {
+  }
+
+  public interface ThingClient {
+    @RequestMapping(value = "/things/{identifier}", method = RequestMethod.GET)
+    @ThrowsException(status = HttpStatus.NOT_FOUND, exception = ThingNotFoundException.class)
+    Thing getThing(@PathVariable("identifier") final String identifier);
+  }
+
+  public interface AsyncThingClient {
+    @RequestMapping(value = "/things/{identifier}", method = RequestMethod.GET)
+    CompletableFuture<Thing> getThing(@PathVariable("identifier") final String identifier);
+  }
+}
@@ -0,0 +1,268 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.api.util;
+
+import feign.Feign;
+import feign.FeignException;
+import feign.InvocationHandlerFactory;
+import feign.RetryableException;
+import feign.Target;
+import org.apache.fineract.cn.api.annotation.ThrowsException;
+import org.junit.Assert;
+import org.junit.Test;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class CircuitBreakerTest {
+  private static final String TARGET = "http://igle.pop.org/app/v1";
+
+  private long now = 0;
+
+  @Test
+  public void breakerOpensOnFailureRate() {
+    final CircuitBreaker testSubject = testSubject();
+
+    for (int i = 0; i < CircuitBreaker.MIN_CALLS; i++)
+      testSubject.record(testSubject.acquire(), 0, i % 2 == 1);
+
+    Assert.assertEquals(CircuitBreaker.Phase.OPEN, testSubject.getPhase());
+    try {
+      testSubject.acquire();
+      Assert.fail("Expected a CircuitBreakerOpenException.");
+    } catch (final CircuitBreakerOpenException e) {
+      Assert.assertEquals(TARGET, e.getTarget());
+    }
+  }
+
+  @Test
+  public void breakerStaysClosedBelowMinimumCalls() {
+    final CircuitBreaker testSubject = testSubject();
+
+    for (int i = 0; i < CircuitBreaker.MIN_CALLS - 1; i++)
+      testSubject.record(testSubject.acquire(), 0, true);
+
+    Assert.assertEquals(CircuitBreaker.Phase.CLOSED, testSubject.getPhase());
+  }
+
+  @Test
+  public void breakerOpensOnSlowCallRate() {
+    final CircuitBreaker testSubject = testSubject();
+
+    for (int i = 0; i < CircuitBreaker.MIN_CALLS; i++)
+      testSubject.record(testSubject.acquire(), TimeUnit.SECONDS.toNanos(2), false);
+
+    Assert.assertEquals(CircuitBreaker.Phase.OPEN, testSubject.getPhase());
+  }
+
+  @Test
+  public void oldCallsLeaveWindow() {
+    final CircuitBreaker testSubject = testSubject();
+
+    for (int i = 0; i < CircuitBreaker.MIN_CALLS - 1; i++)
+      testSubject.record(testSubject.acquire(), 0, true);
+    now += TimeUnit.SECONDS.toNanos(CircuitBreaker.WINDOW_SECONDS);
+    testSubject.record(testSubject.acquire(), 0, true);
+
+    Assert.assertEquals(CircuitBreaker.Phase.CLOSED, testSubject.getPhase());
+  }
+
+  @Test
+  public void successfulProbesCloseBreaker() {
+    final CircuitBreaker testSubject = openBreaker();
+    now += TimeUnit.MILLISECONDS.toNanos(CircuitBreaker.OPEN_MILLIS);
+
+    final CircuitBreaker.State[] probes = new CircuitBreaker.State[CircuitBreaker.PROBES];
+    for (int i = 0; i < CircuitBreaker.PROBES; i++)
+      probes[i] = testSubject.acquire();
+    Assert.assertEquals(CircuitBreaker.Phase.HALF_OPEN, testSubject.getPhase());
+    try {
+      testSubject.acquire();
+      Assert.fail("Only " + CircuitBreaker.PROBES + " probes should be let through.");
+    } catch (final CircuitBreakerOpenException ignored) {
+    }
+
+    for (final CircuitBreaker.State probe : probes)
+      testSubject.record(probe, 0, false);
+
+    Assert.assertEquals(CircuitBreaker.Phase.CLOSED, testSubject.getPhase());
+  }
+
+  @Test
+  public void failedProbeReopensBreaker() {
+    final CircuitBreaker testSubject = openBreaker();
+    now += TimeUnit.MILLISECONDS.toNanos(CircuitBreaker.OPEN_MILLIS);
+
+    testSubject.record(testSubject.acquire(), 0, true);
+
+    Assert.assertEquals(CircuitBreaker.Phase.OPEN, testSubject.getPhase());
+  }
+
+  @Test
+  public void releasedProbesNeitherCloseNorReopenBreaker() {
+    final CircuitBreaker testSubject = openBreaker();
+    now += TimeUnit.MILLISECONDS.toNanos(CircuitBreaker.OPEN_MILLIS);
+
+    for (int i = 0; i < 2 * CircuitBreaker.PROBES; i++)
+      testSubject.release(testSubject.acquire());
+    Assert.assertEquals(CircuitBreaker.Phase.HALF_OPEN, testSubject.getPhase());
+
+    final CircuitBreaker.State[] probes = new CircuitBreaker.State[CircuitBreaker.PROBES];
+    for (int i = 0; i < CircuitBreaker.PROBES; i++)
+      probes[i] = testSubject.acquire();
+    for (final CircuitBreaker.State probe : probes)
+      testSubject.record(probe, 0, false);
+
+    Assert.assertEquals(CircuitBreaker.Phase.CLOSED, testSubject.getPhase());
+  }
+
+  @Test
+  public void localRejectionsAreNotRecorded() throws Throwable {
+    final CircuitBreakers testSubject = new CircuitBreakers();
+    final Method method = ThingClient.class.getMethod("getThing");
+    final AtomicReference<RuntimeException> failure = new AtomicReference<>();
+    final InvocationHandlerFactory.MethodHandler handler = instrument(testSubject, method, args -> {
+      throw failure.get();
+    });
+
+    failure.set(new ConcurrencyLimitExceededException(TARGET, 1));
+    for (int i = 0; i < 2 * CircuitBreaker.MIN_CALLS; i++) {
+      try {
+        handler.invoke(new Object[0]);
+      } catch (final ConcurrencyLimitExceededException ignored) {
+      }
+    }
+    failure.set(new InternalServerError("boom"));
+    for (int i = 0; i < CircuitBreaker.MIN_CALLS; i++) {
+      try {
+        handler.invoke(new Object[0]);
+      } catch (final InternalServerError ignored) {
+      }
+    }
+
+    Assert.assertEquals(CircuitBreaker.Phase.OPEN,
+        testSubject.get(TARGET, Feign.configKey(ThingClient.class, method)).getPhase());
+  }
+
+  @Test
+  public void mappedBusinessExceptionsAreNotFailures() throws Throwable {
+    final CircuitBreakers testSubject = new CircuitBreakers();
+    final Method method = ThingClient.class.getMethod("getThing");
+    final InvocationHandlerFactory.MethodHandler handler = instrument(testSubject, method, args -> {
+      throw new ThingNotFoundException();
+    });
+
+    for (int i = 0; i < 2 * CircuitBreaker.MIN_CALLS; i++) {
+      try {
+        handler.invoke(new Object[0]);
+      } catch (final ThingNotFoundException ignored) {
+      }
+    }
+
+    Assert.assertEquals(CircuitBreaker.Phase.CLOSED,
+        testSubject.get(TARGET, Feign.configKey(ThingClient.class, method)).getPhase());
+  }
+
+  @Test
+  public void internalServerErrorsAreFailures() throws Throwable {
+    final CircuitBreakers testSubject = new CircuitBreakers();
+    final Method method = ThingClient.class.getMethod("getThing");
+    final InvocationHandlerFactory.MethodHandler handler = instrument(testSubject, method, args -> {
+      throw new InternalServerError("boom");
+    });
+
+    for (int i = 0; i < CircuitBreaker.MIN_CALLS; i++) {
+      try {
+        handler.invoke(new Object[0]);
+      } catch (final InternalServerError ignored) {
+      }
+    }
+
+    try {
+      handler.invoke(new Object[0]);
+      Assert.fail("Expected a CircuitBreakerOpenException.");
+    } catch (final CircuitBreakerOpenException ignored) {
+    }
+  }
+
+  @Test
+  public void errorDecoderClassifiesFailures() {
+    final AnnotatedErrorDecoder decoder =
+        new AnnotatedErrorDecoder(LoggerFactory.getLogger(CircuitBreakerTest.class.getName()), ThingClient.class);
+    final String methodKey = "ThingClient#getThing()";
+
+    Assert.assertFalse(decoder.isFailure(methodKey, new ThingNotFoundException()));
+    Assert.assertTrue(decoder.isFailure(methodKey, new ThingUnavailableException()));
+    Assert.assertTrue(decoder.isFailure(methodKey, new RetryableException("Read timed out", null)));
+    Assert.assertTrue(decoder.isFailure(methodKey, new InternalServerError("boom")));
+    Assert.assertFalse(decoder.isFailure(methodKey, new NotFoundException("gone")));
+    Assert.assertFalse(decoder.isFailure(methodKey, new IllegalArgumentException("bad")));
+    Assert.assertTrue(decoder.isFailure(methodKey, FeignException.errorStatus(methodKey, response(502))));
+  }
+
+  private CircuitBreaker testSubject() {
+    return new CircuitBreaker(TARGET, "ThingClient#getThing()", 1000, () -> now);
+  }
+
+  private CircuitBreaker openBreaker() {
+    final CircuitBreaker ret = testSubject();
+    for (int i = 0; i < CircuitBreaker.MIN_CALLS; i++)
+      ret.record(ret.acquire(), 0, true);
+    Assert.assertEquals(CircuitBreaker.Phase.OPEN, ret.getPhase());
+    return ret;
+  }
+
+  private static InvocationHandlerFactory.MethodHandler instrument(
+      final CircuitBreakers breakers,
+      final Method method,
+      final InvocationHandlerFactory.MethodHandler handler) {
+    final AnnotatedErrorDecoder decoder =
+        new AnnotatedErrorDecoder(LoggerFactory.getLogger(CircuitBreakerTest.class.getName()), ThingClient.class);
+    final AtomicReference<Map<Method, InvocationHandlerFactory.MethodHandler>> instrumented = new AtomicReference<>();
+    breakers.instrument(ClientOptions.builder().breakCircuits(true).build(), decoder, (target, dispatch) -> {
+      instrumented.set(dispatch);
+      return null;
+    }).create(new Target.HardCodedTarget<>(ThingClient.class, TARGET), Collections.singletonMap(method, handler));
+    return instrumented.get().get(method);
+  }
+
+  private static feign.Response response(final int status) {
+    return feign.Response.builder()
+        .status(status)
+        .headers(Collections.emptyMap())
+        .build();
+  }
+
+  public static class ThingNotFoundException extends RuntimeException {
+  }
+
+  public static class ThingUnavailableException extends RuntimeException {
+  }
+
+  public interface ThingClient {
+    @ThrowsException(status = HttpStatus.NOT_FOUND, exception = ThingNotFoundException.class)
+    @ThrowsException(status = HttpStatus.SERVICE_UNAVAILABLE, exception = ThingUnavailableException.class)
+    String getThing();
+  }
+}
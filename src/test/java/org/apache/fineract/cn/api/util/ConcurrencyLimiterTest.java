@@ -0,0 +1,168 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.api.util;
+
+import feign.Client;
+import feign.Request;
+import feign.Response;
+import org.apache.fineract.cn.api.metrics.ConcurrencyLimitMetrics;
+import org.junit.Assert;
+import org.junit.Test;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+public class ConcurrencyLimiterTest {
+  private static final String TARGET = "http://igle.pop.org/app/v1";
+
+  private long now = 0;
+  private long latencyMillis = 10;
+  private int status = 200;
+
+  private final Client transport = (request, options) -> {
+    now += TimeUnit.MILLISECONDS.toNanos(latencyMillis);
+    return response(request, status);
+  };
+
+  @Test
+  public void requestsOverLimitAreRejected() throws Exception {
+    final ConcurrencyLimiter testSubject = new ConcurrencyLimiter(TARGET);
+    final CountDownLatch release = new CountDownLatch(1);
+    final CountDownLatch started = new CountDownLatch(ConcurrencyLimiter.INITIAL_LIMIT);
+    final Client blocking = testSubject.around((request, options) -> {
+      started.countDown();
+      try {
+        release.await(10, TimeUnit.SECONDS);
+      } catch (final InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      return response(request, 200);
+    });
+
+    final ExecutorService executor = Executors.newFixedThreadPool(ConcurrencyLimiter.INITIAL_LIMIT);
+    try {
+      final List<Future<Response>> inFlight = new ArrayList<>();
+      for (int i = 0; i < ConcurrencyLimiter.INITIAL_LIMIT; i++)
+        inFlight.add(executor.submit(() -> blocking.execute(request(), new Request.Options())));
+      Assert.assertTrue(started.await(10, TimeUnit.SECONDS));
+
+      try {
+        blocking.execute(request(), new Request.Options());
+        Assert.fail("Expected a ConcurrencyLimitExceededException.");
+      } catch (final ConcurrencyLimitExceededException e) {
+        Assert.assertEquals(TARGET, e.getTarget());
+        Assert.assertEquals(0, e.getStackTrace().length);
+      }
+
+      final ConcurrencyLimitMetrics metrics = testSubject.getMetrics();
+      Assert.assertEquals(ConcurrencyLimiter.INITIAL_LIMIT, metrics.getInFlight());
+      Assert.assertEquals(1, metrics.getRejectedCount());
+
+      release.countDown();
+      for (final Future<Response> response : inFlight)
+        Assert.assertEquals(200, response.get().status());
+      Assert.assertEquals(0, metrics.getInFlight());
+      Assert.assertEquals(ConcurrencyLimiter.INITIAL_LIMIT, metrics.getAcceptedCount());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void limitShrinksWhenLatencyRises() throws IOException {
+    final ConcurrencyLimiter testSubject = new ConcurrencyLimiter(TARGET, () -> now);
+    for (int i = 0; i < 600; i++)
+      testSubject.execute(transport, request(), new Request.Options());
+    Assert.assertEquals(ConcurrencyLimiter.INITIAL_LIMIT, testSubject.getLimit());
+
+    latencyMillis = 100;
+    for (int i = 0; i < 50; i++)
+      testSubject.execute(transport, request(), new Request.Options());
+
+    Assert.assertTrue(String.valueOf(testSubject.getLimit()), testSubject.getLimit() < ConcurrencyLimiter.INITIAL_LIMIT / 2);
+  }
+
+  @Test
+  public void overloadResponsesHalveLimit() throws IOException {
+    final ConcurrencyLimiter testSubject = new ConcurrencyLimiter(TARGET, () -> now);
+    status = 503;
+
+    testSubject.execute(transport, request(), new Request.Options());
+
+    Assert.assertEquals(ConcurrencyLimiter.INITIAL_LIMIT / 2, testSubject.getLimit());
+  }
+
+  @Test
+  public void failuresHalveLimit() {
+    final ConcurrencyLimiter testSubject = new ConcurrencyLimiter(TARGET, () -> now);
+
+    try {
+      testSubject.execute((request, options) -> {
+        throw new IOException("connection refused");
+      }, request(), new Request.Options());
+      Assert.fail("Expected an IOException.");
+    } catch (final IOException ignored) {
+    }
+
+    Assert.assertEquals(ConcurrencyLimiter.INITIAL_LIMIT / 2, testSubject.getLimit());
+    Assert.assertEquals(0, testSubject.getMetrics().getInFlight());
+  }
+
+  @Test
+  public void factoryExposesLimitsOfLimitedTargets() {
+    final ApiFactory apiFactory = new ApiFactory(LoggerFactory.getLogger(ConcurrencyLimiterTest.class.getName()));
+    try {
+      apiFactory.create(ThingClient.class, TARGET, ClientOptions.builder().limitConcurrency(true).build());
+      apiFactory.create(ThingClient.class, "http://other.pop.org/app/v1");
+
+      Assert.assertEquals(1, apiFactory.getMetrics().getConcurrencyLimits().size());
+      Assert.assertEquals(ConcurrencyLimiter.INITIAL_LIMIT, apiFactory.getMetrics().getConcurrencyLimit(TARGET).getLimit());
+    } finally {
+      apiFactory.close();
+    }
+  }
+
+  private static Request request() {
+    return Request.create("GET", TARGET + "/things", Collections.emptyMap(), null, StandardCharsets.UTF_8);
+  }
+
+  private static Response response(final Request request, final int status) {
+    return Response.builder()
+        .status(status)
+        .headers(Collections.emptyMap())
+        .request(request)
+        .build();
+  }
+
+  public interface ThingClient {
+    @RequestMapping(value = "/things", method = RequestMethod.GET)
+    String getThings();
+  }
+}
@@ -0,0 +1,90 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.api.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+public class CookieJarTest {
+  private static final String TEST_URL = "http://igle.pop.org/app/v1/";
+
+  private long now = 1000000;
+
+  @Test
+  public void headerIsSharedUntilCookieChanges() {
+    final CookieJar testSubject = new CookieJar(TEST_URL, 10, () -> now);
+    testSubject.storeFromResponse(TEST_URL + "things", Arrays.asList("a=1; Path=/", "b=2; Path=/app/v1"));
+
+    final String header = testSubject.cookieHeader("/things");
+    Assert.assertEquals("a=1; b=2", header);
+    Assert.assertSame(header, testSubject.cookieHeader("/other"));
+
+    testSubject.storeFromResponse(TEST_URL + "things", Collections.singletonList("a=3; Path=/"));
+    Assert.assertEquals("b=2; a=3", testSubject.cookieHeader("/things"));
+  }
+
+  @Test
+  public void cookiesWithNarrowerPathOnlyGoToMatchingRequests() {
+    final CookieJar testSubject = new CookieJar(TEST_URL, 10, () -> now);
+    testSubject.storeFromResponse(TEST_URL + "things/1", Collections.singletonList("a=1; Path=/app/v1/things"));
+
+    Assert.assertEquals("a=1", testSubject.cookieHeader("/things/2?x=y"));
+    Assert.assertNull(testSubject.cookieHeader("/thingsandstuff"));
+    Assert.assertNull(testSubject.cookieHeader("/others"));
+  }
+
+  @Test
+  public void expiredCookiesAreDropped() {
+    final CookieJar testSubject = new CookieJar(TEST_URL, 10, () -> now);
+    testSubject.storeFromResponse(TEST_URL, Arrays.asList("a=1; Max-Age=10", "b=2"));
+
+    now += 10 * 1000;
+    Assert.assertEquals("b=2", testSubject.cookieHeader("/"));
+    Assert.assertEquals(1, testSubject.size());
+  }
+
+  @Test
+  public void cookieIsDeletedByExpiryInThePast() {
+    final CookieJar testSubject = new CookieJar(TEST_URL, 10, () -> now);
+    testSubject.storeFromResponse(TEST_URL, Collections.singletonList("a=1"));
+    testSubject.storeFromResponse(TEST_URL, Collections.singletonList("a=; Expires=Thu, 01 Jan 1970 00:00:00 GMT"));
+
+    Assert.assertNull(testSubject.cookieHeader("/"));
+  }
+
+  @Test
+  public void oldestCookiesAreDroppedPastMaximum() {
+    final CookieJar testSubject = new CookieJar(TEST_URL, 2, () -> now);
+    testSubject.storeFromResponse(TEST_URL, Arrays.asList("a=1", "b=2", "c=3"));
+
+    Assert.assertEquals(2, testSubject.size());
+    Assert.assertEquals("b=2; c=3", testSubject.cookieHeader("/"));
+  }
+
+  @Test
+  public void secureCookiesAreNotSentOverHttp() {
+    final CookieJar testSubject = new CookieJar(TEST_URL, 10, () -> now);
+    testSubject.storeFromResponse(TEST_URL, Collections.singletonList("a=1; Secure"));
+
+    Assert.assertNull(testSubject.cookieHeader("/"));
+  }
+}
@@ -0,0 +1,65 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.api.util;
+
+import feign.RequestInterceptor;
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.Map;
+
+public class CustomFeignClientsConfigurationTest {
+  @Test
+  public void fusedInterceptorIsDefinedByDefault() {
+    final Map<String, RequestInterceptor> interceptors = interceptors();
+
+    Assert.assertEquals(1, interceptors.size());
+    Assert.assertTrue(interceptors.get("fusedRequestInterceptor") instanceof FusedRequestInterceptor);
+  }
+
+  @Test
+  public void separateInterceptorsReplaceFusedOneIfApplicationDefinesOne() {
+    final Map<String, RequestInterceptor> interceptors = interceptors(LegacyInterceptor.class);
+
+    Assert.assertEquals(2, interceptors.size());
+    Assert.assertTrue(interceptors.get("tenantedTargetInterceptor") instanceof TenantedTargetInterceptor);
+    Assert.assertTrue(interceptors.get("tokenedTargetInterceptor") instanceof TokenedTargetInterceptor);
+  }
+
+  private static Map<String, RequestInterceptor> interceptors(final Class<?>... applicationConfigurations) {
+    try (final AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext()) {
+      if (applicationConfigurations.length > 0)
+        context.register(applicationConfigurations);
+      context.register(CustomFeignClientsConfiguration.class);
+      context.refresh();
+      return context.getBeansOfType(RequestInterceptor.class);
+    }
+  }
+
+  @Configuration
+  static class LegacyInterceptor {
+    @Bean
+    public TenantedTargetInterceptor tenantedTargetInterceptor() {
+      return new TenantedTargetInterceptor();
+    }
+  }
+}
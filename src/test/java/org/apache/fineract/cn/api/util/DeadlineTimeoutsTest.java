@@ -0,0 +1,79 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.api.util;
+
+import feign.Client;
+import feign.Request;
+import feign.Response;
+import org.apache.fineract.cn.api.context.AutoDeadline;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class DeadlineTimeoutsTest {
+  private static final Request REQUEST = Request.create("GET", "http://igle.pop.org/thing",
+      Collections.emptyMap(), null, StandardCharsets.UTF_8);
+  private static final Request.Options OPTIONS = new Request.Options(10 * 1000, 60 * 1000);
+
+  private final AtomicReference<Request.Options> sent = new AtomicReference<>();
+  private final Client testSubject = DeadlineTimeouts.around((request, options) -> {
+    sent.set(options);
+    return Response.builder().status(200).headers(Collections.emptyMap()).build();
+  });
+
+  @After
+  public void clearDeadline() {
+    DeadlineHolder.clear();
+  }
+
+  @Test
+  public void optionsAreUnchangedWithoutDeadline() throws Exception {
+    testSubject.execute(REQUEST, OPTIONS);
+
+    Assert.assertSame(OPTIONS, sent.get());
+  }
+
+  @Test
+  public void timeoutsAreBoundedByDeadline() throws Exception {
+    try (final AutoDeadline ignored = new AutoDeadline(2, TimeUnit.SECONDS)) {
+      testSubject.execute(REQUEST, OPTIONS);
+    }
+
+    Assert.assertTrue(sent.get().connectTimeoutMillis() <= 2000);
+    Assert.assertTrue(sent.get().readTimeoutMillis() <= 2000);
+    Assert.assertTrue(sent.get().readTimeoutMillis() > 1000);
+  }
+
+  @Test
+  public void expiredRequestIsNotSent() throws Exception {
+    try (final AutoDeadline ignored = new AutoDeadline(0, TimeUnit.MILLISECONDS)) {
+      testSubject.execute(REQUEST, OPTIONS);
+      Assert.fail("Expected a DeadlineExceededException.");
+    } catch (final DeadlineExceededException e) {
+      Assert.assertEquals("GET", e.getMethod());
+    }
+
+    Assert.assertNull(sent.get());
+  }
+}
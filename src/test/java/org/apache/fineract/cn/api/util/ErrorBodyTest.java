@@ -0,0 +1,104 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.api.util;
+
+import feign.Response;
+import feign.Util;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+
+public class ErrorBodyTest {
+
+  @Test
+  public void longBodyIsTruncated() {
+    final ErrorBody testSubject = ErrorBody.of(streamedResponse("abcdefghij"), 4);
+
+    Assert.assertEquals("abcd" + ErrorBody.TRUNCATION_MARKER, testSubject.get());
+  }
+
+  @Test
+  public void bodyOfExactlyMaximumSizeIsNotTruncated() {
+    final ErrorBody testSubject = ErrorBody.of(streamedResponse("abcd"), 4);
+
+    Assert.assertEquals("abcd", testSubject.get());
+  }
+
+  @Test
+  public void missingBodyIsNull() {
+    final Response response = Response.builder()
+        .status(HttpStatus.NOT_FOUND.value())
+        .headers(Collections.emptyMap())
+        .build();
+
+    Assert.assertNull(ErrorBody.of(response, 4).get());
+  }
+
+  @Test
+  public void repeatableBodyIsReadOnlyWhenRequested() throws IOException {
+    final Response.Body body = Mockito.mock(Response.Body.class);
+    Mockito.when(body.isRepeatable()).thenReturn(true);
+    Mockito.when(body.asInputStream()).thenReturn(new ByteArrayInputStream("blah".getBytes(StandardCharsets.UTF_8)));
+    final Response response = Response.builder()
+        .status(HttpStatus.NOT_FOUND.value())
+        .headers(Collections.emptyMap())
+        .body(body)
+        .build();
+
+    final ErrorBody testSubject = ErrorBody.of(response, 16);
+    Mockito.verify(body, Mockito.never()).asInputStream();
+
+    Assert.assertEquals("blah", testSubject.get());
+    Assert.assertEquals("blah", testSubject.get());
+    Mockito.verify(body, Mockito.times(1)).asInputStream();
+  }
+
+  @Test
+  public void truncatingBodyStreamsOnlyMaximumSize() throws IOException {
+    final Response response = TruncatingBody.truncate(streamedResponse("abcdefghij"), 4);
+
+    Assert.assertEquals("abcd", Util.toString(response.body().asReader()));
+  }
+
+  @Test
+  public void decodedNotFoundMessageIsTruncated() {
+    final AnnotatedErrorDecoder testSubject = new AnnotatedErrorDecoder(
+        LoggerFactory.getLogger(ErrorBodyTest.class.getName()), Object.class, 4);
+
+    final Exception result = testSubject.decode("x", streamedResponse("abcdefghij"));
+
+    Assert.assertTrue(result instanceof NotFoundException);
+    Assert.assertEquals("abcd" + ErrorBody.TRUNCATION_MARKER, result.getMessage());
+  }
+
+  private static Response streamedResponse(final String body) {
+    return Response.builder()
+        .status(HttpStatus.NOT_FOUND.value())
+        .headers(Collections.emptyMap())
+        .body(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)), null)
+        .build();
+  }
+}
@@ -0,0 +1,114 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.api.util;
+
+import feign.RequestTemplate;
+import org.apache.fineract.cn.api.context.AutoDeadline;
+import org.apache.fineract.cn.api.context.AutoUserContext;
+import org.apache.fineract.cn.lang.TenantContextHolder;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import static org.apache.fineract.cn.lang.config.TenantHeaderFilter.TENANT_HEADER;
+
+public class FusedRequestInterceptorTest {
+  private static final String TEST_URL = "http://igle.pop.org/app/v1/";
+
+  @Before
+  @After
+  public void clearContext() {
+    TenantContextHolder.clear();
+    UserContextHolder.clear();
+    DeadlineHolder.clear();
+  }
+
+  @Test
+  public void contextHeadersAreSet() {
+    final FusedRequestInterceptor testSubject = new FusedRequestInterceptor();
+    final RequestTemplate requestTemplate = new RequestTemplate().method("GET");
+
+    TenantContextHolder.setIdentifier("tenant");
+    try (final AutoUserContext ignored = new AutoUserContext("x", "y")) {
+      testSubject.apply(requestTemplate);
+    }
+
+    Assert.assertEquals(Collections.singletonList("tenant"), requestTemplate.headers().get(TENANT_HEADER));
+    Assert.assertEquals(Collections.singletonList("x"), requestTemplate.headers().get(ApiConstants.USER_HEADER));
+    Assert.assertEquals(Collections.singletonList("y"), requestTemplate.headers().get(ApiConstants.AUTHORIZATION_HEADER));
+    Assert.assertNull(requestTemplate.body());
+  }
+
+  @Test
+  public void noHeadersWithoutContext() {
+    final RequestTemplate requestTemplate = new RequestTemplate().method("GET");
+
+    new FusedRequestInterceptor().apply(requestTemplate);
+
+    Assert.assertTrue(requestTemplate.headers().isEmpty());
+  }
+
+  @Test
+  public void remainingTimeIsPassedOn() {
+    final RequestTemplate requestTemplate = new RequestTemplate().method("GET");
+
+    try (final AutoDeadline ignored = new AutoDeadline(10, TimeUnit.SECONDS)) {
+      new FusedRequestInterceptor().apply(requestTemplate);
+    }
+
+    final long remainingMillis =
+        Long.parseLong(requestTemplate.headers().get(ApiConstants.REMAINING_TIME_HEADER).iterator().next());
+    Assert.assertTrue(remainingMillis > 0);
+    Assert.assertTrue(remainingMillis <= 10000);
+  }
+
+  @Test(expected = DeadlineExceededException.class)
+  public void requestIsRefusedAfterDeadline() {
+    final RequestTemplate requestTemplate = new RequestTemplate().method("GET");
+
+    try (final AutoDeadline ignored = new AutoDeadline(0, TimeUnit.MILLISECONDS)) {
+      new FusedRequestInterceptor().apply(requestTemplate);
+    }
+  }
+
+  @Test
+  public void emptyBodyIsAddedToPostAndPut() {
+    for (final String method : new String[]{"POST", "PUT"}) {
+      final RequestTemplate requestTemplate = new RequestTemplate().method(method);
+      new FusedRequestInterceptor().apply(requestTemplate);
+      Assert.assertEquals(0, requestTemplate.body().length);
+    }
+  }
+
+  @Test
+  public void cookiesOfJarAreSet() {
+    final CookieJar cookieJar = new CookieJar(TEST_URL);
+    cookieJar.put("/blah", "token", "Bearerbear");
+    final RequestTemplate requestTemplate = new RequestTemplate().method("GET");
+    requestTemplate.append("/request");
+
+    new FusedRequestInterceptor(cookieJar).apply(requestTemplate);
+
+    Assert.assertEquals(Collections.singletonList("token=Bearerbear"), requestTemplate.headers().get("Cookie"));
+  }
+}
@@ -0,0 +1,286 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.api.util;
+
+import com.sun.net.httpserver.HttpServer;
+import feign.Client;
+import feign.Request;
+import feign.Response;
+import org.junit.Assert;
+import org.junit.Test;
+import org.slf4j.LoggerFactory;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+public class LoadBalancerTest {
+  private static final String SERVICE = "office";
+
+  private final FlakyDiscoveryClient discoveryClient = new FlakyDiscoveryClient();
+  private final Map<String, Integer> requestsPerHost = new HashMap<>();
+  private final Map<String, Long> latencyMillisPerHost = new HashMap<>();
+  private final Map<String, Integer> statusPerHost = new HashMap<>();
+  private long now = 0;
+
+  private final Client transport = (request, options) -> {
+    final String host = request.url().substring("http://".length(), request.url().indexOf(':', "http://".length()));
+    requestsPerHost.merge(host, 1, Integer::sum);
+    now += TimeUnit.MILLISECONDS.toNanos(latencyMillisPerHost.getOrDefault(host, 10L));
+    return Response.builder()
+        .status(statusPerHost.getOrDefault(host, 200))
+        .headers(Collections.emptyMap())
+        .request(request)
+        .build();
+  };
+
+  @Test
+  public void requestIsSentToInstance() throws IOException {
+    discoveryClient.register(SERVICE, "host1", 2020);
+    final Request request = request();
+
+    final Response response = testSubject().around((balanced, options) -> {
+      Assert.assertEquals("http://host1:2020/office/v1/offices", balanced.url());
+      return transport.execute(balanced, options);
+    }).execute(request, new Request.Options());
+
+    Assert.assertSame(request, response.request());
+  }
+
+  @Test
+  public void slowInstanceGetsLittleTraffic() throws IOException {
+    discoveryClient.register(SERVICE, "host1", 2020);
+    discoveryClient.register(SERVICE, "host2", 2020);
+    discoveryClient.register(SERVICE, "host3", 2020);
+    final LoadBalancer testSubject = testSubject();
+    for (int i = 0; i < 100; i++)
+      testSubject.execute(transport, request(), new Request.Options());
+    Assert.assertTrue(requestsPerHost.toString(), requestsPerHost.get("host3") > 10);
+
+    latencyMillisPerHost.put("host3", 200L);
+    requestsPerHost.clear();
+    for (int i = 0; i < 300; i++)
+      testSubject.execute(transport, request(), new Request.Options());
+
+    Assert.assertEquals(requestsPerHost.toString(), 1, requestsPerHost.get("host3").intValue());
+    Assert.assertFalse(instance(testSubject, "host3").isEjected());
+  }
+
+  @Test
+  public void consistentlySlowInstanceIsTakenOutOfRotation() throws IOException {
+    discoveryClient.register(SERVICE, "host1", 2020);
+    discoveryClient.register(SERVICE, "host2", 2020);
+    discoveryClient.register(SERVICE, "host3", 2020);
+    final LoadBalancer testSubject = testSubject();
+    for (int i = 0; i < 100; i++)
+      testSubject.execute(transport, request(), new Request.Options());
+
+    latencyMillisPerHost.put("host3", 200L);
+    requestsPerHost.clear();
+    for (int i = 0; i < 1000 && !instance(testSubject, "host3").isEjected(); i++) {
+      //Lets the moving averages decay, so that the slow instance is chosen again.
+      now += TimeUnit.SECONDS.toNanos(60);
+      testSubject.execute(transport, request(), new Request.Options());
+    }
+
+    Assert.assertTrue(instance(testSubject, "host3").isEjected());
+    Assert.assertEquals(requestsPerHost.toString(),
+        LoadBalancer.MAX_CONSECUTIVE_SLOW_CALLS, requestsPerHost.get("host3").intValue());
+  }
+
+  @Test
+  public void failingInstanceIsTakenOutOfRotationForAWhile() throws IOException {
+    discoveryClient.register(SERVICE, "host1", 2020);
+    discoveryClient.register(SERVICE, "host2", 2020);
+    statusPerHost.put("host2", 503);
+
+    final LoadBalancer testSubject = testSubject();
+    for (int i = 0; i < 100; i++)
+      testSubject.execute(transport, request(), new Request.Options());
+    Assert.assertEquals(LoadBalancer.DEFAULT_MAX_CONSECUTIVE_FAILURES, requestsPerHost.get("host2").intValue());
+
+    statusPerHost.remove("host2");
+    now += TimeUnit.SECONDS.toNanos(11);
+    requestsPerHost.clear();
+    for (int i = 0; i < 100; i++)
+      testSubject.execute(transport, request(), new Request.Options());
+    Assert.assertTrue(requestsPerHost.toString(), requestsPerHost.getOrDefault("host2", 0) > 10);
+    Assert.assertFalse(instance(testSubject, "host2").isEjected());
+  }
+
+  @Test
+  public void ejectionsAreForgottenAfterAWhile() throws IOException {
+    discoveryClient.register(SERVICE, "host1", 2020);
+    discoveryClient.register(SERVICE, "host2", 2020);
+    statusPerHost.put("host2", 503);
+    final LoadBalancer testSubject = testSubject();
+    for (int i = 0; i < 100; i++)
+      testSubject.execute(transport, request(), new Request.Options());
+    now += TimeUnit.MILLISECONDS.toNanos(LoadBalancer.DEFAULT_BASE_EJECTION_MILLIS + 1000);
+    for (int i = 0; i < 100; i++)
+      testSubject.execute(transport, request(), new Request.Options());
+    Assert.assertEquals(2 * LoadBalancer.DEFAULT_MAX_CONSECUTIVE_FAILURES, requestsPerHost.get("host2").intValue());
+
+    now += TimeUnit.MILLISECONDS.toNanos(
+        LoadBalancer.EJECTION_MEMORY_MILLIS + 2 * LoadBalancer.DEFAULT_BASE_EJECTION_MILLIS);
+    for (int i = 0; i < 100; i++)
+      testSubject.execute(transport, request(), new Request.Options());
+    requestsPerHost.clear();
+    now += TimeUnit.MILLISECONDS.toNanos(LoadBalancer.DEFAULT_BASE_EJECTION_MILLIS + 1000);
+    for (int i = 0; i < 100; i++)
+      testSubject.execute(transport, request(), new Request.Options());
+
+    Assert.assertEquals(requestsPerHost.toString(),
+        LoadBalancer.DEFAULT_MAX_CONSECUTIVE_FAILURES, requestsPerHost.getOrDefault("host2", 0).intValue());
+  }
+
+  @Test
+  public void lastInstanceIsNeverTakenOut() throws IOException {
+    discoveryClient.register(SERVICE, "host1", 2020);
+    statusPerHost.put("host1", 500);
+
+    final LoadBalancer testSubject = testSubject();
+    for (int i = 0; i < 10; i++)
+      testSubject.execute(transport, request(), new Request.Options());
+
+    Assert.assertEquals(10, requestsPerHost.get("host1").intValue());
+    Assert.assertFalse(instance(testSubject, "host1").isEjected());
+  }
+
+  @Test
+  public void instancesAreRefreshed() throws IOException {
+    final ServiceInstance host1 = discoveryClient.register(SERVICE, "host1", 2020);
+    final LoadBalancer testSubject = testSubject();
+    testSubject.execute(transport, request(), new Request.Options());
+
+    discoveryClient.deregister(host1);
+    discoveryClient.register(SERVICE, "host2", 2020);
+    testSubject.execute(transport, request(), new Request.Options());
+    Assert.assertEquals(2, requestsPerHost.get("host1").intValue());
+
+    now += TimeUnit.MILLISECONDS.toNanos(LoadBalancer.DEFAULT_REFRESH_INTERVAL_MILLIS);
+    testSubject.execute(transport, request(), new Request.Options());
+    Assert.assertEquals(1, requestsPerHost.get("host2").intValue());
+  }
+
+  @Test
+  public void knownInstancesAreKeptWhileDiscoveryFails() throws IOException {
+    final ServiceInstance host1 = discoveryClient.register(SERVICE, "host1", 2020);
+    final LoadBalancer testSubject = testSubject();
+    testSubject.execute(transport, request(), new Request.Options());
+
+    discoveryClient.unavailable = true;
+    now += TimeUnit.MILLISECONDS.toNanos(LoadBalancer.DEFAULT_REFRESH_INTERVAL_MILLIS);
+    testSubject.execute(transport, request(), new Request.Options());
+    testSubject.execute(transport, request(), new Request.Options());
+    Assert.assertEquals(3, requestsPerHost.get("host1").intValue());
+    Assert.assertEquals(2, discoveryClient.lookups);
+
+    discoveryClient.unavailable = false;
+    discoveryClient.deregister(host1);
+    discoveryClient.register(SERVICE, "host2", 2020);
+    now += TimeUnit.MILLISECONDS.toNanos(LoadBalancer.DEFAULT_REFRESH_INTERVAL_MILLIS);
+    testSubject.execute(transport, request(), new Request.Options());
+    Assert.assertEquals(1, requestsPerHost.get("host2").intValue());
+    Assert.assertEquals(3, discoveryClient.lookups);
+  }
+
+  @Test(expected = IOException.class)
+  public void serviceWithoutInstancesFails() throws IOException {
+    testSubject().execute(transport, request(), new Request.Options());
+  }
+
+  @Test
+  public void apiFactoryBalancesLoadBalancedTargets() throws IOException {
+    System.setProperty("sun.net.httpserver.nodelay", "true");
+    final HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    server.createContext("/office/v1/offices", exchange -> {
+      final byte[] body = "\"headquarters\"".getBytes(StandardCharsets.UTF_8);
+      exchange.sendResponseHeaders(200, body.length);
+      try (final OutputStream outputStream = exchange.getResponseBody()) {
+        outputStream.write(body);
+      }
+    });
+    server.start();
+    final ApiFactory apiFactory = new ApiFactory(LoggerFactory.getLogger(LoadBalancerTest.class.getName()));
+    try {
+      discoveryClient.register(SERVICE, "localhost", server.getAddress().getPort());
+      apiFactory.setDiscoveryClient(discoveryClient);
+
+      final OfficeClient client = apiFactory.create(OfficeClient.class, "lb://office/office/v1");
+
+      Assert.assertEquals("headquarters", client.getOffices());
+    } finally {
+      apiFactory.close();
+      server.stop(0);
+    }
+  }
+
+  @Test
+  public void serviceIdIsParsedFromTarget() {
+    Assert.assertEquals("office", LoadBalancer.serviceIdOf("lb://office/office/v1"));
+    Assert.assertEquals("office", LoadBalancer.serviceIdOf("LB://office"));
+    Assert.assertNull(LoadBalancer.serviceIdOf("http://office/office/v1"));
+  }
+
+  private LoadBalancer testSubject() {
+    return new LoadBalancer(LoggerFactory.getLogger(LoadBalancerTest.class.getName()),
+        SERVICE, discoveryClient, () -> now,
+        LoadBalancer.DEFAULT_REFRESH_INTERVAL_MILLIS, LoadBalancer.DEFAULT_BASE_EJECTION_MILLIS);
+  }
+
+  private static LoadBalancer.Instance instance(final LoadBalancer loadBalancer, final String host) {
+    return loadBalancer.getInstances().stream()
+        .filter(instance -> instance.getBaseUrl().contains(host))
+        .findFirst()
+        .orElseThrow(IllegalStateException::new);
+  }
+
+  private static Request request() {
+    return Request.create("GET", "lb://office/office/v1/offices",
+        Collections.emptyMap(), null, StandardCharsets.UTF_8);
+  }
+
+  private static class FlakyDiscoveryClient extends InMemoryDiscoveryClient {
+    private boolean unavailable;
+    private int lookups;
+
+    @Override
+    public List<ServiceInstance> getInstances(final String serviceId) {
+      lookups++;
+      if (unavailable)
+        throw new IllegalStateException("Registry unreachable.");
+      return super.getInstances(serviceId);
+    }
+  }
+
+  public interface OfficeClient {
+    @RequestMapping(value = "/offices", method = RequestMethod.GET)
+    String getOffices();
+  }
+}
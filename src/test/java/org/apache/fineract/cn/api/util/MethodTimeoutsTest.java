@@ -0,0 +1,122 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.api.util;
+
+import feign.Client;
+import feign.Feign;
+import feign.InvocationHandlerFactory;
+import feign.Request;
+import feign.RequestLine;
+import feign.Response;
+import org.apache.fineract.cn.api.annotation.Timeouts;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+
+public class MethodTimeoutsTest {
+  private static final String TARGET = "http://igle.pop.org";
+  private static final Request.Options CLIENT_OPTIONS = new Request.Options(10 * 1000, 60 * 1000);
+
+  private Request.Options sent;
+  private Deadline deadline;
+
+  @Test
+  public void undeclaredMethodKeepsClientTimeouts() {
+    client(TimeoutOverrides.NONE).getThing();
+
+    Assert.assertSame(CLIENT_OPTIONS, sent);
+    Assert.assertNull(deadline);
+  }
+
+  @Test
+  public void declaredTimeoutsReplaceClientTimeouts() {
+    client(TimeoutOverrides.NONE).getReport();
+
+    Assert.assertEquals(10 * 1000, sent.connectTimeoutMillis());
+    Assert.assertEquals(120 * 1000, sent.readTimeoutMillis());
+    Assert.assertNull(deadline);
+  }
+
+  @Test
+  public void totalTimeoutSetsDeadlineForCall() {
+    client(TimeoutOverrides.NONE).lookUpThing();
+
+    Assert.assertEquals(500, sent.connectTimeoutMillis());
+    Assert.assertEquals(1000, sent.readTimeoutMillis());
+    Assert.assertNotNull(deadline);
+    Assert.assertTrue(deadline.remainingMillis() <= 2000);
+    Assert.assertFalse(DeadlineHolder.getDeadline().isPresent());
+  }
+
+  @Test
+  public void overridesTakePrecedence() {
+    final TimeoutOverrides overrides = TimeoutOverrides.builder()
+        .target(TARGET, 3000, -1, -1)
+        .method(TARGET, "ThingClient#lookUpThing()", -1, 4000, -1)
+        .build();
+
+    client(overrides).lookUpThing();
+    Assert.assertEquals(3000, sent.connectTimeoutMillis());
+    Assert.assertEquals(4000, sent.readTimeoutMillis());
+
+    client(overrides).getThing();
+    Assert.assertEquals(3000, sent.connectTimeoutMillis());
+    Assert.assertEquals(60 * 1000, sent.readTimeoutMillis());
+  }
+
+  @Test
+  public void overridesForOtherTargetsAreIgnored() {
+    client(TimeoutOverrides.builder().target("http://other.pop.org", 3000, 3000, 3000).build()).getThing();
+
+    Assert.assertSame(CLIENT_OPTIONS, sent);
+  }
+
+  private ThingClient client(final TimeoutOverrides overrides) {
+    final Client transport = (request, options) -> {
+      sent = options;
+      deadline = DeadlineHolder.getDeadline().orElse(null);
+      return Response.builder()
+          .status(200)
+          .headers(Collections.emptyMap())
+          .body("ok", StandardCharsets.UTF_8)
+          .build();
+    };
+    return Feign.builder()
+        .options(CLIENT_OPTIONS)
+        .client(MethodTimeouts.around(transport))
+        .invocationHandlerFactory(MethodTimeouts.instrument(CLIENT_OPTIONS, overrides,
+            new InvocationHandlerFactory.Default()))
+        .target(ThingClient.class, TARGET);
+  }
+
+  public interface ThingClient {
+    @RequestLine("GET /thing")
+    String getThing();
+
+    @RequestLine("GET /report")
+    @Timeouts(readMillis = 120 * 1000)
+    String getReport();
+
+    @RequestLine("GET /lookup")
+    @Timeouts(connectMillis = 500, readMillis = 1000, totalMillis = 2000)
+    String lookUpThing();
+  }
+}
@@ -0,0 +1,207 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.api.util;
+
+import com.sun.net.httpserver.HttpServer;
+import feign.Client;
+import feign.InvocationHandlerFactory;
+import feign.Request;
+import feign.Response;
+import feign.Target;
+import feign.Util;
+import org.apache.fineract.cn.api.annotation.CacheNotFound;
+import org.apache.fineract.cn.api.context.AutoUserContext;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+
+import java.io.ByteArrayInputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class NotFoundCacheTest {
+  private final AtomicInteger requests = new AtomicInteger();
+  private long now = 0;
+
+  private HttpServer server;
+  private String target;
+  private ApiFactory apiFactory;
+
+  @Before
+  public void setUp() throws Exception {
+    server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    server.createContext("/app/v1/things", exchange -> {
+      requests.incrementAndGet();
+      final boolean get = exchange.getRequestMethod().equals("GET");
+      final byte[] body = (get ? "Thing not found." : "").getBytes(StandardCharsets.UTF_8);
+      exchange.sendResponseHeaders(get ? 404 : 202, body.length == 0 ? -1 : body.length);
+      try (final OutputStream outputStream = exchange.getResponseBody()) {
+        outputStream.write(body);
+      }
+    });
+    server.start();
+    target = "http://localhost:" + server.getAddress().getPort() + "/app/v1";
+    apiFactory = new ApiFactory(LoggerFactory.getLogger(NotFoundCacheTest.class.getName()));
+  }
+
+  @After
+  public void tearDown() {
+    apiFactory.close();
+    server.stop(0);
+  }
+
+  @Test
+  public void notFoundIsRemembered() {
+    final ThingClient client = apiFactory.createShared(ThingClient.class, target);
+
+    for (int i = 0; i < 3; i++) {
+      try {
+        client.findThing("a");
+        Assert.fail("Expected a NotFoundException.");
+      } catch (final NotFoundException e) {
+        Assert.assertEquals("Thing not found.", e.getMessage());
+      }
+    }
+
+    Assert.assertEquals(1, requests.get());
+  }
+
+  @Test
+  public void unmarkedMethodsAreNotCached() {
+    final ThingClient client = apiFactory.createShared(ThingClient.class, target);
+
+    for (int i = 0; i < 2; i++) {
+      try {
+        client.getThing("a");
+        Assert.fail("Expected a NotFoundException.");
+      } catch (final NotFoundException ignored) {
+      }
+    }
+
+    Assert.assertEquals(2, requests.get());
+  }
+
+  @Test
+  public void notFoundIsRememberedPerUser() {
+    final ThingClient client = apiFactory.createShared(ThingClient.class, target);
+
+    for (final String user : new String[]{"user1", "user2"}) {
+      try (final AutoUserContext ignored = new AutoUserContext(user, "token")) {
+        client.findThing("a");
+        Assert.fail("Expected a NotFoundException.");
+      } catch (final NotFoundException ignored) {
+      }
+    }
+
+    Assert.assertEquals(2, requests.get());
+  }
+
+  @Test
+  public void creationForgetsNotFound() {
+    final ThingClient client = apiFactory.createShared(ThingClient.class, target);
+    try {
+      client.findThing("a");
+      Assert.fail("Expected a NotFoundException.");
+    } catch (final NotFoundException ignored) {
+    }
+
+    client.createThing();
+
+    try {
+      client.findThing("a");
+      Assert.fail("Expected a NotFoundException.");
+    } catch (final NotFoundException ignored) {
+    }
+    Assert.assertEquals(3, requests.get());
+  }
+
+  @Test
+  public void entriesExpire() throws Throwable {
+    final NotFoundCache testSubject = new NotFoundCache(NotFoundCache.DEFAULT_MAXIMUM_SIZE, () -> now);
+    final Request request = Request.create("GET", target + "/things/a",
+        Collections.emptyMap(), null, StandardCharsets.UTF_8);
+    final Client transport = (x, options) -> {
+      requests.incrementAndGet();
+      return Response.builder().status(404).headers(Collections.emptyMap()).build();
+    };
+    final Method method = ThingClient.class.getMethod("findThing", String.class);
+    final AtomicReference<Map<Method, InvocationHandlerFactory.MethodHandler>> instrumented = new AtomicReference<>();
+    testSubject.instrument((x, dispatch) -> {
+      instrumented.set(dispatch);
+      return null;
+    }).create(new Target.HardCodedTarget<>(ThingClient.class, target), Collections.singletonMap(method,
+        args -> testSubject.execute(transport, request, new Request.Options())));
+    final InvocationHandlerFactory.MethodHandler handler = instrumented.get().get(method);
+
+    handler.invoke(new Object[0]);
+    handler.invoke(new Object[0]);
+    Assert.assertEquals(1, requests.get());
+
+    now += TimeUnit.MILLISECONDS.toNanos(1000);
+    handler.invoke(new Object[0]);
+    Assert.assertEquals(2, requests.get());
+  }
+
+  @Test
+  public void largeBodyOfUnknownLengthIsPassedOnWithoutCaching() throws Throwable {
+    final NotFoundCache testSubject = new NotFoundCache(NotFoundCache.DEFAULT_MAXIMUM_SIZE, () -> now);
+    final Request request = Request.create("GET", target + "/things/a",
+        Collections.emptyMap(), null, StandardCharsets.UTF_8);
+    final byte[] body = new byte[NotFoundCache.MAX_BODY_BYTES + 1];
+    final Client transport = (x, options) -> Response.builder().status(404).headers(Collections.emptyMap())
+        .body(new ByteArrayInputStream(body), null)
+        .build();
+    final Method method = ThingClient.class.getMethod("findThing", String.class);
+    final AtomicReference<Map<Method, InvocationHandlerFactory.MethodHandler>> instrumented = new AtomicReference<>();
+    testSubject.instrument((x, dispatch) -> {
+      instrumented.set(dispatch);
+      return null;
+    }).create(new Target.HardCodedTarget<>(ThingClient.class, target), Collections.singletonMap(method,
+        args -> testSubject.execute(transport, request, new Request.Options())));
+
+    try (final Response response = (Response) instrumented.get().get(method).invoke(new Object[0])) {
+      Assert.assertArrayEquals(body, Util.toByteArray(response.body().asInputStream()));
+    }
+    Assert.assertEquals(0, testSubject.size());
+  }
+
+  public interface ThingClient {
+    @RequestMapping(value = "/things/{identifier}", method = RequestMethod.GET)
+    @CacheNotFound
+    String findThing(@PathVariable("identifier") final String identifier);
+
+    @RequestMapping(value = "/things/{identifier}", method = RequestMethod.GET)
+    String getThing(@PathVariable("identifier") final String identifier);
+
+    @RequestMapping(value = "/things", method = RequestMethod.POST)
+    void createThing();
+  }
+}
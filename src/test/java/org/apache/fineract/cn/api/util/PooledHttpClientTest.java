@@ -0,0 +1,135 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.api.util;
+
+import com.sun.net.httpserver.HttpServer;
+import feign.Request;
+import feign.RequestTemplate;
+import feign.Response;
+import feign.Util;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+public class PooledHttpClientTest {
+  private HttpServer server;
+  private String target;
+  private final Set<Integer> remotePorts = ConcurrentHashMap.newKeySet();
+  private final List<String> receivedCookies = new CopyOnWriteArrayList<>();
+  private final List<String> receivedBodies = new CopyOnWriteArrayList<>();
+  private PooledTransportFactory transportFactory;
+
+  @Before
+  public void startServer() throws IOException {
+    server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    server.createContext("/app/v1/", exchange -> {
+      remotePorts.add(exchange.getRemoteAddress().getPort());
+      final List<String> cookies = exchange.getRequestHeaders().get("Cookie");
+      if (cookies != null)
+        receivedCookies.addAll(cookies);
+      receivedBodies.add(new String(Util.toByteArray(exchange.getRequestBody()), StandardCharsets.UTF_8));
+      exchange.getResponseHeaders().add("Set-Cookie", "x=y;Path=/app/v1");
+      final byte[] body = "blah".getBytes(StandardCharsets.UTF_8);
+      exchange.sendResponseHeaders(200, body.length);
+      try (final OutputStream outputStream = exchange.getResponseBody()) {
+        outputStream.write(body);
+      }
+    });
+    server.start();
+    target = "http://localhost:" + server.getAddress().getPort() + "/app/v1";
+    transportFactory = new PooledTransportFactory();
+  }
+
+  @After
+  public void stopServer() {
+    transportFactory.close();
+    server.stop(0);
+  }
+
+  @Test
+  public void connectionsAreReused() throws IOException {
+    final feign.Client testSubject = transportFactory.create(target, ClientOptions.DEFAULT);
+
+    for (int i = 0; i < 5; i++) {
+      try (final Response response = testSubject.execute(request("GET", null), new Request.Options())) {
+        Assert.assertEquals(200, response.status());
+        Assert.assertEquals("blah", Util.toString(response.body().asReader()));
+      }
+    }
+
+    Assert.assertEquals(1, remotePorts.size());
+  }
+
+  @Test
+  public void poolsAreSharedPerTarget() {
+    Assert.assertSame(
+        transportFactory.create(target, ClientOptions.DEFAULT),
+        transportFactory.create(target, ClientOptions.DEFAULT));
+    Assert.assertNotSame(
+        transportFactory.create(target, ClientOptions.DEFAULT),
+        transportFactory.create(target, ClientOptions.builder().maxConnectionsPerRoute(1).build()));
+  }
+
+  @Test
+  public void requestBodyIsSent() throws IOException {
+    final feign.Client testSubject = transportFactory.create(target, ClientOptions.DEFAULT);
+
+    try (final Response ignored = testSubject.execute(
+        request("POST", "{}".getBytes(StandardCharsets.UTF_8)), new Request.Options())) {
+      Assert.assertEquals(Collections.singletonList("{}"), receivedBodies);
+    }
+  }
+
+  @Test
+  public void cookiesAreInterceptedOnTopOfPool() throws IOException {
+    final CookieInterceptingClient testSubject =
+        new CookieInterceptingClient(target, transportFactory.create(target, ClientOptions.DEFAULT));
+
+    try (final Response ignored = testSubject.execute(request("GET", null), new Request.Options())) {
+      Assert.assertTrue(receivedCookies.isEmpty());
+    }
+
+    final RequestTemplate requestTemplate = new RequestTemplate();
+    requestTemplate.append("/request");
+    testSubject.getCookieInterceptor().apply(requestTemplate);
+
+    Assert.assertEquals(Collections.singletonList("x=y"), requestTemplate.headers().get("Cookie"));
+  }
+
+  private Request request(final String method, final byte[] body) {
+    final Map<String, Collection<String>> headers = new HashMap<>();
+    if (body != null)
+      headers.put("Content-Length", Collections.singletonList(Integer.toString(body.length)));
+    return Request.create(method, target + "/request", headers, body, StandardCharsets.UTF_8);
+  }
+}
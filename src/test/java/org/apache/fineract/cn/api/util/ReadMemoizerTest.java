@@ -0,0 +1,152 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.api.util;
+
+import com.sun.net.httpserver.HttpServer;
+import org.apache.fineract.cn.api.context.AutoRequestScope;
+import org.apache.fineract.cn.api.context.AutoUserContext;
+import org.apache.fineract.cn.api.context.ContextPropagation;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ReadMemoizerTest {
+  private final AtomicInteger requests = new AtomicInteger();
+
+  private HttpServer server;
+  private String target;
+  private ApiFactory apiFactory;
+
+  @Before
+  public void setUp() throws Exception {
+    server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    server.createContext("/app/v1/things/", exchange -> {
+      requests.incrementAndGet();
+      final byte[] body = ("{\"identifier\":\"thing" + requests.get() + "\"}").getBytes(StandardCharsets.UTF_8);
+      exchange.sendResponseHeaders(200, body.length);
+      try (final OutputStream outputStream = exchange.getResponseBody()) {
+        outputStream.write(body);
+      }
+    });
+    server.start();
+    target = "http://localhost:" + server.getAddress().getPort() + "/app/v1";
+    apiFactory = new ApiFactory(LoggerFactory.getLogger(ReadMemoizerTest.class.getName()));
+  }
+
+  @After
+  public void tearDown() {
+    apiFactory.close();
+    server.stop(0);
+  }
+
+  @Test
+  public void readsAreNotMemoizedOutsideOfScope() {
+    final ThingClient client = apiFactory.createShared(ThingClient.class, target);
+
+    client.getThing("a");
+    client.getThing("a");
+
+    Assert.assertEquals(2, requests.get());
+  }
+
+  @Test
+  public void identicalReadsWithinScopeAreMadeOnce() {
+    final ThingClient client = apiFactory.createShared(ThingClient.class, target);
+
+    try (final AutoRequestScope ignored = new AutoRequestScope()) {
+      final Thing first = client.getThing("a");
+      Assert.assertSame(first, client.getThing("a"));
+      Assert.assertSame(first, apiFactory.create(ThingClient.class, target).getThing("a"));
+      Assert.assertNotSame(first, client.getThing("b"));
+    }
+    Assert.assertEquals(2, requests.get());
+
+    try (final AutoRequestScope ignored = new AutoRequestScope()) {
+      client.getThing("a");
+    }
+    Assert.assertEquals("Reads don't outlive their scope.", 3, requests.get());
+  }
+
+  @Test
+  public void readsAreKeptApartPerUser() {
+    final ThingClient client = apiFactory.createShared(ThingClient.class, target);
+
+    try (final AutoRequestScope ignored = new AutoRequestScope()) {
+      try (final AutoUserContext ignored2 = new AutoUserContext("user1", "token1")) {
+        client.getThing("a");
+      }
+      try (final AutoUserContext ignored2 = new AutoUserContext("user2", "token2")) {
+        client.getThing("a");
+      }
+    }
+
+    Assert.assertEquals(2, requests.get());
+  }
+
+  @Test
+  public void writeForgetsReadsOfTarget() {
+    final ThingClient client = apiFactory.createShared(ThingClient.class, target);
+
+    try (final AutoRequestScope ignored = new AutoRequestScope()) {
+      client.getThing("a");
+      client.changeThing("a");
+      client.getThing("a");
+    }
+
+    Assert.assertEquals(3, requests.get());
+  }
+
+  @Test
+  public void scopeIsPropagatedToOtherThreads() throws Exception {
+    final ThingClient client = apiFactory.createShared(ThingClient.class, target);
+    final ExecutorService executor = Executors.newSingleThreadExecutor();
+    try (final AutoRequestScope ignored = new AutoRequestScope()) {
+      final Thing first = client.getThing("a");
+      Assert.assertSame(first, executor.submit(ContextPropagation.callable(() -> client.getThing("a"))).get());
+    } finally {
+      executor.shutdownNow();
+    }
+
+    Assert.assertEquals(1, requests.get());
+  }
+
+  public static class Thing {
+    String identifier;
+  }
+
+  public interface ThingClient {
+    @RequestMapping(value = "/things/{identifier}", method = RequestMethod.GET)
+    Thing getThing(@PathVariable("identifier") final String identifier);
+
+    @RequestMapping(value = "/things/{identifier}", method = RequestMethod.PUT)
+    void changeThing(@PathVariable("identifier") final String identifier);
+  }
+}
@@ -0,0 +1,287 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.api.util;
+
+import feign.Client;
+import feign.Request;
+import feign.Response;
+import feign.Util;
+import org.apache.fineract.cn.api.context.AutoDeadline;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class RequestCoalescerTest {
+  private static final String TEST_URL = "http://igle.pop.org/app/v1/things/1";
+  private static final int CALLERS = 8;
+
+  private final ExecutorService callers = Executors.newFixedThreadPool(CALLERS);
+  private final AtomicInteger transportCalls = new AtomicInteger();
+  private final CountDownLatch release = new CountDownLatch(1);
+
+  @After
+  public void stopCallers() {
+    callers.shutdownNow();
+  }
+
+  @Test
+  public void concurrentIdenticalRequestsShareOneCall() throws Exception {
+    final RequestCoalescer testSubject = new RequestCoalescer();
+    final Client client = testSubject.around(blockingTransport(null));
+
+    final List<Future<String>> results = new ArrayList<>();
+    for (int i = 0; i < CALLERS; i++)
+      results.add(callers.submit(() -> readBody(client.execute(request("GET", "user1"), new Request.Options()))));
+
+    awaitWaiters(testSubject);
+    release.countDown();
+
+    for (final Future<String> result : results)
+      Assert.assertEquals("blah", result.get(10, TimeUnit.SECONDS));
+    Assert.assertEquals(1, transportCalls.get());
+  }
+
+  @Test
+  public void requestsOfDifferentUsersAreNotShared() throws Exception {
+    final RequestCoalescer testSubject = new RequestCoalescer();
+    final Client client = testSubject.around(blockingTransport(null));
+
+    final Future<String> first = callers.submit(() -> readBody(client.execute(request("GET", "user1"), new Request.Options())));
+    final Future<String> second = callers.submit(() -> readBody(client.execute(request("GET", "user2"), new Request.Options())));
+
+    awaitInFlight(testSubject, 2);
+    release.countDown();
+
+    Assert.assertEquals("blah", first.get(10, TimeUnit.SECONDS));
+    Assert.assertEquals("blah", second.get(10, TimeUnit.SECONDS));
+    Assert.assertEquals(2, transportCalls.get());
+  }
+
+  @Test
+  public void nonIdempotentRequestsAreNotShared() throws Exception {
+    final RequestCoalescer testSubject = new RequestCoalescer();
+    final Client client = testSubject.around(blockingTransport(null));
+    release.countDown();
+
+    readBody(client.execute(request("POST", "user1"), new Request.Options()));
+    readBody(client.execute(request("POST", "user1"), new Request.Options()));
+
+    Assert.assertEquals(2, transportCalls.get());
+    Assert.assertEquals(0, testSubject.inFlightCount());
+  }
+
+  @Test
+  public void failureOfSharedCallIsReportedToEachCaller() throws Exception {
+    final RequestCoalescer testSubject = new RequestCoalescer();
+    final IOException failure = new IOException("Connection reset");
+    final Client client = testSubject.around(blockingTransport(failure));
+
+    final List<Future<String>> results = new ArrayList<>();
+    for (int i = 0; i < CALLERS; i++)
+      results.add(callers.submit(() -> readBody(client.execute(request("GET", "user1"), new Request.Options()))));
+
+    awaitWaiters(testSubject);
+    release.countDown();
+
+    for (final Future<String> result : results) {
+      try {
+        result.get(10, TimeUnit.SECONDS);
+        Assert.fail("Expected the shared call to fail.");
+      } catch (final ExecutionException e) {
+        Assert.assertTrue(e.getCause() == failure || e.getCause().getCause() == failure);
+      }
+    }
+  }
+
+  @Test
+  public void runtimeFailureOfSharedCallIsRethrownAsItIs() throws Exception {
+    final RequestCoalescer testSubject = new RequestCoalescer();
+    final DeadlineExceededException failure = new DeadlineExceededException("GET", TEST_URL);
+    final Client client = testSubject.around(blockingTransport(failure));
+
+    final List<Future<String>> results = new ArrayList<>();
+    for (int i = 0; i < CALLERS; i++)
+      results.add(callers.submit(() -> readBody(client.execute(request("GET", "user1"), new Request.Options()))));
+
+    awaitWaiters(testSubject);
+    release.countDown();
+
+    for (final Future<String> result : results) {
+      try {
+        result.get(10, TimeUnit.SECONDS);
+        Assert.fail("Expected the shared call to fail.");
+      } catch (final ExecutionException e) {
+        Assert.assertSame(failure, e.getCause());
+      }
+    }
+  }
+
+  @Test
+  public void waitingCallerGivesUpAfterItsReadTimeout() throws Exception {
+    final RequestCoalescer testSubject = new RequestCoalescer();
+    final Client client = testSubject.around(blockingTransport(null));
+
+    final Future<String> leader = callers.submit(() -> readBody(client.execute(request("GET", "user1"), new Request.Options())));
+    awaitInFlight(testSubject, 1);
+    try {
+      client.execute(request("GET", "user1"), new Request.Options(10, 50));
+      Assert.fail("Expected the waiting caller to time out.");
+    } catch (final SocketTimeoutException expected) {
+    } finally {
+      release.countDown();
+    }
+
+    Assert.assertEquals("blah", leader.get(10, TimeUnit.SECONDS));
+    Assert.assertEquals(1, transportCalls.get());
+  }
+
+  @Test
+  public void waitingCallerGivesUpAtItsDeadline() throws Exception {
+    final RequestCoalescer testSubject = new RequestCoalescer();
+    final Client client = testSubject.around(blockingTransport(null));
+
+    final Future<String> leader = callers.submit(() -> readBody(client.execute(request("GET", "user1"), new Request.Options())));
+    awaitInFlight(testSubject, 1);
+    try (final AutoDeadline ignored = new AutoDeadline(50, TimeUnit.MILLISECONDS)) {
+      client.execute(request("GET", "user1"), new Request.Options());
+      Assert.fail("Expected the deadline of the waiting caller to be exceeded.");
+    } catch (final DeadlineExceededException expected) {
+    } finally {
+      release.countDown();
+    }
+
+    Assert.assertEquals("blah", leader.get(10, TimeUnit.SECONDS));
+  }
+
+  @Test
+  public void deadlineOfSharedCallDoesNotFailWaitingCallers() throws Exception {
+    final RequestCoalescer testSubject = new RequestCoalescer();
+    final CountDownLatch deadlineExceeded = new CountDownLatch(1);
+    final Client client = testSubject.around((request, options) -> {
+      if (transportCalls.incrementAndGet() == 1) {
+        await(deadlineExceeded);
+        throw new DeadlineExceededException(request.method(), request.url());
+      }
+      return Response.builder()
+          .status(200)
+          .headers(Collections.emptyMap())
+          .body("blah", StandardCharsets.UTF_8)
+          .build();
+    });
+
+    final Future<String> leader = callers.submit(() -> readBody(client.execute(request("GET", "user1"), new Request.Options())));
+    awaitInFlight(testSubject, 1);
+    final Future<String> follower = callers.submit(() -> readBody(client.execute(request("GET", "user1"), new Request.Options())));
+    //Gives the follower time to join the call which is in flight.
+    Thread.sleep(100);
+    deadlineExceeded.countDown();
+
+    Assert.assertEquals("blah", follower.get(10, TimeUnit.SECONDS));
+    try {
+      leader.get(10, TimeUnit.SECONDS);
+      Assert.fail("Expected the deadline of the first caller to be exceeded.");
+    } catch (final ExecutionException e) {
+      Assert.assertTrue(e.getCause() instanceof DeadlineExceededException);
+    }
+    Assert.assertEquals(2, transportCalls.get());
+  }
+
+  @Test
+  public void responseOfUnsharedCallIsNotBuffered() throws Exception {
+    final RequestCoalescer testSubject = new RequestCoalescer();
+    final Response response = Response.builder()
+        .status(200)
+        .headers(Collections.emptyMap())
+        .body("blah", StandardCharsets.UTF_8)
+        .build();
+
+    Assert.assertSame(response, testSubject.execute((request, options) -> response,
+        request("GET", "user1"), new Request.Options()));
+    Assert.assertEquals(0, testSubject.inFlightCount());
+  }
+
+  private void awaitWaiters(final RequestCoalescer testSubject) throws InterruptedException {
+    awaitInFlight(testSubject, 1);
+    //Give the other callers time to join the call which is in flight.
+    Thread.sleep(100);
+  }
+
+  private static void awaitInFlight(final RequestCoalescer testSubject, final int count) throws InterruptedException {
+    final long deadline = System.currentTimeMillis() + 10000;
+    while (testSubject.inFlightCount() < count && System.currentTimeMillis() < deadline)
+      Thread.sleep(5);
+  }
+
+  private static void await(final CountDownLatch latch) {
+    try {
+      latch.await(10, TimeUnit.SECONDS);
+    } catch (final InterruptedException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private Client blockingTransport(final Exception failure) {
+    return (request, options) -> {
+      transportCalls.incrementAndGet();
+      try {
+        release.await();
+      } catch (final InterruptedException e) {
+        throw new IllegalStateException(e);
+      }
+      if (failure instanceof IOException)
+        throw (IOException) failure;
+      if (failure != null)
+        throw (RuntimeException) failure;
+      return Response.builder()
+          .status(200)
+          .headers(Collections.emptyMap())
+          .body("blah", StandardCharsets.UTF_8)
+          .build();
+    };
+  }
+
+  private static Request request(final String method, final String user) {
+    final Map<String, Collection<String>> headers = new HashMap<>();
+    headers.put(ApiConstants.USER_HEADER, Collections.singletonList(user));
+    return Request.create(method, TEST_URL, headers, null, StandardCharsets.UTF_8);
+  }
+
+  private static String readBody(final Response response) throws IOException {
+    try (final Response ignored = response) {
+      return Util.toString(response.body().asReader());
+    }
+  }
+}
@@ -0,0 +1,241 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.api.util;
+
+import feign.Client;
+import feign.InvocationHandlerFactory;
+import feign.Request;
+import feign.Response;
+import feign.Target;
+import org.apache.fineract.cn.api.annotation.Hedged;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class RequestHedgerTest {
+  private final RequestHedger testSubject = new RequestHedger();
+  private final AtomicInteger sent = new AtomicInteger();
+
+  @After
+  public void tearDown() {
+    testSubject.close();
+  }
+
+  @Test
+  public void hedgeWinsWhenFirstRequestIsSlow() throws Throwable {
+    final CountDownLatch firstReleased = new CountDownLatch(1);
+    final CountDownLatch firstClosed = new CountDownLatch(1);
+    final Client transport = (request, options) -> {
+      if (sent.incrementAndGet() == 1) {
+        await(firstReleased);
+        return response(request, "first", firstClosed);
+      }
+      return response(request, "second", null);
+    };
+
+    final long start = System.nanoTime();
+    final Response response = call("getThing", transport, "GET");
+
+    Assert.assertEquals("second", Util.toString(response));
+    Assert.assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+    Assert.assertEquals(2, sent.get());
+    firstReleased.countDown();
+    Assert.assertTrue("The losing response should be closed.", firstClosed.await(5, TimeUnit.SECONDS));
+  }
+
+  @Test
+  public void methodIsMatchedIgnoringCase() throws Throwable {
+    final CountDownLatch firstReleased = new CountDownLatch(1);
+    final Client transport = (request, options) -> {
+      if (sent.incrementAndGet() == 1)
+        await(firstReleased);
+      return response(request, "thing", null);
+    };
+
+    try {
+      Assert.assertEquals("thing", Util.toString(call("getThing", transport, "get")));
+      Assert.assertEquals(2, sent.get());
+    } finally {
+      firstReleased.countDown();
+    }
+  }
+
+  @Test
+  public void fastRequestIsNotHedged() throws Throwable {
+    final Client transport = (request, options) -> {
+      sent.incrementAndGet();
+      return response(request, "first", null);
+    };
+
+    Assert.assertEquals("first", Util.toString(call("getThing", transport, "GET")));
+    Assert.assertEquals(1, sent.get());
+  }
+
+  @Test
+  public void hedgesAreCappedByBudget() throws Throwable {
+    final AtomicInteger hedges = new AtomicInteger();
+    final Client transport = (request, options) -> {
+      if (sent.incrementAndGet() % 2 == 1) {
+        try {
+          Thread.sleep(20);
+        } catch (final InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      } else {
+        hedges.incrementAndGet();
+        sent.incrementAndGet();
+      }
+      return response(request, "thing", null);
+    };
+
+    for (int i = 0; i < 100; i++) {
+      sent.set(0);
+      call("getCappedThing", transport, "GET");
+    }
+
+    Assert.assertTrue(hedges.toString(), hedges.get() > 0 && hedges.get() <= RequestHedger.MAX_BURST + 10);
+  }
+
+  @Test
+  public void failureOfFirstRequestWaitsForHedge() throws Throwable {
+    final CountDownLatch hedgeSent = new CountDownLatch(1);
+    final Client transport = (request, options) -> {
+      if (sent.incrementAndGet() == 1) {
+        await(hedgeSent);
+        throw new IOException("connection reset");
+      }
+      hedgeSent.countDown();
+      return response(request, "second", null);
+    };
+
+    Assert.assertEquals("second", Util.toString(call("getThing", transport, "GET")));
+  }
+
+  @Test(expected = IOException.class)
+  public void failureOfAllRequestsIsThrown() throws Throwable {
+    call("getThing", (request, options) -> {
+      sent.incrementAndGet();
+      throw new IOException("connection refused");
+    }, "GET");
+  }
+
+  @Test
+  public void postIsNotHedged() throws Throwable {
+    final Client transport = (request, options) -> {
+      sent.incrementAndGet();
+      Assert.assertEquals(Thread.currentThread().getName(), "main-caller");
+      return response(request, "thing", null);
+    };
+
+    final AtomicReference<Throwable> failure = new AtomicReference<>();
+    final Thread caller = new Thread(() -> {
+      try {
+        call("getThing", transport, "POST");
+      } catch (final Throwable e) {
+        failure.set(e);
+      }
+    }, "main-caller");
+    caller.start();
+    caller.join();
+
+    Assert.assertNull(failure.get());
+    Assert.assertEquals(1, sent.get());
+  }
+
+  @Test
+  public void observedDelayNeedsObservations() throws Throwable {
+    final Client transport = (request, options) -> {
+      sent.incrementAndGet();
+      return response(request, "thing", null);
+    };
+
+    for (int i = 0; i < RequestHedger.MIN_OBSERVATIONS; i++)
+      call("getObservedThing", transport, "GET");
+
+    Assert.assertEquals(RequestHedger.MIN_OBSERVATIONS, sent.get());
+  }
+
+  private Response call(final String methodName, final Client transport, final String httpMethod) throws Throwable {
+    final Method method = ThingClient.class.getMethod(methodName);
+    final Request request = Request.create(httpMethod, "http://igle.pop.org/app/v1/things",
+        Collections.emptyMap(), null, StandardCharsets.UTF_8);
+    final Map<Method, InvocationHandlerFactory.MethodHandler> dispatch = Collections.singletonMap(method,
+        args -> testSubject.execute(transport, request, new Request.Options()));
+
+    final AtomicReference<Map<Method, InvocationHandlerFactory.MethodHandler>> instrumented = new AtomicReference<>();
+    testSubject.instrument((target, handlers) -> {
+      instrumented.set(handlers);
+      return null;
+    }).create(new Target.HardCodedTarget<>(ThingClient.class, "http://igle.pop.org/app/v1"), dispatch);
+
+    return (Response) instrumented.get().get(method).invoke(new Object[0]);
+  }
+
+  private static Response response(final Request request, final String body, final CountDownLatch closed) {
+    final byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+    return Response.builder()
+        .status(200)
+        .headers(Collections.emptyMap())
+        .request(request)
+        .body(new ByteArrayInputStream(bytes) {
+          @Override
+          public void close() throws IOException {
+            super.close();
+            if (closed != null)
+              closed.countDown();
+          }
+        }, bytes.length)
+        .build();
+  }
+
+  private static void await(final CountDownLatch latch) {
+    try {
+      latch.await(10, TimeUnit.SECONDS);
+    } catch (final InterruptedException ignored) {
+    }
+  }
+
+  private static final class Util {
+    private static String toString(final Response response) throws IOException {
+      return feign.Util.toString(response.body().asReader());
+    }
+  }
+
+  public interface ThingClient {
+    @Hedged(delayMillis = 50)
+    String getThing();
+
+    @Hedged(delayMillis = 1, maxExtraPercent = 10)
+    String getCappedThing();
+
+    @Hedged
+    String getObservedThing();
+  }
+}
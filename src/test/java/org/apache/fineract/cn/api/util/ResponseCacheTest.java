@@ -0,0 +1,212 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.api.util;
+
+import feign.Client;
+import feign.Request;
+import feign.Response;
+import feign.Util;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.apache.fineract.cn.lang.config.TenantHeaderFilter.TENANT_HEADER;
+
+public class ResponseCacheTest {
+  private static final String TEST_URL = "http://igle.pop.org/app/v1/currencies";
+
+  private final List<Request> sent = new ArrayList<>();
+  private final List<Response> responses = new ArrayList<>();
+  private long now = 0;
+
+  private final Client transport = (request, options) -> {
+    sent.add(request);
+    return responses.remove(0);
+  };
+
+  @Test
+  public void freshResponseIsReturnedWithoutCall() throws IOException {
+    final Client testSubject = testSubject();
+    responses.add(response(200, "public, max-age=60", null, "blah"));
+
+    Assert.assertEquals("blah", readBody(testSubject.execute(request("GET", "tenant1", "user1"), new Request.Options())));
+    now += TimeUnit.SECONDS.toNanos(30);
+    Assert.assertEquals("blah", readBody(testSubject.execute(request("GET", "tenant1", "user2"), new Request.Options())));
+
+    Assert.assertEquals(1, sent.size());
+  }
+
+  @Test
+  public void responsesAreNotSharedAcrossTenants() throws IOException {
+    final Client testSubject = testSubject();
+    responses.add(response(200, "public, max-age=60", null, "tenant1"));
+    responses.add(response(200, "public, max-age=60", null, "tenant2"));
+
+    Assert.assertEquals("tenant1", readBody(testSubject.execute(request("GET", "tenant1", "user1"), new Request.Options())));
+    Assert.assertEquals("tenant2", readBody(testSubject.execute(request("GET", "tenant2", "user1"), new Request.Options())));
+
+    Assert.assertEquals(2, sent.size());
+  }
+
+  @Test
+  public void privateResponsesAreNotSharedAcrossUsers() throws IOException {
+    final Client testSubject = testSubject();
+    responses.add(response(200, "max-age=60", null, "user1"));
+    responses.add(response(200, "max-age=60", null, "user2"));
+
+    Assert.assertEquals("user1", readBody(testSubject.execute(request("GET", "tenant1", "user1"), new Request.Options())));
+    Assert.assertEquals("user2", readBody(testSubject.execute(request("GET", "tenant1", "user2"), new Request.Options())));
+    Assert.assertEquals("user1", readBody(testSubject.execute(request("GET", "tenant1", "user1"), new Request.Options())));
+
+    Assert.assertEquals(2, sent.size());
+  }
+
+  @Test
+  public void staleResponseIsRevalidatedWithETag() throws IOException {
+    final Client testSubject = testSubject();
+    responses.add(response(200, "max-age=10", "\"v1\"", "blah"));
+    responses.add(response(304, "max-age=10", "\"v1\"", null));
+
+    readBody(testSubject.execute(request("GET", "tenant1", "user1"), new Request.Options()));
+    now += TimeUnit.SECONDS.toNanos(11);
+    final Response revalidated = testSubject.execute(request("GET", "tenant1", "user1"), new Request.Options());
+
+    Assert.assertEquals(200, revalidated.status());
+    Assert.assertEquals("blah", readBody(revalidated));
+    Assert.assertEquals(2, sent.size());
+    Assert.assertEquals(Collections.singletonList("\"v1\""), sent.get(1).headers().get("If-None-Match"));
+
+    now += TimeUnit.SECONDS.toNanos(5);
+    readBody(testSubject.execute(request("GET", "tenant1", "user1"), new Request.Options()));
+    Assert.assertEquals(2, sent.size());
+  }
+
+  @Test
+  public void changedResponseReplacesEntry() throws IOException {
+    final Client testSubject = testSubject();
+    responses.add(response(200, null, "\"v1\"", "old"));
+    responses.add(response(200, null, "\"v2\"", "new"));
+    responses.add(response(304, null, "\"v2\"", null));
+
+    Assert.assertEquals("old", readBody(testSubject.execute(request("GET", "tenant1", "user1"), new Request.Options())));
+    Assert.assertEquals("new", readBody(testSubject.execute(request("GET", "tenant1", "user1"), new Request.Options())));
+    Assert.assertEquals("new", readBody(testSubject.execute(request("GET", "tenant1", "user1"), new Request.Options())));
+
+    Assert.assertEquals(Collections.singletonList("\"v2\""), sent.get(2).headers().get("If-None-Match"));
+  }
+
+  @Test
+  public void noStoreResponseIsNotCached() throws IOException {
+    final ResponseCache cache = new ResponseCache(10, ResponseCache.DEFAULT_MAX_ENTRY_BYTES, () -> now);
+    responses.add(response(200, "no-store, max-age=60", "\"v1\"", "blah"));
+
+    readBody(cache.execute(transport, request("GET", "tenant1", "user1"), new Request.Options()));
+
+    Assert.assertEquals(0, cache.size());
+  }
+
+  @Test
+  public void responseWithVaryIsNotCached() throws IOException {
+    final ResponseCache cache = new ResponseCache(10, ResponseCache.DEFAULT_MAX_ENTRY_BYTES, () -> now);
+    final Response response = response(200, "public, max-age=60", "\"v1\"", "blah");
+    final Map<String, Collection<String>> headers = new HashMap<>(response.headers());
+    headers.put("Vary", Collections.singletonList("Accept-Language"));
+    responses.add(response.toBuilder().headers(headers).build());
+
+    final String body = readBody(cache.execute(transport, request("GET", "tenant1", "user1"), new Request.Options()));
+
+    Assert.assertEquals("blah", body);
+    Assert.assertEquals(0, cache.size());
+  }
+
+  @Test
+  public void bodyOfUnknownLengthLargerThanEntryIsPassedOn() throws IOException {
+    final ResponseCache cache = new ResponseCache(10, 10, () -> now);
+    final String body = "a body which is longer than the maximum entry size";
+    responses.add(response(200, "public, max-age=60", null, null).toBuilder()
+        .body(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)), null)
+        .build());
+
+    Assert.assertEquals(body, readBody(cache.execute(transport, request("GET", "tenant1", "user1"), new Request.Options())));
+    Assert.assertEquals(0, cache.size());
+  }
+
+  @Test
+  public void mutationInvalidatesEntry() throws IOException {
+    final Client testSubject = testSubject();
+    responses.add(response(200, "public, max-age=60", null, "old"));
+    responses.add(response(202, null, null, null));
+    responses.add(response(200, "public, max-age=60", null, "new"));
+
+    readBody(testSubject.execute(request("GET", "tenant1", "user1"), new Request.Options()));
+    testSubject.execute(request("POST", "tenant1", "user1"), new Request.Options());
+    Assert.assertEquals("new", readBody(testSubject.execute(request("GET", "tenant1", "user1"), new Request.Options())));
+  }
+
+  @Test
+  public void leastRecentlyUsedEntriesAreEvicted() throws IOException {
+    final ResponseCache cache = new ResponseCache(2, ResponseCache.DEFAULT_MAX_ENTRY_BYTES, () -> now);
+    for (int i = 0; i < 3; i++) {
+      now++;
+      responses.add(response(200, "public, max-age=60", null, "blah"));
+      readBody(cache.execute(transport, request("GET", "tenant" + i, "user1"), new Request.Options()));
+    }
+
+    Assert.assertEquals(2, cache.size());
+  }
+
+  private Client testSubject() {
+    return new ResponseCache(10, ResponseCache.DEFAULT_MAX_ENTRY_BYTES, () -> now).around(transport);
+  }
+
+  private static Request request(final String method, final String tenant, final String user) {
+    final Map<String, Collection<String>> headers = new HashMap<>();
+    headers.put(TENANT_HEADER, Collections.singletonList(tenant));
+    headers.put(ApiConstants.USER_HEADER, Collections.singletonList(user));
+    return Request.create(method, TEST_URL, headers, null, StandardCharsets.UTF_8);
+  }
+
+  private static Response response(final int status, final String cacheControl, final String etag, final String body) {
+    final Map<String, Collection<String>> headers = new HashMap<>();
+    if (cacheControl != null)
+      headers.put("Cache-Control", Collections.singletonList(cacheControl));
+    if (etag != null)
+      headers.put("ETag", Collections.singletonList(etag));
+    final Response.Builder ret = Response.builder().status(status).headers(headers);
+    if (body != null)
+      ret.body(body, StandardCharsets.UTF_8);
+    return ret.build();
+  }
+
+  private static String readBody(final Response response) throws IOException {
+    try (final Response ignored = response) {
+      return Util.toString(response.body().asReader());
+    }
+  }
+}
@@ -0,0 +1,257 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.api.util;
+
+import feign.Client;
+import feign.Feign;
+import feign.FeignException;
+import feign.InvocationHandlerFactory;
+import feign.RequestLine;
+import feign.Response;
+import feign.RetryableException;
+import feign.Retryer;
+import org.apache.fineract.cn.api.annotation.ThrowsException;
+import org.junit.Assert;
+import org.junit.Test;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+
+public class RetriesTest {
+  private final Queue<Object> outcomes = new ArrayDeque<>();
+  private final List<String> requests = new ArrayList<>();
+  private final List<Long> pauses = new ArrayList<>();
+
+  @Test
+  public void idempotentCallIsRetried() {
+    outcomes.add(503);
+    outcomes.add(502);
+    outcomes.add(200);
+
+    Assert.assertEquals("ok", client(Retries.DEFAULT_MAX_ATTEMPTS, 10).getThing());
+
+    Assert.assertEquals(3, requests.size());
+    Assert.assertEquals(2, pauses.size());
+    for (final long pause : pauses) {
+      Assert.assertTrue(pause >= Retries.BASE_BACKOFF_MILLIS);
+      Assert.assertTrue(pause <= Retries.MAX_BACKOFF_MILLIS);
+    }
+  }
+
+  @Test
+  public void nonIdempotentCallIsNotRetried() {
+    outcomes.add(503);
+
+    try {
+      client(Retries.DEFAULT_MAX_ATTEMPTS, 10).createThing();
+      Assert.fail("Expected a FeignException.");
+    } catch (final FeignException e) {
+      Assert.assertFalse(e instanceof RetryableException);
+      Assert.assertEquals(503, e.status());
+    }
+    Assert.assertEquals(1, requests.size());
+  }
+
+  @Test
+  public void originalExceptionIsThrownAfterLastAttempt() {
+    outcomes.add(503);
+    outcomes.add(503);
+    outcomes.add(503);
+
+    try {
+      client(Retries.DEFAULT_MAX_ATTEMPTS, 10).getThing();
+      Assert.fail("Expected a FeignException.");
+    } catch (final FeignException e) {
+      Assert.assertFalse(e instanceof RetryableException);
+      Assert.assertEquals(503, e.status());
+    }
+    Assert.assertEquals(Retries.DEFAULT_MAX_ATTEMPTS, requests.size());
+  }
+
+  @Test
+  public void mappedStatusIsNotRetried() {
+    outcomes.add(504);
+
+    try {
+      client(Retries.DEFAULT_MAX_ATTEMPTS, 10).getThing();
+      Assert.fail("Expected a ThingTimedOutException.");
+    } catch (final ThingTimedOutException ignored) {
+    }
+    Assert.assertEquals(1, requests.size());
+  }
+
+  @Test
+  public void retryAfterIsHonored() {
+    outcomes.add(response(429, "1"));
+    outcomes.add(200);
+
+    Assert.assertEquals("ok", client(Retries.DEFAULT_MAX_ATTEMPTS, 10).getThing());
+
+    Assert.assertEquals(1, pauses.size());
+    Assert.assertTrue(pauses.get(0) > 500);
+    Assert.assertTrue(pauses.get(0) <= 1000);
+  }
+
+  @Test
+  public void longRetryAfterFailsRightAway() {
+    outcomes.add(response(503, "3600"));
+
+    try {
+      client(Retries.DEFAULT_MAX_ATTEMPTS, 10).getThing();
+      Assert.fail("Expected a FeignException.");
+    } catch (final FeignException e) {
+      Assert.assertEquals(503, e.status());
+    }
+    Assert.assertEquals(1, requests.size());
+  }
+
+  @Test
+  public void refusedConnectionIsRetriedForAnyMethod() {
+    outcomes.add(new ConnectException("Connection refused"));
+    outcomes.add(200);
+
+    Assert.assertEquals("ok", client(Retries.DEFAULT_MAX_ATTEMPTS, 10).createThing());
+    Assert.assertEquals(2, requests.size());
+  }
+
+  @Test
+  public void readTimeoutIsRetriedOnlyForIdempotentMethods() {
+    outcomes.add(new SocketTimeoutException("Read timed out"));
+
+    try {
+      client(Retries.DEFAULT_MAX_ATTEMPTS, 10).createThing();
+      Assert.fail("Expected a RetryableException.");
+    } catch (final RetryableException ignored) {
+    }
+    Assert.assertEquals(1, requests.size());
+
+    outcomes.add(new SocketTimeoutException("Read timed out"));
+    outcomes.add(200);
+    Assert.assertEquals("ok", client(Retries.DEFAULT_MAX_ATTEMPTS, 10).getThing());
+  }
+
+  @Test
+  public void methodOfEarlierCallIsForgotten() {
+    outcomes.add(200);
+    client(Retries.DEFAULT_MAX_ATTEMPTS, 10).getThing();
+
+    outcomes.add(503);
+    final ThingClient plainClient = Feign.builder()
+        .client((request, options) -> {
+          requests.add(request.method());
+          return response((Integer) outcomes.remove(), null);
+        })
+        .retryer(new Retryer.Default(1, 1, Retries.DEFAULT_MAX_ATTEMPTS))
+        .errorDecoder(new AnnotatedErrorDecoder(LoggerFactory.getLogger(RetriesTest.class.getName()), ThingClient.class))
+        .target(ThingClient.class, "http://igle.pop.org");
+    try {
+      plainClient.createThing();
+      Assert.fail("Expected a FeignException.");
+    } catch (final FeignException e) {
+      Assert.assertFalse(e instanceof RetryableException);
+      Assert.assertEquals(503, e.status());
+    }
+
+    Assert.assertEquals(2, requests.size());
+  }
+
+  @Test
+  public void budgetLimitsRetries() {
+    final ThingClient client = client(Retries.DEFAULT_MAX_ATTEMPTS, 2);
+    for (int i = 0; i < 4; i++)
+      outcomes.add(503);
+
+    for (int i = 0; i < 2; i++) {
+      try {
+        client.getThing();
+        Assert.fail("Expected a FeignException.");
+      } catch (final FeignException ignored) {
+      }
+    }
+
+    Assert.assertEquals("Two retries for the first call, none for the second.", 4, requests.size());
+  }
+
+  @Test
+  public void singleAttemptTurnsRetriesOff() {
+    outcomes.add(503);
+
+    try {
+      client(1, 10).getThing();
+      Assert.fail("Expected a FeignException.");
+    } catch (final FeignException e) {
+      Assert.assertFalse(e instanceof RetryableException);
+    }
+    Assert.assertEquals(1, requests.size());
+  }
+
+  private ThingClient client(final int maxAttempts, final int budget) {
+    final Retries retries = new Retries(
+        new TokenBucket(Retries.BUDGET_PERCENT, budget), pauses::add, System::currentTimeMillis);
+    final Client transport = (request, options) -> {
+      requests.add(request.method());
+      final Object outcome = outcomes.remove();
+      if (outcome instanceof IOException)
+        throw (IOException) outcome;
+      if (outcome instanceof Response)
+        return (Response) outcome;
+      return response((Integer) outcome, null);
+    };
+    return Feign.builder()
+        .client(retries.around(transport))
+        .retryer(retries.retryer(maxAttempts))
+        .invocationHandlerFactory(Retries.instrument(new InvocationHandlerFactory.Default()))
+        .errorDecoder(new AnnotatedErrorDecoder(LoggerFactory.getLogger(RetriesTest.class.getName()), ThingClient.class))
+        .target(ThingClient.class, "http://igle.pop.org");
+  }
+
+  private static Response response(final int status, final String retryAfter) {
+    final Map<String, Collection<String>> headers = retryAfter == null
+        ? Collections.emptyMap()
+        : Collections.singletonMap("Retry-After", Collections.singletonList(retryAfter));
+    return Response.builder()
+        .status(status)
+        .headers(headers)
+        .body(status == 200 ? "ok" : "failed", StandardCharsets.UTF_8)
+        .build();
+  }
+
+  public static class ThingTimedOutException extends RuntimeException {
+  }
+
+  public interface ThingClient {
+    @RequestLine("GET /thing")
+    @ThrowsException(status = HttpStatus.GATEWAY_TIMEOUT, exception = ThingTimedOutException.class)
+    String getThing();
+
+    @RequestLine("POST /thing")
+    String createThing();
+  }
+}
@@ -0,0 +1,166 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.api.util;
+
+import feign.Client;
+import feign.Feign;
+import feign.RequestLine;
+import feign.Response;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+public class StreamingDecoderTest {
+  private static final String THINGS = "[{\"name\":\"a\"},{\"name\":\"b\"},{\"name\":\"c\"}]";
+
+  static class Thing {
+    String name;
+  }
+
+  interface ThingClient {
+    @RequestLine("GET /things")
+    Stream<Thing> streamThings();
+
+    @RequestLine("GET /things")
+    Iterator<Thing> iterateThings();
+
+    @RequestLine("GET /things")
+    Consumer<Consumer<Thing>> consumeThings();
+
+    @RequestLine("GET /things")
+    List<Thing> getThings();
+  }
+
+  private final TrackingInputStream body = new TrackingInputStream(THINGS);
+
+  @Test
+  public void streamKeepsResponseOpenUntilClosed() {
+    final ThingClient client = client();
+
+    try (final Stream<Thing> things = client.streamThings()) {
+      Assert.assertFalse(body.closed);
+      Assert.assertEquals("a,b,c", things.map(x -> x.name).collect(Collectors.joining(",")));
+    }
+
+    Assert.assertTrue(body.closed);
+  }
+
+  @Test
+  public void iteratorClosesResponseWhenExhausted() throws IOException {
+    final Iterator<Thing> things = client().iterateThings();
+
+    Assert.assertEquals("a", things.next().name);
+    Assert.assertFalse(body.closed);
+    things.next();
+    things.next();
+    Assert.assertFalse(things.hasNext());
+    Assert.assertTrue(body.closed);
+    ((Closeable) things).close();
+  }
+
+  @Test
+  public void consumerReadsAllElementsAndClosesResponse() {
+    final List<String> names = new ArrayList<>();
+
+    client().consumeThings().accept(thing -> names.add(thing.name));
+
+    Assert.assertEquals(3, names.size());
+    Assert.assertTrue(body.closed);
+  }
+
+  @Test
+  public void otherTypesAreDecodedByDelegate() {
+    Assert.assertEquals(3, client().getThings().size());
+    Assert.assertTrue(body.closed);
+  }
+
+  @Test
+  public void bodyWhichCantBeDetachedIsReadIntoMemory() throws Exception {
+    final Type type = ThingClient.class.getMethod("streamThings").getGenericReturnType();
+    final Response response = Response.builder()
+        .status(200)
+        .headers(Collections.emptyMap())
+        .body(body, THINGS.length())
+        .build();
+
+    @SuppressWarnings("unchecked")
+    final Stream<Thing> things = (Stream<Thing>) new StreamingDecoder().decode(response, type);
+    response.close();
+
+    Assert.assertEquals(3, things.count());
+  }
+
+  @Test
+  public void elementsAreDecodedLikeWholeResponses() throws Exception {
+    final String json = "[{\"count\":3}]";
+    final Response response = Response.builder()
+        .status(200)
+        .headers(Collections.emptyMap())
+        .body(json, StandardCharsets.UTF_8)
+        .build();
+
+    @SuppressWarnings("unchecked")
+    final Stream<Map<String, Object>> elements = (Stream<Map<String, Object>>) new StreamingDecoder()
+        .decode(response, StreamingDecoderTest.class.getDeclaredField("mapStream").getGenericType());
+
+    Assert.assertEquals(3, elements.findFirst().orElseThrow(AssertionError::new).get("count"));
+  }
+
+  @SuppressWarnings("unused")
+  private Stream<Map<String, Object>> mapStream;
+
+  private ThingClient client() {
+    final Client transport = (request, options) -> Response.builder()
+        .status(200)
+        .headers(Collections.emptyMap())
+        .body(body, THINGS.length())
+        .build();
+    return Feign.builder()
+        .client(DetachableBody.around(transport))
+        .decoder(new StreamingDecoder())
+        .target(ThingClient.class, "http://igle.pop.org");
+  }
+
+  private static class TrackingInputStream extends ByteArrayInputStream {
+    private boolean closed = false;
+
+    TrackingInputStream(final String content) {
+      super(content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public void close() throws IOException {
+      closed = true;
+      super.close();
+    }
+  }
+}